@@ -0,0 +1,45 @@
+package com.freesidenomad.proxima.config;
+
+import com.freesidenomad.proxima.service.JwtService;
+import com.freesidenomad.proxima.service.VerifiedTokenCache;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Instant;
+
+/**
+ * Decoder that remembers successfully validated tokens, so a bearer token presented repeatedly
+ * is only verified once until it expires or the JwtService keys change.
+ */
+public final class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final JwtService jwtService;
+    private final VerifiedTokenCache<Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, JwtService jwtService, VerifiedTokenCache<Jwt> cache) {
+        this.delegate = delegate;
+        this.jwtService = jwtService;
+        this.cache = cache;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long keySetVersion = jwtService.getKeySetVersion();
+        Jwt cached = cache.get(token, keySetVersion, Instant.now());
+        if (cached != null) {
+            return cached;
+        }
+        Jwt jwt = delegate.decode(token);
+        // Tokens without an expiry are verified every time
+        if (jwt.getExpiresAt() != null) {
+            cache.put(token, jwt, jwt.getExpiresAt(), keySetVersion);
+        }
+        return jwt;
+    }
+
+    public VerifiedTokenCache<Jwt> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,26 @@
+package com.freesidenomad.proxima.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Running several Proxima nodes behind one load balancer. {@code nodes} maps every node id,
+ * including this one, to the base URL the other nodes reach it at; {@code secret} authenticates
+ * nodes to each other and must be the same on all of them. Node ids must not contain dots.
+ */
+@Component
+@ConfigurationProperties(prefix = "proxima.cluster")
+@Data
+public class ClusterProperties {
+
+    private boolean enabled = false;
+    private String nodeId;
+    private Map<String, String> nodes = new LinkedHashMap<>();
+    private String secret;
+    private long timeoutMillis = 2000;
+    private long syncIntervalMillis = 5000;
+}
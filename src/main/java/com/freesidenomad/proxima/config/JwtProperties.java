@@ -0,0 +1,110 @@
+package com.freesidenomad.proxima.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for token minting and key management in JwtService.
+ */
+@Component
+@ConfigurationProperties(prefix = "proxima.jwt")
+@Data
+public class JwtProperties {
+
+    private TokenCache tokenCache = new TokenCache();
+    private KeyPool keyPool = new KeyPool();
+    private Keystore keystore = new Keystore();
+    private VerificationCache verificationCache = new VerificationCache();
+    private Batch batch = new Batch();
+    private Rotation rotation = new Rotation();
+    private Crypto crypto = new Crypto();
+
+    /**
+     * Optional cache of signed tokens. Identical mint requests reuse the cached compact token
+     * until {@code reuseFraction} of its lifetime has elapsed, instead of signing again.
+     */
+    @Data
+    public static class TokenCache {
+        private boolean enabled = false;
+        private int maxEntries = 10000;
+        private double reuseFraction = 0.5;
+    }
+
+    /**
+     * Key pairs kept pre-generated on a background thread, per key type. A size of 0 disables
+     * pooling for that type.
+     */
+    @Data
+    public static class KeyPool {
+        private boolean enabled = true;
+        private int rsa = 2;
+        private int ec = 2;
+        private int ed25519 = 2;
+    }
+
+    /**
+     * File that keys are loaded from at startup and persisted to when they change, so tokens
+     * stay valid across restarts. The file contains private keys.
+     */
+    @Data
+    public static class Keystore {
+        private boolean enabled = false;
+        private String path = "jwt-keys.json";
+    }
+
+    /**
+     * Cache of bearer tokens that passed validation, kept until they expire or the keys change.
+     */
+    @Data
+    public static class VerificationCache {
+        private boolean enabled = true;
+        private int maxEntries = 10000;
+    }
+
+    /**
+     * Batch minting: a batch may hold at most {@code maxTokens} tokens, which are signed on the
+     * crypto executor.
+     */
+    @Data
+    public static class Batch {
+        private int maxTokens = 100000;
+    }
+
+    /**
+     * Scheduled rotation of the RS256, ES256 and EdDSA keys under {@code keyIds}. A new version
+     * of each key takes over signing every {@code intervalSeconds}, at times aligned to the epoch
+     * so that every node picks the same ones. It is published in the JWKS
+     * {@code prePublishSeconds} before it signs, and the version it replaces is removed
+     * {@code maxTokenLifetimeSeconds} after it stops signing. Schedules are checked every
+     * {@code checkIntervalSeconds}.
+     */
+    @Data
+    public static class Rotation {
+        private boolean enabled = false;
+        private List<String> keyIds = new ArrayList<>(List.of("default"));
+        private long intervalSeconds = 86400;
+        private long prePublishSeconds = 3600;
+        private long maxTokenLifetimeSeconds = 86400;
+        private long checkIntervalSeconds = 60;
+    }
+
+    /**
+     * Threads that RS256, ES256 and EdDSA signing and key generation run on. {@code threads} of 0
+     * means one per available processor, which counts hyperthreads; set it to the number of
+     * physical cores where they differ. When {@code queueCapacity} tasks are waiting, further
+     * tasks run on the caller ({@code CALLER_RUNS}) or are rejected ({@code ABORT}).
+     */
+    @Data
+    public static class Crypto {
+        private boolean enabled = true;
+        private int threads = 0;
+        private int queueCapacity = 1024;
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+    }
+
+    public enum RejectionPolicy { CALLER_RUNS, ABORT }
+}
@@ -0,0 +1,79 @@
+package com.freesidenomad.proxima.config;
+
+import com.freesidenomad.proxima.service.JwtService;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JWK source backed directly by the JwtService key state, so token validation needs no HTTP
+ * round trip to Proxima's own JWKS endpoint.
+ * <p>
+ * The JWK set is rebuilt whenever the key set version changes, which makes new and rotated keys
+ * visible to the decoder on the next validation. Ed25519 keys are left out because verifying
+ * EdDSA with Nimbus requires an additional crypto library.
+ */
+public final class JwtServiceJwkSource implements JWKSource<SecurityContext> {
+
+    private final JwtService jwtService;
+    private volatile Snapshot snapshot;
+
+    public JwtServiceJwkSource(JwtService jwtService) {
+        this.jwtService = jwtService;
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        return jwkSelector.select(currentKeys());
+    }
+
+    JWKSet currentKeys() {
+        long version = jwtService.getKeySetVersion();
+        Snapshot current = snapshot;
+        if (current == null || current.version() != version) {
+            current = new Snapshot(version, buildKeys());
+            snapshot = current;
+        }
+        return current.keys();
+    }
+
+    private JWKSet buildKeys() {
+        List<JWK> keys = new ArrayList<>();
+        for (JwtService.VerificationKey key : jwtService.getVerificationKeys()) {
+            switch (key.algorithm()) {
+                case "RS256":
+                    keys.add(new RSAKey.Builder((RSAPublicKey) key.publicKey())
+                            .keyID(key.keyId())
+                            .keyUse(KeyUse.SIGNATURE)
+                            .algorithm(JWSAlgorithm.RS256)
+                            .build());
+                    break;
+                case "ES256":
+                    keys.add(new ECKey.Builder(Curve.P_256, (ECPublicKey) key.publicKey())
+                            .keyID(key.keyId())
+                            .keyUse(KeyUse.SIGNATURE)
+                            .algorithm(JWSAlgorithm.ES256)
+                            .build());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new JWKSet(keys);
+    }
+
+    private record Snapshot(long version, JWKSet keys) {
+    }
+}
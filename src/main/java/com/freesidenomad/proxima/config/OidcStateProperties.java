@@ -0,0 +1,30 @@
+package com.freesidenomad.proxima.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persistence of OIDC clients, pending authorization codes and cached preset tokens, so they
+ * survive a restart. Changes are appended to a journal in {@code directory} and folded into a
+ * snapshot once {@code compactAfterRecords} have been written. The files contain client secrets
+ * and tokens.
+ */
+@Component
+@ConfigurationProperties(prefix = "proxima.oidc.state")
+@Data
+public class OidcStateProperties {
+
+    private boolean enabled = false;
+    private String directory = "oidc-state";
+    private Durability durability = Durability.BATCH;
+    private long fsyncIntervalMillis = 200;
+    private int compactAfterRecords = 10000;
+
+    /**
+     * When journal writes reach the disk: {@code NONE} leaves it to the operating system,
+     * {@code BATCH} syncs every {@code fsyncIntervalMillis}, and {@code ALWAYS} syncs every write
+     * before it returns.
+     */
+    public enum Durability { NONE, BATCH, ALWAYS }
+}
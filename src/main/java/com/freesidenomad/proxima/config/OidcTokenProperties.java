@@ -0,0 +1,84 @@
+package com.freesidenomad.proxima.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the OIDC tokens that OidcTokenServiceImpl mints and caches per preset.
+ */
+@Component
+@ConfigurationProperties(prefix = "proxima.oidc.tokens")
+@Data
+public class OidcTokenProperties {
+
+    private Refresh refresh = new Refresh();
+    private Startup startup = new Startup();
+    private ClientCredentials clientCredentials = new ClientCredentials();
+    private RefreshTokens refreshTokens = new RefreshTokens();
+    private AuthorizationCodes authorizationCodes = new AuthorizationCodes();
+
+    /**
+     * Background refresh of cached tokens. Each preset's tokens are refreshed once
+     * {@code fraction} of their lifetime has elapsed, plus or minus a random {@code jitter}
+     * fraction so presets minted together are not refreshed together.
+     */
+    @Data
+    public static class Refresh {
+        private double fraction = 0.8;
+        private double jitter = 0.05;
+        private long tickMillis = 100;
+        private int wheelSize = 512;
+        private int threads = 2;
+        private int queueCapacity = 64;
+        private long retryDelayMillis = 1000;
+    }
+
+    /**
+     * Token minting when the application starts. In {@code EAGER} mode every OIDC-enabled preset
+     * is minted on the JWT crypto executor, {@code parallelism} presets at a time (0 means one per
+     * available core), before the application reports ready. In {@code LAZY} mode nothing is minted until first use.
+     */
+    @Data
+    public static class Startup {
+        private Mode mode = Mode.EAGER;
+        private int parallelism = 0;
+        private long timeoutSeconds = 60;
+    }
+
+    public enum Mode { EAGER, LAZY }
+
+    /**
+     * Access tokens issued by the client_credentials grant. A token is reused for the same client
+     * and scope until {@code reuseFraction} of its lifetime has elapsed.
+     */
+    @Data
+    public static class ClientCredentials {
+        private String algorithm = "RS256";
+        private String keyId = "default";
+        private double reuseFraction = 0.8;
+        private int maxEntries = 1000;
+    }
+
+    /**
+     * Opaque refresh tokens issued with the authorization_code grant. Each use returns a new
+     * refresh token, and the grant is revoked if a used token is presented again.
+     */
+    @Data
+    public static class RefreshTokens {
+        private boolean enabled = true;
+        private long lifetimeSeconds = 86400;
+        private int maxEntries = 10000;
+    }
+
+    /**
+     * Authorization codes waiting to be exchanged. At most {@code maxEntries} are held; each is
+     * dropped by a timing wheel with {@code tickMillis} resolution once it expires.
+     */
+    @Data
+    public static class AuthorizationCodes {
+        private int maxEntries = 10000;
+        private long tickMillis = 1000;
+        private int wheelSize = 1024;
+    }
+}
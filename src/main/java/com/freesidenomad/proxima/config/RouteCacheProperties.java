@@ -0,0 +1,19 @@
+package com.freesidenomad.proxima.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the optional route lookup cache in RouteService.
+ * The memory budget is fixed by {@code maxEntries} and {@code maxPathLength}.
+ */
+@Component
+@ConfigurationProperties(prefix = "proxima.routing.cache")
+@Data
+public class RouteCacheProperties {
+
+    private boolean enabled = false;
+    private int maxEntries = 4096;
+    private int maxPathLength = 512;
+}
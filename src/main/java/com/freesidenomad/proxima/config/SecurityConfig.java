@@ -1,5 +1,15 @@
 package com.freesidenomad.proxima.config;
 
+import com.freesidenomad.proxima.service.JwtService;
+import com.freesidenomad.proxima.service.VerifiedTokenCache;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,15 +17,27 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.util.Set;
+
 @Configuration
 @EnableWebSecurity
 @ConditionalOnMissingBean(name = "testJwtDecoder")
 public class SecurityConfig {
 
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private JwtProperties jwtProperties;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -52,9 +74,26 @@ public class SecurityConfig {
 
     @Bean
     public JwtDecoder jwtDecoder() {
-        // Configure JWT decoder to use our local JWKS endpoint
-        return NimbusJwtDecoder
-            .withJwkSetUri("http://localhost:8080/proxima/api/jwt/.well-known/jwks.json")
-            .build();
+        // Validate against the keys held by JwtService in-process rather than fetching our own JWKS over HTTP
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(
+            Set.of(JWSAlgorithm.RS256, JWSAlgorithm.ES256), new JwtServiceJwkSource(jwtService)));
+        // Expiry and other claims are checked by the Spring Security validators
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> { });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+
+        JwtProperties.VerificationCache settings = jwtProperties.getVerificationCache();
+        if (!settings.isEnabled()) {
+            return decoder;
+        }
+        VerifiedTokenCache<Jwt> cache = new VerifiedTokenCache<>(settings.getMaxEntries());
+        if (meterRegistry != null) {
+            FunctionCounter.builder("proxima.jwt.verification.cache.hits", cache, VerifiedTokenCache::getHitCount)
+                .description("Bearer token validations served from the verified-token cache").register(meterRegistry);
+            FunctionCounter.builder("proxima.jwt.verification.cache.misses", cache, VerifiedTokenCache::getMissCount)
+                .register(meterRegistry);
+            Gauge.builder("proxima.jwt.verification.cache.size", cache, VerifiedTokenCache::size).register(meterRegistry);
+        }
+        return new CachingJwtDecoder(decoder, jwtService, cache);
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.freesidenomad.proxima.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.freesidenomad.proxima.service.ClusterService;
+import com.freesidenomad.proxima.service.ReplicatedEntry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoints the nodes of a cluster call on each other. Every request must carry the cluster
+ * secret in the {@value ClusterService#SECRET_HEADER} header.
+ */
+@RestController
+@RequestMapping("/proxima/api/cluster")
+@ConditionalOnProperty(prefix = "proxima.cluster", name = "enabled", havingValue = "true")
+@Tag(name = "Cluster", description = "Replication between Proxima nodes")
+public class ClusterController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterController.class);
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @PostMapping("/replicate")
+    @Operation(summary = "Apply replicated entries", description = "Returns the entries this node holds newer versions of")
+    public ResponseEntity<?> replicate(@RequestHeader(value = ClusterService.SECRET_HEADER, required = false) String secret,
+                                       @RequestBody List<ReplicatedEntry> entries) {
+        if (!clusterService.authenticate(secret)) {
+            return unauthorized();
+        }
+        return ResponseEntity.ok(clusterService.apply(entries));
+    }
+
+    @GetMapping("/state")
+    @Operation(summary = "Get replicated state", description = "Every entry this node holds, for a node that is starting")
+    public ResponseEntity<?> getState(@RequestHeader(value = ClusterService.SECRET_HEADER, required = false) String secret) {
+        if (!clusterService.authenticate(secret)) {
+            return unauthorized();
+        }
+        return ResponseEntity.ok(clusterService.getState());
+    }
+
+    @PostMapping("/calls/{operation}")
+    @Operation(summary = "Run a forwarded operation", description = "Runs an operation on state this node owns")
+    public ResponseEntity<?> call(@RequestHeader(value = ClusterService.SECRET_HEADER, required = false) String secret,
+                                  @PathVariable String operation, @RequestBody JsonNode request) {
+        if (!clusterService.authenticate(secret)) {
+            return unauthorized();
+        }
+        try {
+            return ResponseEntity.ok(clusterService.handleCall(operation, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error running forwarded cluster operation: " + operation, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Internal server error"));
+        }
+    }
+
+    @GetMapping("/status")
+    @Operation(summary = "Get cluster status", description = "Peers, replicated entries and replication counters of this node")
+    public ResponseEntity<?> getStatus(@RequestHeader(value = ClusterService.SECRET_HEADER, required = false) String secret) {
+        if (!clusterService.authenticate(secret)) {
+            return unauthorized();
+        }
+        return ResponseEntity.ok(clusterService.getStats());
+    }
+
+    private static ResponseEntity<?> unauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid cluster secret"));
+    }
+}
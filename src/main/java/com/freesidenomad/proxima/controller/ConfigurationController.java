@@ -4,6 +4,7 @@ import com.freesidenomad.proxima.model.HeaderPreset;
 import com.freesidenomad.proxima.model.RouteRule;
 import com.freesidenomad.proxima.service.ConfigurationService;
 import com.freesidenomad.proxima.service.RouteService;
+import com.freesidenomad.proxima.service.routing.RouteRequest;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -118,22 +119,45 @@ public class ConfigurationController {
     }
 
     @GetMapping("/routes/test/{path}")
-    public ResponseEntity<Map<String, Object>> testRoute(@PathVariable String path) {
-        String fullPath = "/" + path;
-        String resolvedUrl = routeService.resolveTargetUrl(fullPath);
+    public ResponseEntity<Map<String, Object>> testRoute(@PathVariable String path,
+                                                         @RequestParam(required = false) String host,
+                                                         @RequestParam(required = false) String method) {
+        return ResponseEntity.ok(describeRoute(RouteRequest.of("/" + path, host, method)));
+    }
+
+    @GetMapping("/routes/test")
+    public ResponseEntity<Map<String, Object>> testRoutePath(@RequestParam String path,
+                                                             @RequestParam(required = false) String host,
+                                                             @RequestParam(required = false) String method) {
+        String fullPath = path.startsWith("/") ? path : "/" + path;
+        return ResponseEntity.ok(describeRoute(RouteRequest.of(fullPath, host, method)));
+    }
+
+    private Map<String, Object> describeRoute(RouteRequest routeRequest) {
+        if (routeService.isReservedRoute(routeRequest.getPath())) {
+            return Map.of(
+                    "inputPath", routeRequest.getPath(),
+                    "reserved", true,
+                    "matchingRoute", Map.of("message", "Reserved route, not proxied")
+            );
+        }
 
-        Map<String, Object> result = Map.of(
-                "inputPath", fullPath,
+        String resolvedUrl = routeService.resolveTargetUrl(routeRequest);
+
+        return Map.of(
+                "inputPath", routeRequest.getPath(),
+                "reserved", false,
                 "resolvedUrl", resolvedUrl,
-                "matchingRoute", routeService.findMatchingRoute(fullPath)
+                "matchingRoute", routeService.findMatchingRoute(routeRequest)
                         .map(route -> Map.of(
                                 "pattern", route.getPathPattern(),
                                 "target", route.getTargetUrl(),
                                 "description", route.getDescription()
                         ))
-                        .orElse(Map.of("message", "No specific route found, using default"))
+                        .orElse(Map.of("message", "No specific route found, using default")),
+                "rewrite", routeService.findMatchingRewrite(routeRequest)
+                        .map(Object::toString)
+                        .orElse("none")
         );
-
-        return ResponseEntity.ok(result);
     }
 }
\ No newline at end of file
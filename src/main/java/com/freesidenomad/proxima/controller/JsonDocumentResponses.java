@@ -0,0 +1,34 @@
+package com.freesidenomad.proxima.controller;
+
+import com.freesidenomad.proxima.service.JsonDocument;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+
+/**
+ * Responses for precomputed JSON documents with ETag and Cache-Control, answering
+ * conditional requests for an unchanged document with 304 Not Modified.
+ */
+final class JsonDocumentResponses {
+
+    private JsonDocumentResponses() {
+    }
+
+    static ResponseEntity<byte[]> of(JsonDocument document, String ifNoneMatch, long maxAgeSeconds) {
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+        if (document.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(document.getEtag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(document.getEtag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(document.getBody());
+    }
+}
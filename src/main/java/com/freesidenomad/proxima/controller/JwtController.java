@@ -1,6 +1,9 @@
 package com.freesidenomad.proxima.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.freesidenomad.proxima.service.JwtService;
+import com.freesidenomad.proxima.service.TokenBatchService;
+import com.freesidenomad.proxima.service.TokenVerificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,12 +18,22 @@ import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/proxima/api/jwt")
@@ -32,6 +45,18 @@ public class JwtController {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private TokenBatchService tokenBatchService;
+
+    @Autowired
+    private TokenVerificationService tokenVerificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${proxima.oidc.metadata-max-age:300}")
+    private long jwksMaxAge;
+
     @PostMapping("/tokens")
     @Operation(
         summary = "Generate JWT Token",
@@ -104,36 +129,158 @@ public class JwtController {
             )
         )
     })
-    public ResponseEntity<Map<String, Object>> generateToken(@RequestBody TokenRequest request) {
-        try {
-            // Validate request
-            if (request.getSubject() == null || request.getSubject().trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(createErrorResponse("Subject is required"));
-            }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> generateToken(@RequestBody TokenRequest request) {
+        // Validate request
+        if (request.getSubject() == null || request.getSubject().trim().isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(createErrorResponse("Subject is required")));
+        }
 
-            String algorithm = request.getAlgorithm() != null ? request.getAlgorithm() : "HS256";
-            String keyId = request.getKeyId() != null ? request.getKeyId() : "default";
-            Duration expiration = request.getExpirationSeconds() != null ?
-                Duration.ofSeconds(request.getExpirationSeconds()) : Duration.ofHours(1);
+        String algorithm = request.getAlgorithm() != null ? request.getAlgorithm() : "HS256";
+        String keyId = request.getKeyId() != null ? request.getKeyId() : "default";
+        Duration expiration = request.getExpirationSeconds() != null ?
+            Duration.ofSeconds(request.getExpirationSeconds()) : Duration.ofHours(1);
+
+        Map<String, Object> claims = request.getClaims();
+
+        // Signed on the crypto executor, so the request thread is free until the token is ready
+        return jwtService.generateTokenResponseAsync(request.getSubject(), claims, expiration, algorithm, keyId)
+            .handle((response, error) -> {
+                if (error == null) {
+                    logger.info("Generated JWT token for subject: {} with algorithm: {}", request.getSubject(), algorithm);
+                    return ResponseEntity.ok(response);
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof RejectedExecutionException) {
+                    logger.warn("Token signing queue is full, rejecting token for subject: {}", request.getSubject());
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(createErrorResponse("Token signing is overloaded, try again later"));
+                }
+                logger.error("Error generating JWT token", cause);
+                return ResponseEntity.badRequest().body(createErrorResponse(cause.getMessage()));
+            });
+    }
 
-            Map<String, Object> claims = request.getClaims();
+    @PostMapping("/tokens/batch")
+    @Operation(
+        summary = "Generate JWT Tokens in Bulk",
+        description = "Sign one token per entry, applying the entry's subject and claims on top of a shared template. "
+            + "Tokens are signed in parallel and streamed back as NDJSON, one line per entry in request order, "
+            + "holding either the token or the error that prevented signing it.",
+        requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "Batch token generation request",
+            required = true,
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = BatchTokenRequest.class),
+                examples = @ExampleObject(
+                    name = "Load Test Users",
+                    value = """
+                    {
+                      "template": {
+                        "algorithm": "RS256",
+                        "expirationSeconds": 3600,
+                        "claims": {"role": "user"}
+                      },
+                      "tokens": [
+                        {"subject": "user1@example.com"},
+                        {"subject": "user2@example.com", "claims": {"role": "admin"}}
+                      ]
+                    }
+                    """
+                )
+            )
+        )
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Tokens streamed as they are signed",
+            content = @Content(
+                mediaType = "application/x-ndjson",
+                examples = @ExampleObject(
+                    name = "Signed Tokens",
+                    value = """
+                    {"index":0,"subject":"user1@example.com","token":"eyJhbGciOiJSUzI1NiJ9..."}
+                    {"index":1,"subject":"user2@example.com","token":"eyJhbGciOiJSUzI1NiJ9..."}
+                    """
+                )
+            )
+        ),
+        @ApiResponse(responseCode = "400", description = "Empty or oversized batch, or an entry without a subject")
+    })
+    public ResponseEntity<StreamingResponseBody> generateTokens(@RequestBody BatchTokenRequest request) {
+        List<BatchTokenRequest.Entry> entries = request.getTokens();
+        if (entries == null || entries.isEmpty()) {
+            return batchError("At least one token is required");
+        }
+        if (entries.size() > tokenBatchService.getMaxTokens()) {
+            return batchError("A batch may hold at most " + tokenBatchService.getMaxTokens() + " tokens");
+        }
 
-            Map<String, Object> response = jwtService.generateTokenResponse(
-                request.getSubject(),
-                claims,
-                expiration,
-                algorithm,
-                keyId
-            );
+        TokenRequest template = request.getTemplate() != null ? request.getTemplate() : new TokenRequest();
+        String algorithm = template.getAlgorithm() != null ? template.getAlgorithm() : "HS256";
+        String keyId = template.getKeyId() != null ? template.getKeyId() : "default";
+        Duration expiration = template.getExpirationSeconds() != null ?
+            Duration.ofSeconds(template.getExpirationSeconds()) : Duration.ofHours(1);
+        Map<String, Object> templateClaims = template.getClaims();
+
+        List<TokenBatchService.TokenSpec> tokens = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            BatchTokenRequest.Entry entry = entries.get(i);
+            if (entry == null || entry.getSubject() == null || entry.getSubject().trim().isEmpty()) {
+                return batchError("Subject is required for token " + i);
+            }
+            Map<String, Object> claims = templateClaims;
+            if (entry.getClaims() != null && !entry.getClaims().isEmpty()) {
+                claims = new HashMap<>(templateClaims);
+                claims.putAll(entry.getClaims());
+            }
+            tokens.add(new TokenBatchService.TokenSpec(entry.getSubject(), claims, expiration, algorithm, keyId));
+        }
 
-            logger.info("Generated JWT token for subject: {} with algorithm: {}", request.getSubject(), algorithm);
+        logger.info("Generating batch of {} JWT tokens with algorithm: {}", tokens.size(), algorithm);
+        StreamingResponseBody body = output -> tokenBatchService.mint(tokens, result -> {
+            output.write(objectMapper.writeValueAsBytes(result));
+            output.write('\n');
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
 
-            return ResponseEntity.ok(response);
+    /**
+     * An error response for the batch endpoint, whose streaming return type rules out returning
+     * the error map itself.
+     */
+    private ResponseEntity<StreamingResponseBody> batchError(String message) {
+        Map<String, Object> error = createErrorResponse(message);
+        return ResponseEntity.badRequest()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(output -> output.write(objectMapper.writeValueAsBytes(error)));
+    }
 
-        } catch (Exception e) {
-            logger.error("Error generating JWT token", e);
-            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+    @PostMapping("/verify")
+    @Operation(
+        summary = "Verify JWT Token",
+        description = "Check the signature and expiry of a token signed with one of Proxima's keys and return its claims. "
+            + "An invalid token is reported with valid=false and the reason"
+    )
+    public ResponseEntity<Map<String, Object>> verifyToken(@RequestBody VerifyRequest request) {
+        if (request.getToken() == null || request.getToken().isBlank()) {
+            return ResponseEntity.badRequest().body(createErrorResponse("Token is required"));
         }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            TokenVerificationService.VerifiedToken verified = tokenVerificationService.verify(request.getToken().trim());
+            response.put("valid", true);
+            response.put("algorithm", verified.algorithm());
+            response.put("keyId", verified.keyId());
+            response.put("claims", verified.claims());
+            response.put("expiresAt", verified.expiresAt() != null ? verified.expiresAt().toString() : null);
+        } catch (IllegalArgumentException e) {
+            response.put("valid", false);
+            response.put("error", e.getMessage());
+        }
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/keys/hmac")
@@ -187,6 +334,50 @@ public class JwtController {
         }
     }
 
+    @PostMapping("/keys/ec")
+    public ResponseEntity<Map<String, Object>> generateEcKeyPair(@RequestBody KeyRequest request) {
+        try {
+            if (request.getKeyId() == null || request.getKeyId().trim().isEmpty()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Key ID is required"));
+            }
+
+            if (jwtService.keyExists(request.getKeyId())) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Key ID already exists"));
+            }
+
+            Map<String, Object> response = new HashMap<>(jwtService.generateEcKeyPair(request.getKeyId()));
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Error generating EC key pair", e);
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/keys/eddsa")
+    public ResponseEntity<Map<String, Object>> generateEdKeyPair(@RequestBody KeyRequest request) {
+        try {
+            if (request.getKeyId() == null || request.getKeyId().trim().isEmpty()) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Key ID is required"));
+            }
+
+            if (jwtService.keyExists(request.getKeyId())) {
+                return ResponseEntity.badRequest().body(createErrorResponse("Key ID already exists"));
+            }
+
+            Map<String, Object> response = new HashMap<>(jwtService.generateEdKeyPair(request.getKeyId()));
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Error generating Ed25519 key pair", e);
+            return ResponseEntity.badRequest().body(createErrorResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/keys")
     public ResponseEntity<Map<String, Object>> getKeys() {
         try {
@@ -209,7 +400,7 @@ public class JwtController {
             Map<String, Object> response = new HashMap<>();
             response.put("keyId", keyId);
             response.put("publicKey", publicKey);
-            response.put("algorithm", "RS256");
+            response.put("algorithm", jwtService.getPublicKeyAlgorithm(keyId));
             response.put("status", "success");
 
             return ResponseEntity.ok(response);
@@ -239,10 +430,10 @@ public class JwtController {
     }
 
     @GetMapping("/.well-known/jwks.json")
-    public ResponseEntity<Map<String, Object>> getJwks() {
+    public ResponseEntity<?> getJwks(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            Map<String, Object> jwks = jwtService.getJwks();
-            return ResponseEntity.ok(jwks);
+            return JsonDocumentResponses.of(jwtService.getJwksDocument(), ifNoneMatch, jwksMaxAge);
 
         } catch (Exception e) {
             logger.error("Error retrieving JWKS", e);
@@ -272,7 +463,7 @@ public class JwtController {
         @Schema(description = "Token expiration time in seconds", example = "3600", defaultValue = "3600")
         private Long expirationSeconds;
 
-        @Schema(description = "Signing algorithm", example = "HS256", allowableValues = {"HS256", "RS256"}, defaultValue = "HS256")
+        @Schema(description = "Signing algorithm", example = "HS256", allowableValues = {"HS256", "RS256", "ES256", "EdDSA"}, defaultValue = "HS256")
         private String algorithm;
 
         @Schema(description = "Key ID for signing", example = "default", defaultValue = "default")
@@ -287,6 +478,32 @@ public class JwtController {
         }
     }
 
+    @Schema(description = "Batch JWT token generation request")
+    @Data
+    public static class BatchTokenRequest {
+        @Schema(description = "Algorithm, key ID, expiration and claims shared by every token; its subject is ignored")
+        private TokenRequest template;
+
+        @Schema(description = "One entry per token", required = true)
+        private List<Entry> tokens;
+
+        @Data
+        public static class Entry {
+            @Schema(description = "JWT subject (sub claim)", example = "user1@example.com", required = true)
+            private String subject;
+
+            @Schema(description = "Claims added to or replacing the template's claims for this token")
+            private Map<String, Object> claims;
+        }
+    }
+
+    @Schema(description = "JWT verification request")
+    @Data
+    public static class VerifyRequest {
+        @Schema(description = "Compact JWT to verify", required = true)
+        private String token;
+    }
+
     @Schema(description = "Cryptographic key generation request")
     public static class KeyRequest {
         @Schema(description = "Unique identifier for the key", example = "my-custom-key", required = true)
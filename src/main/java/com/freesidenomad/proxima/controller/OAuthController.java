@@ -2,10 +2,16 @@ package com.freesidenomad.proxima.controller;
 
 import com.freesidenomad.proxima.model.HeaderPreset;
 import com.freesidenomad.proxima.model.oidc.AuthorizationCode;
+import com.freesidenomad.proxima.model.oidc.OidcClient;
 import com.freesidenomad.proxima.model.oidc.OidcTokens;
+import com.freesidenomad.proxima.model.oidc.RefreshTokenGrant;
 import com.freesidenomad.proxima.service.AuthorizationCodeService;
+import com.freesidenomad.proxima.service.ClientCredentialsService;
 import com.freesidenomad.proxima.service.ConfigurationService;
+import com.freesidenomad.proxima.service.OidcClientService;
 import com.freesidenomad.proxima.service.OidcTokenService;
+import com.freesidenomad.proxima.service.RefreshTokenService;
+import com.freesidenomad.proxima.service.TokenVerificationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,14 +20,22 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -40,6 +54,18 @@ public class OAuthController {
     @Autowired
     private OidcTokenService oidcTokenService;
 
+    @Autowired
+    private OidcClientService oidcClientService;
+
+    @Autowired
+    private ClientCredentialsService clientCredentialsService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private TokenVerificationService tokenVerificationService;
+
     @GetMapping("/authorize")
     @Operation(
         summary = "OAuth Authorization Endpoint",
@@ -77,7 +103,7 @@ public class OAuthController {
             }
 
             // Find preset with matching client_id
-            HeaderPreset preset = findPresetByClientId(clientId);
+            HeaderPreset preset = configurationService.getOidcPresetByClientId(clientId);
             if (preset == null || !preset.isOidcEnabled()) {
                 return createErrorResponse(redirectUri, "invalid_client",
                     "Invalid client_id or OIDC not enabled", state);
@@ -104,6 +130,9 @@ public class OAuthController {
                 .header("Location", redirectUrl)
                 .build();
 
+        } catch (IllegalStateException e) {
+            logger.warn("Authorization request refused: {}", e.getMessage());
+            return createErrorResponse(redirectUri, "temporarily_unavailable", e.getMessage(), state);
         } catch (Exception e) {
             logger.error("Error in authorization endpoint", e);
             return createErrorResponse(redirectUri, "server_error",
@@ -114,39 +143,68 @@ public class OAuthController {
     @PostMapping("/token")
     @Operation(
         summary = "OAuth Token Endpoint",
-        description = "Exchanges authorization code for access and ID tokens"
+        description = "Exchanges an authorization code or a refresh token for access and ID tokens, or issues "
+            + "an access token to a registered client with the client_credentials grant"
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Token response"),
         @ApiResponse(responseCode = "400", description = "Invalid request"),
         @ApiResponse(responseCode = "401", description = "Invalid client credentials")
     })
-    public ResponseEntity<Map<String, Object>> token(
-            @Parameter(description = "Grant type (must be 'authorization_code')", required = true)
+    public ResponseEntity<?> token(
+            @Parameter(description = "Grant type ('authorization_code', 'refresh_token' or 'client_credentials')",
+                required = true)
             @RequestParam("grant_type") String grantType,
 
-            @Parameter(description = "Authorization code", required = true)
-            @RequestParam("code") String code,
+            @Parameter(description = "Authorization code, for the authorization_code grant")
+            @RequestParam(value = "code", required = false) String code,
 
-            @Parameter(description = "Client identifier", required = true)
-            @RequestParam("client_id") String clientId,
+            @Parameter(description = "Client identifier, unless sent with HTTP Basic authentication")
+            @RequestParam(value = "client_id", required = false) String clientId,
 
-            @Parameter(description = "Redirect URI", required = true)
-            @RequestParam("redirect_uri") String redirectUri) {
+            @Parameter(description = "Redirect URI, for the authorization_code grant")
+            @RequestParam(value = "redirect_uri", required = false) String redirectUri,
 
-        try {
-            // Validate grant_type
-            if (!"authorization_code".equals(grantType)) {
-                return createTokenErrorResponse("unsupported_grant_type",
-                    "Only 'authorization_code' grant type is supported");
-            }
+            @Parameter(description = "Client secret, unless sent with HTTP Basic authentication")
+            @RequestParam(value = "client_secret", required = false) String clientSecret,
+
+            @Parameter(description = "Requested scopes, for the client_credentials grant")
+            @RequestParam(value = "scope", required = false) String scope,
 
+            @Parameter(description = "Refresh token, for the refresh_token grant")
+            @RequestParam(value = "refresh_token", required = false) String refreshToken,
+
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+
+        // Clients may authenticate with HTTP Basic for every grant, as advertised in the discovery document
+        String[] basicCredentials = parseBasicCredentials(authorization);
+        if (basicCredentials != null) {
+            clientId = basicCredentials[0];
+            clientSecret = basicCredentials[1];
+        }
+
+        if ("client_credentials".equals(grantType)) {
+            return clientCredentialsToken(clientId, clientSecret, scope);
+        }
+        if ("refresh_token".equals(grantType)) {
+            return refreshTokenGrant(refreshToken, clientId, clientSecret);
+        }
+        if (!"authorization_code".equals(grantType)) {
+            return createTokenErrorResponse("unsupported_grant_type",
+                "Only 'authorization_code', 'refresh_token' and 'client_credentials' grant types are supported");
+        }
+        if (code == null || clientId == null || redirectUri == null) {
+            return createTokenErrorResponse("invalid_request", "code, client_id and redirect_uri are required");
+        }
+
+        try {
             // Validate and consume authorization code
             AuthorizationCode authCode = authorizationCodeService.validateAndConsumeCode(
                 code, clientId, redirectUri);
 
             // Find preset for token generation
-            HeaderPreset preset = findPresetByClientId(clientId);
+            HeaderPreset preset = configurationService.getOidcPresetByClientId(clientId);
             if (preset == null || !preset.isOidcEnabled()) {
                 return createTokenErrorResponse("invalid_client", "Invalid client");
             }
@@ -162,8 +220,10 @@ public class OAuthController {
             response.put("expires_in", tokens.getExpiresIn());
             response.put("scope", authCode.getScope());
 
-            if (tokens.getRefreshToken() != null) {
-                response.put("refresh_token", tokens.getRefreshToken());
+            RefreshTokenGrant refreshGrant = refreshTokenService.issueRefreshToken(
+                clientId, authCode.getSubject(), authCode.getScope(), preset.getName());
+            if (refreshGrant != null) {
+                response.put("refresh_token", refreshGrant.getRefreshToken());
             }
 
             logger.info("Tokens issued for client: {} with scope: {}", clientId, authCode.getScope());
@@ -178,12 +238,178 @@ public class OAuthController {
         }
     }
 
-    private HeaderPreset findPresetByClientId(String clientId) {
-        return configurationService.getAllPresets().stream()
-            .filter(preset -> preset.isOidcEnabled() &&
-                             clientId.equals(preset.getOidcConfig().getClientId()))
-            .findFirst()
-            .orElse(null);
+    /**
+     * refresh_token grant: rotate the refresh token and return the preset's current tokens, which
+     * are kept fresh in the background, so no signing happens on this path. Registered clients
+     * authenticate like for client_credentials (RFC 6749 section 6); preset clients that are not
+     * registered are public clients and identify themselves by client_id alone.
+     */
+    private ResponseEntity<?> refreshTokenGrant(String refreshToken, String clientId, String clientSecret) {
+        if (refreshToken == null || clientId == null) {
+            return createTokenErrorResponse("invalid_request", "refresh_token and client_id are required");
+        }
+        OidcClient client = oidcClientService.getClientById(clientId).orElse(null);
+        if (client != null && (!client.isEnabled() || !secretMatches(client.getClientSecret(), clientSecret))) {
+            logger.warn("refresh_token authentication failed for client: {}", clientId);
+            return createTokenErrorResponse(HttpStatus.UNAUTHORIZED, "invalid_client", "Client authentication failed");
+        }
+        try {
+            RefreshTokenGrant grant = refreshTokenService.rotateRefreshToken(refreshToken, clientId);
+            OidcTokens tokens = oidcTokenService.getValidTokensForPreset(grant.getPresetName());
+            if (tokens == null) {
+                return createTokenErrorResponse("invalid_grant", "Preset for this grant is no longer available");
+            }
+
+            long expiresIn = tokens.getExpiresAt() != null
+                ? Math.max(0, Duration.between(Instant.now(), tokens.getExpiresAt()).getSeconds())
+                : tokens.getExpiresIn();
+            Map<String, Object> response = new HashMap<>();
+            response.put("access_token", tokens.getAccessToken());
+            response.put("id_token", tokens.getIdToken());
+            response.put("token_type", tokens.getTokenType());
+            response.put("expires_in", expiresIn);
+            response.put("scope", grant.getScope());
+            response.put("refresh_token", grant.getRefreshToken());
+
+            logger.debug("Refresh token rotated for client: {}", clientId);
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(response);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Refresh token request rejected: {}", e.getMessage());
+            return createTokenErrorResponse("invalid_grant", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error in token endpoint", e);
+            return createTokenErrorResponse("server_error", "Internal server error");
+        }
+    }
+
+    /**
+     * client_credentials grant: authenticate a registered client that allows the grant and issue
+     * an access token for the requested scopes, or all of its allowed scopes if none are requested.
+     */
+    private ResponseEntity<?> clientCredentialsToken(String clientId, String clientSecret, String scope) {
+        if (clientId == null) {
+            return createTokenErrorResponse(HttpStatus.UNAUTHORIZED, "invalid_client", "Client authentication failed");
+        }
+
+        OidcClient client = oidcClientService.getClientById(clientId).orElse(null);
+        if (client == null || !client.isEnabled() || !secretMatches(client.getClientSecret(), clientSecret)) {
+            logger.warn("client_credentials authentication failed for client: {}", clientId);
+            return createTokenErrorResponse(HttpStatus.UNAUTHORIZED, "invalid_client", "Client authentication failed");
+        }
+        if (client.getGrantTypes() == null || !client.getGrantTypes().contains("client_credentials")) {
+            return createTokenErrorResponse("unauthorized_client",
+                "Client is not allowed to use the client_credentials grant");
+        }
+
+        List<String> allowedScopes = client.getAllowedScopes() != null ? client.getAllowedScopes() : List.of();
+        String grantedScope = ClientCredentialsService.normalizeScope(
+            scope != null ? scope : String.join(" ", allowedScopes));
+        if (!grantedScope.isEmpty() && !allowedScopes.containsAll(List.of(grantedScope.split(" ")))) {
+            return createTokenErrorResponse("invalid_scope", "Requested scope is not allowed for this client");
+        }
+
+        try {
+            byte[] body = clientCredentialsService.issueToken(client, grantedScope);
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noStore())
+                .header(HttpHeaders.PRAGMA, "no-cache")
+                .body(body);
+        } catch (Exception e) {
+            logger.error("Error issuing client_credentials token", e);
+            return createTokenErrorResponse("server_error", "Internal server error");
+        }
+    }
+
+    @PostMapping("/introspect")
+    @Operation(
+        summary = "Token Introspection Endpoint",
+        description = "RFC 7662 introspection of JWTs signed by Proxima. Client authentication is optional, "
+            + "but credentials that are sent must be valid"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Whether the token is active, with its claims if it is"),
+        @ApiResponse(responseCode = "401", description = "Invalid client credentials")
+    })
+    public ResponseEntity<?> introspect(
+            @Parameter(description = "The token to introspect", required = true)
+            @RequestParam("token") String token,
+
+            @Parameter(description = "Type of the token; ignored, as only JWTs are introspected")
+            @RequestParam(value = "token_type_hint", required = false) String tokenTypeHint,
+
+            @Parameter(description = "Client identifier, unless sent with HTTP Basic authentication")
+            @RequestParam(value = "client_id", required = false) String clientId,
+
+            @Parameter(description = "Client secret, unless sent with HTTP Basic authentication")
+            @RequestParam(value = "client_secret", required = false) String clientSecret,
+
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+
+        String[] basicCredentials = parseBasicCredentials(authorization);
+        if (basicCredentials != null) {
+            clientId = basicCredentials[0];
+            clientSecret = basicCredentials[1];
+        }
+        if (clientId != null) {
+            OidcClient client = oidcClientService.getClientById(clientId).orElse(null);
+            if (client == null || !client.isEnabled() || !secretMatches(client.getClientSecret(), clientSecret)) {
+                logger.warn("Introspection authentication failed for client: {}", clientId);
+                return createTokenErrorResponse(HttpStatus.UNAUTHORIZED, "invalid_client", "Client authentication failed");
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.putAll(tokenVerificationService.verify(token).claims());
+            response.put("active", true);
+        } catch (IllegalArgumentException e) {
+            // RFC 7662 section 2.2: an inactive token is described by "active" alone
+            logger.debug("Introspected token is inactive: {}", e.getMessage());
+            response.put("active", false);
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noStore())
+            .body(response);
+    }
+
+    /**
+     * Client id and secret from an HTTP Basic Authorization header, or null if there is none.
+     */
+    private String[] parseBasicCredentials(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getDecoder().decode(authorization.substring(6).trim()),
+                StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            if (separator < 0) {
+                return null;
+            }
+            // RFC 6749 section 2.3.1: both parts are form-urlencoded
+            return new String[] {
+                URLDecoder.decode(decoded.substring(0, separator), StandardCharsets.UTF_8),
+                URLDecoder.decode(decoded.substring(separator + 1), StandardCharsets.UTF_8)
+            };
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Clients without a secret authenticate with their id alone, like the built-in test clients.
+     */
+    private boolean secretMatches(String expected, String provided) {
+        if (expected == null || expected.isEmpty()) {
+            return true;
+        }
+        return provided != null && MessageDigest.isEqual(
+            expected.getBytes(StandardCharsets.UTF_8), provided.getBytes(StandardCharsets.UTF_8));
     }
 
     private String buildRedirectUrl(String redirectUri, String code, String state) {
@@ -223,10 +449,15 @@ public class OAuthController {
     }
 
     private ResponseEntity<Map<String, Object>> createTokenErrorResponse(String error, String errorDescription) {
+        return createTokenErrorResponse(HttpStatus.BAD_REQUEST, error, errorDescription);
+    }
+
+    private ResponseEntity<Map<String, Object>> createTokenErrorResponse(HttpStatus status, String error,
+                                                                         String errorDescription) {
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("error", error);
         errorResponse.put("error_description", errorDescription);
         errorResponse.put("timestamp", Instant.now().toString());
-        return ResponseEntity.badRequest().body(errorResponse);
+        return ResponseEntity.status(status).body(errorResponse);
     }
 }
\ No newline at end of file
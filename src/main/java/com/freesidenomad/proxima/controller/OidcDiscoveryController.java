@@ -1,6 +1,8 @@
 package com.freesidenomad.proxima.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.freesidenomad.proxima.model.oidc.OidcDiscoveryResponse;
+import com.freesidenomad.proxima.service.JsonDocument;
 import com.freesidenomad.proxima.service.JwtService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -8,14 +10,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @Tag(name = "OIDC Discovery", description = "OpenID Connect Discovery endpoints")
@@ -27,6 +32,17 @@ public class OidcDiscoveryController {
     @Value("${proxima.oidc.issuer:#{null}}")
     private String configuredIssuer;
 
+    @Value("${proxima.oidc.metadata-max-age:300}")
+    private long metadataMaxAge;
+
+    // The issuer is derived from the request unless configured, so bound the number of documents kept
+    private static final int MAX_CACHED_ISSUERS = 16;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Serialized discovery documents by issuer URL
+    private final Map<String, JsonDocument> discoveryDocuments = new ConcurrentHashMap<>();
+
     @GetMapping(value = "/.well-known/openid-configuration", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(
         summary = "OpenID Connect Discovery",
@@ -35,29 +51,43 @@ public class OidcDiscoveryController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Provider metadata returned successfully")
     })
-    public ResponseEntity<OidcDiscoveryResponse> openidConfiguration(HttpServletRequest request) {
+    public ResponseEntity<byte[]> openidConfiguration(
+            HttpServletRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         String issuer = getIssuerUrl(request);
 
-        OidcDiscoveryResponse response = OidcDiscoveryResponse.builder()
+        JsonDocument document = discoveryDocuments.get(issuer);
+        if (document == null) {
+            if (discoveryDocuments.size() >= MAX_CACHED_ISSUERS) {
+                discoveryDocuments.clear();
+            }
+            document = discoveryDocuments.computeIfAbsent(issuer,
+                    key -> JsonDocument.of(buildDiscoveryResponse(key), objectMapper));
+        }
+
+        return JsonDocumentResponses.of(document, ifNoneMatch, metadataMaxAge);
+    }
+
+    private OidcDiscoveryResponse buildDiscoveryResponse(String issuer) {
+        return OidcDiscoveryResponse.builder()
             .issuer(issuer)
             .authorizationEndpoint(issuer + "/oauth2/authorize")
             .tokenEndpoint(issuer + "/oauth2/token")
             .jwksUri(issuer + "/.well-known/jwks.json")
+            .introspectionEndpoint(issuer + "/oauth2/introspect")
             .responseTypesSupported(Arrays.asList("code"))
             .subjectTypesSupported(Arrays.asList("public"))
-            .idTokenSigningAlgValuesSupported(Arrays.asList("RS256"))
+            .idTokenSigningAlgValuesSupported(Arrays.asList("RS256", "ES256", "EdDSA"))
             .scopesSupported(Arrays.asList("openid", "profile", "email"))
-            .grantTypesSupported(Arrays.asList("authorization_code"))
+            .grantTypesSupported(Arrays.asList("authorization_code", "refresh_token", "client_credentials"))
             .responseModesSupported(Arrays.asList("query"))
-            .tokenEndpointAuthMethodsSupported(Arrays.asList("client_secret_post", "none"))
+            .tokenEndpointAuthMethodsSupported(Arrays.asList("client_secret_basic", "client_secret_post", "none"))
             .claimsSupported(Arrays.asList(
                 "sub", "iss", "aud", "exp", "iat", "auth_time", "nonce",
                 "email", "name", "preferred_username", "groups"
             ))
             .codeChallengeMethodsSupported(Arrays.asList("S256", "plain"))
             .build();
-
-        return ResponseEntity.ok(response);
     }
 
     @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -68,9 +98,9 @@ public class OidcDiscoveryController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "JWKS returned successfully")
     })
-    public ResponseEntity<Map<String, Object>> jwks() {
-        Map<String, Object> jwks = jwtService.getJwks();
-        return ResponseEntity.ok(jwks);
+    public ResponseEntity<byte[]> jwks(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return JsonDocumentResponses.of(jwtService.getJwksDocument(), ifNoneMatch, metadataMaxAge);
     }
 
     private String getIssuerUrl(HttpServletRequest request) {
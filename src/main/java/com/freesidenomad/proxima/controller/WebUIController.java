@@ -89,6 +89,7 @@ public class WebUIController {
             String publicKey = jwtService.getPublicKey(keyId);
             model.addAttribute("keyId", keyId);
             model.addAttribute("publicKey", publicKey);
+            model.addAttribute("algorithm", jwtService.getPublicKeyAlgorithm(keyId));
             model.addAttribute("keyInfo", jwtService.getKeyInfo());
             return "jwt-public-key";
         } catch (Exception e) {
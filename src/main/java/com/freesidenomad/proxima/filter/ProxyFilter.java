@@ -3,6 +3,8 @@ package com.freesidenomad.proxima.filter;
 import com.freesidenomad.proxima.model.ProximaConfig;
 import com.freesidenomad.proxima.service.ProxyService;
 import com.freesidenomad.proxima.service.RouteService;
+import com.freesidenomad.proxima.service.routing.RouteRequest;
+import com.freesidenomad.proxima.service.routing.RouteResolution;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -17,7 +19,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -52,11 +53,12 @@ public class ProxyFilter implements Filter {
         }
 
         // Check if this path matches any configured route
-        Optional<ProximaConfig.ConfigRoute> matchedRoute = routeService.findMatchingRouteWithPriority(path);
+        RouteResolution resolution = routeService.resolve(RouteRequest.from(request, path));
 
-        if (matchedRoute.isPresent()) {
-            // This is a configured proxy route, handle it
-            ProximaConfig.ConfigRoute route = matchedRoute.get();
+        if (resolution.getRoute() != null) {
+            // This is a configured proxy route, handle it; the proxy service forwards it on this resolution
+            ProximaConfig.ConfigRoute route = resolution.getRoute().getRoute();
+            request.setAttribute(RouteResolution.REQUEST_ATTRIBUTE, resolution);
             logger.debug("Proxy filter handling request: {} -> {}", path, route.getTargetUrl());
 
             try {
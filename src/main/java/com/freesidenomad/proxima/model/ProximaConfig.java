@@ -5,6 +5,7 @@ import com.freesidenomad.proxima.model.oidc.OidcPresetConfig;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 public class ProximaConfig {
 
@@ -84,6 +85,23 @@ public class ProximaConfig {
         public void setOidcConfig(OidcPresetConfig oidcConfig) {
             this.oidcConfig = oidcConfig;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ConfigHeaderPreset)) return false;
+            ConfigHeaderPreset that = (ConfigHeaderPreset) o;
+            return Objects.equals(name, that.name) &&
+                   Objects.equals(displayName, that.displayName) &&
+                   Objects.equals(headers, that.headers) &&
+                   Objects.equals(headerMappings, that.headerMappings) &&
+                   Objects.equals(oidcConfig, that.oidcConfig);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, displayName, headers, headerMappings, oidcConfig);
+        }
     }
 
     public static class ConfigRoute {
@@ -97,6 +115,16 @@ public class ProximaConfig {
         private boolean enabled = true;
         private int priority = 50; // Default priority, higher number = higher priority
 
+        // Optional match conditions, a route without them matches any host, method and headers
+        private String host; // e.g. "api.example.com" or "*.example.com"
+        private List<String> methods = new ArrayList<>();
+
+        @JsonProperty("matchHeaders")
+        private java.util.Map<String, String> matchHeaders = new java.util.HashMap<>(); // header name -> value, "*" = present
+
+        // Applied in order, the first matching rule rewrites the forwarded path
+        private List<ConfigRewrite> rewrites = new ArrayList<>();
+
         public String getPathPattern() {
             return pathPattern;
         }
@@ -137,6 +165,38 @@ public class ProximaConfig {
             this.priority = priority;
         }
 
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public List<String> getMethods() {
+            return new ArrayList<>(methods);
+        }
+
+        public void setMethods(List<String> methods) {
+            this.methods = methods != null ? new ArrayList<>(methods) : new ArrayList<>();
+        }
+
+        public java.util.Map<String, String> getMatchHeaders() {
+            return new java.util.HashMap<>(matchHeaders);
+        }
+
+        public void setMatchHeaders(java.util.Map<String, String> matchHeaders) {
+            this.matchHeaders = matchHeaders != null ? new java.util.HashMap<>(matchHeaders) : new java.util.HashMap<>();
+        }
+
+        public List<ConfigRewrite> getRewrites() {
+            return new ArrayList<>(rewrites);
+        }
+
+        public void setRewrites(List<ConfigRewrite> rewrites) {
+            this.rewrites = rewrites != null ? new ArrayList<>(rewrites) : new ArrayList<>();
+        }
+
         public boolean matches(String path) {
             if (!enabled || pathPattern == null) return false;
 
@@ -163,10 +223,50 @@ public class ProximaConfig {
             }
         }
 
+        /**
+         * Key identifying this route across configuration reloads.
+         * Two routes with the same key are considered the same route when diffing configurations.
+         */
+        public String routeKey() {
+            StringBuilder key = new StringBuilder();
+            if (host != null) {
+                key.append(host).append(' ');
+            }
+            if (!methods.isEmpty()) {
+                key.append(String.join(",", methods)).append(' ');
+            }
+            return key.append(pathPattern).toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ConfigRoute)) return false;
+            ConfigRoute that = (ConfigRoute) o;
+            return enabled == that.enabled &&
+                   priority == that.priority &&
+                   Objects.equals(pathPattern, that.pathPattern) &&
+                   Objects.equals(targetUrl, that.targetUrl) &&
+                   Objects.equals(description, that.description) &&
+                   Objects.equals(host, that.host) &&
+                   Objects.equals(methods, that.methods) &&
+                   Objects.equals(matchHeaders, that.matchHeaders) &&
+                   Objects.equals(rewrites, that.rewrites);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pathPattern, targetUrl, description, enabled, priority, host, methods, matchHeaders, rewrites);
+        }
+
         private boolean matchesWildcard(String path, String pattern) {
             return path.matches(pattern.replace("*", ".*"));
         }
 
+        /**
+         * Build the target URL by stripping the pattern prefix. Rewrite rules are not applied here,
+         * they are compiled and applied by the route table used for proxying.
+         */
         public String buildTargetUrl(String originalPath) {
             if (pathPattern == null) return targetUrl;
 
@@ -195,6 +295,75 @@ public class ProximaConfig {
         }
     }
 
+    /**
+     * Declarative path rewrite for a route. Either {@code from} is a segment template such as
+     * "/api/v1/users/{id}/**", or {@code regex} is a regular expression whose numbered and named
+     * groups can be referenced as "{1}" or "{name}". {@code to} is the path to forward to,
+     * e.g. "/users/{id}/**", optionally with its own query string.
+     */
+    public static class ConfigRewrite {
+        public static final String QUERY_PRESERVE = "preserve";
+        public static final String QUERY_DROP = "drop";
+
+        private String from;
+        private String regex;
+        private String to;
+        private String query = QUERY_PRESERVE; // what to do with the incoming query string
+
+        public String getFrom() {
+            return from;
+        }
+
+        public void setFrom(String from) {
+            this.from = from;
+        }
+
+        public String getRegex() {
+            return regex;
+        }
+
+        public void setRegex(String regex) {
+            this.regex = regex;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public void setTo(String to) {
+            this.to = to;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public void setQuery(String query) {
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ConfigRewrite)) return false;
+            ConfigRewrite that = (ConfigRewrite) o;
+            return Objects.equals(from, that.from) &&
+                   Objects.equals(regex, that.regex) &&
+                   Objects.equals(to, that.to) &&
+                   Objects.equals(query, that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, regex, to, query);
+        }
+
+        @Override
+        public String toString() {
+            return (from != null ? from : "regex " + regex) + " -> " + to;
+        }
+    }
+
     public Downstream getDownstream() {
         return downstream;
     }
@@ -1,7 +1,10 @@
 package com.freesidenomad.proxima.model.oidc;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.Instant;
 import java.util.List;
@@ -11,6 +14,8 @@ import java.util.List;
  */
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class OidcClient {
     private String clientId;
     private String clientName;
@@ -25,6 +30,9 @@ public class OidcClient {
     // Client metadata
     private String applicationType; // web, native, etc.
     private String tokenEndpointAuthMethod; // client_secret_basic, client_secret_post, none
+    // Accepted on registration but never returned
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String clientSecret;
     private List<String> grantTypes; // authorization_code, refresh_token, etc.
     private List<String> responseTypes; // code, token, id_token
 
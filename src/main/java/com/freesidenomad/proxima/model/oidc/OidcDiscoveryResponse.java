@@ -26,6 +26,9 @@ public class OidcDiscoveryResponse {
     @JsonProperty("jwks_uri")
     private String jwksUri;
 
+    @JsonProperty("introspection_endpoint")
+    private String introspectionEndpoint;
+
     @JsonProperty("response_types_supported")
     private List<String> responseTypesSupported;
 
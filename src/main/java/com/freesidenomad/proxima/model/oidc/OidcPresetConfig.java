@@ -19,6 +19,7 @@ public class OidcPresetConfig {
     private String subject;
     @Builder.Default
     private Long tokenExpirationSeconds = 3600L;
+    // RS256, ES256, EdDSA or HS256; ES256 and EdDSA sign several times faster than RS256
     @Builder.Default
     private String algorithm = "RS256";
     @Builder.Default
@@ -42,12 +43,14 @@ public class OidcPresetConfig {
 
     private String clientId;
     private String redirectUri;
+    // Header that proxied requests carry the ID token in, none if null
+    private String idTokenHeader;
 
     public OidcPresetConfig(boolean enabled, String subject, Long tokenExpirationSeconds,
                            String algorithm, String keyId, String email, String name,
                            String preferredUsername, List<String> groups,
                            Map<String, Object> customClaims, List<String> scopes,
-                           String clientId, String redirectUri) {
+                           String clientId, String redirectUri, String idTokenHeader) {
         this.enabled = enabled;
         this.subject = subject;
         this.tokenExpirationSeconds = tokenExpirationSeconds;
@@ -61,9 +64,24 @@ public class OidcPresetConfig {
         this.scopes = scopes != null ? scopes : Arrays.asList("openid", "profile", "email");
         this.clientId = clientId;
         this.redirectUri = redirectUri;
+        this.idTokenHeader = idTokenHeader;
     }
 
     public Map<String, Object> toClaims(String issuer, List<String> audience) {
+        Map<String, Object> allClaims = toStaticClaims(issuer, audience);
+
+        long now = Instant.now().getEpochSecond();
+        allClaims.put("exp", now + tokenExpirationSeconds);
+        allClaims.put("iat", now);
+
+        return allClaims;
+    }
+
+    /**
+     * The claims that stay the same for every token of this preset, everything but {@code exp}
+     * and {@code iat}.
+     */
+    public Map<String, Object> toStaticClaims(String issuer, List<String> audience) {
         Map<String, Object> allClaims = new HashMap<>(customClaims != null ? customClaims : new HashMap<>());
 
         if (email != null) allClaims.put("email", email);
@@ -74,8 +92,6 @@ public class OidcPresetConfig {
         allClaims.put("sub", subject);
         allClaims.put("iss", issuer);
         allClaims.put("aud", audience);
-        allClaims.put("exp", Instant.now().plusSeconds(tokenExpirationSeconds).getEpochSecond());
-        allClaims.put("iat", Instant.now().getEpochSecond());
 
         return allClaims;
     }
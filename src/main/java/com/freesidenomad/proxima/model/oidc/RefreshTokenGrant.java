@@ -0,0 +1,25 @@
+package com.freesidenomad.proxima.model.oidc;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An issued opaque refresh token and the grant it continues: the client, subject and scope of
+ * the original authorization and the preset whose tokens it is exchanged for.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenGrant {
+    private String refreshToken;
+    private String clientId;
+    private String subject;
+    private String scope;
+    private String presetName;
+    private Instant expiresAt;
+}
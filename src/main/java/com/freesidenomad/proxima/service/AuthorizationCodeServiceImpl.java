@@ -1,29 +1,146 @@
 package com.freesidenomad.proxima.service;
 
+import com.freesidenomad.proxima.config.OidcTokenProperties;
 import com.freesidenomad.proxima.model.oidc.AuthorizationCode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Bounded in-memory store of authorization codes.
+ * <p>
+ * Each code is scheduled on a timing wheel when it is issued and dropped when it expires, so the
+ * store never has to be scanned. A code is removed from the store before it is validated, which
+ * makes consumption single-use even when the same code is exchanged concurrently; a code that
+ * fails validation stays consumed. Once {@code maxEntries} codes are waiting, new ones are refused
+ * until some are exchanged or expire.
+ * <p>
+ * In a cluster, codes stay on the node that issued them and their value starts with its node id;
+ * a node that is asked to exchange another node's code forwards the exchange to that node.
+ */
 @Service
 public class AuthorizationCodeServiceImpl implements AuthorizationCodeService {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthorizationCodeServiceImpl.class);
 
+    static final String STATE_NAMESPACE = "authorization-codes";
+    static final String CONSUME_OPERATION = "consume-authorization-code";
+
     private final ConcurrentHashMap<String, AuthorizationCode> authorizationCodes = new ConcurrentHashMap<>();
+    private final AtomicInteger stored = new AtomicInteger();
     private final AtomicInteger totalGenerated = new AtomicInteger(0);
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+
+    private volatile TimingWheel expiryWheel;
+
+    @Autowired(required = false)
+    private OidcTokenProperties tokenProperties = new OidcTokenProperties();
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private OidcStateStore stateStore;
+
+    @Autowired(required = false)
+    private ClusterService clusterService;
+
+    @PostConstruct
+    void initialize() {
+        restoreCodes();
+        if (clusterService != null) {
+            clusterService.registerOperation(CONSUME_OPERATION, request -> validateAndConsumeCode(
+                    request.path("code").textValue(), request.path("clientId").textValue(),
+                    request.path("redirectUri").textValue()));
+        }
+        if (meterRegistry != null) {
+            Gauge.builder("proxima.oauth.authorization.codes.stored", stored, AtomicInteger::get)
+                    .description("Authorization codes waiting to be exchanged").register(meterRegistry);
+            FunctionCounter.builder("proxima.oauth.authorization.codes.issued", totalGenerated, AtomicInteger::get)
+                    .register(meterRegistry);
+            FunctionCounter.builder("proxima.oauth.authorization.codes.consumed", consumed, LongAdder::sum)
+                    .register(meterRegistry);
+            FunctionCounter.builder("proxima.oauth.authorization.codes.expired", expired, LongAdder::sum)
+                    .description("Authorization codes dropped unused when they expired").register(meterRegistry);
+            FunctionCounter.builder("proxima.oauth.authorization.codes.refused", refused, LongAdder::sum)
+                    .description("Authorization codes not issued because the store was full").register(meterRegistry);
+        }
+    }
+
+    /**
+     * Restore codes issued before the last restart that have not expired yet, so that logins in
+     * progress can still complete.
+     */
+    private void restoreCodes() {
+        if (stateStore == null || !stateStore.isEnabled()) {
+            return;
+        }
+        int restored = 0;
+        Map<String, AuthorizationCode> codes = stateStore.load(STATE_NAMESPACE, AuthorizationCode.class);
+        for (Map.Entry<String, AuthorizationCode> entry : codes.entrySet()) {
+            AuthorizationCode code = entry.getValue();
+            if (!code.isValid() || !entry.getKey().equals(code.getCode())) {
+                stateStore.remove(STATE_NAMESPACE, entry.getKey());
+                continue;
+            }
+            authorizationCodes.put(code.getCode(), code);
+            stored.incrementAndGet();
+            String key = code.getCode();
+            expiryWheel().schedule(key, Duration.between(Instant.now(), code.getExpiresAt()), () -> expire(key));
+            restored++;
+        }
+        if (restored > 0) {
+            logger.info("Restored {} pending authorization codes", restored);
+        }
+    }
+
+    @PreDestroy
+    void stopExpiryWheel() {
+        TimingWheel wheel = expiryWheel;
+        if (wheel != null) {
+            wheel.shutdown();
+        }
+    }
 
     @Override
     public AuthorizationCode generateAuthorizationCode(String clientId, String redirectUri, String scope,
                                                      String state, String nonce, String subject) {
+        int maxEntries = tokenProperties.getAuthorizationCodes().getMaxEntries();
+        if (stored.incrementAndGet() > maxEntries) {
+            stored.decrementAndGet();
+            refused.increment();
+            logger.warn("Authorization code store is full ({} codes), refusing code for client: {}",
+                       maxEntries, clientId);
+            throw new IllegalStateException("Too many pending authorization codes");
+        }
+
         AuthorizationCode code = AuthorizationCode.create(clientId, redirectUri, scope, state, nonce, subject);
+        if (clusterService != null) {
+            code.setCode(clusterService.ownedId(code.getCode()));
+        }
         authorizationCodes.put(code.getCode(), code);
         totalGenerated.incrementAndGet();
+        if (stateStore != null) {
+            stateStore.put(STATE_NAMESPACE, code.getCode(), code);
+        }
+        String key = code.getCode();
+        expiryWheel().schedule(key, Duration.between(Instant.now(), code.getExpiresAt()), () -> expire(key));
 
         logger.debug("Generated authorization code for client: {} with scope: {}", clientId, scope);
         return code;
@@ -31,12 +148,27 @@ public class AuthorizationCodeServiceImpl implements AuthorizationCodeService {
 
     @Override
     public AuthorizationCode validateAndConsumeCode(String code, String clientId, String redirectUri) {
-        AuthorizationCode authCode = authorizationCodes.get(code);
+        if (clusterService != null && !clusterService.isLocal(code)) {
+            Map<String, String> request = new HashMap<>();
+            request.put("code", code);
+            request.put("clientId", clientId);
+            request.put("redirectUri", redirectUri);
+            return clusterService.call(code, CONSUME_OPERATION, request, AuthorizationCode.class);
+        }
+
+        // Remove first, so that only one of several concurrent exchanges can get the code
+        AuthorizationCode authCode = code != null ? authorizationCodes.remove(code) : null;
 
         if (authCode == null) {
             logger.warn("Authorization code not found: {}", code);
             throw new IllegalArgumentException("Invalid authorization code");
         }
+        stored.decrementAndGet();
+        TimingWheel wheel = expiryWheel;
+        if (wheel != null) {
+            wheel.cancel(code);
+        }
+        forget(code);
 
         if (!authCode.isValid()) {
             logger.warn("Authorization code expired or already used: {}", code);
@@ -55,47 +187,75 @@ public class AuthorizationCodeServiceImpl implements AuthorizationCodeService {
             throw new IllegalArgumentException("Redirect URI mismatch");
         }
 
-        // Mark as used and remove from storage
         authCode.markAsUsed();
-        authorizationCodes.remove(code);
+        consumed.increment();
 
         logger.info("Authorization code consumed successfully for client: {}", clientId);
         return authCode;
     }
 
+    /**
+     * Drop expired codes that the expiry wheel has not dropped yet. Expiry does not depend on this
+     * being called; it only catches codes within one wheel tick of their expiry.
+     */
     @Override
-    @Scheduled(fixedRate = 300000) // Every 5 minutes
     public void cleanupExpiredCodes() {
         Instant now = Instant.now();
-        AtomicInteger cleaned = new AtomicInteger(0);
+        int cleaned = 0;
 
-        authorizationCodes.entrySet().removeIf(entry -> {
-            if (entry.getValue().getExpiresAt().isBefore(now)) {
-                cleaned.incrementAndGet();
-                return true;
+        for (AuthorizationCode code : authorizationCodes.values()) {
+            if (code.getExpiresAt().isBefore(now) && authorizationCodes.remove(code.getCode(), code)) {
+                stored.decrementAndGet();
+                forget(code.getCode());
+                expired.increment();
+                cleaned++;
             }
-            return false;
-        });
+        }
 
-        if (cleaned.get() > 0) {
-            logger.info("Cleaned up {} expired authorization codes", cleaned.get());
+        if (cleaned > 0) {
+            logger.info("Cleaned up {} expired authorization codes", cleaned);
         }
     }
 
+    /**
+     * Counts are maintained as codes come and go: {@code activeCodes} is the number of codes
+     * waiting to be exchanged and {@code expiredCodes} the number dropped unused since startup.
+     */
     @Override
     public AuthorizationCodeStats getStats() {
-        int active = 0;
-        int expired = 0;
-        Instant now = Instant.now();
+        return new AuthorizationCodeStats(stored.get(), (int) expired.sum(), totalGenerated.get());
+    }
 
-        for (AuthorizationCode code : authorizationCodes.values()) {
-            if (code.getExpiresAt().isBefore(now)) {
-                expired++;
-            } else {
-                active++;
-            }
+    private void expire(String code) {
+        if (authorizationCodes.remove(code) != null) {
+            stored.decrementAndGet();
+            expired.increment();
+            forget(code);
+            logger.debug("Authorization code expired unused: {}", code);
         }
+    }
 
-        return new AuthorizationCodeStats(active, expired, totalGenerated.get());
+    private void forget(String code) {
+        if (stateStore != null) {
+            stateStore.remove(STATE_NAMESPACE, code);
+        }
+    }
+
+    private TimingWheel expiryWheel() {
+        TimingWheel wheel = expiryWheel;
+        if (wheel == null) {
+            synchronized (this) {
+                wheel = expiryWheel;
+                if (wheel == null) {
+                    OidcTokenProperties.AuthorizationCodes settings = tokenProperties.getAuthorizationCodes();
+                    Duration tick = Duration.ofMillis(settings.getTickMillis());
+                    // Expiry only removes a map entry, so it runs on the tick thread itself
+                    wheel = new TimingWheel(tick, settings.getWheelSize(), Runnable::run, tick,
+                            "oidc-authorization-code-expiry");
+                    expiryWheel = wheel;
+                }
+            }
+        }
+        return wheel;
     }
-}
\ No newline at end of file
+}
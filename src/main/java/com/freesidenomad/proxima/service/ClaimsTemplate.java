@@ -0,0 +1,182 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A JWT whose claims are fixed except for {@code iat} and {@code exp}, encoded once so that
+ * minting it only encodes the two timestamps and signs.
+ * <p>
+ * The header and the fixed part of the payload are kept as Base64URL. The fixed part of the
+ * payload JSON is padded with spaces to a multiple of three bytes, so its encoding ends on a
+ * Base64 block boundary and the encoded timestamps can be appended to it. The header is encoded
+ * again when the key is rotated and tokens are signed by a new version of it. Signing goes straight
+ * to the JCA with a signer cached per thread, without building or serializing a claims map.
+ */
+public final class ClaimsTemplate {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final ThreadLocal<Signature> RS256 = ThreadLocal.withInitial(() -> signature("SHA256withRSA"));
+    // JWS carries ECDSA signatures as R || S rather than DER
+    private static final ThreadLocal<Signature> ES256 = ThreadLocal.withInitial(() -> signature("SHA256withECDSAinP1363Format"));
+    private static final ThreadLocal<Signature> EDDSA = ThreadLocal.withInitial(() -> signature("Ed25519"));
+    private static final ThreadLocal<Mac> HS256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    });
+
+    private final String algorithm;
+    private final String keyId;
+    private final Map<String, Object> claims;
+    // The encoded fixed part of the payload
+    private final byte[] payload;
+    // "<header>." for the key version that signed last
+    private volatile EncodedHeader header;
+
+    private ClaimsTemplate(String algorithm, String keyId, Map<String, Object> claims, byte[] payload) {
+        this.algorithm = algorithm;
+        this.keyId = keyId;
+        this.claims = claims;
+        this.payload = payload;
+        this.header = EncodedHeader.of(algorithm, keyId);
+    }
+
+    /**
+     * Compile claims for signing with the given algorithm and key. Null claims are left out, and
+     * {@code iat} and {@code exp} are replaced when the token is signed.
+     */
+    public static ClaimsTemplate compile(Map<String, Object> claims, String algorithm, String keyId) {
+        String signatureAlgorithm = JwtService.canonicalAlgorithm(algorithm);
+        Map<String, Object> fixed = new LinkedHashMap<>();
+        claims.forEach((name, value) -> {
+            if (value != null && !"iat".equals(name) && !"exp".equals(name)) {
+                fixed.put(name, value);
+            }
+        });
+
+        try {
+            byte[] payload = MAPPER.writeValueAsBytes(fixed);
+            // Drop the closing brace, continue with a comma and pad to a whole Base64 block
+            int length = payload.length - 1 + (fixed.isEmpty() ? 0 : 1);
+            byte[] fixedPart = Arrays.copyOf(payload, length + (3 - length % 3) % 3);
+            Arrays.fill(fixedPart, payload.length - 1, fixedPart.length, (byte) ' ');
+            if (!fixed.isEmpty()) {
+                fixedPart[payload.length - 1] = ',';
+            }
+            return new ClaimsTemplate(signatureAlgorithm, keyId, Collections.unmodifiableMap(fixed),
+                    BASE64URL.encode(fixedPart));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Claims cannot be serialized: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * Canonical name of the signature algorithm.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * The fixed claims, without {@code iat} and {@code exp}.
+     */
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    /**
+     * Sign the template with the given timestamps, in seconds since the epoch, using the key
+     * version published as {@code signingKeyId}.
+     */
+    String sign(String signingKeyId, Key key, long issuedAt, long expiresAt) {
+        EncodedHeader encodedHeader = header;
+        if (!encodedHeader.keyId().equals(signingKeyId)) {
+            encodedHeader = EncodedHeader.of(algorithm, signingKeyId);
+            header = encodedHeader;
+        }
+        byte[] timestamps = BASE64URL.encode(("\"iat\":" + issuedAt + ",\"exp\":" + expiresAt + "}")
+                .getBytes(StandardCharsets.US_ASCII));
+        byte[] prefix = encodedHeader.bytes();
+        byte[] signingInput = Arrays.copyOf(prefix, prefix.length + payload.length + timestamps.length);
+        System.arraycopy(payload, 0, signingInput, prefix.length, payload.length);
+        System.arraycopy(timestamps, 0, signingInput, prefix.length + payload.length, timestamps.length);
+
+        byte[] signature = BASE64URL.encode(signatureOf(key, signingInput));
+        byte[] token = Arrays.copyOf(signingInput, signingInput.length + 1 + signature.length);
+        token[signingInput.length] = '.';
+        System.arraycopy(signature, 0, token, signingInput.length + 1, signature.length);
+        return new String(token, StandardCharsets.US_ASCII);
+    }
+
+    private byte[] signatureOf(Key key, byte[] signingInput) {
+        try {
+            if ("HS256".equals(algorithm)) {
+                Mac mac = HS256.get();
+                mac.init(key);
+                return mac.doFinal(signingInput);
+            }
+            Signature signer = switch (algorithm) {
+                case "RS256" -> RS256.get();
+                case "ES256" -> ES256.get();
+                default -> EDDSA.get();
+            };
+            signer.initSign((PrivateKey) key);
+            signer.update(signingInput);
+            return signer.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign token with " + algorithm + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The encoded JWT header naming a key, followed by the separating dot.
+     */
+    private record EncodedHeader(String keyId, byte[] bytes) {
+
+        static EncodedHeader of(String algorithm, String keyId) {
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("alg", algorithm);
+            // Matches JwtService, which only names the key of asymmetric signatures
+            if (!"HS256".equals(algorithm)) {
+                header.put("kid", keyId);
+            }
+            try {
+                byte[] encoded = BASE64URL.encode(MAPPER.writeValueAsBytes(header));
+                byte[] bytes = Arrays.copyOf(encoded, encoded.length + 1);
+                bytes[encoded.length] = '.';
+                return new EncodedHeader(keyId, bytes);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Header cannot be serialized: " + e.getOriginalMessage(), e);
+            }
+        }
+    }
+
+    private static Signature signature(String algorithm) {
+        try {
+            return Signature.getInstance(algorithm);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+}
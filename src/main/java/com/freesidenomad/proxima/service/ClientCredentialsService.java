@@ -0,0 +1,176 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freesidenomad.proxima.config.OidcTokenProperties;
+import com.freesidenomad.proxima.model.oidc.OidcClient;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues access tokens for the OAuth 2.0 client_credentials grant.
+ * <p>
+ * Load generators and service-to-service tests request tokens at a high rate, so a token is
+ * reused for the same client and scope until most of its lifetime has elapsed. The JSON response
+ * is serialized once per token; only {@code expires_in} is filled in per request. Clients are
+ * authenticated on every request, so a disabled or deleted client cannot reuse a cached token.
+ */
+@Service
+public class ClientCredentialsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientCredentialsService.class);
+
+    private static final int DEFAULT_LIFETIME_SECONDS = 3600;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired(required = false)
+    private OidcTokenProperties tokenProperties = new OidcTokenProperties();
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${proxima.base-url:http://localhost:8080}")
+    private String baseUrl = "http://localhost:8080";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, CachedResponse> responses = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    void registerMetrics() {
+        if (meterRegistry != null) {
+            FunctionCounter.builder("proxima.oauth.client.credentials.hits", hits, LongAdder::sum)
+                    .description("client_credentials tokens served from the cache").register(meterRegistry);
+            FunctionCounter.builder("proxima.oauth.client.credentials.misses", misses, LongAdder::sum)
+                    .description("client_credentials tokens that had to be signed").register(meterRegistry);
+            Gauge.builder("proxima.oauth.client.credentials.cached", responses, Map::size).register(meterRegistry);
+        }
+    }
+
+    /**
+     * Token response body for an authenticated client and its already validated scope.
+     *
+     * @param client authenticated client allowed to use the client_credentials grant
+     * @param scope  normalized scope, see {@link #normalizeScope(String)}
+     * @return JSON token response
+     */
+    public byte[] issueToken(OidcClient client, String scope) {
+        String cacheKey = client.getClientId() + '\u0000' + scope;
+        long now = System.currentTimeMillis();
+        long keySetVersion = jwtService.getKeySetVersion();
+
+        CachedResponse cached = responses.get(cacheKey);
+        if (cached != null && cached.keySetVersion == keySetVersion && now < cached.reuseUntilMillis) {
+            hits.increment();
+            return cached.body(now);
+        }
+        misses.increment();
+
+        CachedResponse response = mint(client, scope, now, keySetVersion);
+        OidcTokenProperties.ClientCredentials settings = tokenProperties.getClientCredentials();
+        if (responses.size() >= settings.getMaxEntries() && !responses.containsKey(cacheKey)) {
+            responses.values().removeIf(entry -> now >= entry.reuseUntilMillis);
+        }
+        if (responses.size() < settings.getMaxEntries() || responses.containsKey(cacheKey)) {
+            responses.put(cacheKey, response);
+        }
+        return response.body(now);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedTokens", responses.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+
+    private CachedResponse mint(OidcClient client, String scope, long now, long keySetVersion) {
+        OidcTokenProperties.ClientCredentials settings = tokenProperties.getClientCredentials();
+        int lifetimeSeconds = client.getAccessTokenLifetime() != null && client.getAccessTokenLifetime() > 0
+                ? client.getAccessTokenLifetime() : DEFAULT_LIFETIME_SECONDS;
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("iss", baseUrl);
+        claims.put("aud", List.of("proxima-api"));
+        claims.put("client_id", client.getClientId());
+        claims.put("scope", scope);
+        claims.put("token_type", "access_token");
+
+        String accessToken = jwtService.generateToken(client.getClientId(), claims,
+                Duration.ofSeconds(lifetimeSeconds), settings.getAlgorithm(), settings.getKeyId());
+        logger.debug("Issued client_credentials token for client: {} with scope: {}", client.getClientId(), scope);
+
+        try {
+            String head = "{\"access_token\":" + objectMapper.writeValueAsString(accessToken)
+                    + ",\"token_type\":\"Bearer\",\"expires_in\":";
+            String tail = ",\"scope\":" + objectMapper.writeValueAsString(scope) + "}";
+            long expiresAt = now + lifetimeSeconds * 1000L;
+            long reuseUntil = now + (long) (lifetimeSeconds * 1000L * settings.getReuseFraction());
+            return new CachedResponse(head.getBytes(StandardCharsets.UTF_8), tail.getBytes(StandardCharsets.UTF_8),
+                    expiresAt, reuseUntil, keySetVersion);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize token response", e);
+        }
+    }
+
+    /**
+     * Space-separated scope with duplicates removed and values sorted, so equivalent requests
+     * share a cached token.
+     */
+    public static String normalizeScope(String scope) {
+        if (scope == null || scope.isBlank()) {
+            return "";
+        }
+        return String.join(" ", new TreeSet<>(List.of(scope.trim().split("\\s+"))));
+    }
+
+    /**
+     * A serialized token response split around the {@code expires_in} value.
+     */
+    private static final class CachedResponse {
+        final byte[] head;
+        final byte[] tail;
+        final long expiresAtMillis;
+        final long reuseUntilMillis;
+        final long keySetVersion;
+
+        CachedResponse(byte[] head, byte[] tail, long expiresAtMillis, long reuseUntilMillis, long keySetVersion) {
+            this.head = head;
+            this.tail = tail;
+            this.expiresAtMillis = expiresAtMillis;
+            this.reuseUntilMillis = reuseUntilMillis;
+            this.keySetVersion = keySetVersion;
+        }
+
+        byte[] body(long nowMillis) {
+            byte[] expiresIn = Long.toString(Math.max(0, (expiresAtMillis - nowMillis) / 1000))
+                    .getBytes(StandardCharsets.US_ASCII);
+            byte[] body = new byte[head.length + expiresIn.length + tail.length];
+            System.arraycopy(head, 0, body, 0, head.length);
+            System.arraycopy(expiresIn, 0, body, head.length, expiresIn.length);
+            System.arraycopy(tail, 0, body, head.length + expiresIn.length, tail.length);
+            return body;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freesidenomad.proxima.config.ClusterProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shares OIDC state between the nodes of a cluster, so that any node can serve any request.
+ * <p>
+ * State that every node reads, such as clients and signing keys, is replicated: each node keeps
+ * a full copy and serves reads from it, and every change is sent to the other nodes in the
+ * background. Concurrent changes to the same key are resolved by timestamp, so nodes agree once
+ * the changes have arrived. State that must be used exactly once, such as authorization codes and
+ * refresh tokens, is not replicated; its ids carry the id of the node that issued them
+ * ({@link #ownedId}) and other nodes forward its use to that node ({@link #call}).
+ * <p>
+ * A node fetches the state of the other nodes when it starts and sends its own once it is ready.
+ * A node that misses changes because it is unreachable is sent the whole state again every
+ * {@code syncIntervalMillis} until it takes it.
+ */
+@Service
+@ConditionalOnProperty(prefix = "proxima.cluster", name = "enabled", havingValue = "true")
+public class ClusterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterService.class);
+
+    public static final String SECRET_HEADER = "X-Proxima-Cluster-Secret";
+
+    private final ObjectMapper objectMapper = OidcStateStore.stateMapper();
+    private final ClusterTransport transport;
+    private final String nodeId;
+    private final Map<String, String> nodes;
+    private final Map<String, String> peers = new LinkedHashMap<>();
+    private final byte[] secret;
+    private final long syncIntervalMillis;
+
+    // Latest entry per namespace and key, including removals
+    private final Map<String, ReplicatedEntry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Namespace<?>> namespaces = new ConcurrentHashMap<>();
+    private final Map<String, Function<JsonNode, Object>> operations = new ConcurrentHashMap<>();
+
+    // Local changes waiting to be sent, drained in batches on the replication thread
+    private final Queue<ReplicatedEntry> outgoing = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    // Peers that missed changes and are sent the whole state on the next sync
+    private final Set<String> outOfSync = ConcurrentHashMap.newKeySet();
+    // Never behind the latest timestamp seen from any node, so a local change wins over every
+    // change this node already knows of even if the clocks differ
+    private final AtomicLong clock = new AtomicLong();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private ScheduledExecutorService executor;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    public ClusterService(ClusterProperties properties, ObjectProvider<ClusterTransport> transport) {
+        this(properties, transport.getIfAvailable(() -> new HttpClusterTransport(
+                properties.getSecret(), Duration.ofMillis(properties.getTimeoutMillis()))));
+    }
+
+    public ClusterService(ClusterProperties properties, ClusterTransport transport) {
+        String id = properties.getNodeId();
+        if (!StringUtils.hasText(id) || id.contains(".")) {
+            throw new IllegalArgumentException("proxima.cluster.node-id must be set and must not contain dots");
+        }
+        if (!properties.getNodes().containsKey(id)) {
+            throw new IllegalArgumentException("proxima.cluster.nodes must include this node: " + id);
+        }
+        if (!StringUtils.hasText(properties.getSecret())) {
+            throw new IllegalArgumentException("proxima.cluster.secret must be set");
+        }
+        this.transport = transport;
+        this.nodeId = id;
+        this.nodes = Map.copyOf(properties.getNodes());
+        properties.getNodes().forEach((peerId, url) -> {
+            if (!peerId.equals(id)) {
+                peers.put(peerId, url);
+            }
+        });
+        this.secret = properties.getSecret().getBytes(StandardCharsets.UTF_8);
+        this.syncIntervalMillis = properties.getSyncIntervalMillis();
+    }
+
+    /**
+     * Fetch the state of the nodes that are already running, before the services that depend on
+     * this one register their state.
+     */
+    @PostConstruct
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxima-cluster-replication");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Map.Entry<String, String> peer : peers.entrySet()) {
+            try {
+                List<ReplicatedEntry> state = transport.fetchState(peer.getValue());
+                apply(state);
+                logger.info("Fetched {} entries from cluster node {}", state.size(), peer.getKey());
+            } catch (IOException | RuntimeException e) {
+                logger.info("Cluster node {} is not reachable yet: {}", peer.getKey(), e.getMessage());
+            }
+        }
+        executor.scheduleWithFixedDelay(this::syncPeers, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Cluster node {} started with peers {}", nodeId, peers.keySet());
+
+        if (meterRegistry != null) {
+            Gauge.builder("proxima.cluster.entries", entries, Map::size).register(meterRegistry);
+            Gauge.builder("proxima.cluster.peers.out.of.sync", outOfSync, Set::size)
+                    .description("Peers waiting for a full state sync").register(meterRegistry);
+            FunctionCounter.builder("proxima.cluster.entries.sent", sent, LongAdder::sum).register(meterRegistry);
+            FunctionCounter.builder("proxima.cluster.entries.received", received, LongAdder::sum)
+                    .description("Replicated entries from other nodes that changed local state").register(meterRegistry);
+            FunctionCounter.builder("proxima.cluster.calls.forwarded", forwarded, LongAdder::sum)
+                    .description("Operations forwarded to the node owning their state").register(meterRegistry);
+            FunctionCounter.builder("proxima.cluster.failures", failures, LongAdder::sum).register(meterRegistry);
+        }
+    }
+
+    /**
+     * Send the full state to every peer once all services have registered theirs. Peers that are
+     * not up yet get it when they start, or on a later sync.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void announce() {
+        outOfSync.addAll(peers.keySet());
+        executor.execute(this::syncPeers);
+    }
+
+    @PreDestroy
+    void stop() {
+        ScheduledExecutorService current = executor;
+        if (current != null) {
+            // Lets pending replication run, but not the periodic sync
+            current.shutdown();
+            try {
+                current.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Register a replicated namespace. The callbacks apply changes made on other nodes to the
+     * local copy and must not publish them again. Entries already received for the namespace are
+     * applied right away.
+     */
+    public <T> void register(String namespace, Class<T> type, BiConsumer<String, T> onPut, Consumer<String> onRemove) {
+        namespaces.put(namespace, new Namespace<>(type, onPut, onRemove));
+        entries.forEach((entryKey, entry) -> {
+            if (entry.namespace().equals(namespace)) {
+                deliver(entryKey, entry);
+            }
+        });
+    }
+
+    /**
+     * Replicate a local change; a null value removes the key.
+     */
+    public void publish(String namespace, String key, Object value) {
+        ReplicatedEntry entry = new ReplicatedEntry(namespace, key, toTree(value), nextTimestamp(), nodeId);
+        entries.put(entryKey(namespace, key), entry);
+        outgoing.add(entry);
+        scheduleFlush();
+    }
+
+    /**
+     * Offer a value this node started with, such as a generated default key. It loses to any
+     * value the cluster already has for the key, which is applied locally instead, so that nodes
+     * starting with different defaults settle on one of them. Call this before registering the
+     * namespace, whose registration then applies the values that won.
+     */
+    public void publishInitial(String namespace, String key, Object value) {
+        String entryKey = entryKey(namespace, key);
+        ReplicatedEntry initial = new ReplicatedEntry(namespace, key, toTree(value), 0, nodeId);
+        ReplicatedEntry current = entries.merge(entryKey, initial, (old, offered) -> offered.isNewerThan(old) ? offered : old);
+        if (current == initial) {
+            outgoing.add(initial);
+            scheduleFlush();
+        } else {
+            deliver(entryKey, current);
+        }
+    }
+
+    /**
+     * Apply entries from another node and return the entries this node holds newer versions of,
+     * for the sender to apply in turn.
+     */
+    public List<ReplicatedEntry> apply(List<ReplicatedEntry> incoming) {
+        List<ReplicatedEntry> newer = new ArrayList<>();
+        for (ReplicatedEntry entry : incoming) {
+            clock.accumulateAndGet(entry.timestamp(), Math::max);
+            String entryKey = entryKey(entry.namespace(), entry.key());
+            ReplicatedEntry current = entries.merge(entryKey, entry, (old, offered) -> offered.isNewerThan(old) ? offered : old);
+            if (current == entry) {
+                received.increment();
+                deliver(entryKey, entry);
+            } else if (current.isNewerThan(entry)) {
+                newer.add(current);
+            }
+        }
+        return newer;
+    }
+
+    /**
+     * Every entry this node holds, for a node that is starting or catching up.
+     */
+    public List<ReplicatedEntry> getState() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * An id owned by this node, for state that other nodes forward to it.
+     */
+    public String ownedId(String id) {
+        return nodeId + "." + id;
+    }
+
+    /**
+     * Whether this node owns an id. Ids without an owner are local.
+     */
+    public boolean isLocal(String id) {
+        String owner = ownerOf(id);
+        return owner == null || owner.equals(nodeId);
+    }
+
+    /**
+     * Register an operation that other nodes can run on this node with {@link #call}. Handlers
+     * throw {@link IllegalArgumentException} to reject a request.
+     */
+    public void registerOperation(String operation, Function<JsonNode, Object> handler) {
+        operations.put(operation, handler);
+    }
+
+    /**
+     * Run an operation on the node that owns an id.
+     *
+     * @throws IllegalArgumentException if the owner rejects the request or is not a cluster node
+     * @throws IllegalStateException if the owner cannot be reached
+     */
+    public <T> T call(String id, String operation, Object request, Class<T> responseType) {
+        String owner = ownerOf(id);
+        String url = owner != null ? nodes.get(owner) : null;
+        if (url == null) {
+            throw new IllegalArgumentException("Unknown cluster node: " + owner);
+        }
+        forwarded.increment();
+        try {
+            JsonNode response = transport.call(url, operation, objectMapper.valueToTree(request));
+            return objectMapper.treeToValue(response, responseType);
+        } catch (IOException e) {
+            failures.increment();
+            logger.warn("Could not forward {} to cluster node {}: {}", operation, owner, e.getMessage());
+            throw new IllegalStateException("Cluster node " + owner + " is unavailable", e);
+        }
+    }
+
+    /**
+     * Run an operation forwarded by another node.
+     */
+    public JsonNode handleCall(String operation, JsonNode request) {
+        Function<JsonNode, Object> handler = operations.get(operation);
+        if (handler == null) {
+            throw new IllegalArgumentException("Unknown cluster operation: " + operation);
+        }
+        return objectMapper.valueToTree(handler.apply(request));
+    }
+
+    /**
+     * Whether a request carries the cluster secret, compared in constant time.
+     */
+    public boolean authenticate(String presented) {
+        return presented != null && MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("peers", peers.keySet());
+        stats.put("outOfSync", Set.copyOf(outOfSync));
+        stats.put("entries", entries.size());
+        stats.put("sent", sent.sum());
+        stats.put("received", received.sum());
+        stats.put("forwarded", forwarded.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        List<ReplicatedEntry> batch = new ArrayList<>();
+        ReplicatedEntry entry;
+        while ((entry = outgoing.poll()) != null) {
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, String> peer : peers.entrySet()) {
+            if (outOfSync.contains(peer.getKey())) {
+                // Gets these entries with the whole state on the next sync
+                continue;
+            }
+            try {
+                apply(transport.replicate(peer.getValue(), batch));
+                sent.add(batch.size());
+            } catch (IOException | RuntimeException e) {
+                outOfSync.add(peer.getKey());
+                failures.increment();
+                logger.warn("Could not replicate {} entries to cluster node {}, will sync it later: {}",
+                           batch.size(), peer.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private void syncPeers() {
+        for (String peerId : List.copyOf(outOfSync)) {
+            outOfSync.remove(peerId);
+            List<ReplicatedEntry> state = getState();
+            try {
+                apply(transport.replicate(peers.get(peerId), state));
+                sent.add(state.size());
+                logger.info("Synchronized {} entries with cluster node {}", state.size(), peerId);
+            } catch (IOException | RuntimeException e) {
+                outOfSync.add(peerId);
+                logger.debug("Cluster node {} is still unreachable: {}", peerId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Apply an entry to its namespace, unless a newer entry for the key has replaced it.
+     */
+    private void deliver(String entryKey, ReplicatedEntry entry) {
+        Namespace<?> namespace = namespaces.get(entry.namespace());
+        if (namespace == null) {
+            return;
+        }
+        synchronized (namespace) {
+            if (entries.get(entryKey) == entry) {
+                namespace.accept(entry);
+            }
+        }
+    }
+
+    private long nextTimestamp() {
+        return clock.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+
+    private JsonNode toTree(Object value) {
+        return value != null ? objectMapper.valueToTree(value) : null;
+    }
+
+    private static String ownerOf(String id) {
+        int separator = id != null ? id.indexOf('.') : -1;
+        return separator > 0 ? id.substring(0, separator) : null;
+    }
+
+    private static String entryKey(String namespace, String key) {
+        return namespace + '\n' + key;
+    }
+
+    private final class Namespace<T> {
+        private final Class<T> type;
+        private final BiConsumer<String, T> onPut;
+        private final Consumer<String> onRemove;
+
+        Namespace(Class<T> type, BiConsumer<String, T> onPut, Consumer<String> onRemove) {
+            this.type = type;
+            this.onPut = onPut;
+            this.onRemove = onRemove;
+        }
+
+        void accept(ReplicatedEntry entry) {
+            try {
+                if (entry.isRemoval()) {
+                    onRemove.accept(entry.key());
+                } else {
+                    onPut.accept(entry.key(), objectMapper.treeToValue(entry.value(), type));
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not apply replicated {} entry {}: {}", entry.namespace(), entry.key(), e.getMessage());
+            }
+        }
+    }
+}
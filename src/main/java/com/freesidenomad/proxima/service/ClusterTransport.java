@@ -0,0 +1,29 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * How a node talks to the other nodes of the cluster. The default goes over HTTP to
+ * {@code /proxima/api/cluster}; defining a bean of this type replaces it.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Send entries to a node and return the entries it holds newer versions of.
+     */
+    List<ReplicatedEntry> replicate(String nodeUrl, List<ReplicatedEntry> entries) throws IOException;
+
+    /**
+     * Everything a node has replicated.
+     */
+    List<ReplicatedEntry> fetchState(String nodeUrl) throws IOException;
+
+    /**
+     * Run an operation on the node that owns the state it changes. A request the node rejects is
+     * thrown as an {@link IllegalArgumentException} carrying its message.
+     */
+    JsonNode call(String nodeUrl, String operation, JsonNode request) throws IOException;
+}
@@ -0,0 +1,53 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by {@link JsonConfigurationService} whenever the cached configuration is replaced,
+ * either by a reload of a modified file or by a save.
+ * The configurations carried by this event are shared snapshots and must not be modified by listeners.
+ */
+public class ConfigurationChangedEvent extends ApplicationEvent {
+
+    private final transient ProximaConfig previous;
+    private final transient ProximaConfig current;
+    private final transient ConfigurationDiff diff;
+    private final long version;
+
+    public ConfigurationChangedEvent(Object source, ProximaConfig previous, ProximaConfig current,
+                                     ConfigurationDiff diff, long version) {
+        super(source);
+        this.previous = previous;
+        this.current = current;
+        this.diff = diff;
+        this.version = version;
+    }
+
+    public ProximaConfig getPrevious() {
+        return previous;
+    }
+
+    public ProximaConfig getCurrent() {
+        return current;
+    }
+
+    public ConfigurationDiff getDiff() {
+        return diff;
+    }
+
+    /**
+     * Version of {@link #getCurrent()}. Versions increase by one for every change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Whether compiled state stamped with {@code compiledVersion} can be patched with this event's diff,
+     * rather than rebuilt from {@link #getCurrent()}.
+     */
+    public boolean canPatch(long compiledVersion) {
+        return !diff.isInitial() && compiledVersion == version - 1;
+    }
+}
@@ -0,0 +1,237 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Structural difference between two configuration snapshots.
+ * Routes are compared by route key and content, presets by name, so that
+ * compiled state (route tables, header plans, token caches) can be patched
+ * instead of rebuilt when only a few entries change. A route that only moved in
+ * the route list is not reported as changed; the new positions are reported
+ * separately so that priority ties can be resolved by position.
+ */
+public final class ConfigurationDiff {
+
+    /**
+     * A route together with its stable key and its position in the configured route list.
+     */
+    public record KeyedRoute(String key, int order, ProximaConfig.ConfigRoute route) {}
+
+    private final boolean initial;
+    private final Map<String, KeyedRoute> upsertedRoutes;
+    private final Set<String> removedRoutes;
+    private final Map<String, Integer> routeOrder;
+    private final boolean routeOrderChanged;
+    private final Set<String> changedPresets;
+    private final Set<String> changedOidcPresets;
+    private final boolean activePresetChanged;
+    private final boolean downstreamChanged;
+    private final boolean reservedRoutesChanged;
+
+    private ConfigurationDiff(boolean initial, Map<String, KeyedRoute> upsertedRoutes, Set<String> removedRoutes,
+                              Map<String, Integer> routeOrder, boolean routeOrderChanged,
+                              Set<String> changedPresets, Set<String> changedOidcPresets,
+                              boolean activePresetChanged, boolean downstreamChanged, boolean reservedRoutesChanged) {
+        this.initial = initial;
+        this.upsertedRoutes = Collections.unmodifiableMap(upsertedRoutes);
+        this.removedRoutes = Collections.unmodifiableSet(removedRoutes);
+        this.routeOrder = Collections.unmodifiableMap(routeOrder);
+        this.routeOrderChanged = routeOrderChanged;
+        this.changedPresets = Collections.unmodifiableSet(changedPresets);
+        this.changedOidcPresets = Collections.unmodifiableSet(changedOidcPresets);
+        this.activePresetChanged = activePresetChanged;
+        this.downstreamChanged = downstreamChanged;
+        this.reservedRoutesChanged = reservedRoutesChanged;
+    }
+
+    /**
+     * Compute the difference between two configurations.
+     * A {@code null} previous configuration yields an initial diff in which everything is new.
+     */
+    public static ConfigurationDiff between(ProximaConfig previous, ProximaConfig current) {
+        ProximaConfig before = previous != null ? previous : new ProximaConfig();
+
+        Map<String, KeyedRoute> oldRoutes = keyRoutes(before.getRoutes());
+        Map<String, KeyedRoute> newRoutes = keyRoutes(current.getRoutes());
+
+        Map<String, KeyedRoute> upserted = new LinkedHashMap<>();
+        for (KeyedRoute route : newRoutes.values()) {
+            KeyedRoute old = oldRoutes.get(route.key());
+            if (old == null || !old.route().equals(route.route())) {
+                upserted.put(route.key(), route);
+            }
+        }
+
+        Set<String> removed = new LinkedHashSet<>(oldRoutes.keySet());
+        removed.removeAll(newRoutes.keySet());
+
+        Map<String, Integer> routeOrder = new HashMap<>();
+        newRoutes.values().forEach(route -> routeOrder.put(route.key(), route.order()));
+        boolean routeOrderChanged = !new ArrayList<>(oldRoutes.keySet()).equals(new ArrayList<>(newRoutes.keySet()));
+
+        Map<String, ProximaConfig.ConfigHeaderPreset> oldPresets = presetsByName(before.getPresets());
+        Map<String, ProximaConfig.ConfigHeaderPreset> newPresets = presetsByName(current.getPresets());
+
+        Set<String> changedPresets = new LinkedHashSet<>();
+        Set<String> changedOidcPresets = new LinkedHashSet<>();
+        Set<String> presetNames = new LinkedHashSet<>(oldPresets.keySet());
+        presetNames.addAll(newPresets.keySet());
+        for (String name : presetNames) {
+            ProximaConfig.ConfigHeaderPreset old = oldPresets.get(name);
+            ProximaConfig.ConfigHeaderPreset updated = newPresets.get(name);
+            if (!Objects.equals(old, updated)) {
+                changedPresets.add(name);
+            }
+            if (!Objects.equals(old != null ? old.getOidcConfig() : null,
+                                updated != null ? updated.getOidcConfig() : null)) {
+                changedOidcPresets.add(name);
+            }
+        }
+
+        return new ConfigurationDiff(
+                previous == null,
+                upserted,
+                removed,
+                routeOrder,
+                routeOrderChanged,
+                changedPresets,
+                changedOidcPresets,
+                !Objects.equals(before.getActivePreset(), current.getActivePreset()),
+                !Objects.equals(downstreamUrl(before), downstreamUrl(current)),
+                !before.getReservedRoutes().equals(current.getReservedRoutes())
+        );
+    }
+
+    /**
+     * Key routes by {@link ProximaConfig.ConfigRoute#routeKey()}, preserving list order.
+     * Routes sharing a route key are told apart by a suffix derived from their content rather than
+     * their position, so inserting or moving one of them does not rename the others. Only routes
+     * that are identical as well get an occurrence suffix on top.
+     */
+    public static Map<String, KeyedRoute> keyRoutes(List<ProximaConfig.ConfigRoute> routes) {
+        Map<String, Integer> routesPerKey = new HashMap<>();
+        for (ProximaConfig.ConfigRoute route : routes) {
+            routesPerKey.merge(route.routeKey(), 1, Integer::sum);
+        }
+
+        Map<String, KeyedRoute> keyed = new LinkedHashMap<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < routes.size(); i++) {
+            ProximaConfig.ConfigRoute route = routes.get(i);
+            String key = route.routeKey();
+            if (routesPerKey.get(key) > 1) {
+                key = key + "#" + Integer.toHexString(route.hashCode());
+                int occurrence = occurrences.merge(key, 1, Integer::sum);
+                if (occurrence > 1) {
+                    key = key + "#" + occurrence;
+                }
+            }
+            keyed.put(key, new KeyedRoute(key, i, route));
+        }
+        return keyed;
+    }
+
+    private static Map<String, ProximaConfig.ConfigHeaderPreset> presetsByName(List<ProximaConfig.ConfigHeaderPreset> presets) {
+        Map<String, ProximaConfig.ConfigHeaderPreset> byName = new LinkedHashMap<>();
+        for (ProximaConfig.ConfigHeaderPreset preset : presets) {
+            byName.putIfAbsent(preset.getName(), preset);
+        }
+        return byName;
+    }
+
+    private static String downstreamUrl(ProximaConfig config) {
+        return config.getDownstream() != null ? config.getDownstream().getUrl() : null;
+    }
+
+    /**
+     * True when there was no previous snapshot to compare against.
+     */
+    public boolean isInitial() {
+        return initial;
+    }
+
+    /**
+     * Routes that were added or modified, keyed by route key.
+     */
+    public Map<String, KeyedRoute> getUpsertedRoutes() {
+        return upsertedRoutes;
+    }
+
+    public Set<String> getRemovedRoutes() {
+        return removedRoutes;
+    }
+
+    /**
+     * Position of every current route in the route list, by route key.
+     */
+    public Map<String, Integer> getRouteOrder() {
+        return routeOrder;
+    }
+
+    /**
+     * True when routes were added, removed or moved, so that positions in the route list changed.
+     */
+    public boolean isRouteOrderChanged() {
+        return routeOrderChanged;
+    }
+
+    /**
+     * Presets that were added, removed or modified in any way.
+     */
+    public Set<String> getChangedPresets() {
+        return changedPresets;
+    }
+
+    /**
+     * Presets whose OIDC configuration was added, removed or modified.
+     */
+    public Set<String> getChangedOidcPresets() {
+        return changedOidcPresets;
+    }
+
+    public boolean isActivePresetChanged() {
+        return activePresetChanged;
+    }
+
+    public boolean isDownstreamChanged() {
+        return downstreamChanged;
+    }
+
+    public boolean isReservedRoutesChanged() {
+        return reservedRoutesChanged;
+    }
+
+    public boolean hasRouteChanges() {
+        return !upsertedRoutes.isEmpty() || !removedRoutes.isEmpty() || routeOrderChanged
+                || downstreamChanged || reservedRoutesChanged;
+    }
+
+    public boolean isEmpty() {
+        return !initial && !hasRouteChanges() && changedPresets.isEmpty() && !activePresetChanged;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigurationDiff{" +
+                "initial=" + initial +
+                ", upsertedRoutes=" + upsertedRoutes.keySet() +
+                ", removedRoutes=" + removedRoutes +
+                ", routeOrderChanged=" + routeOrderChanged +
+                ", changedPresets=" + changedPresets +
+                ", changedOidcPresets=" + changedOidcPresets +
+                ", activePresetChanged=" + activePresetChanged +
+                ", downstreamChanged=" + downstreamChanged +
+                ", reservedRoutesChanged=" + reservedRoutesChanged +
+                '}';
+    }
+}
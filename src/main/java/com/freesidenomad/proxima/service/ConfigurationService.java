@@ -7,8 +7,10 @@ import com.freesidenomad.proxima.validation.ConfigurationValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,10 +30,13 @@ public class ConfigurationService {
     @Autowired
     private ConfigurationValidator validator;
 
+    // Compiled header plans, replaced copy-on-write whenever the configuration changes
+    private volatile HeaderPlans headerPlans;
+
     public List<HeaderPreset> getAllPresets() {
         ProximaConfig config = jsonConfigurationService.loadConfiguration();
         return config.getPresets().stream()
-                .map(this::convertToHeaderPreset)
+                .map(ConfigurationService::convertToHeaderPreset)
                 .collect(Collectors.toList());
     }
 
@@ -39,7 +44,7 @@ public class ConfigurationService {
         ProximaConfig config = jsonConfigurationService.loadConfiguration();
         return config.getPresets().stream()
                 .filter(preset -> preset.getName().equals(name))
-                .map(this::convertToHeaderPreset)
+                .map(ConfigurationService::convertToHeaderPreset)
                 .findFirst();
     }
 
@@ -62,10 +67,10 @@ public class ConfigurationService {
     }
 
     public Map<String, String> getCurrentHeaders() {
-        HeaderPreset activePreset = getActivePreset();
-        if (activePreset != null) {
-            logger.debug("Using headers from active preset: {}", activePreset.getName());
-            return activePreset.getHeaders();
+        HeaderPlan activePlan = currentHeaderPlans().activePlan;
+        if (activePlan != null) {
+            logger.debug("Using headers from active preset: {}", activePlan.getPresetName());
+            return activePlan.getHeaders();
         }
 
         logger.debug("Using fallback headers from legacy configuration");
@@ -104,7 +109,7 @@ public class ConfigurationService {
         return config.getDownstream().getUrl();
     }
 
-    private HeaderPreset convertToHeaderPreset(ProximaConfig.ConfigHeaderPreset configPreset) {
+    private static HeaderPreset convertToHeaderPreset(ProximaConfig.ConfigHeaderPreset configPreset) {
         HeaderPreset preset = new HeaderPreset();
         preset.setName(configPreset.getName());
         preset.setDisplayName(configPreset.getDisplayName());
@@ -115,16 +120,68 @@ public class ConfigurationService {
     }
 
     public Map<String, String> getActiveHeaderMappings() {
-        ProximaConfig config = jsonConfigurationService.loadConfiguration();
-        if (config.getActivePreset() != null) {
-            Optional<ProximaConfig.ConfigHeaderPreset> preset = config.getPresets().stream()
-                    .filter(p -> p.getName().equals(config.getActivePreset()))
-                    .findFirst();
-            if (preset.isPresent()) {
-                return preset.get().getHeaderMappings();
-            }
+        HeaderPlans plans = currentHeaderPlans();
+        HeaderPlan activePlan = plans.activePlan;
+        if (activePlan != null && activePlan.getPresetName().equals(plans.activePresetName)) {
+            return activePlan.getHeaderMappings();
         }
-        return new java.util.HashMap<>();
+        return Map.of();
+    }
+
+    /**
+     * Get the compiled header plan of the active preset, falling back to the first preset like
+     * getActivePreset(), or null if there are no presets.
+     * <p>
+     * Called for every proxied request, so it reads the plans swapped in on each
+     * {@link ConfigurationChangedEvent} instead of checking the config file for changes first.
+     */
+    public HeaderPlan getActiveHeaderPlan() {
+        HeaderPlans plans = headerPlans;
+        return (plans != null ? plans : currentHeaderPlans()).activePlan;
+    }
+
+    /**
+     * Get the compiled header plan for a preset, or null if the preset does not exist.
+     */
+    public HeaderPlan getHeaderPlan(String presetName) {
+        return currentHeaderPlans().plans.get(presetName);
+    }
+
+    /**
+     * Get the OIDC-enabled preset whose OIDC settings use this client_id, or null if there is none.
+     * If several presets share a client_id the first one wins. The preset is built once per
+     * configuration version and shared between callers.
+     */
+    public HeaderPreset getOidcPresetByClientId(String clientId) {
+        return clientId != null ? currentHeaderPlans().oidcPresetsByClientId.get(clientId) : null;
+    }
+
+    /**
+     * Patch the compiled header plans for the presets that changed, or rebuild them if the
+     * plans are not at the version the diff was computed against. An event older than the
+     * plans, published late, is ignored.
+     */
+    @EventListener
+    public void onConfigurationChanged(ConfigurationChangedEvent event) {
+        HeaderPlans plans = headerPlans;
+        if (plans != null && plans.version >= event.getVersion()) {
+            return;
+        }
+        if (plans != null && event.canPatch(plans.version)) {
+            headerPlans = plans.patch(event.getDiff(), event.getCurrent(), event.getVersion());
+        } else {
+            headerPlans = HeaderPlans.compile(event.getCurrent(), event.getVersion());
+        }
+    }
+
+    private HeaderPlans currentHeaderPlans() {
+        long version = jsonConfigurationService.getConfigVersion();
+        HeaderPlans plans = headerPlans;
+        if (plans == null || plans.version != version) {
+            plans = HeaderPlans.compile(jsonConfigurationService.loadConfiguration(), version);
+            headerPlans = plans;
+        }
+        return plans;
     }
 
     public List<String> validateConfiguration() {
@@ -148,4 +205,60 @@ public class ConfigurationService {
                 .filter(HeaderPreset::isOidcEnabled)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    /**
+     * Immutable set of compiled header plans for one configuration version.
+     */
+    private static final class HeaderPlans {
+        final long version;
+        final Map<String, HeaderPlan> plans;
+        final String activePresetName;
+        // Active preset, falling back to the first configured preset like getActivePreset()
+        final HeaderPlan activePlan;
+        // OIDC-enabled presets by client_id, rebuilt with every snapshot
+        final Map<String, HeaderPreset> oidcPresetsByClientId;
+
+        private HeaderPlans(long version, Map<String, HeaderPlan> plans, String activePresetName,
+                            List<ProximaConfig.ConfigHeaderPreset> presets) {
+            this.version = version;
+            this.plans = plans;
+            this.activePresetName = activePresetName;
+            HeaderPlan active = activePresetName != null ? plans.get(activePresetName) : null;
+            if (active == null && !presets.isEmpty()) {
+                active = plans.get(presets.get(0).getName());
+            }
+            this.activePlan = active;
+
+            Map<String, HeaderPreset> oidcPresets = new HashMap<>();
+            for (ProximaConfig.ConfigHeaderPreset preset : presets) {
+                if (preset.getOidcConfig() != null && preset.getOidcConfig().isEnabled()
+                        && preset.getOidcConfig().getClientId() != null) {
+                    oidcPresets.putIfAbsent(preset.getOidcConfig().getClientId(), convertToHeaderPreset(preset));
+                }
+            }
+            this.oidcPresetsByClientId = oidcPresets;
+        }
+
+        static HeaderPlans compile(ProximaConfig config, long version) {
+            Map<String, HeaderPlan> plans = new HashMap<>();
+            for (ProximaConfig.ConfigHeaderPreset preset : config.getPresets()) {
+                plans.putIfAbsent(preset.getName(), HeaderPlan.compile(preset));
+            }
+            return new HeaderPlans(version, plans, config.getActivePreset(), config.getPresets());
+        }
+
+        HeaderPlans patch(ConfigurationDiff diff, ProximaConfig current, long newVersion) {
+            Map<String, HeaderPlan> patched = plans;
+            if (!diff.getChangedPresets().isEmpty()) {
+                patched = new HashMap<>(plans);
+                patched.keySet().removeAll(diff.getChangedPresets());
+                for (ProximaConfig.ConfigHeaderPreset preset : current.getPresets()) {
+                    if (diff.getChangedPresets().contains(preset.getName())) {
+                        patched.putIfAbsent(preset.getName(), HeaderPlan.compile(preset));
+                    }
+                }
+            }
+            return new HeaderPlans(newVersion, patched, current.getActivePreset(), current.getPresets());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.config.JwtProperties.RejectionPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Fixed pool of threads for signing and key generation, so that a burst of token requests is
+ * limited to one signature per thread instead of occupying every request thread with RSA.
+ * <p>
+ * Tasks wait in a bounded queue. When it is full a task either runs on the calling thread,
+ * which slows the caller down to the rate the pool keeps up with, or fails with a
+ * {@link RejectedExecutionException} so the caller can shed load.
+ */
+final class CryptoExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final LongAdder rejections = new LongAdder();
+
+    // Null without a meter registry
+    private final Timer queueWait;
+    private final Timer execution;
+
+    CryptoExecutor(int threads, int queueCapacity, RejectionPolicy rejectionPolicy, MeterRegistry meterRegistry) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new CryptoThread(runnable, "jwt-crypto-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+
+        if (meterRegistry != null) {
+            queueWait = Timer.builder("proxima.jwt.crypto.queue.wait")
+                    .description("Time crypto tasks wait for a thread").register(meterRegistry);
+            execution = Timer.builder("proxima.jwt.crypto.execution")
+                    .description("Time spent signing or generating keys").register(meterRegistry);
+            Gauge.builder("proxima.jwt.crypto.queue.depth", executor, pool -> pool.getQueue().size())
+                    .register(meterRegistry);
+            Gauge.builder("proxima.jwt.crypto.active", executor, ThreadPoolExecutor::getActiveCount)
+                    .register(meterRegistry);
+            FunctionCounter.builder("proxima.jwt.crypto.rejections", rejections, LongAdder::sum)
+                    .description("Crypto tasks that found the queue full").register(meterRegistry);
+        } else {
+            queueWait = null;
+            execution = null;
+        }
+    }
+
+    /**
+     * Run a task on the pool. Failures, including a rejection under the ABORT policy, complete
+     * the returned future exceptionally.
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return submit(task, rejectionPolicy == RejectionPolicy.CALLER_RUNS);
+    }
+
+    /**
+     * Run a task on the pool, or fail it with a {@link RejectedExecutionException} if the queue is
+     * full whatever the rejection policy. For background work, which should back off rather than
+     * run on its own thread.
+     */
+    <T> CompletableFuture<T> trySubmit(Supplier<T> task) {
+        return submit(task, false);
+    }
+
+    /**
+     * Run a task on the pool, or on the calling thread if the queue is full whatever the rejection
+     * policy. For work that callers cannot do without, such as creating a key.
+     */
+    <T> CompletableFuture<T> submitOrRun(Supplier<T> task) {
+        return submit(task, true);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task, boolean callerRuns) {
+        Task<T> run = new Task<>(task);
+        try {
+            executor.execute(run);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            if (callerRuns && !executor.isShutdown()) {
+                run.run();
+            } else {
+                run.future.completeExceptionally(e);
+            }
+        }
+        return run.future;
+    }
+
+    /**
+     * Whether the current thread belongs to a crypto pool, where waiting for another crypto task
+     * could deadlock.
+     */
+    static boolean isCryptoThread() {
+        return Thread.currentThread() instanceof CryptoThread;
+    }
+
+    int getThreads() {
+        return executor.getCorePoolSize();
+    }
+
+    int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * Stop the pool. Tasks still queued fail with a {@link RejectedExecutionException}, so nothing
+     * waits on them forever.
+     */
+    void shutdown() {
+        for (Runnable dropped : executor.shutdownNow()) {
+            ((Task<?>) dropped).future.completeExceptionally(new RejectedExecutionException("Crypto executor shut down"));
+        }
+    }
+
+    private final class Task<T> implements Runnable {
+        private final Supplier<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+
+        Task(Supplier<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                if (queueWait != null) {
+                    queueWait.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                    execution.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    private static final class CryptoThread extends Thread {
+        CryptoThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.freesidenomad.proxima.service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Deadlines of cache entries in expiry order, so that a bounded cache drops expired entries as it
+ * goes instead of scanning every entry once it is full. Each put queues its entry once and each
+ * entry is dequeued once, which keeps eviction at O(log n) per put.
+ * <p>
+ * The queue holds the entry that was put, so an entry that was replaced or removed in the
+ * meantime is only evicted if the cache still maps its key to that same entry.
+ *
+ * @param <V> cache entry type
+ */
+final class ExpiryQueue<V> {
+
+    private final ConcurrentSkipListMap<Deadline, V> deadlines = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    void add(String key, Instant deadline, V entry) {
+        deadlines.put(new Deadline(deadline, sequence.incrementAndGet(), key), entry);
+    }
+
+    /**
+     * Hand every entry whose deadline is not after {@code now} to {@code evict}, earliest first.
+     */
+    void expire(Instant now, BiConsumer<String, V> evict) {
+        Map.Entry<Deadline, V> first;
+        while ((first = deadlines.firstEntry()) != null && !now.isBefore(first.getKey().deadline())) {
+            // Another thread may be expiring the same entry
+            if (deadlines.remove(first.getKey()) != null) {
+                evict.accept(first.getKey().key(), first.getValue());
+            }
+        }
+    }
+
+    void clear() {
+        deadlines.clear();
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    private record Deadline(Instant deadline, long sequence, String key) implements Comparable<Deadline> {
+
+        @Override
+        public int compareTo(Deadline other) {
+            int byDeadline = deadline.compareTo(other.deadline);
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+}
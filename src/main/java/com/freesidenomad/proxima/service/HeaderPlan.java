@@ -0,0 +1,70 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import com.freesidenomad.proxima.model.oidc.OidcPresetConfig;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable, precompiled header injection plan for a single preset:
+ * the headers to set on proxied requests, the incoming header names to remap and whether live
+ * OIDC tokens are injected.
+ * Plans are built once per configuration change so the proxy path never has to
+ * reload or copy the configuration.
+ */
+public final class HeaderPlan {
+
+    private final String presetName;
+    private final Map<String, String> headers;
+    private final Map<String, String> headerMappings;
+    private final boolean oidcEnabled;
+    private final String idTokenHeader;
+
+    private HeaderPlan(String presetName, Map<String, String> headers, Map<String, String> headerMappings,
+                       OidcPresetConfig oidcConfig) {
+        this.presetName = presetName;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        this.headerMappings = Collections.unmodifiableMap(new LinkedHashMap<>(headerMappings));
+        this.oidcEnabled = oidcConfig != null && oidcConfig.isEnabled();
+        this.idTokenHeader = oidcEnabled ? oidcConfig.getIdTokenHeader() : null;
+    }
+
+    public static HeaderPlan compile(ProximaConfig.ConfigHeaderPreset preset) {
+        return new HeaderPlan(preset.getName(), preset.getHeaders(), preset.getHeaderMappings(),
+                preset.getOidcConfig());
+    }
+
+    public String getPresetName() {
+        return presetName;
+    }
+
+    /**
+     * Headers to inject, as an unmodifiable map.
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Incoming header name to outgoing header name, as an unmodifiable map.
+     */
+    public Map<String, String> getHeaderMappings() {
+        return headerMappings;
+    }
+
+    /**
+     * Whether proxied requests carry the preset's live OIDC access token as a bearer token.
+     */
+    public boolean isOidcEnabled() {
+        return oidcEnabled;
+    }
+
+    /**
+     * Header to carry the preset's live ID token, or null if the ID token is not injected.
+     */
+    public String getIdTokenHeader() {
+        return idTokenHeader;
+    }
+}
@@ -0,0 +1,82 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cluster transport over the {@code /proxima/api/cluster} endpoints of the other nodes.
+ */
+public class HttpClusterTransport implements ClusterTransport {
+
+    static final String BASE_PATH = "/proxima/api/cluster";
+
+    private static final TypeReference<List<ReplicatedEntry>> ENTRIES = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper = OidcStateStore.stateMapper();
+    private final WebClient webClient;
+    private final String secret;
+    private final Duration timeout;
+
+    public HttpClusterTransport(String secret, Duration timeout) {
+        this.secret = secret;
+        this.timeout = timeout;
+        this.webClient = WebClient.builder()
+                .codecs(configurer -> configurer
+                        .defaultCodecs()
+                        .maxInMemorySize(16 * 1024 * 1024))
+                .build();
+    }
+
+    @Override
+    public List<ReplicatedEntry> replicate(String nodeUrl, List<ReplicatedEntry> entries) throws IOException {
+        String response = exchange(HttpMethod.POST, nodeUrl + BASE_PATH + "/replicate",
+                objectMapper.writeValueAsString(entries));
+        return objectMapper.readValue(response, ENTRIES);
+    }
+
+    @Override
+    public List<ReplicatedEntry> fetchState(String nodeUrl) throws IOException {
+        return objectMapper.readValue(exchange(HttpMethod.GET, nodeUrl + BASE_PATH + "/state", null), ENTRIES);
+    }
+
+    @Override
+    public JsonNode call(String nodeUrl, String operation, JsonNode request) throws IOException {
+        String response = exchange(HttpMethod.POST, nodeUrl + BASE_PATH + "/calls/" + operation,
+                objectMapper.writeValueAsString(request));
+        return objectMapper.readTree(response);
+    }
+
+    private String exchange(HttpMethod method, String url, String body) throws IOException {
+        ResponseEntity<String> response;
+        try {
+            WebClient.RequestBodySpec request = webClient.method(method)
+                    .uri(url)
+                    .header(ClusterService.SECRET_HEADER, secret)
+                    .contentType(MediaType.APPLICATION_JSON);
+            WebClient.RequestHeadersSpec<?> spec = body != null ? request.bodyValue(body) : request;
+            response = spec.exchangeToMono(result -> result.toEntity(String.class)).block(timeout);
+        } catch (RuntimeException e) {
+            throw new IOException("Cluster request to " + url + " failed: " + e.getMessage(), e);
+        }
+        if (response == null) {
+            throw new IOException("No response from " + url);
+        }
+        if (response.getStatusCode().value() == 400) {
+            JsonNode error = objectMapper.readTree(response.getBody());
+            throw new IllegalArgumentException(error.path("error").asText("Rejected by " + url));
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IOException("Cluster request to " + url + " returned " + response.getStatusCode());
+        }
+        return response.getBody();
+    }
+}
@@ -2,9 +2,11 @@ package com.freesidenomad.proxima.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.freesidenomad.proxima.model.ProximaConfig;
+import com.freesidenomad.proxima.service.routing.ReservedPaths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
@@ -13,6 +15,7 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class JsonConfigurationService {
@@ -21,68 +24,136 @@ public class JsonConfigurationService {
     private static final String CONFIG_FILE_PATH = "config.json";
     private static final String LOCAL_CONFIG_FILE_PATH = "config-local.json";
     private static final String TEST_CONFIG_FILE_PATH = "test-config.json";
+    private static final String CLASSPATH_PREFIX = "classpath:";
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private ProximaConfig cachedConfig;
-    private long lastModified = 0;
+    private final AtomicLong configVersion = new AtomicLong();
+    private volatile ProximaConfig cachedConfig;
+    private volatile long lastModified = 0;
+    private volatile String configSource;
+    private volatile CompiledReservedPaths compiledReservedPaths;
 
     @Autowired
     private Environment environment;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public ProximaConfig loadConfiguration() {
-        // First check for test resources config.json
-        try {
-            var resource = getClass().getClassLoader().getResourceAsStream(CONFIG_FILE_PATH);
-            if (resource != null) {
-                ProximaConfig config = objectMapper.readValue(resource, ProximaConfig.class);
-                logger.info("Configuration loaded from classpath: {}", CONFIG_FILE_PATH);
-                return config;
-            }
-        } catch (IOException e) {
-            logger.debug("No configuration found in classpath, checking file system");
-        }
+        ProximaConfig config = currentConfiguration();
+        return config != null ? copyConfig(config) : createDefaultConfig();
+    }
 
-        // Determine config file based on environment
-        String configFilePath = determineConfigFile();
+    /**
+     * Version of the currently cached configuration, checking the config file for modifications first.
+     * The version increases by one every time the cached configuration is replaced, so compiled state
+     * stamped with a version can cheaply detect that it is stale.
+     */
+    public long getConfigVersion() {
+        currentConfiguration();
+        return configVersion.get();
+    }
 
-        // Handle classpath resources
-        if (configFilePath.startsWith("classpath:")) {
-            String resourcePath = configFilePath.substring("classpath:".length());
-            try {
-                var resource = getClass().getClassLoader().getResourceAsStream(resourcePath);
-                if (resource != null) {
-                    ProximaConfig config = objectMapper.readValue(resource, ProximaConfig.class);
-                    logger.info("Configuration loaded from {}", configFilePath);
-                    return config;
-                } else {
-                    logger.error("Classpath resource not found: {}", resourcePath);
-                    return createDefaultConfig();
+    private ProximaConfig currentConfiguration() {
+        String configSource = resolveConfigSource();
+
+        // Classpath configurations cannot change at runtime, load them once
+        if (configSource.startsWith(CLASSPATH_PREFIX)) {
+            ProximaConfig config = cachedConfig;
+            if (config != null) {
+                return config;
+            }
+            ConfigurationChangedEvent event = null;
+            synchronized (this) {
+                if (cachedConfig == null) {
+                    String resourcePath = configSource.substring(CLASSPATH_PREFIX.length());
+                    try (var resource = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
+                        if (resource == null) {
+                            logger.error("Classpath resource not found: {}", resourcePath);
+                            return null;
+                        }
+                        event = replaceCachedConfig(objectMapper.readValue(resource, ProximaConfig.class), 0);
+                        logger.info("Configuration loaded from {}", configSource);
+                    } catch (IOException e) {
+                        logger.error("Error loading configuration from {}: {}", configSource, e.getMessage());
+                        return null;
+                    }
                 }
-            } catch (IOException e) {
-                logger.error("Error loading configuration from {}: {}", configFilePath, e.getMessage());
-                return createDefaultConfig();
+                config = cachedConfig;
             }
+            publish(event);
+            return config;
         }
 
         // Handle file system resources
-        File configFile = new File(configFilePath);
+        File configFile = new File(configSource);
 
         if (!configFile.exists()) {
-            logger.error("Config file not found: {}", configFilePath);
-            return createDefaultConfig();
+            logger.error("Config file not found: {}", configSource);
+            return null;
         }
 
-        try {
-            long currentModified = configFile.lastModified();
+        long currentModified = configFile.lastModified();
+        if (cachedConfig != null && currentModified <= lastModified) {
+            return cachedConfig;
+        }
+
+        ConfigurationChangedEvent event = null;
+        ProximaConfig config;
+        synchronized (this) {
             if (cachedConfig == null || currentModified > lastModified) {
-                cachedConfig = objectMapper.readValue(configFile, ProximaConfig.class);
-                lastModified = currentModified;
-                logger.info("Configuration loaded from {}", configFilePath);
+                try {
+                    event = replaceCachedConfig(objectMapper.readValue(configFile, ProximaConfig.class), currentModified);
+                    logger.info("Configuration loaded from {}", configSource);
+                } catch (IOException e) {
+                    logger.error("Error loading configuration from {}: {}", configSource, e.getMessage());
+                    return null;
+                }
             }
-            return copyConfig(cachedConfig);
-        } catch (IOException e) {
-            logger.error("Error loading configuration from {}: {}", configFilePath, e.getMessage());
-            return createDefaultConfig();
+            config = cachedConfig;
+        }
+        publish(event);
+        return config;
+    }
+
+    private String resolveConfigSource() {
+        String source = configSource;
+        if (source == null) {
+            // Test resources config.json takes precedence over every other source
+            if (getClass().getClassLoader().getResource(CONFIG_FILE_PATH) != null) {
+                logger.info("Configuration found in classpath: {}", CONFIG_FILE_PATH);
+                source = CLASSPATH_PREFIX + CONFIG_FILE_PATH;
+            } else {
+                source = determineConfigFile();
+            }
+            configSource = source;
         }
+        return source;
+    }
+
+    /**
+     * Swap in a new cached configuration, returning the event that tells listeners the structural
+     * diff against the old one. Callers publish it once they no longer hold the monitor, so that
+     * listeners never run under it.
+     */
+    private synchronized ConfigurationChangedEvent replaceCachedConfig(ProximaConfig config, long modified) {
+        ProximaConfig previous = cachedConfig;
+        ConfigurationDiff diff = ConfigurationDiff.between(previous, config);
+
+        cachedConfig = config;
+        lastModified = modified;
+        return new ConfigurationChangedEvent(this, previous, config, diff, configVersion.incrementAndGet());
+    }
+
+    private void publish(ConfigurationChangedEvent event) {
+        if (event == null) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(event);
+        }
+        logger.info("Configuration version {} applied in {}ms: {}",
+                   event.getVersion(), (System.nanoTime() - startTime) / 1_000_000, event.getDiff());
     }
 
     private String determineConfigFile() {
@@ -94,7 +165,7 @@ public class JsonConfigurationService {
                 if (resource != null) {
                     resource.close();
                     logger.info("Test profile active, using classpath: {}", TEST_CONFIG_FILE_PATH);
-                    return "classpath:" + TEST_CONFIG_FILE_PATH;
+                    return CLASSPATH_PREFIX + TEST_CONFIG_FILE_PATH;
                 }
             } catch (IOException e) {
                 // Continue to file system check
@@ -167,33 +238,40 @@ public class JsonConfigurationService {
         String configFilePath = determineConfigFile();
         objectMapper.writerWithDefaultPrettyPrinter()
                    .writeValue(new File(configFilePath), config);
-        cachedConfig = copyConfig(config);
-        lastModified = new File(configFilePath).lastModified();
+        publish(replaceCachedConfig(copyConfig(config), new File(configFilePath).lastModified()));
         logger.info("Configuration saved to {}", configFilePath);
     }
 
+    /**
+     * Whether a route path pattern stays clear of the reserved paths, using the same matcher as the proxy.
+     */
     public boolean isValidRoute(String pathPattern) {
-        ProximaConfig config = loadConfiguration();
-        return config.getReservedRoutes().stream()
-                .noneMatch(reserved -> matchesPattern(pathPattern, reserved));
+        return !reservedPaths().overlaps(pathPattern);
     }
 
-    private boolean matchesPattern(String path, String pattern) {
-        if (pattern.endsWith("**")) {
-            String prefix = pattern.substring(0, pattern.length() - 2);
-            return path.startsWith(prefix);
+    /**
+     * Reserved paths of the current configuration, compiled once per configuration rather than
+     * for every route validated against them.
+     */
+    private ReservedPaths reservedPaths() {
+        ProximaConfig config = currentConfiguration();
+        CompiledReservedPaths compiled = compiledReservedPaths;
+        if (compiled == null || compiled.config() != config) {
+            List<String> reservedRoutes = config != null ? config.getReservedRoutes() : List.of();
+            compiled = new CompiledReservedPaths(config, ReservedPaths.compile(reservedRoutes));
+            compiledReservedPaths = compiled;
         }
-        return path.equals(pattern);
+        return compiled.paths();
+    }
+
+    private record CompiledReservedPaths(ProximaConfig config, ReservedPaths paths) {
     }
 
     private ProximaConfig createDefaultConfig() {
         ProximaConfig config = new ProximaConfig();
         config.getDownstream().setUrl("http://nginx:80");
         config.setActivePreset("admin_user");
-        config.setReservedRoutes(Arrays.asList(
-            "/api/**", "/actuator/**", "/dashboard/**",
-            "/presets/**", "/routes/**", "/status/**"
-        ));
+        config.setReservedRoutes(Arrays.asList("/proxima/**", "/actuator/**"));
         return config;
     }
 
@@ -0,0 +1,68 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * A JSON response serialized once, together with a strong ETag derived from its bytes, so it can
+ * be served repeatedly without rebuilding or re-serializing it. The body array is shared and must
+ * not be modified.
+ */
+public final class JsonDocument {
+
+    private final byte[] body;
+    private final String etag;
+
+    private JsonDocument(byte[] body, String etag) {
+        this.body = body;
+        this.etag = etag;
+    }
+
+    public static JsonDocument of(Object value, ObjectMapper objectMapper) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return new JsonDocument(body, '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + '"');
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to serialize JSON document", e);
+        }
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Quoted strong entity tag, ready for the ETag header.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Whether an If-None-Match header value matches this document, using weak comparison as
+     * RFC 9110 requires for If-None-Match.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,200 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freesidenomad.proxima.service.KeyPairEntry.Schedule;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * File-backed store for JwtService keys, so keys and the tokens signed with them survive a restart.
+ * <p>
+ * The file is a JSON key set modelled on a JWK set: one entry per key with its {@code kid},
+ * {@code kty} and {@code alg}. Secret keys are stored as {@code k} like an "oct" JWK, and key
+ * pairs as PKCS#8 and X.509 encodings ({@code pkcs8} and {@code spki}), which are only decoded
+ * when a key is first used. It is not a standard JWK set or a PKCS#12 keystore: the encoded
+ * forms decode through one {@link KeyFactory} call for every key type, without mapping RSA, EC
+ * and OKP parameters field by field, and unlike PKCS#12 they need no keystore password or
+ * certificates, and keep the rotation schedule next to each key.
+ * Writes happen on a background thread, always replace the whole file atomically and are
+ * coalesced, so a burst of key changes results in a single write.
+ */
+final class JwtKeyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyStore.class);
+
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService writer;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    JwtKeyStore(Path file) {
+        this.file = file;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwt-keystore");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Keys stored in the file, or an empty list if it does not exist yet.
+     */
+    List<StoredKey> load() throws IOException {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        KeySet keySet = objectMapper.readValue(file.toFile(), KeySet.class);
+        return keySet.keys() != null ? keySet.keys() : List.of();
+    }
+
+    /**
+     * Schedule a write of the current keys. The snapshot is taken on the writer thread, so a write
+     * that is already pending picks up later changes as well.
+     */
+    void saveAsync(Supplier<List<StoredKey>> snapshot) {
+        if (writer.isShutdown()) {
+            logger.warn("JWT key store {} is closed, not persisting key changes", file);
+            return;
+        }
+        if (!writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writer.execute(() -> {
+                writeScheduled.set(false);
+                try {
+                    write(snapshot.get());
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Failed to persist JWT keys to {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed since the check above
+            writeScheduled.set(false);
+            logger.warn("JWT key store {} is closed, not persisting key changes", file);
+        }
+    }
+
+    void write(List<StoredKey> keys) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        // The file holds private keys, so it is only ever readable by the owner, also while written
+        Path temp = directory.getFileSystem().supportedFileAttributeViews().contains("posix")
+                ? Files.createTempFile(directory, file.getFileName().toString(), ".tmp",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+                : Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(out, new KeySet(keys));
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        logger.debug("Persisted {} JWT keys to {}", keys.size(), file);
+    }
+
+    /**
+     * Finish pending writes and stop the writer thread.
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Timed out persisting JWT keys to {}", file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record KeySet(List<StoredKey> keys) {
+    }
+
+    /**
+     * One persisted key. {@code kty} is "oct", "RSA", "EC" or "OKP" (Ed25519). Keys under scheduled
+     * rotation also record the key id they are a version of and their schedule, in epoch seconds.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record StoredKey(String kid, String kty, String alg, String k, String pkcs8, String spki,
+                     String versionOf, Long activatesAt, Long retiresAt) {
+
+        static StoredKey secret(String kid, SecretKey key) {
+            return new StoredKey(kid, "oct", "HS256",
+                    Base64.getUrlEncoder().withoutPadding().encodeToString(key.getEncoded()), null, null,
+                    null, null, null);
+        }
+
+        static StoredKey keyPair(String kid, String kty, String alg, KeyPairEntry entry) {
+            KeyPair keyPair = entry.get();
+            Schedule schedule = entry.getSchedule();
+            return new StoredKey(kid, kty, alg, null,
+                    Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()),
+                    Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()),
+                    schedule != null ? schedule.keyId() : null,
+                    schedule != null ? epochSeconds(schedule.activatesAt()) : null,
+                    schedule != null ? epochSeconds(schedule.retiresAt()) : null);
+        }
+
+        KeyPairEntry toKeyPairEntry() {
+            Schedule schedule = versionOf == null ? null : new Schedule(versionOf,
+                    activatesAt != null ? Instant.ofEpochSecond(activatesAt) : null,
+                    retiresAt != null ? Instant.ofEpochSecond(retiresAt) : null);
+            return KeyPairEntry.lazy(this::toKeyPair, schedule);
+        }
+
+        private static Long epochSeconds(Instant instant) {
+            return instant != null ? instant.getEpochSecond() : null;
+        }
+
+        SecretKey toSecretKey() {
+            return Keys.hmacShaKeyFor(Base64.getUrlDecoder().decode(k));
+        }
+
+        KeyPair toKeyPair() {
+            String algorithm = "OKP".equals(kty) ? "Ed25519" : kty;
+            try {
+                KeyFactory keyFactory = KeyFactory.getInstance(algorithm);
+                return new KeyPair(
+                        keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(spki))),
+                        keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(pkcs8))));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid stored " + kty + " key: " + kid, e);
+            }
+        }
+    }
+}
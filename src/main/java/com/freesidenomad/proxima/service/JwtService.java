@@ -1,36 +1,107 @@
 package com.freesidenomad.proxima.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freesidenomad.proxima.config.JwtProperties;
+import com.freesidenomad.proxima.service.JwtKeyStore.StoredKey;
+import com.freesidenomad.proxima.service.KeyPairEntry.Schedule;
+import com.freesidenomad.proxima.service.KeyPairPool.KeyType;
+import com.freesidenomad.proxima.service.SignedTokenCache.SignedToken;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Paths;
+import java.security.Key;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Base64;
 import java.util.Date;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 @Service
 public final class JwtService {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtService.class);
 
+    static final String KEY_NAMESPACE = "jwt-keys";
+
+    // Suffix of rotated key versions, from the time they start signing
+    private static final DateTimeFormatter VERSION_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
     private final Map<String, SecretKey> hmacKeys = new ConcurrentHashMap<>();
-    private final Map<String, KeyPair> rsaKeys = new ConcurrentHashMap<>();
-    private SecretKey defaultHmacKey;
-    private KeyPair defaultRsaKey;
+    private final Map<String, KeyPairEntry> rsaKeys = new ConcurrentHashMap<>();
+    // EC P-256 (ES256) and Ed25519 (EdDSA) keys, whose "default" keys are created on first use
+    private final Map<String, KeyPairEntry> ecKeys = new ConcurrentHashMap<>();
+    private final Map<String, KeyPairEntry> edKeys = new ConcurrentHashMap<>();
+
+    // Incremented on every key change, stamps the cached JWKS document
+    private final AtomicLong keySetVersion = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile VersionedDocument jwksDocument;
+    // Signing key fingerprints of the current key set version
+    private volatile Fingerprints fingerprints = new Fingerprints(-1, Map.of());
+
+    @Autowired(required = false)
+    private JwtProperties jwtProperties;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private ClusterService clusterService;
+
+    // Reuses signed tokens for identical requests, null unless enabled
+    private volatile SignedTokenCache tokenCache;
+
+    // Pre-generated key pairs for key creation, null until the bean is initialized
+    private volatile KeyPairPool keyPairPool;
+
+    // Persists keys across restarts, null unless enabled
+    private volatile JwtKeyStore keyStore;
+
+    // Runs signing and key generation, null if disabled or before the bean is initialized
+    private volatile CryptoExecutor cryptoExecutor;
+
+    // Runs scheduled key rotation, null unless enabled
+    private volatile ScheduledExecutorService rotationScheduler;
+    private final LongAdder rotatedKeys = new LongAdder();
+    private final LongAdder retiredKeys = new LongAdder();
 
     public JwtService() {
         try {
@@ -41,75 +112,680 @@ public final class JwtService {
         }
     }
 
-    private void initializeDefaultKeys() throws NoSuchAlgorithmException {
+    private void initializeDefaultKeys() {
         // Generate default HMAC key (HS256)
-        defaultHmacKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
-        hmacKeys.put("default", defaultHmacKey);
+        hmacKeys.put("default", Keys.secretKeyFor(SignatureAlgorithm.HS256));
 
-        // Generate default RSA key pair (RS256)
-        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-        keyPairGenerator.initialize(2048);
-        defaultRsaKey = keyPairGenerator.generateKeyPair();
-        rsaKeys.put("default", defaultRsaKey);
+        // Default RSA key pair (RS256), generated on first use so that constructing the service
+        // does not pay for RSA key generation, and not at all if the keystore provides one
+        rsaKeys.put("default", KeyPairEntry.lazy(() -> generateKeyPair(KeyType.RSA)));
 
         logger.info("JWT Service initialized with default HMAC and RSA keys");
     }
 
+    @PostConstruct
+    void initialize() {
+        initCryptoExecutor();
+        initKeyPairPool();
+        initTokenCache();
+        initKeyStore();
+        initCluster();
+        initRotation();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ScheduledExecutorService scheduler = rotationScheduler;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        // Pending writes may still materialize lazy keys on the crypto executor
+        JwtKeyStore store = keyStore;
+        if (store != null) {
+            store.close();
+        }
+        CryptoExecutor executor = cryptoExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+        KeyPairPool pool = keyPairPool;
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void initCryptoExecutor() {
+        if (jwtProperties == null || !jwtProperties.getCrypto().isEnabled()) {
+            return;
+        }
+        JwtProperties.Crypto settings = jwtProperties.getCrypto();
+        int threads = settings.getThreads() > 0 ? settings.getThreads() : Runtime.getRuntime().availableProcessors();
+        cryptoExecutor = new CryptoExecutor(threads, settings.getQueueCapacity(), settings.getRejectionPolicy(), meterRegistry);
+        logger.info("Crypto executor enabled with {} threads and a queue of {} ({} when full)",
+                   threads, settings.getQueueCapacity(), settings.getRejectionPolicy());
+    }
+
+    private void initKeyPairPool() {
+        if (jwtProperties == null || !jwtProperties.getKeyPool().isEnabled()) {
+            return;
+        }
+        JwtProperties.KeyPool settings = jwtProperties.getKeyPool();
+        Map<KeyType, Integer> sizes = new EnumMap<>(KeyType.class);
+        sizes.put(KeyType.RSA, settings.getRsa());
+        sizes.put(KeyType.EC, settings.getEc());
+        sizes.put(KeyType.ED25519, settings.getEd25519());
+        KeyPairPool pool = new KeyPairPool(sizes);
+        keyPairPool = pool;
+        logger.info("Key pair pool enabled with {} RSA, {} EC and {} Ed25519 pairs",
+                   settings.getRsa(), settings.getEc(), settings.getEd25519());
+
+        if (meterRegistry != null) {
+            FunctionCounter.builder("proxima.jwt.key.pool.hits", pool, KeyPairPool::getHitCount)
+                    .description("Key pairs taken from the pre-generated pool").register(meterRegistry);
+            FunctionCounter.builder("proxima.jwt.key.pool.misses", pool, KeyPairPool::getMissCount)
+                    .description("Key pairs generated inline because the pool was empty").register(meterRegistry);
+            for (KeyType type : KeyType.values()) {
+                Gauge.builder("proxima.jwt.key.pool.available", pool, p -> p.available(type))
+                        .tag("type", type.name()).register(meterRegistry);
+            }
+        }
+    }
+
+    /**
+     * A fresh key pair, from the pool when it is enabled.
+     */
+    private KeyPair newKeyPair(KeyType type) {
+        KeyPairPool pool = keyPairPool;
+        return pool != null ? pool.take(type) : KeyPairPool.generate(type);
+    }
+
+    /**
+     * A fresh key pair, taken from the pool on the caller when one is ready, otherwise generated
+     * on the crypto executor. Key creation is never shed: callers reading the JWKS or a public
+     * key cannot do without it, so a full queue runs it on the caller whatever the policy.
+     */
+    private KeyPair generateKeyPair(KeyType type) {
+        KeyPairPool pool = keyPairPool;
+        KeyPair ready = pool != null ? pool.poll(type) : null;
+        if (ready != null) {
+            return ready;
+        }
+        CryptoExecutor executor = cryptoExecutor;
+        if (executor == null || CryptoExecutor.isCryptoThread()) {
+            return newKeyPair(type);
+        }
+        return await(executor.submitOrRun(() -> newKeyPair(type)));
+    }
+
+    void initTokenCache() {
+        if (jwtProperties == null || !jwtProperties.getTokenCache().isEnabled()) {
+            return;
+        }
+        JwtProperties.TokenCache settings = jwtProperties.getTokenCache();
+        SignedTokenCache cache = new SignedTokenCache(settings.getMaxEntries(), settings.getReuseFraction());
+        tokenCache = cache;
+        logger.info("Signed token cache enabled with {} entries, reusing tokens for {}% of their lifetime",
+                   settings.getMaxEntries(), Math.round(settings.getReuseFraction() * 100));
+
+        if (meterRegistry != null) {
+            FunctionCounter.builder("proxima.jwt.token.cache.hits", cache, SignedTokenCache::getHitCount)
+                    .description("Token requests served with a previously signed token").register(meterRegistry);
+            FunctionCounter.builder("proxima.jwt.token.cache.misses", cache, SignedTokenCache::getMissCount)
+                    .description("Cacheable token requests that had to be signed").register(meterRegistry);
+            FunctionCounter.builder("proxima.jwt.token.cache.rejections", cache, SignedTokenCache::getRejectionCount)
+                    .register(meterRegistry);
+            Gauge.builder("proxima.jwt.token.cache.size", cache, SignedTokenCache::size).register(meterRegistry);
+            Gauge.builder("proxima.jwt.token.cache.hit.ratio", cache, SignedTokenCache::getHitRatio)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Load keys from the keystore file, replacing the generated defaults, and persist the defaults
+     * if the file does not have them yet.
+     */
+    private void initKeyStore() {
+        if (jwtProperties == null || !jwtProperties.getKeystore().isEnabled()) {
+            return;
+        }
+        JwtKeyStore store = new JwtKeyStore(Paths.get(jwtProperties.getKeystore().getPath()));
+        List<StoredKey> storedKeys;
+        try {
+            storedKeys = store.load();
+        } catch (IOException e) {
+            // Starting with fresh keys would overwrite the stored ones
+            store.close();
+            throw new IllegalStateException("Failed to read JWT keystore " + store.getFile(), e);
+        }
+
+        KeyPairEntry generatedDefault = rsaKeys.get("default");
+        boolean hasDefaults = false;
+        for (StoredKey storedKey : storedKeys) {
+            switch (storedKey.kty()) {
+                case "oct":
+                    hmacKeys.put(storedKey.kid(), storedKey.toSecretKey());
+                    break;
+                case "RSA":
+                    KeyPairEntry rsaKey = storedKey.toKeyPairEntry();
+                    rsaKeys.put(storedKey.kid(), rsaKey);
+                    hasDefaults |= rsaKey.isVersionOf(storedKey.kid(), "default");
+                    break;
+                case "EC":
+                    ecKeys.put(storedKey.kid(), storedKey.toKeyPairEntry());
+                    break;
+                case "OKP":
+                    edKeys.put(storedKey.kid(), storedKey.toKeyPairEntry());
+                    break;
+                default:
+                    logger.warn("Ignoring stored key {} with unsupported type {}", storedKey.kid(), storedKey.kty());
+            }
+        }
+        if (hasDefaults) {
+            // Once the stored default key has been rotated out, the generated one must not come back
+            rsaKeys.remove("default", generatedDefault);
+        }
+        keyStore = store;
+        keySetVersion.incrementAndGet();
+        logger.info("Loaded {} JWT keys from {}", storedKeys.size(), store.getFile());
+
+        if (!hasDefaults) {
+            persistKeys();
+        }
+    }
+
+    /**
+     * Share keys with the other nodes of the cluster. The keys this node starts with only take
+     * over for ids the cluster has no key for yet, so that a token signed by one node verifies
+     * on every node; with a shared keystore all nodes start with the same keys anyway.
+     */
+    private void initCluster() {
+        if (clusterService == null) {
+            return;
+        }
+        for (StoredKey key : snapshotKeys()) {
+            clusterService.publishInitial(KEY_NAMESPACE, replicatedKeyName(key.kty(), key.kid()), key);
+        }
+        clusterService.register(KEY_NAMESPACE, StoredKey.class, this::applyReplicatedKey, this::removeReplicatedKey);
+    }
+
+    private void applyReplicatedKey(String name, StoredKey key) {
+        switch (key.kty()) {
+            case "oct" -> hmacKeys.put(key.kid(), key.toSecretKey());
+            case "RSA" -> rsaKeys.put(key.kid(), key.toKeyPairEntry());
+            case "EC" -> ecKeys.put(key.kid(), key.toKeyPairEntry());
+            case "OKP" -> edKeys.put(key.kid(), key.toKeyPairEntry());
+            default -> {
+                logger.warn("Ignoring replicated key {} with unsupported type {}", key.kid(), key.kty());
+                return;
+            }
+        }
+        logger.info("Applied replicated {} key: {}", key.kty(), key.kid());
+        keysReplaced(key.kid());
+    }
+
+    private void removeReplicatedKey(String name) {
+        int separator = name.indexOf(':');
+        String keyId = name.substring(separator + 1);
+        Map<String, ?> keys = switch (name.substring(0, separator)) {
+            case "oct" -> hmacKeys;
+            case "RSA" -> rsaKeys;
+            case "EC" -> ecKeys;
+            case "OKP" -> edKeys;
+            default -> null;
+        };
+        if (keys != null && keys.remove(keyId) != null) {
+            logger.info("Applied replicated removal of key: {}", name);
+            keysReplaced(keyId);
+        }
+    }
+
+    /**
+     * Replicate the keys under an id to the other nodes of the cluster, if there is one.
+     */
+    private void replicateKeys(String keyId) {
+        if (clusterService == null) {
+            return;
+        }
+        SecretKey hmacKey = hmacKeys.get(keyId);
+        if (hmacKey != null) {
+            clusterService.publish(KEY_NAMESPACE, replicatedKeyName("oct", keyId), StoredKey.secret(keyId, hmacKey));
+        }
+        replicateKeyPair(rsaKeys, keyId, "RSA", "RS256");
+        replicateKeyPair(ecKeys, keyId, "EC", "ES256");
+        replicateKeyPair(edKeys, keyId, "OKP", "EdDSA");
+    }
+
+    private void replicateKeyPair(Map<String, KeyPairEntry> keys, String keyId, String kty, String alg) {
+        KeyPairEntry entry = keys.get(keyId);
+        if (entry != null) {
+            clusterService.publish(KEY_NAMESPACE, replicatedKeyName(kty, keyId), StoredKey.keyPair(keyId, kty, alg, entry));
+        }
+    }
+
+    private static String replicatedKeyName(String kty, String keyId) {
+        return kty + ":" + keyId;
+    }
+
+    private void initRotation() {
+        if (jwtProperties == null || !jwtProperties.getRotation().isEnabled()) {
+            return;
+        }
+        JwtProperties.Rotation settings = jwtProperties.getRotation();
+        if (settings.getIntervalSeconds() <= 0 || settings.getCheckIntervalSeconds() <= 0) {
+            throw new IllegalArgumentException("Key rotation and check intervals must be positive");
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwt-key-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rotateKeys(Instant.now());
+            } catch (RuntimeException e) {
+                logger.error("Failed to rotate JWT keys: {}", e.getMessage(), e);
+            }
+        }, 0, settings.getCheckIntervalSeconds(), TimeUnit.SECONDS);
+        rotationScheduler = scheduler;
+        logger.info("Rotating keys {} every {}s, published {}s ahead and retired {}s after their last use",
+                   settings.getKeyIds(), settings.getIntervalSeconds(), settings.getPrePublishSeconds(),
+                   settings.getMaxTokenLifetimeSeconds());
+
+        if (meterRegistry != null) {
+            FunctionCounter.builder("proxima.jwt.key.rotations", rotatedKeys, LongAdder::sum)
+                    .description("Key versions created by scheduled rotation").register(meterRegistry);
+            FunctionCounter.builder("proxima.jwt.key.retirements", retiredKeys, LongAdder::sum)
+                    .description("Rotated out key versions removed from the key set").register(meterRegistry);
+        }
+    }
+
+    /**
+     * Bring the rotated keys up to date at {@code now}: remove versions that are past retirement
+     * and, once the next rotation is within the pre-publication window, create the version that
+     * takes over then. The version it replaces keeps signing until that time, and both stay in
+     * the JWKS until the old one retires.
+     */
+    synchronized void rotateKeys(Instant now) {
+        JwtProperties.Rotation settings = jwtProperties.getRotation();
+        for (String keyId : settings.getKeyIds()) {
+            rotateKey(rsaKeys, KeyType.RSA, "RSA", keyId, now, settings);
+            rotateKey(ecKeys, KeyType.EC, "EC", keyId, now, settings);
+            rotateKey(edKeys, KeyType.ED25519, "OKP", keyId, now, settings);
+        }
+    }
+
+    private void rotateKey(Map<String, KeyPairEntry> keys, KeyType type, String kty, String keyId,
+                           Instant now, JwtProperties.Rotation settings) {
+        Map<String, KeyPairEntry> versions = new HashMap<>();
+        for (Map.Entry<String, KeyPairEntry> key : keys.entrySet()) {
+            KeyPairEntry entry = key.getValue();
+            Instant retiresAt = entry.retiresAt();
+            if (!entry.isVersionOf(key.getKey(), keyId)) {
+                continue;
+            }
+            if (retiresAt == null || retiresAt.isAfter(now)) {
+                versions.put(key.getKey(), entry);
+            } else if (keys.remove(key.getKey(), entry)) {
+                replicateRemoval(kty, key.getKey());
+                keysReplaced(key.getKey());
+                retiredKeys.increment();
+                logger.info("Retired {} key {}", kty, key.getKey());
+            }
+        }
+        // Nothing to rotate, such as an ES256 default key that was never used
+        if (versions.isEmpty()) {
+            return;
+        }
+
+        long interval = settings.getIntervalSeconds();
+        Instant next = Instant.ofEpochSecond((Math.floorDiv(now.getEpochSecond(), interval) + 1) * interval);
+        if (now.plusSeconds(settings.getPrePublishSeconds()).isBefore(next)
+                || versions.values().stream().anyMatch(entry -> !entry.isActiveAt(now))) {
+            return;
+        }
+
+        String versionId = keyId + "." + VERSION_FORMAT.format(next);
+        keys.put(versionId, KeyPairEntry.of(generateKeyPair(type)).withSchedule(new Schedule(keyId, next, null)));
+        keysChanged(versionId);
+        rotatedKeys.increment();
+
+        // Tokens signed by the versions being replaced expire within the maximum token lifetime
+        Instant retiresAt = next.plusSeconds(settings.getMaxTokenLifetimeSeconds());
+        versions.forEach((id, entry) -> {
+            if (entry.retiresAt() == null
+                    && keys.replace(id, entry, entry.withSchedule(new Schedule(keyId, entry.activatesAt(), retiresAt)))) {
+                // The key itself is unchanged, so tokens it signed stay cached and the JWKS stays the same
+                replicateKeys(id);
+                persistKeys();
+            }
+        });
+        logger.info("Published {} key {}, signing for {} from {}", kty, versionId, keyId, next);
+    }
+
+    /**
+     * Write all keys to the keystore in the background, if it is enabled. Lazily created keys
+     * are materialized on the writer thread.
+     */
+    private void persistKeys() {
+        JwtKeyStore store = keyStore;
+        if (store != null) {
+            store.saveAsync(this::snapshotKeys);
+        }
+    }
+
+    private List<StoredKey> snapshotKeys() {
+        List<StoredKey> keys = new ArrayList<>();
+        hmacKeys.forEach((keyId, key) -> keys.add(StoredKey.secret(keyId, key)));
+        rsaKeys.forEach((keyId, entry) -> keys.add(StoredKey.keyPair(keyId, "RSA", "RS256", entry)));
+        ecKeys.forEach((keyId, entry) -> keys.add(StoredKey.keyPair(keyId, "EC", "ES256", entry)));
+        edKeys.forEach((keyId, entry) -> keys.add(StoredKey.keyPair(keyId, "OKP", "EdDSA", entry)));
+        return keys;
+    }
+
     public String generateToken(String subject, Map<String, Object> claims, Duration expiration, String algorithm) {
         return generateToken(subject, claims, expiration, algorithm, "default");
     }
 
     public String generateToken(String subject, Map<String, Object> claims, Duration expiration, String algorithm, String keyId) {
-        Instant now = Instant.now();
-        Date expirationDate = Date.from(now.plus(expiration));
+        return await(signToken(subject, claims, expiration, algorithm, keyId)).token();
+    }
+
+    /**
+     * Like {@link #generateToken(String, Map, Duration, String, String)}, completing once the
+     * token is signed on the crypto executor instead of blocking the calling thread.
+     */
+    public CompletableFuture<String> generateTokenAsync(String subject, Map<String, Object> claims, Duration expiration,
+                                                        String algorithm, String keyId) {
+        try {
+            return signToken(subject, claims, expiration, algorithm, keyId).thenApply(SignedToken::token);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public Map<String, Object> generateTokenResponse(String subject, Map<String, Object> claims, Duration expiration, String algorithm, String keyId) {
+        return await(generateTokenResponseAsync(subject, claims, expiration, algorithm, keyId));
+    }
+
+    public CompletableFuture<Map<String, Object>> generateTokenResponseAsync(String subject, Map<String, Object> claims,
+                                                                            Duration expiration, String algorithm, String keyId) {
+        CompletableFuture<SignedToken> signing;
+        try {
+            signing = signToken(subject, claims, expiration, algorithm, keyId);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return signing.thenApply(signed -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("token", signed.token());
+            response.put("subject", subject);
+            response.put("algorithm", algorithm);
+            response.put("keyId", keyId);
+            // A reused token has already used up part of its lifetime
+            response.put("expiresIn", expiration.getSeconds() - Duration.between(signed.issuedAt(), Instant.now()).getSeconds());
+            response.put("expiresAt", signed.expiresAt().toString());
+            response.put("claims", claims);
+            return response;
+        });
+    }
+
+    /**
+     * Sign a compiled claims template, issued now and expiring after {@code expiration}. Templated
+     * tokens are always signed fresh, without going through the token cache.
+     */
+    public String signTemplate(ClaimsTemplate template, Duration expiration) {
+        return await(signTemplate(template, expiration, false));
+    }
+
+    /**
+     * Like {@link #signTemplate(ClaimsTemplate, Duration)} without blocking the calling thread,
+     * for background work. If the crypto queue is full the future fails with a
+     * {@link java.util.concurrent.RejectedExecutionException} instead of the token being signed on
+     * the caller, so the caller can retry later.
+     */
+    public CompletableFuture<String> signTemplateAsync(ClaimsTemplate template, Duration expiration) {
+        return signTemplate(template, expiration, true);
+    }
 
+    private CompletableFuture<String> signTemplate(ClaimsTemplate template, Duration expiration, boolean background) {
+        SigningKey signingKey;
+        try {
+            signingKey = resolveSigningKey(template.getAlgorithm(), template.getKeyId());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return onCryptoExecutor(template.getAlgorithm(), background, () -> {
+            long issuedAt = System.currentTimeMillis() / 1000;
+            return template.sign(signingKey.keyId(), signingKey.key(), issuedAt, issuedAt + expiration.getSeconds());
+        });
+    }
+
+    /**
+     * Sign a token, or reuse an identical one from the token cache while it is within its reuse
+     * window. An unknown algorithm or key fails right away, on the calling thread.
+     */
+    private CompletableFuture<SignedToken> signToken(String subject, Map<String, Object> claims, Duration expiration,
+                                                     String algorithm, String keyId) {
+        String signatureAlgorithm = canonicalAlgorithm(algorithm);
+        SigningKey resolved = resolveSigningKey(signatureAlgorithm, keyId);
+
+        SignedTokenCache cache = tokenCache;
+        String cacheKey = cache != null ? cache.keyFor(subject, claims, expiration, signatureAlgorithm, keyId) : null;
+        if (cacheKey != null) {
+            SignedToken cached = cache.get(cacheKey, resolved.key(), Instant.now());
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        return onCryptoExecutor(signatureAlgorithm,
+                () -> sign(subject, claims, expiration, signatureAlgorithm, resolved, cache, cacheKey));
+    }
+
+    private SignedToken sign(String subject, Map<String, Object> claims, Duration expiration, String signatureAlgorithm,
+                             SigningKey resolved, SignedTokenCache cache, String cacheKey) {
+        Key signingKey = resolved.key();
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(expiration);
         var builder = Jwts.builder()
                 .setSubject(subject)
                 .setIssuedAt(Date.from(now))
-                .setExpiration(expirationDate)
+                .setExpiration(Date.from(expiresAt))
                 .claims(claims);
 
+        String token;
+        switch (signatureAlgorithm) {
+            case "RS256":
+                token = builder
+                        .setHeaderParam("kid", resolved.keyId())
+                        .signWith(signingKey, SignatureAlgorithm.RS256)
+                        .compact();
+                break;
+            case "ES256":
+                token = builder
+                        .setHeaderParam("kid", resolved.keyId())
+                        .signWith((PrivateKey) signingKey, Jwts.SIG.ES256)
+                        .compact();
+                break;
+            case "EdDSA":
+                token = builder
+                        .setHeaderParam("kid", resolved.keyId())
+                        .signWith((PrivateKey) signingKey, Jwts.SIG.EdDSA)
+                        .compact();
+                break;
+            default:
+                token = builder.signWith(signingKey, SignatureAlgorithm.HS256).compact();
+        }
+
+        if (cacheKey == null) {
+            return new SignedToken(token, now, expiresAt, expiresAt, resolved.keyId(), signingKey);
+        }
+        SignedToken signed = new SignedToken(token, now, expiresAt, cache.reuseUntil(now, expiration), resolved.keyId(), signingKey);
+        cache.put(cacheKey, signed);
+        return signed;
+    }
+
+    /**
+     * Run a signature on the crypto executor. HS256 takes microseconds, less than handing it to
+     * another thread, so it runs on the caller like everything else when the executor is disabled
+     * or the caller is a crypto thread already.
+     */
+    private <T> CompletableFuture<T> onCryptoExecutor(String signatureAlgorithm, Supplier<T> task) {
+        return onCryptoExecutor(signatureAlgorithm, false, task);
+    }
+
+    /**
+     * Background tasks are rejected when the queue is full rather than run on the caller.
+     */
+    private <T> CompletableFuture<T> onCryptoExecutor(String signatureAlgorithm, boolean background, Supplier<T> task) {
+        CryptoExecutor executor = cryptoExecutor;
+        if (executor == null || "HS256".equals(signatureAlgorithm) || CryptoExecutor.isCryptoThread()) {
+            try {
+                return CompletableFuture.completedFuture(task.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return background ? executor.trySubmit(task) : executor.submit(task);
+    }
+
+    /**
+     * Wait for a crypto task, rethrowing its failure as it was thrown.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Canonical JWS name of a supported algorithm, matched case-insensitively.
+     */
+    static String canonicalAlgorithm(String algorithm) {
         switch (algorithm.toUpperCase(Locale.ENGLISH)) {
+            case "HS256":
+                return "HS256";
+            case "RS256":
+                return "RS256";
+            case "ES256":
+                return "ES256";
+            case "EDDSA":
+                return "EdDSA";
+            default:
+                throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * The key that signs for a key id, with the id it is published under. Under scheduled
+     * rotation that is the most recently activated version of the key.
+     */
+    private SigningKey resolveSigningKey(String signatureAlgorithm, String keyId) {
+        switch (signatureAlgorithm) {
             case "HS256":
                 SecretKey hmacKey = hmacKeys.get(keyId);
                 if (hmacKey == null) {
                     throw new IllegalArgumentException("HMAC key not found: " + keyId);
                 }
-                return builder.signWith(hmacKey, SignatureAlgorithm.HS256).compact();
+                return new SigningKey(keyId, hmacKey);
 
             case "RS256":
-                KeyPair rsaKey = rsaKeys.get(keyId);
-                if (rsaKey == null) {
-                    throw new IllegalArgumentException("RSA key not found: " + keyId);
-                }
-                return builder
-                        .setHeaderParam("kid", keyId)
-                        .signWith(rsaKey.getPrivate(), SignatureAlgorithm.RS256)
-                        .compact();
+                return signingKeyPair(rsaKeys, keyId, null, "RSA key not found: ");
+
+            case "ES256":
+                return signingKeyPair(ecKeys, keyId, KeyType.EC, "EC key not found: ");
 
             default:
-                throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+                return signingKeyPair(edKeys, keyId, KeyType.ED25519, "EdDSA key not found: ");
         }
     }
 
-    public Map<String, Object> generateTokenResponse(String subject, Map<String, Object> claims, Duration expiration, String algorithm, String keyId) {
-        String token = generateToken(subject, claims, expiration, algorithm, keyId);
+    /**
+     * The active version of a key pair. A missing "default" key of {@code defaultType} is
+     * created on first use.
+     */
+    private SigningKey signingKeyPair(Map<String, KeyPairEntry> keys, String keyId, KeyType defaultType, String notFound) {
+        Map.Entry<String, KeyPairEntry> active = activeVersion(keys, keyId, Instant.now());
+        if (active == null && defaultType != null && "default".equals(keyId)) {
+            active = Map.entry(keyId, defaultKey(keys, defaultType));
+        }
+        if (active == null) {
+            throw new IllegalArgumentException(notFound + keyId);
+        }
+        return new SigningKey(active.getKey(), active.getValue().get().getPrivate());
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("token", token);
-        response.put("subject", subject);
-        response.put("algorithm", algorithm);
-        response.put("keyId", keyId);
-        response.put("expiresIn", expiration.getSeconds());
-        response.put("expiresAt", Instant.now().plus(expiration).toString());
-        response.put("claims", claims);
+    /**
+     * The version of a key that signs at {@code now}, or null if there is none. There are only
+     * a handful of keys, so they are scanned rather than indexed by the key id they rotate.
+     */
+    private static Map.Entry<String, KeyPairEntry> activeVersion(Map<String, KeyPairEntry> keys, String keyId, Instant now) {
+        KeyPairEntry key = keys.get(keyId);
+        Map.Entry<String, KeyPairEntry> active = key != null && key.isActiveAt(now) ? Map.entry(keyId, key) : null;
+        for (Map.Entry<String, KeyPairEntry> candidate : keys.entrySet()) {
+            KeyPairEntry entry = candidate.getValue();
+            if (entry.activatesAt() != null && entry.isVersionOf(candidate.getKey(), keyId) && entry.isActiveAt(now)
+                    && (active == null || active.getValue().activatesAt() == null
+                        || entry.activatesAt().isAfter(active.getValue().activatesAt()))) {
+                active = candidate;
+            }
+        }
+        return active;
+    }
+
+    private KeyPairEntry defaultKey(Map<String, KeyPairEntry> keys, KeyType type) {
+        KeyPairEntry entry = keys.get("default");
+        if (entry == null) {
+            KeyPairEntry created = KeyPairEntry.of(generateKeyPair(type));
+            entry = keys.putIfAbsent("default", created);
+            if (entry == null) {
+                entry = created;
+                keysChanged("default");
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * The key pair with the given id or, once it has been rotated out, its active version.
+     */
+    private static KeyPairEntry keyPairFor(Map<String, KeyPairEntry> keys, String keyId) {
+        KeyPairEntry entry = keys.get(keyId);
+        if (entry == null) {
+            Map.Entry<String, KeyPairEntry> active = activeVersion(keys, keyId, Instant.now());
+            entry = active != null ? active.getValue() : null;
+        }
+        return entry;
+    }
 
-        return response;
+    private record SigningKey(String keyId, Key key) {
+    }
+
+    /**
+     * Signed token cache statistics, or null if the cache is disabled.
+     */
+    public Map<String, Object> getTokenCacheStats() {
+        SignedTokenCache cache = tokenCache;
+        if (cache == null) {
+            return null;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", cache.size());
+        stats.put("hits", cache.getHitCount());
+        stats.put("misses", cache.getMissCount());
+        stats.put("rejections", cache.getRejectionCount());
+        stats.put("hitRatio", cache.getHitRatio());
+        return stats;
     }
 
     public String generateHmacKey(String keyId) {
         SecretKey key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
         hmacKeys.put(keyId, key);
+        keysChanged(keyId);
 
         String encodedKey = Base64.getEncoder().encodeToString(key.getEncoded());
         logger.info("Generated new HMAC key with ID: {}", keyId);
@@ -118,77 +794,247 @@ public final class JwtService {
     }
 
     public Map<String, String> generateRsaKeyPair(String keyId) {
-        try {
-            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-            keyPairGenerator.initialize(2048);
-            KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        KeyPair keyPair = generateKeyPair(KeyType.RSA);
+        rsaKeys.put(keyId, KeyPairEntry.of(keyPair));
+        keysChanged(keyId);
 
-            rsaKeys.put(keyId, keyPair);
+        logger.info("Generated new RSA key pair with ID: {}", keyId);
 
-            String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
-            String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+        return describeKeyPair(keyId, keyPair, "RS256");
+    }
 
-            Map<String, String> keys = new HashMap<>();
-            keys.put("keyId", keyId);
-            keys.put("publicKey", publicKey);
-            keys.put("privateKey", privateKey);
-            keys.put("algorithm", "RS256");
+    /**
+     * Generate an EC P-256 key pair for ES256 signing.
+     */
+    public Map<String, String> generateEcKeyPair(String keyId) {
+        KeyPair keyPair = generateKeyPair(KeyType.EC);
+        ecKeys.put(keyId, KeyPairEntry.of(keyPair));
+        keysChanged(keyId);
 
-            logger.info("Generated new RSA key pair with ID: {}", keyId);
+        logger.info("Generated new EC key pair with ID: {}", keyId);
 
-            return keys;
-        } catch (NoSuchAlgorithmException e) {
-            logger.error("Failed to generate RSA key pair", e);
-            throw new RuntimeException("Failed to generate RSA key pair", e);
-        }
+        return describeKeyPair(keyId, keyPair, "ES256");
+    }
+
+    /**
+     * Generate an Ed25519 key pair for EdDSA signing.
+     */
+    public Map<String, String> generateEdKeyPair(String keyId) {
+        KeyPair keyPair = generateKeyPair(KeyType.ED25519);
+        edKeys.put(keyId, KeyPairEntry.of(keyPair));
+        keysChanged(keyId);
+
+        logger.info("Generated new Ed25519 key pair with ID: {}", keyId);
+
+        return describeKeyPair(keyId, keyPair, "EdDSA");
+    }
+
+    private static Map<String, String> describeKeyPair(String keyId, KeyPair keyPair, String algorithm) {
+        String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+
+        Map<String, String> keys = new HashMap<>();
+        keys.put("keyId", keyId);
+        keys.put("publicKey", publicKey);
+        keys.put("privateKey", privateKey);
+        keys.put("algorithm", algorithm);
+        return keys;
     }
 
     public Map<String, Object> getKeyInfo() {
         Map<String, Object> info = new HashMap<>();
         info.put("hmacKeys", hmacKeys.keySet());
         info.put("rsaKeys", rsaKeys.keySet());
-        info.put("totalKeys", hmacKeys.size() + rsaKeys.size());
+        info.put("ecKeys", ecKeys.keySet());
+        info.put("edKeys", edKeys.keySet());
+        info.put("totalKeys", hmacKeys.size() + rsaKeys.size() + ecKeys.size() + edKeys.size());
+
+        Map<String, Object> tokenCacheStats = getTokenCacheStats();
+        if (tokenCacheStats != null) {
+            info.put("tokenCache", tokenCacheStats);
+        }
+
+        List<Map<String, Object>> rotation = new ArrayList<>();
+        addSchedules(rotation, rsaKeys, "RS256");
+        addSchedules(rotation, ecKeys, "ES256");
+        addSchedules(rotation, edKeys, "EdDSA");
+        if (!rotation.isEmpty()) {
+            info.put("rotation", rotation);
+        }
 
         return info;
     }
 
+    private static void addSchedules(List<Map<String, Object>> schedules, Map<String, KeyPairEntry> keys, String algorithm) {
+        keys.forEach((keyId, entry) -> {
+            Schedule schedule = entry.getSchedule();
+            if (schedule != null) {
+                Map<String, Object> info = new HashMap<>();
+                info.put("keyId", keyId);
+                info.put("versionOf", schedule.keyId());
+                info.put("algorithm", algorithm);
+                info.put("activatesAt", schedule.activatesAt() != null ? schedule.activatesAt().toString() : null);
+                info.put("retiresAt", schedule.retiresAt() != null ? schedule.retiresAt().toString() : null);
+                schedules.add(info);
+            }
+        });
+    }
+
     public void deleteKey(String keyId) {
         boolean removed = false;
 
         if (hmacKeys.remove(keyId) != null) {
             removed = true;
+            replicateRemoval("oct", keyId);
             logger.info("Deleted HMAC key: {}", keyId);
         }
 
         if (rsaKeys.remove(keyId) != null) {
             removed = true;
+            replicateRemoval("RSA", keyId);
             logger.info("Deleted RSA key: {}", keyId);
         }
 
+        if (ecKeys.remove(keyId) != null) {
+            removed = true;
+            replicateRemoval("EC", keyId);
+            logger.info("Deleted EC key: {}", keyId);
+        }
+
+        if (edKeys.remove(keyId) != null) {
+            removed = true;
+            replicateRemoval("OKP", keyId);
+            logger.info("Deleted Ed25519 key: {}", keyId);
+        }
+
         if (!removed) {
             throw new IllegalArgumentException("Key not found: " + keyId);
         }
 
         if ("default".equals(keyId)) {
-            try {
-                initializeDefaultKeys();
-                logger.info("Regenerated default keys after deletion");
-            } catch (NoSuchAlgorithmException e) {
-                logger.error("Failed to regenerate default keys", e);
-                throw new RuntimeException("Failed to regenerate default keys", e);
-            }
+            hmacKeys.put("default", Keys.secretKeyFor(SignatureAlgorithm.HS256));
+            rsaKeys.put("default", KeyPairEntry.of(generateKeyPair(KeyType.RSA)));
+            logger.info("Regenerated default keys after deletion");
         }
+        keysChanged(keyId);
+    }
+
+    private void replicateRemoval(String kty, String keyId) {
+        if (clusterService != null) {
+            clusterService.publish(KEY_NAMESPACE, replicatedKeyName(kty, keyId), null);
+        }
+    }
+
+    /**
+     * Propagate a local change to the keys under an id to the rest of the cluster, then apply it
+     * like a replicated one.
+     */
+    private void keysChanged(String keyId) {
+        replicateKeys(keyId);
+        keysReplaced(keyId);
+    }
+
+    /**
+     * Apply a change to the keys under an id: drop tokens signed with the old key, invalidate
+     * the JWKS document and persist the key set.
+     */
+    private void keysReplaced(String keyId) {
+        SignedTokenCache cache = tokenCache;
+        if (cache != null) {
+            cache.invalidateKey(keyId);
+        }
+        keySetVersion.incrementAndGet();
+        persistKeys();
+    }
+
+    /**
+     * Version of the key set, increasing whenever a key is created, replaced or deleted.
+     */
+    public long getKeySetVersion() {
+        return keySetVersion.get();
+    }
+
+    /**
+     * Base64url SHA-256 of the encoded public key that signs for an algorithm and key id right now,
+     * or null for HS256 or if the key does not exist yet. A missing default key is not created.
+     * Computed once per key and key set version.
+     */
+    public String getSigningKeyFingerprint(String algorithm, String keyId) {
+        Map<String, KeyPairEntry> keys;
+        switch (canonicalAlgorithm(algorithm)) {
+            case "RS256":
+                keys = rsaKeys;
+                break;
+            case "ES256":
+                keys = ecKeys;
+                break;
+            case "EdDSA":
+                keys = edKeys;
+                break;
+            default:
+                return null;
+        }
+        // Read the version first, so a key changed meanwhile is only cached under the old version
+        long version = keySetVersion.get();
+        Map.Entry<String, KeyPairEntry> active = activeVersion(keys, keyId, Instant.now());
+        if (active == null) {
+            return null;
+        }
+        Fingerprints cached = fingerprints;
+        if (cached.version() != version) {
+            cached = new Fingerprints(version, new ConcurrentHashMap<>());
+            fingerprints = cached;
+        }
+        KeyPairEntry entry = active.getValue();
+        return cached.byKey().computeIfAbsent(canonicalAlgorithm(algorithm) + ":" + active.getKey(),
+                key -> fingerprint(entry.get().getPublic()));
+    }
+
+    private static String fingerprint(PublicKey publicKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(publicKey.getEncoded());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Fingerprints(long version, Map<String, String> byKey) {
     }
 
     public boolean keyExists(String keyId) {
-        return hmacKeys.containsKey(keyId) || rsaKeys.containsKey(keyId);
+        return hmacKeys.containsKey(keyId) || keyPairFor(rsaKeys, keyId) != null
+                || keyPairFor(ecKeys, keyId) != null || keyPairFor(edKeys, keyId) != null;
+    }
+
+    /**
+     * Signing algorithm of the asymmetric key with the given id: RS256, ES256 or EdDSA.
+     */
+    public String getPublicKeyAlgorithm(String keyId) {
+        if (keyPairFor(rsaKeys, keyId) != null) {
+            return "RS256";
+        }
+        if (keyPairFor(ecKeys, keyId) != null) {
+            return "ES256";
+        }
+        if (keyPairFor(edKeys, keyId) != null) {
+            return "EdDSA";
+        }
+        throw new IllegalArgumentException("Public key not found: " + keyId);
     }
 
     public String getPublicKey(String keyId) {
-        KeyPair keyPair = rsaKeys.get(keyId);
-        if (keyPair == null) {
-            throw new IllegalArgumentException("RSA key not found: " + keyId);
+        KeyPairEntry entry = keyPairFor(rsaKeys, keyId);
+        if (entry == null) {
+            entry = keyPairFor(ecKeys, keyId);
+        }
+        if (entry == null) {
+            entry = keyPairFor(edKeys, keyId);
         }
+        if (entry == null) {
+            throw new IllegalArgumentException("Public key not found: " + keyId);
+        }
+        KeyPair keyPair = entry.get();
 
         // Convert to PEM format for jwt.io compatibility
         byte[] encoded = keyPair.getPublic().getEncoded();
@@ -209,39 +1055,122 @@ public final class JwtService {
     }
 
     public Map<String, Object> getJwks() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        rsaKeys.forEach((keyId, entry) -> keys.add(rsaJwk(keyId, (RSAPublicKey) entry.get().getPublic())));
+        ecKeys.forEach((keyId, entry) -> keys.add(ecJwk(keyId, (ECPublicKey) entry.get().getPublic())));
+        edKeys.forEach((keyId, entry) -> keys.add(edJwk(keyId, entry.get())));
+
         Map<String, Object> jwks = new HashMap<>();
-        Map<String, Object>[] keys = rsaKeys.entrySet().stream()
-                .map(entry -> {
-                    Map<String, Object> jwk = new HashMap<>();
-                    jwk.put("kty", "RSA");
-                    jwk.put("use", "sig");
-                    jwk.put("kid", entry.getKey());
-                    jwk.put("alg", "RS256");
-
-                    // Extract RSA public key components for OAuth compliance
-                    RSAPublicKey publicKey = (RSAPublicKey) entry.getValue().getPublic();
-
-                    // Convert modulus (n) to base64url without padding
-                    BigInteger modulus = publicKey.getModulus();
-                    byte[] modulusBytes = modulus.toByteArray();
-                    // Remove leading zero byte if present (two's complement representation)
-                    if (modulusBytes[0] == 0 && modulusBytes.length > 1) {
-                        byte[] temp = new byte[modulusBytes.length - 1];
-                        System.arraycopy(modulusBytes, 1, temp, 0, temp.length);
-                        modulusBytes = temp;
-                    }
-                    jwk.put("n", Base64.getUrlEncoder().withoutPadding().encodeToString(modulusBytes));
-
-                    // Convert exponent (e) to base64url without padding
-                    BigInteger exponent = publicKey.getPublicExponent();
-                    byte[] exponentBytes = exponent.toByteArray();
-                    jwk.put("e", Base64.getUrlEncoder().withoutPadding().encodeToString(exponentBytes));
-
-                    return jwk;
-                })
-                .toArray(Map[]::new);
-
-        jwks.put("keys", keys);
+        jwks.put("keys", keys.toArray(Map[]::new));
         return jwks;
     }
-}
\ No newline at end of file
+
+    /**
+     * Public keys that tokens signed by this service can be verified with, the same keys as the JWKS.
+     */
+    public List<VerificationKey> getVerificationKeys() {
+        List<VerificationKey> keys = new ArrayList<>();
+        rsaKeys.forEach((keyId, entry) -> keys.add(new VerificationKey(keyId, "RS256", entry.get().getPublic())));
+        ecKeys.forEach((keyId, entry) -> keys.add(new VerificationKey(keyId, "ES256", entry.get().getPublic())));
+        edKeys.forEach((keyId, entry) -> keys.add(new VerificationKey(keyId, "EdDSA", entry.get().getPublic())));
+        return keys;
+    }
+
+    public record VerificationKey(String keyId, String algorithm, PublicKey publicKey) {
+    }
+
+    /**
+     * The executor that signing runs on, or null if signing runs on the caller.
+     */
+    CryptoExecutor getCryptoExecutor() {
+        return cryptoExecutor;
+    }
+
+    /**
+     * HMAC keys that HS256 tokens signed by this service can be verified with.
+     */
+    List<SecretKey> getHmacKeys() {
+        return new ArrayList<>(hmacKeys.values());
+    }
+
+    /**
+     * The JWKS serialized once per key set version, for serving with an ETag.
+     */
+    public JsonDocument getJwksDocument() {
+        VersionedDocument current = jwksDocument;
+        long version = keySetVersion.get();
+        if (current == null || current.version() != version) {
+            current = new VersionedDocument(version, JsonDocument.of(getJwks(), objectMapper));
+            jwksDocument = current;
+        }
+        return current.document();
+    }
+
+    private record VersionedDocument(long version, JsonDocument document) {
+    }
+
+    private static Map<String, Object> rsaJwk(String keyId, RSAPublicKey publicKey) {
+        Map<String, Object> jwk = new HashMap<>();
+        jwk.put("kty", "RSA");
+        jwk.put("use", "sig");
+        jwk.put("kid", keyId);
+        jwk.put("alg", "RS256");
+
+        // Convert modulus (n) to base64url without padding
+        BigInteger modulus = publicKey.getModulus();
+        byte[] modulusBytes = modulus.toByteArray();
+        // Remove leading zero byte if present (two's complement representation)
+        if (modulusBytes[0] == 0 && modulusBytes.length > 1) {
+            byte[] temp = new byte[modulusBytes.length - 1];
+            System.arraycopy(modulusBytes, 1, temp, 0, temp.length);
+            modulusBytes = temp;
+        }
+        jwk.put("n", base64Url(modulusBytes));
+
+        // Convert exponent (e) to base64url without padding
+        BigInteger exponent = publicKey.getPublicExponent();
+        jwk.put("e", base64Url(exponent.toByteArray()));
+
+        return jwk;
+    }
+
+    private static Map<String, Object> ecJwk(String keyId, ECPublicKey publicKey) {
+        Map<String, Object> jwk = new HashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("use", "sig");
+        jwk.put("kid", keyId);
+        jwk.put("alg", "ES256");
+        jwk.put("crv", "P-256");
+        // RFC 7518: coordinates are unsigned big-endian, padded to the 32-byte field size
+        jwk.put("x", base64Url(toFixedLength(publicKey.getW().getAffineX(), 32)));
+        jwk.put("y", base64Url(toFixedLength(publicKey.getW().getAffineY(), 32)));
+        return jwk;
+    }
+
+    private static Map<String, Object> edJwk(String keyId, KeyPair keyPair) {
+        Map<String, Object> jwk = new HashMap<>();
+        jwk.put("kty", "OKP");
+        jwk.put("use", "sig");
+        jwk.put("kid", keyId);
+        jwk.put("alg", "EdDSA");
+        jwk.put("crv", "Ed25519");
+        // RFC 8037: x is the raw 32-byte public key, which ends the X.509 SubjectPublicKeyInfo encoding
+        byte[] encoded = keyPair.getPublic().getEncoded();
+        byte[] raw = new byte[32];
+        System.arraycopy(encoded, encoded.length - raw.length, raw, 0, raw.length);
+        jwk.put("x", base64Url(raw));
+        return jwk;
+    }
+
+    private static byte[] toFixedLength(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, fixed, length - copy, copy);
+        return fixed;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
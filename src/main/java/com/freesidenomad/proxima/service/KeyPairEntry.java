@@ -0,0 +1,105 @@
+package com.freesidenomad.proxima.service;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * An asymmetric key pair that may be materialized on first use: generated for a default key
+ * nobody has asked for yet, or decoded from the persistent keystore.
+ * <p>
+ * Keys under scheduled rotation also carry their {@link Schedule}. Rescheduling a key shares the
+ * key pair with the previous entry, so both materialize the same key pair whichever is used first.
+ */
+final class KeyPairEntry {
+
+    private final Holder holder;
+    private final Schedule schedule;
+
+    private KeyPairEntry(Holder holder, Schedule schedule) {
+        this.holder = holder;
+        this.schedule = schedule;
+    }
+
+    static KeyPairEntry of(KeyPair keyPair) {
+        return new KeyPairEntry(new Holder(keyPair, null), null);
+    }
+
+    static KeyPairEntry lazy(Supplier<KeyPair> loader) {
+        return new KeyPairEntry(new Holder(null, loader), null);
+    }
+
+    static KeyPairEntry lazy(Supplier<KeyPair> loader, Schedule schedule) {
+        return new KeyPairEntry(new Holder(null, loader), schedule);
+    }
+
+    /**
+     * The same key pair with another schedule.
+     */
+    KeyPairEntry withSchedule(Schedule schedule) {
+        return new KeyPairEntry(holder, schedule);
+    }
+
+    KeyPair get() {
+        return holder.get();
+    }
+
+    Schedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Whether this key, stored under {@code id}, is a version of the key {@code keyId}: the key
+     * with that id itself, or one that was rotated in for it.
+     */
+    boolean isVersionOf(String id, String keyId) {
+        return id.equals(keyId) || (schedule != null && keyId.equals(schedule.keyId()));
+    }
+
+    boolean isActiveAt(Instant now) {
+        return schedule == null || schedule.activatesAt() == null || !schedule.activatesAt().isAfter(now);
+    }
+
+    Instant activatesAt() {
+        return schedule != null ? schedule.activatesAt() : null;
+    }
+
+    Instant retiresAt() {
+        return schedule != null ? schedule.retiresAt() : null;
+    }
+
+    /**
+     * Rotation schedule of one version of the key {@code keyId}: it signs from
+     * {@code activatesAt} (null for a key that predates rotation) until the next version takes
+     * over, and is removed at {@code retiresAt} (null until it has a successor).
+     */
+    record Schedule(String keyId, Instant activatesAt, Instant retiresAt) {
+    }
+
+    /**
+     * The key pair, materialized once.
+     */
+    private static final class Holder {
+        private final Supplier<KeyPair> loader;
+        private volatile KeyPair keyPair;
+
+        Holder(KeyPair keyPair, Supplier<KeyPair> loader) {
+            this.keyPair = keyPair;
+            this.loader = loader;
+        }
+
+        KeyPair get() {
+            KeyPair current = keyPair;
+            if (current == null) {
+                synchronized (this) {
+                    current = keyPair;
+                    if (current == null) {
+                        current = loader.get();
+                        keyPair = current;
+                    }
+                }
+            }
+            return current;
+        }
+    }
+}
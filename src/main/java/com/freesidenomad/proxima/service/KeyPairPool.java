@@ -0,0 +1,157 @@
+package com.freesidenomad.proxima.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pre-generated asymmetric key pairs, so creating a key on a request thread is a queue poll
+ * instead of hundreds of milliseconds of RSA prime search.
+ * <p>
+ * Each key type has a bounded queue that a single daemon thread at minimum priority tops up
+ * whenever a pair is taken. An empty queue never blocks: the pair is generated on the calling
+ * thread as it would be without the pool.
+ */
+final class KeyPairPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyPairPool.class);
+
+    enum KeyType { RSA, EC, ED25519 }
+
+    private final Map<KeyType, BlockingQueue<KeyPair>> pools = new EnumMap<>(KeyType.class);
+    private final Map<KeyType, AtomicBoolean> refilling = new EnumMap<>(KeyType.class);
+    private final ExecutorService refiller;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param sizes number of pairs to keep ready per key type; types without a positive size are not pooled
+     */
+    KeyPairPool(Map<KeyType, Integer> sizes) {
+        sizes.forEach((type, size) -> {
+            if (size != null && size > 0) {
+                pools.put(type, new ArrayBlockingQueue<>(size));
+                refilling.put(type, new AtomicBoolean());
+            }
+        });
+        this.refiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwt-key-pool");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        pools.keySet().forEach(this::refill);
+    }
+
+    /**
+     * Take a fresh key pair, generating one on the calling thread if none is ready.
+     */
+    KeyPair take(KeyType type) {
+        KeyPair keyPair = poll(type);
+        if (keyPair == null) {
+            misses.increment();
+            return generate(type);
+        }
+        return keyPair;
+    }
+
+    /**
+     * Take a key pair that is ready, or null without generating one.
+     */
+    KeyPair poll(KeyType type) {
+        BlockingQueue<KeyPair> pool = pools.get(type);
+        if (pool == null) {
+            return null;
+        }
+        KeyPair keyPair = pool.poll();
+        refill(type);
+        if (keyPair != null) {
+            hits.increment();
+        }
+        return keyPair;
+    }
+
+    private void refill(KeyType type) {
+        BlockingQueue<KeyPair> pool = pools.get(type);
+        AtomicBoolean scheduled = refilling.get(type);
+        if (pool.remainingCapacity() == 0 || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refiller.execute(() -> {
+                try {
+                    while (pool.remainingCapacity() > 0) {
+                        pool.offer(generate(type));
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to pre-generate {} key pair: {}", type, e.getMessage());
+                } finally {
+                    scheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down, callers fall back to generating inline
+            scheduled.set(false);
+        }
+    }
+
+    /**
+     * Number of pairs currently ready for the given type.
+     */
+    int available(KeyType type) {
+        BlockingQueue<KeyPair> pool = pools.get(type);
+        return pool != null ? pool.size() : 0;
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of takes that found the pool empty and generated a pair on the calling thread.
+     */
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    void shutdown() {
+        refiller.shutdownNow();
+    }
+
+    /**
+     * Generate a key pair on the calling thread: RSA-2048, EC P-256 or Ed25519.
+     */
+    static KeyPair generate(KeyType type) {
+        try {
+            switch (type) {
+                case RSA:
+                    KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+                    rsaGenerator.initialize(2048);
+                    return rsaGenerator.generateKeyPair();
+                case EC:
+                    KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+                    ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+                    return ecGenerator.generateKeyPair();
+                default:
+                    return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+            }
+        } catch (GeneralSecurityException e) {
+            logger.error("Failed to generate {} key pair", type, e);
+            throw new RuntimeException("Failed to generate " + type + " key pair", e);
+        }
+    }
+}
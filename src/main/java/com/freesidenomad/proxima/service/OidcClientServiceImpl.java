@@ -1,32 +1,94 @@
 package com.freesidenomad.proxima.service;
 
 import com.freesidenomad.proxima.model.oidc.OidcClient;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 /**
  * In-memory implementation of OIDC client service
  * In production, this would be backed by a database
+ * <p>
+ * In a cluster, every node keeps all clients and replicates its changes to the others.
  */
 @Service
 public class OidcClientServiceImpl implements OidcClientService {
 
     private static final Logger logger = LoggerFactory.getLogger(OidcClientServiceImpl.class);
 
+    static final String STATE_NAMESPACE = "clients";
+
     private final Map<String, OidcClient> clients = new ConcurrentHashMap<>();
 
+    // Compiled redirect URIs per client, recompiled when the client's redirect URI list is replaced
+    private final Map<String, RedirectUris> redirectUris = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    private OidcStateStore stateStore;
+
+    @Autowired(required = false)
+    private ClusterService clusterService;
+
     public OidcClientServiceImpl() {
         // Initialize with some default clients for testing
         initializeDefaultClients();
     }
 
+    @PostConstruct
+    void initialize() {
+        Map<String, OidcClient> restored = restoreClients();
+        if (clusterService != null) {
+            // Clients restored from disk may have changed elsewhere while this node was down
+            restored.forEach((clientId, client) -> clusterService.publishInitial(STATE_NAMESPACE, clientId, client));
+            clusterService.register(STATE_NAMESPACE, OidcClient.class, this::applyReplicated, this::removeReplicated);
+        }
+    }
+
+    /**
+     * Restore clients registered or changed before the last restart, replacing the defaults.
+     */
+    private Map<String, OidcClient> restoreClients() {
+        if (stateStore == null || !stateStore.isEnabled()) {
+            return Map.of();
+        }
+        Map<String, OidcClient> stored = stateStore.load(STATE_NAMESPACE, OidcClient.class);
+        clients.putAll(stored);
+        if (!stored.isEmpty()) {
+            logger.info("Restored {} OIDC clients", stored.size());
+        }
+        return stored;
+    }
+
+    private void applyReplicated(String clientId, OidcClient client) {
+        clients.put(clientId, client);
+        redirectUris.remove(clientId);
+        if (stateStore != null) {
+            stateStore.put(STATE_NAMESPACE, clientId, client);
+        }
+        logger.debug("Applied replicated OIDC client: {}", clientId);
+    }
+
+    private void removeReplicated(String clientId) {
+        clients.remove(clientId);
+        redirectUris.remove(clientId);
+        if (stateStore != null) {
+            stateStore.remove(STATE_NAMESPACE, clientId);
+        }
+        logger.debug("Applied replicated removal of OIDC client: {}", clientId);
+    }
+
     private void initializeDefaultClients() {
         // Self-test client for Proxima
         OidcClient selfTestClient = OidcClient.create(
@@ -84,6 +146,7 @@ public class OidcClientServiceImpl implements OidcClientService {
         client.setCreatedAt(Instant.now());
         client.setModifiedAt(Instant.now());
         clients.put(client.getClientId(), client);
+        persist(client);
 
         logger.info("Registered new OIDC client: {}", client.getClientId());
         return client;
@@ -104,6 +167,8 @@ public class OidcClientServiceImpl implements OidcClientService {
         client.setCreatedAt(existingClient.getCreatedAt());
         client.setModifiedAt(Instant.now());
         clients.put(clientId, client);
+        redirectUris.remove(clientId);
+        persist(client);
 
         logger.info("Updated OIDC client: {}", clientId);
         return client;
@@ -112,6 +177,13 @@ public class OidcClientServiceImpl implements OidcClientService {
     @Override
     public boolean deleteClient(String clientId) {
         if (clients.remove(clientId) != null) {
+            redirectUris.remove(clientId);
+            if (stateStore != null) {
+                stateStore.remove(STATE_NAMESPACE, clientId);
+            }
+            if (clusterService != null) {
+                clusterService.publish(STATE_NAMESPACE, clientId, null);
+            }
             logger.info("Deleted OIDC client: {}", clientId);
             return true;
         }
@@ -124,6 +196,7 @@ public class OidcClientServiceImpl implements OidcClientService {
         if (client != null) {
             client.setEnabled(enabled);
             client.setModifiedAt(Instant.now());
+            persist(client);
             logger.info("Set OIDC client {} enabled status to: {}", clientId, enabled);
             return true;
         }
@@ -137,7 +210,16 @@ public class OidcClientServiceImpl implements OidcClientService {
             return false;
         }
 
-        return client.getRedirectUris().contains(redirectUri);
+        List<String> configured = client.getRedirectUris();
+        if (configured == null || redirectUri == null) {
+            return false;
+        }
+        RedirectUris compiled = redirectUris.get(clientId);
+        if (compiled == null || compiled.source != configured) {
+            compiled = new RedirectUris(configured);
+            redirectUris.put(clientId, compiled);
+        }
+        return compiled.matches(redirectUri);
     }
 
     @Override
@@ -165,8 +247,71 @@ public class OidcClientServiceImpl implements OidcClientService {
 
             selfTestClient.setRedirectUris(updatedRedirectUris);
             selfTestClient.setModifiedAt(java.time.Instant.now());
+            persist(selfTestClient);
 
             logger.info("Updated self-test client redirect URI to: {}", dynamicRedirectUri);
         }
     }
-}
\ No newline at end of file
+
+    private void persist(OidcClient client) {
+        if (stateStore != null) {
+            stateStore.put(STATE_NAMESPACE, client.getClientId(), client);
+        }
+        if (clusterService != null) {
+            clusterService.publish(STATE_NAMESPACE, client.getClientId(), client);
+        }
+    }
+
+    /**
+     * A client's redirect URIs as a hash set of exact values plus patterns for entries containing
+     * {@code *}. A wildcard matches within one URI component, so {@code https://*.example.com} accepts
+     * any subdomain but cannot be stretched across a path, query, fragment or userinfo.
+     */
+    private static final class RedirectUris {
+        final List<String> source;
+        final Set<String> exact = new HashSet<>();
+        final List<Pattern> patterns = new ArrayList<>();
+
+        RedirectUris(List<String> source) {
+            this.source = source;
+            for (String uri : source) {
+                if (uri == null) {
+                    continue;
+                }
+                if (uri.indexOf('*') < 0) {
+                    exact.add(uri);
+                } else {
+                    patterns.add(compile(uri));
+                }
+            }
+        }
+
+        boolean matches(String redirectUri) {
+            if (exact.contains(redirectUri)) {
+                return true;
+            }
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(redirectUri).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static Pattern compile(String uri) {
+            StringBuilder regex = new StringBuilder();
+            int start = 0;
+            for (int star = uri.indexOf('*'); star >= 0; star = uri.indexOf('*', start)) {
+                if (star > start) {
+                    regex.append(Pattern.quote(uri.substring(start, star)));
+                }
+                regex.append("[^/?#@]*");
+                start = star + 1;
+            }
+            if (start < uri.length()) {
+                regex.append(Pattern.quote(uri.substring(start)));
+            }
+            return Pattern.compile(regex.toString());
+        }
+    }
+}
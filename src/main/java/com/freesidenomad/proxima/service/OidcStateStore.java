@@ -0,0 +1,409 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.freesidenomad.proxima.config.OidcStateProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local file-backed store for OIDC state that should survive a restart, organized as key-value
+ * namespaces such as registered clients or pending authorization codes.
+ * <p>
+ * Every change is appended as one JSON line to the current journal file, and the store keeps the
+ * latest value per key in memory. Once enough records have been appended, the store switches to a
+ * new journal and writes the in-memory state as a snapshot in the background; journals older than
+ * the snapshot are then deleted. On startup the snapshot is read and the journals written after it
+ * are replayed, ignoring a torn last line, so recovery reads each record once. When the store is
+ * disabled, every method is a no-op and {@link #load} returns nothing.
+ */
+@Service
+public class OidcStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OidcStateStore.class);
+
+    private static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    @Autowired(required = false)
+    private OidcStateProperties properties = new OidcStateProperties();
+
+    private final ObjectMapper objectMapper = stateMapper();
+
+    // Latest value per namespace and key, guarded by lock together with the journal
+    private final Map<String, Map<String, JsonNode>> state = new HashMap<>();
+    private final Object lock = new Object();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    // Held for a whole compaction, so that a snapshot never replaces a newer one
+    private final Object compactionLock = new Object();
+
+    private volatile boolean open;
+    private Path directory;
+    private FileChannel journal;
+    private long journalSequence;
+    private int journalRecords;
+    private volatile boolean unsynced;
+    private ScheduledExecutorService background;
+
+    /**
+     * Mapper for state that leaves this node, on disk or to other cluster nodes. Unlike the API
+     * mapper it includes write-only properties such as client secrets.
+     */
+    static ObjectMapper stateMapper() {
+        return JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .annotationIntrospector(new JacksonAnnotationIntrospector() {
+                    @Override
+                    public JsonProperty.Access findPropertyAccess(Annotated annotated) {
+                        return null;
+                    }
+                })
+                .build();
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+
+        long snapshotSequence = readSnapshot();
+        int replayed = 0;
+        long lastSequence = snapshotSequence;
+        for (Map.Entry<Long, Path> entry : listJournals().entrySet()) {
+            if (entry.getKey() >= snapshotSequence) {
+                replayed += replay(entry.getValue());
+                lastSequence = Math.max(lastSequence, entry.getKey());
+            }
+        }
+
+        background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oidc-state-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        journalSequence = lastSequence;
+        open = true;
+        compact();
+
+        if (properties.getDurability() == OidcStateProperties.Durability.BATCH) {
+            long interval = Math.max(1, properties.getFsyncIntervalMillis());
+            background.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        logger.info("Recovered OIDC state from {} ({} journal records replayed) in {} ms",
+                directory, replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @PreDestroy
+    void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        background.shutdown();
+        try {
+            background.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (journal != null) {
+                try {
+                    journal.force(false);
+                    journal.close();
+                } catch (IOException e) {
+                    logger.error("Failed to close OIDC state journal: {}", e.getMessage());
+                }
+                journal = null;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return open;
+    }
+
+    /**
+     * Values stored in a namespace. Values that can no longer be read as the given type are
+     * skipped.
+     */
+    public <T> Map<String, T> load(String namespace, Class<T> type) {
+        Map<String, JsonNode> values;
+        synchronized (lock) {
+            values = new HashMap<>(state.getOrDefault(namespace, Map.of()));
+        }
+        Map<String, T> result = new HashMap<>();
+        values.forEach((key, value) -> {
+            try {
+                result.put(key, objectMapper.treeToValue(value, type));
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Skipping unreadable {} entry {}: {}", namespace, key, e.getMessage());
+            }
+        });
+        return result;
+    }
+
+    public void put(String namespace, String key, Object value) {
+        if (!open) {
+            return;
+        }
+        ObjectNode record = objectMapper.createObjectNode();
+        record.put("op", "put").put("ns", namespace).put("key", key);
+        record.set("value", objectMapper.valueToTree(value));
+        append(record);
+    }
+
+    public void remove(String namespace, String key) {
+        if (!open) {
+            return;
+        }
+        ObjectNode record = objectMapper.createObjectNode();
+        record.put("op", "remove").put("ns", namespace).put("key", key);
+        append(record);
+    }
+
+    private void append(ObjectNode record) {
+        boolean compact;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(record);
+            ByteBuffer line = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+            synchronized (lock) {
+                if (journal == null) {
+                    return;
+                }
+                apply(record);
+                while (line.hasRemaining()) {
+                    journal.write(line);
+                }
+                if (properties.getDurability() == OidcStateProperties.Durability.ALWAYS) {
+                    journal.force(false);
+                } else {
+                    unsynced = true;
+                }
+                compact = ++journalRecords >= properties.getCompactAfterRecords();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to append to OIDC state journal: {}", e.getMessage());
+            return;
+        }
+        if (compact && compacting.compareAndSet(false, true)) {
+            background.execute(() -> {
+                try {
+                    compact();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private void apply(JsonNode record) {
+        String namespace = record.path("ns").asText();
+        String key = record.path("key").asText();
+        if ("put".equals(record.path("op").asText())) {
+            state.computeIfAbsent(namespace, ns -> new HashMap<>()).put(key, record.get("value"));
+        } else {
+            Map<String, JsonNode> values = state.get(namespace);
+            if (values != null) {
+                values.remove(key);
+            }
+        }
+    }
+
+    private void sync() {
+        if (!unsynced) {
+            return;
+        }
+        unsynced = false;
+        FileChannel channel;
+        synchronized (lock) {
+            channel = journal;
+        }
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // A journal closed by a concurrent roll has already been synced
+            logger.debug("OIDC state journal sync skipped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Start a new journal and write everything before it as a snapshot, then delete the journals
+     * the snapshot replaces.
+     */
+    void compact() {
+        synchronized (compactionLock) {
+            Map<String, Map<String, JsonNode>> copy = new HashMap<>();
+            long sequence;
+            try {
+                synchronized (lock) {
+                    if (!open) {
+                        return;
+                    }
+                    rollJournal();
+                    sequence = journalSequence;
+                    state.forEach((namespace, values) -> copy.put(namespace, new HashMap<>(values)));
+                }
+                writeSnapshot(sequence, copy);
+                for (Map.Entry<Long, Path> entry : listJournals().entrySet()) {
+                    if (entry.getKey() < sequence) {
+                        Files.deleteIfExists(entry.getValue());
+                    }
+                }
+                logger.debug("Compacted OIDC state into snapshot before journal {}", sequence);
+            } catch (IOException e) {
+                logger.error("Failed to compact OIDC state: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Switch appends to the journal with the next sequence number. Called with the lock held.
+     */
+    private void rollJournal() throws IOException {
+        if (journal != null) {
+            journal.force(false);
+            journal.close();
+        }
+        journalSequence++;
+        Path file = directory.resolve(JOURNAL_PREFIX + journalSequence + JOURNAL_SUFFIX);
+        journal = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        restrictPermissions(file);
+        journalRecords = 0;
+        unsynced = false;
+    }
+
+    private long readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        // A snapshot is only ever replaced atomically, so failing to read it is not a torn write
+        JsonNode snapshot = objectMapper.readTree(file.toFile());
+        Iterator<Map.Entry<String, JsonNode>> namespaces = snapshot.path("state").fields();
+        while (namespaces.hasNext()) {
+            Map.Entry<String, JsonNode> namespace = namespaces.next();
+            Map<String, JsonNode> values = new HashMap<>();
+            namespace.getValue().fields().forEachRemaining(entry -> values.put(entry.getKey(), entry.getValue()));
+            state.put(namespace.getKey(), values);
+        }
+        return snapshot.path("journal").asLong();
+    }
+
+    private void writeSnapshot(long journalSequence, Map<String, Map<String, JsonNode>> values) throws IOException {
+        ObjectNode snapshot = objectMapper.createObjectNode();
+        snapshot.put("journal", journalSequence);
+        snapshot.set("state", objectMapper.valueToTree(values));
+
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(objectMapper.writeValueAsBytes(snapshot));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        restrictPermissions(temp);
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Apply the records of one journal. A line that cannot be parsed can only be the last one,
+     * cut short by a crash, so replay of the file stops there.
+     */
+    private int replay(Path file) throws IOException {
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JsonNode record;
+                try {
+                    record = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    logger.warn("Ignoring incomplete record at the end of {}", file);
+                    break;
+                }
+                apply(record);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private TreeMap<Long, Path> listJournals() throws IOException {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    journals.put(Long.parseLong(name.substring(JOURNAL_PREFIX.length(),
+                            name.length() - JOURNAL_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unexpected file in OIDC state directory: {}", file);
+                }
+            }
+        }
+        return journals;
+    }
+
+    private static void restrictPermissions(Path file) throws IOException {
+        try {
+            // Client secrets and tokens
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system
+        }
+    }
+}
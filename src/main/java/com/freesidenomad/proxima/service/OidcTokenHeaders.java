@@ -0,0 +1,40 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.model.oidc.OidcTokens;
+
+/**
+ * Header values for one preset's current OIDC tokens, built once when the tokens are minted so
+ * that injecting them into a proxied request involves no string building.
+ */
+public final class OidcTokenHeaders {
+
+    private final String authorization;
+    private final String idToken;
+    private final long expiresAtMillis;
+
+    private OidcTokenHeaders(String authorization, String idToken, long expiresAtMillis) {
+        this.authorization = authorization;
+        this.idToken = idToken;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public static OidcTokenHeaders of(OidcTokens tokens) {
+        long expiresAt = tokens.getExpiresAt() != null ? tokens.getExpiresAt().toEpochMilli() : Long.MAX_VALUE;
+        return new OidcTokenHeaders("Bearer " + tokens.getAccessToken(), tokens.getIdToken(), expiresAt);
+    }
+
+    /**
+     * Value of the {@code Authorization} header: {@code Bearer <access_token>}.
+     */
+    public String getAuthorization() {
+        return authorization;
+    }
+
+    public String getIdToken() {
+        return idToken;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis > expiresAtMillis;
+    }
+}
@@ -29,6 +29,16 @@ public interface OidcTokenService {
      */
     OidcTokens getValidTokensForPreset(String presetName);
 
+    /**
+     * Get header values for the preset's current tokens, for injection into proxied requests.
+     * Served from the cache that is refreshed in the background; tokens are only minted if the
+     * preset has none yet.
+     *
+     * @param presetName Name of the preset to get token headers for
+     * @return OidcTokenHeaders or null if preset not found or not OIDC-enabled
+     */
+    OidcTokenHeaders getTokenHeaders(String presetName);
+
     /**
      * Generate tokens for all OIDC-enabled presets.
      * Called automatically on application startup.
@@ -1,9 +1,16 @@
 package com.freesidenomad.proxima.service;
 
+import com.freesidenomad.proxima.config.OidcTokenProperties;
 import com.freesidenomad.proxima.model.HeaderPreset;
 import com.freesidenomad.proxima.model.oidc.OidcPresetConfig;
 import com.freesidenomad.proxima.model.oidc.OidcTokens;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
@@ -17,18 +24,61 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @Slf4j
 public class OidcTokenServiceImpl implements OidcTokenService {
 
+    static final String STATE_NAMESPACE = "preset-tokens";
+
     private final JwtService jwtService;
     private final ConfigurationService configurationService;
     private final String baseUrl;
 
     // Cache for tokens with automatic expiration
     private final Map<String, OidcTokens> tokenCache = new ConcurrentHashMap<>();
+    // Header values for the cached tokens, read on every proxied request
+    private final Map<String, OidcTokenHeaders> tokenHeaders = new ConcurrentHashMap<>();
+    // Compiled claims per preset, recompiled when the preset's OIDC configuration is replaced
+    private final Map<String, PresetClaims> presetClaims = new ConcurrentHashMap<>();
+    // Mints in progress for requests that missed the cache, shared by every request that misses it meanwhile
+    private final Map<String, CompletableFuture<OidcTokens>> inFlightMints = new ConcurrentHashMap<>();
+
+    @Autowired(required = false)
+    private OidcTokenProperties tokenProperties = new OidcTokenProperties();
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private OidcStateStore stateStore;
+
+    // Refreshes cached tokens before they expire, null until the bean is initialized
+    private volatile TimingWheel refreshWheel;
+    private volatile ThreadPoolExecutor refreshExecutor;
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder synchronousMints = new LongAdder();
+
+    // Progress of startup minting
+    private final AtomicInteger startupPresets = new AtomicInteger();
+    private final AtomicInteger startupMinted = new AtomicInteger();
+    private final AtomicInteger startupFailed = new AtomicInteger();
+    private final AtomicInteger startupRestored = new AtomicInteger();
 
     public OidcTokenServiceImpl(
             JwtService jwtService,
@@ -39,39 +89,157 @@ public class OidcTokenServiceImpl implements OidcTokenService {
         this.baseUrl = baseUrl;
     }
 
+    @PostConstruct
+    void initialize() {
+        startRefreshScheduler();
+        restoreTokens();
+        if (meterRegistry != null) {
+            Gauge.builder("proxima.oidc.tokens.startup.presets", startupPresets, AtomicInteger::get)
+                    .description("OIDC-enabled presets minted at startup").register(meterRegistry);
+            Gauge.builder("proxima.oidc.tokens.startup.minted", startupMinted, AtomicInteger::get)
+                    .register(meterRegistry);
+            Gauge.builder("proxima.oidc.tokens.startup.failed", startupFailed, AtomicInteger::get)
+                    .register(meterRegistry);
+            Gauge.builder("proxima.oidc.tokens.startup.restored", startupRestored, AtomicInteger::get)
+                    .description("Presets whose tokens were restored from the state store").register(meterRegistry);
+        }
+    }
+
+    /**
+     * Restore tokens minted before the last restart, so that a restart does not re-mint every
+     * preset. Tokens are only restored while they are unexpired, the preset's OIDC settings are
+     * unchanged and the key that signed them is still the one configured for the preset.
+     */
+    void restoreTokens() {
+        if (stateStore == null || !stateStore.isEnabled()) {
+            return;
+        }
+        Map<String, StoredTokens> storedTokens = stateStore.load(STATE_NAMESPACE, StoredTokens.class);
+        for (Map.Entry<String, StoredTokens> entry : storedTokens.entrySet()) {
+            String presetName = entry.getKey();
+            StoredTokens stored = entry.getValue();
+            HeaderPreset preset = configurationService.getPreset(presetName);
+            if (preset == null || !preset.isOidcEnabled() || !stored.isRestorable(preset.getOidcConfig(),
+                    signingKeyFingerprint(preset.getOidcConfig()))) {
+                stateStore.remove(STATE_NAMESPACE, presetName);
+                continue;
+            }
+            tokenCache.put(presetName, stored.tokens());
+            tokenHeaders.put(presetName, OidcTokenHeaders.of(stored.tokens()));
+            scheduleRefresh(presetName, stored.tokens());
+            startupRestored.incrementAndGet();
+        }
+        if (startupRestored.get() > 0) {
+            log.info("Restored OIDC tokens for {} presets", startupRestored.get());
+        }
+    }
+
+    void startRefreshScheduler() {
+        OidcTokenProperties.Refresh settings = tokenProperties.getRefresh();
+        double fraction = settings.getFraction();
+        double jitter = settings.getJitter();
+        if (!(jitter >= 0.0 && fraction - jitter > 0.0 && fraction + jitter < 1.0)) {
+            throw new IllegalArgumentException("Token refresh fraction and jitter must stay within (0, 1): "
+                    + fraction + " +/- " + jitter);
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                settings.getThreads(), settings.getThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(settings.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "oidc-token-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        refreshExecutor = executor;
+        refreshWheel = new TimingWheel(Duration.ofMillis(settings.getTickMillis()), settings.getWheelSize(),
+                executor, Duration.ofMillis(settings.getRetryDelayMillis()), "oidc-token-refresh-wheel");
+        log.info("OIDC token refresh scheduled at {}% +/- {}% of token lifetime on {} threads",
+                Math.round(fraction * 100), Math.round(jitter * 100), settings.getThreads());
+
+        if (meterRegistry != null) {
+            TimingWheel wheel = refreshWheel;
+            Gauge.builder("proxima.oidc.tokens.refresh.scheduled", wheel, TimingWheel::size)
+                    .description("Presets with a pending token refresh").register(meterRegistry);
+            Gauge.builder("proxima.oidc.tokens.refresh.queue", executor, e -> e.getQueue().size())
+                    .description("Token refreshes waiting for a refresh thread").register(meterRegistry);
+            FunctionCounter.builder("proxima.oidc.tokens.refresh.deferred", wheel, TimingWheel::getDeferredCount)
+                    .description("Token refreshes deferred because the refresh queue was full").register(meterRegistry);
+            FunctionCounter.builder("proxima.oidc.tokens.refresh.completed", refreshes, LongAdder::sum)
+                    .register(meterRegistry);
+            FunctionCounter.builder("proxima.oidc.tokens.refresh.failed", refreshFailures, LongAdder::sum)
+                    .register(meterRegistry);
+            FunctionCounter.builder("proxima.oidc.tokens.synchronous.mints", synchronousMints, LongAdder::sum)
+                    .description("Tokens minted on a request thread because none were cached").register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    void stopRefreshScheduler() {
+        TimingWheel wheel = refreshWheel;
+        if (wheel != null) {
+            wheel.shutdown();
+        }
+        ThreadPoolExecutor executor = refreshExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
     @Override
     public OidcTokens generateTokensForPreset(HeaderPreset preset) {
+        return join(mintTokens(preset, false));
+    }
+
+    /**
+     * Wait for tokens, rethrowing a failure as it was thrown.
+     */
+    private static OidcTokens join(CompletableFuture<OidcTokens> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Mint and cache the preset's tokens. In the background both tokens are signed on the crypto
+     * executor without blocking the calling thread, and the future fails with a
+     * {@link RejectedExecutionException} if the executor is saturated; otherwise they are signed
+     * before this returns.
+     */
+    private CompletableFuture<OidcTokens> mintTokens(HeaderPreset preset, boolean background) {
         if (!preset.isOidcEnabled()) {
-            throw new IllegalArgumentException("Preset does not have OIDC enabled: " + preset.getName());
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Preset does not have OIDC enabled: " + preset.getName()));
         }
 
         OidcPresetConfig oidcConfig = preset.getOidcConfig();
-
-        // Create claims for ID token
-        Map<String, Object> idTokenClaims = createIdTokenClaims(oidcConfig);
-
-        // Create claims for access token
-        Map<String, Object> accessTokenClaims = createAccessTokenClaims(oidcConfig);
-
-        // Generate tokens using JwtService
         Duration expiration = Duration.ofSeconds(oidcConfig.getTokenExpirationSeconds());
+        CompletableFuture<String> idToken;
+        CompletableFuture<String> accessToken;
+        try {
+            PresetClaims claims = compiledClaims(preset.getName(), oidcConfig);
+            if (background) {
+                idToken = jwtService.signTemplateAsync(claims.idToken(), expiration);
+                accessToken = jwtService.signTemplateAsync(claims.accessToken(), expiration);
+            } else {
+                idToken = CompletableFuture.completedFuture(jwtService.signTemplate(claims.idToken(), expiration));
+                accessToken = CompletableFuture.completedFuture(jwtService.signTemplate(claims.accessToken(), expiration));
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return idToken.thenCombine(accessToken, (id, access) -> cacheTokens(preset, id, access));
+    }
 
-        String idToken = jwtService.generateToken(
-                oidcConfig.getSubject(),
-                idTokenClaims,
-                expiration,
-                oidcConfig.getAlgorithm(),
-                oidcConfig.getKeyId()
-        );
-
-        String accessToken = jwtService.generateToken(
-                oidcConfig.getSubject(),
-                accessTokenClaims,
-                expiration,
-                oidcConfig.getAlgorithm(),
-                oidcConfig.getKeyId()
-        );
-
+    private OidcTokens cacheTokens(HeaderPreset preset, String idToken, String accessToken) {
+        OidcPresetConfig oidcConfig = preset.getOidcConfig();
         Instant now = Instant.now();
         OidcTokens tokens = OidcTokens.builder()
                 .idToken(idToken)
@@ -85,15 +253,78 @@ public class OidcTokenServiceImpl implements OidcTokenService {
 
         // Cache the tokens
         tokenCache.put(preset.getName(), tokens);
+        tokenHeaders.put(preset.getName(), OidcTokenHeaders.of(tokens));
         preset.cacheTokens(tokens);
+        scheduleRefresh(preset.getName(), tokens);
+        persistTokens(preset.getName(), oidcConfig, tokens);
 
         log.info("Generated OIDC tokens for preset: {}", preset.getName());
         return tokens;
     }
 
+    /**
+     * Register the preset for a background refresh once the refresh fraction of the tokens'
+     * lifetime, with jitter, has elapsed.
+     */
+    private void scheduleRefresh(String presetName, OidcTokens tokens) {
+        TimingWheel wheel = refreshWheel;
+        if (wheel == null || tokens.getCreatedAt() == null || tokens.getExpiresAt() == null) {
+            return;
+        }
+        OidcTokenProperties.Refresh settings = tokenProperties.getRefresh();
+        double jitter = settings.getJitter() * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        long lifetimeMillis = Duration.between(tokens.getCreatedAt(), tokens.getExpiresAt()).toMillis();
+        Duration delay = Duration.ofMillis((long) (lifetimeMillis * (settings.getFraction() + jitter)));
+        wheel.schedule(presetName, delay, () -> refreshTokens(presetName));
+    }
+
+    /**
+     * Start refreshing the preset's tokens. The refresh thread only looks up the preset; signing
+     * continues on the crypto executor, and a refresh that fails or finds the executor saturated
+     * is retried after the retry delay.
+     */
+    private void refreshTokens(String presetName) {
+        // Cleared since the refresh was scheduled
+        if (!tokenCache.containsKey(presetName)) {
+            return;
+        }
+        CompletableFuture<OidcTokens> refresh;
+        try {
+            HeaderPreset preset = configurationService.getPreset(presetName);
+            if (preset == null || !preset.isOidcEnabled()) {
+                tokenCache.remove(presetName);
+                tokenHeaders.remove(presetName);
+                forgetTokens(presetName);
+                return;
+            }
+            refresh = mintTokens(preset, true);
+        } catch (Exception e) {
+            refresh = CompletableFuture.failedFuture(e);
+        }
+        refresh.whenComplete((tokens, error) -> {
+            if (error == null) {
+                refreshes.increment();
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                log.debug("Crypto executor saturated, retrying token refresh for preset: {}", presetName);
+            } else {
+                refreshFailures.increment();
+                log.error("Failed to refresh tokens for preset: {}", presetName, cause);
+            }
+            TimingWheel wheel = refreshWheel;
+            if (wheel != null) {
+                wheel.schedule(presetName, Duration.ofMillis(tokenProperties.getRefresh().getRetryDelayMillis()),
+                        () -> refreshTokens(presetName));
+            }
+        });
+    }
+
     @Override
     public OidcTokens getValidTokensForPreset(String presetName) {
-        // Check cache first
+        // Check cache first. Cached tokens are refreshed in the background well before they
+        // expire, so this is the path every request takes once a preset has been minted.
         OidcTokens cachedTokens = tokenCache.get(presetName);
 
         if (cachedTokens != null && !cachedTokens.isExpired()) {
@@ -106,42 +337,131 @@ public class OidcTokenServiceImpl implements OidcTokenService {
             return null;
         }
 
-        return generateTokensForPreset(preset);
+        // One request mints while the others that missed the cache wait for its tokens
+        CompletableFuture<OidcTokens> mint = new CompletableFuture<>();
+        CompletableFuture<OidcTokens> inFlight = inFlightMints.putIfAbsent(presetName, mint);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            // A mint that finished since the cache was checked has nothing left to share
+            OidcTokens tokens = tokenCache.get(presetName);
+            if (tokens == null || tokens.isExpired()) {
+                synchronousMints.increment();
+                tokens = generateTokensForPreset(preset);
+            }
+            mint.complete(tokens);
+            return tokens;
+        } catch (RuntimeException e) {
+            mint.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightMints.remove(presetName, mint);
+        }
+    }
+
+    @Override
+    public OidcTokenHeaders getTokenHeaders(String presetName) {
+        OidcTokenHeaders headers = tokenHeaders.get(presetName);
+        if (headers != null && !headers.isExpired(System.currentTimeMillis())) {
+            return headers;
+        }
+        OidcTokens tokens = getValidTokensForPreset(presetName);
+        return tokens != null ? OidcTokenHeaders.of(tokens) : null;
     }
 
+    /**
+     * Mint tokens for every OIDC-enabled preset on the crypto executor, with at most
+     * {@code parallelism} presets in flight. Runs before Spring Boot marks the application as
+     * accepting traffic, so readiness waits for the tokens unless startup minting is lazy.
+     */
     @Override
     @EventListener(ApplicationReadyEvent.class)
     public void generateTokensForAllPresets() {
+        OidcTokenProperties.Startup settings = tokenProperties.getStartup();
+        if (settings.getMode() == OidcTokenProperties.Mode.LAZY) {
+            log.info("Skipping startup token generation, OIDC tokens are minted on first use");
+            return;
+        }
+
         log.info("Generating OIDC tokens for all enabled presets on startup");
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(settings.getTimeoutSeconds());
 
         List<HeaderPreset> oidcPresets = configurationService.getOidcEnabledPresets();
-
-        for (HeaderPreset preset : oidcPresets) {
-            try {
-                generateTokensForPreset(preset);
-            } catch (Exception e) {
-                log.error("Failed to generate tokens for preset: {}", preset.getName(), e);
+        startupPresets.set(oidcPresets.size());
+        startupMinted.set(0);
+        startupFailed.set(0);
+
+        int parallelism = Math.max(1, Math.min(oidcPresets.size(), settings.getParallelism() > 0
+                ? settings.getParallelism() : Runtime.getRuntime().availableProcessors()));
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<CompletableFuture<Void>> minting = new ArrayList<>(oidcPresets.size());
+        try {
+            for (HeaderPreset preset : oidcPresets) {
+                if (!inFlight.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new TimeoutException();
+                }
+                minting.add(generateTokensOnStartup(preset).whenComplete((ignored, error) -> inFlight.release()));
             }
+            CompletableFuture.allOf(minting.toArray(CompletableFuture[]::new))
+                    .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Startup token generation timed out after {}s, remaining presets are minted on first use",
+                    settings.getTimeoutSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // generateTokensOnStartup() counts failures instead of failing
+            log.error("Startup token generation failed", e.getCause());
         }
 
-        log.info("Completed startup token generation for {} presets", oidcPresets.size());
+        log.info("Completed startup token generation for {} presets ({} failed) in {} ms with {} in flight",
+                oidcPresets.size(), startupFailed.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), parallelism);
+    }
+
+    private CompletableFuture<Void> generateTokensOnStartup(HeaderPreset preset) {
+        OidcTokens restored = tokenCache.get(preset.getName());
+        if (restored != null && !restored.isExpired()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return mintTokens(preset, true).handle((tokens, error) -> {
+            if (error == null) {
+                startupMinted.incrementAndGet();
+            } else {
+                startupFailed.incrementAndGet();
+                log.error("Failed to generate tokens for preset: {}", preset.getName(),
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+            return null;
+        });
     }
 
+    /**
+     * Safety net for tokens that are not registered with the refresh scheduler, for example
+     * because the scheduler is not running. Refreshes them once the refresh fraction of their
+     * lifetime has elapsed.
+     */
     @Override
     @Scheduled(fixedRate = 300000) // Every 5 minutes
     public void refreshExpiringTokens() {
         log.debug("Checking for expiring tokens to refresh");
 
-        long refreshThreshold = 300; // Refresh if expires within 5 minutes
+        TimingWheel wheel = refreshWheel;
+        double remainingFraction = 1.0 - tokenProperties.getRefresh().getFraction();
+        Instant now = Instant.now();
 
         for (Map.Entry<String, OidcTokens> entry : tokenCache.entrySet()) {
             OidcTokens tokens = entry.getValue();
+            if (wheel != null && wheel.isScheduled(entry.getKey())) {
+                continue;
+            }
 
-            // Check if token expires soon
-            long secondsUntilExpiry = Duration.between(
-                    Instant.now(),
-                    tokens.getExpiresAt()
-            ).getSeconds();
+            // Check if token expires soon, relative to its lifetime
+            long lifetimeSeconds = tokens.getExpiresIn() != null ? tokens.getExpiresIn() : 0;
+            long refreshThreshold = Math.max(1, (long) (lifetimeSeconds * remainingFraction));
+            long secondsUntilExpiry = Duration.between(now, tokens.getExpiresAt()).getSeconds();
 
             if (secondsUntilExpiry <= refreshThreshold) {
                 String presetName = entry.getKey();
@@ -150,7 +470,10 @@ public class OidcTokenServiceImpl implements OidcTokenService {
                 try {
                     HeaderPreset preset = configurationService.getPreset(presetName);
                     if (preset != null && preset.isOidcEnabled()) {
-                        generateTokensForPreset(preset);
+                        mintTokens(preset, true).exceptionally(error -> {
+                            log.error("Failed to refresh tokens for preset: {}", presetName, error);
+                            return null;
+                        });
                     }
                 } catch (Exception e) {
                     log.error("Failed to refresh tokens for preset: {}", presetName, e);
@@ -159,9 +482,32 @@ public class OidcTokenServiceImpl implements OidcTokenService {
         }
     }
 
+    /**
+     * Drop cached tokens only for presets whose OIDC configuration changed,
+     * so unrelated presets keep their tokens across configuration reloads.
+     */
+    @EventListener
+    public void onConfigurationChanged(ConfigurationChangedEvent event) {
+        if (event.getDiff().isInitial()) {
+            return;
+        }
+        for (String presetName : event.getDiff().getChangedOidcPresets()) {
+            if (tokenCache.containsKey(presetName)) {
+                clearTokensForPreset(presetName);
+            }
+        }
+    }
+
     @Override
     public void clearTokensForPreset(String presetName) {
         tokenCache.remove(presetName);
+        tokenHeaders.remove(presetName);
+        presetClaims.remove(presetName);
+        TimingWheel wheel = refreshWheel;
+        if (wheel != null) {
+            wheel.cancel(presetName);
+        }
+        forgetTokens(presetName);
         log.info("Cleared cached tokens for preset: {}", presetName);
     }
 
@@ -178,21 +524,88 @@ public class OidcTokenServiceImpl implements OidcTokenService {
         stats.put("expiredTokens", expiredCount);
         stats.put("validTokens", tokenCache.size() - expiredCount);
 
+        TimingWheel wheel = refreshWheel;
+        stats.put("scheduledRefreshes", wheel != null ? wheel.size() : 0);
+        stats.put("refreshes", refreshes.sum());
+        stats.put("refreshFailures", refreshFailures.sum());
+        stats.put("synchronousMints", synchronousMints.sum());
+        stats.put("startupPresets", startupPresets.get());
+        stats.put("startupMinted", startupMinted.get());
+        stats.put("startupFailed", startupFailed.get());
+        stats.put("startupRestored", startupRestored.get());
+
         return stats;
     }
 
+    /**
+     * The preset's token claims, compiled once per OIDC configuration. Presets are looked up as
+     * copies of the loaded configuration, so configurations are compared by value.
+     */
+    private PresetClaims compiledClaims(String presetName, OidcPresetConfig config) {
+        PresetClaims compiled = presetClaims.get(presetName);
+        if (compiled == null || !compiled.config().equals(config)) {
+            compiled = new PresetClaims(config,
+                    ClaimsTemplate.compile(createIdTokenClaims(config), config.getAlgorithm(), config.getKeyId()),
+                    ClaimsTemplate.compile(createAccessTokenClaims(config), config.getAlgorithm(), config.getKeyId()));
+            presetClaims.put(presetName, compiled);
+        }
+        return compiled;
+    }
+
     private Map<String, Object> createIdTokenClaims(OidcPresetConfig config) {
         List<String> audience = Arrays.asList(config.getClientId() != null ? config.getClientId() : "proxima");
-        return config.toClaims(baseUrl, audience);
+        return config.toStaticClaims(baseUrl, audience);
     }
 
     private Map<String, Object> createAccessTokenClaims(OidcPresetConfig config) {
         List<String> audience = Arrays.asList("proxima-api");
 
-        Map<String, Object> claims = config.toClaims(baseUrl, audience);
+        Map<String, Object> claims = config.toStaticClaims(baseUrl, audience);
         claims.put("scope", String.join(" ", config.getScopes()));
         claims.put("token_type", "access_token");
 
         return claims;
     }
-}
\ No newline at end of file
+
+    private record PresetClaims(OidcPresetConfig config, ClaimsTemplate idToken, ClaimsTemplate accessToken) {
+    }
+
+    private void persistTokens(String presetName, OidcPresetConfig oidcConfig, OidcTokens tokens) {
+        if (stateStore == null || !stateStore.isEnabled()) {
+            return;
+        }
+        String signingKey = signingKeyFingerprint(oidcConfig);
+        // Tokens signed with an HMAC key cannot be matched to their key after a restart
+        if (signingKey != null) {
+            stateStore.put(STATE_NAMESPACE, presetName, new StoredTokens(tokens, oidcConfig, signingKey));
+        }
+    }
+
+    private void forgetTokens(String presetName) {
+        if (stateStore != null) {
+            stateStore.remove(STATE_NAMESPACE, presetName);
+        }
+    }
+
+    /**
+     * Fingerprint of the key that signs the preset's tokens, or null if there is no such asymmetric key.
+     */
+    private String signingKeyFingerprint(OidcPresetConfig oidcConfig) {
+        try {
+            return jwtService.getSigningKeyFingerprint(oidcConfig.getAlgorithm(), oidcConfig.getKeyId());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Persisted tokens of one preset, with the settings and key they were minted with.
+     */
+    record StoredTokens(OidcTokens tokens, OidcPresetConfig oidcConfig, String signingKey) {
+
+        boolean isRestorable(OidcPresetConfig currentConfig, String currentSigningKey) {
+            return tokens != null && !tokens.isExpired() && currentConfig.equals(oidcConfig)
+                    && signingKey != null && signingKey.equals(currentSigningKey);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.freesidenomad.proxima.service;
 
 import com.freesidenomad.proxima.config.ProximaProperties;
+import com.freesidenomad.proxima.service.routing.RouteRequest;
+import com.freesidenomad.proxima.service.routing.RouteResolution;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +29,9 @@ public class ProxyService {
     @Autowired
     private RouteService routeService;
 
+    @Autowired(required = false)
+    private OidcTokenService oidcTokenService;
+
     private final WebClient webClient;
 
     public ProxyService() {
@@ -43,7 +48,11 @@ public class ProxyService {
         long startTime = System.currentTimeMillis();
         String clientIp = getClientIpAddress(originalRequest);
 
-        String targetUrl = routeService.resolveTargetUrl(path);
+        // Reuse the resolution the proxy filter matched the request on, if it did
+        RouteRequest routeRequest = RouteRequest.from(originalRequest, path);
+        String targetUrl = originalRequest.getAttribute(RouteResolution.REQUEST_ATTRIBUTE) instanceof RouteResolution resolution
+                ? routeService.resolveTargetUrl(routeRequest, resolution)
+                : routeService.resolveTargetUrl(routeRequest);
         if (targetUrl == null) {
             logger.info("BLOCKED: {} {} from {} - Reserved route", method, path, clientIp);
             return CompletableFuture.completedFuture(
@@ -116,9 +125,34 @@ public class ProxyService {
             headers.set(key, value); // Use set to override any existing headers
         });
 
+        injectOidcTokens(headers);
+
         return headers;
     }
 
+    /**
+     * Set the active preset's live OIDC tokens, if it has OIDC enabled. They override a static
+     * Authorization header in the preset, which would otherwise eventually expire.
+     */
+    private void injectOidcTokens(HttpHeaders headers) {
+        if (oidcTokenService == null) {
+            return;
+        }
+        HeaderPlan activePlan = configurationService.getActiveHeaderPlan();
+        if (activePlan == null || !activePlan.isOidcEnabled()) {
+            return;
+        }
+        OidcTokenHeaders tokenHeaders = oidcTokenService.getTokenHeaders(activePlan.getPresetName());
+        if (tokenHeaders == null) {
+            logger.warn("No OIDC tokens available for preset: {}", activePlan.getPresetName());
+            return;
+        }
+        headers.set(HttpHeaders.AUTHORIZATION, tokenHeaders.getAuthorization());
+        if (activePlan.getIdTokenHeader() != null) {
+            headers.set(activePlan.getIdTokenHeader(), tokenHeaders.getIdToken());
+        }
+    }
+
     private boolean isHopByHopHeader(String headerName) {
         return headerName.equalsIgnoreCase("connection") ||
                headerName.equalsIgnoreCase("keep-alive") ||
@@ -0,0 +1,42 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.model.oidc.RefreshTokenGrant;
+
+public interface RefreshTokenService {
+
+    /**
+     * Issue a new opaque refresh token starting a new grant, or null if refresh tokens are
+     * disabled or the store is full
+     */
+    RefreshTokenGrant issueRefreshToken(String clientId, String subject, String scope, String presetName);
+
+    /**
+     * Consume a refresh token and issue its replacement in the same grant. Presenting a token that
+     * was already consumed revokes every token of its grant.
+     *
+     * @throws IllegalArgumentException if the token is unknown, expired, revoked, reused or was
+     *                                  issued to another client
+     */
+    RefreshTokenGrant rotateRefreshToken(String refreshToken, String clientId);
+
+    /**
+     * Get statistics about refresh tokens
+     */
+    RefreshTokenStats getStats();
+
+    class RefreshTokenStats {
+        public final int storedTokens;
+        public final long issued;
+        public final long rotated;
+        public final long reuseDetected;
+        public final long rejected;
+
+        public RefreshTokenStats(int storedTokens, long issued, long rotated, long reuseDetected, long rejected) {
+            this.storedTokens = storedTokens;
+            this.issued = issued;
+            this.rotated = rotated;
+            this.reuseDetected = reuseDetected;
+            this.rejected = rejected;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.config.OidcTokenProperties;
+import com.freesidenomad.proxima.model.oidc.RefreshTokenGrant;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory store of opaque refresh tokens with rotation and reuse detection.
+ * <p>
+ * Tokens are stored by their SHA-256 hash only. Every token belongs to a grant; consuming a token
+ * issues its successor in the same grant and keeps the consumed token until it expires, so that
+ * presenting it again is recognized as reuse and revokes the whole grant. The store is bounded:
+ * when a new grant finds it full, expired and then consumed tokens are dropped, and the grant gets
+ * no refresh token if that does not free any space.
+ * <p>
+ * In a cluster, a grant stays on the node that issued it and its tokens start with that node's
+ * id; rotations received by other nodes are forwarded to it.
+ */
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenServiceImpl.class);
+
+    static final String ROTATE_OPERATION = "rotate-refresh-token";
+
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, StoredToken> tokens = new ConcurrentHashMap<>();
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder rotated = new LongAdder();
+    private final LongAdder reuseDetected = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired(required = false)
+    private OidcTokenProperties tokenProperties = new OidcTokenProperties();
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private ClusterService clusterService;
+
+    @PostConstruct
+    void initialize() {
+        if (clusterService != null) {
+            clusterService.registerOperation(ROTATE_OPERATION, request -> rotateRefreshToken(
+                    request.path("refreshToken").textValue(), request.path("clientId").textValue()));
+        }
+        if (meterRegistry != null) {
+            FunctionCounter.builder("proxima.oauth.refresh.tokens.issued", issued, LongAdder::sum)
+                    .description("Refresh tokens issued for new grants").register(meterRegistry);
+            FunctionCounter.builder("proxima.oauth.refresh.tokens.rotated", rotated, LongAdder::sum)
+                    .description("Refresh tokens exchanged for a successor").register(meterRegistry);
+            FunctionCounter.builder("proxima.oauth.refresh.tokens.reuse", reuseDetected, LongAdder::sum)
+                    .description("Consumed refresh tokens presented again, revoking their grant").register(meterRegistry);
+            FunctionCounter.builder("proxima.oauth.refresh.tokens.rejected", rejected, LongAdder::sum)
+                    .register(meterRegistry);
+            Gauge.builder("proxima.oauth.refresh.tokens.stored", tokens, ConcurrentHashMap::size)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public RefreshTokenGrant issueRefreshToken(String clientId, String subject, String scope, String presetName) {
+        if (!tokenProperties.getRefreshTokens().isEnabled()) {
+            return null;
+        }
+        if (!makeRoom()) {
+            logger.warn("Refresh token store is full, not issuing a refresh token for client: {}", clientId);
+            return null;
+        }
+        issued.increment();
+        return store(new Grant(clientId, subject, scope, presetName));
+    }
+
+    @Override
+    public RefreshTokenGrant rotateRefreshToken(String refreshToken, String clientId) {
+        if (clusterService != null && !clusterService.isLocal(refreshToken)) {
+            Map<String, String> request = new HashMap<>();
+            request.put("refreshToken", refreshToken);
+            request.put("clientId", clientId);
+            return clusterService.call(refreshToken, ROTATE_OPERATION, request, RefreshTokenGrant.class);
+        }
+
+        String key = hash(refreshToken);
+        StoredToken stored = tokens.get(key);
+
+        if (stored == null) {
+            rejected.increment();
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+        if (System.currentTimeMillis() >= stored.expiresAtMillis) {
+            tokens.remove(key, stored);
+            rejected.increment();
+            throw new IllegalArgumentException("Refresh token expired");
+        }
+        if (!stored.grant.clientId.equals(clientId)) {
+            logger.warn("Client ID mismatch for refresh token, expected: {} actual: {}", stored.grant.clientId, clientId);
+            rejected.increment();
+            throw new IllegalArgumentException("Client ID mismatch");
+        }
+        if (stored.grant.revoked) {
+            rejected.increment();
+            throw new IllegalArgumentException("Refresh token revoked");
+        }
+        if (!stored.consumed.compareAndSet(false, true)) {
+            stored.grant.revoked = true;
+            reuseDetected.increment();
+            logger.warn("Refresh token reuse detected for client: {}, revoking the grant", clientId);
+            throw new IllegalArgumentException("Refresh token already used, grant revoked");
+        }
+
+        // A rotation replaces a token, so the successor is stored even if the store is full
+        rotated.increment();
+        return store(stored.grant);
+    }
+
+    @Override
+    public RefreshTokenStats getStats() {
+        return new RefreshTokenStats(tokens.size(), issued.sum(), rotated.sum(), reuseDetected.sum(), rejected.sum());
+    }
+
+    private RefreshTokenGrant store(Grant grant) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        if (clusterService != null) {
+            refreshToken = clusterService.ownedId(refreshToken);
+        }
+        Instant expiresAt = Instant.now().plusSeconds(tokenProperties.getRefreshTokens().getLifetimeSeconds());
+
+        tokens.put(hash(refreshToken), new StoredToken(grant, expiresAt.toEpochMilli()));
+        return RefreshTokenGrant.builder()
+                .refreshToken(refreshToken)
+                .clientId(grant.clientId)
+                .subject(grant.subject)
+                .scope(grant.scope)
+                .presetName(grant.presetName)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    /**
+     * Drop expired tokens, then consumed ones, until there is room for one more token.
+     */
+    private boolean makeRoom() {
+        int maxEntries = tokenProperties.getRefreshTokens().getMaxEntries();
+        if (tokens.size() < maxEntries) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        tokens.values().removeIf(token -> now >= token.expiresAtMillis);
+        if (tokens.size() >= maxEntries) {
+            tokens.values().removeIf(token -> token.consumed.get() || token.grant.revoked);
+        }
+        return tokens.size() < maxEntries;
+    }
+
+    private static String hash(String refreshToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * One authorization, shared by every refresh token issued for it.
+     */
+    private static final class Grant {
+        final String clientId;
+        final String subject;
+        final String scope;
+        final String presetName;
+        volatile boolean revoked;
+
+        Grant(String clientId, String subject, String scope, String presetName) {
+            this.clientId = clientId;
+            this.subject = subject;
+            this.scope = scope;
+            this.presetName = presetName;
+        }
+    }
+
+    private static final class StoredToken {
+        final Grant grant;
+        final long expiresAtMillis;
+        final AtomicBoolean consumed = new AtomicBoolean();
+
+        StoredToken(Grant grant, long expiresAtMillis) {
+            this.grant = grant;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
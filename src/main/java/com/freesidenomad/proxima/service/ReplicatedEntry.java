@@ -0,0 +1,22 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One replicated value, or the removal of one when {@code value} is null. Of two entries for the
+ * same key the one with the later timestamp wins, and the higher node id breaks ties, so every
+ * node settles on the same value whatever order the entries arrive in.
+ */
+public record ReplicatedEntry(String namespace, String key, JsonNode value, long timestamp, String nodeId) {
+
+    public boolean isRemoval() {
+        return value == null || value.isNull();
+    }
+
+    public boolean isNewerThan(ReplicatedEntry other) {
+        if (timestamp != other.timestamp) {
+            return timestamp > other.timestamp;
+        }
+        return nodeId.compareTo(other.nodeId) > 0;
+    }
+}
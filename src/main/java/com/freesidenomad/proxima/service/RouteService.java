@@ -1,14 +1,25 @@
 package com.freesidenomad.proxima.service;
 
 import com.freesidenomad.proxima.config.ProximaProperties;
+import com.freesidenomad.proxima.config.RouteCacheProperties;
 import com.freesidenomad.proxima.model.ProximaConfig;
 import com.freesidenomad.proxima.model.RouteRule;
+import com.freesidenomad.proxima.service.routing.CompiledRoute;
+import com.freesidenomad.proxima.service.routing.RewriteRule;
+import com.freesidenomad.proxima.service.routing.RouteLookupCache;
+import com.freesidenomad.proxima.service.routing.RouteRequest;
+import com.freesidenomad.proxima.service.routing.RouteResolution;
+import com.freesidenomad.proxima.service.routing.RouteTable;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -24,39 +35,142 @@ public class RouteService {
     @Autowired
     private JsonConfigurationService jsonConfigurationService;
 
+    @Autowired(required = false)
+    private RouteCacheProperties routeCacheProperties;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // Compiled routes, replaced copy-on-write whenever the configuration changes
+    private volatile RouteTable routeTable;
+
+    // Optional cache of resolutions, null when disabled
+    private RouteLookupCache lookupCache;
+
+    @PostConstruct
+    void initLookupCache() {
+        if (routeCacheProperties == null || !routeCacheProperties.isEnabled()) {
+            return;
+        }
+        lookupCache = new RouteLookupCache(routeCacheProperties.getMaxEntries(), routeCacheProperties.getMaxPathLength());
+        logger.info("Route lookup cache enabled with {} entries", routeCacheProperties.getMaxEntries());
+
+        if (meterRegistry != null) {
+            RouteLookupCache cache = lookupCache;
+            FunctionCounter.builder("proxima.route.cache.hits", cache, RouteLookupCache::getHitCount)
+                    .description("Route lookups served from the cache").register(meterRegistry);
+            FunctionCounter.builder("proxima.route.cache.misses", cache, RouteLookupCache::getMissCount)
+                    .description("Route lookups that had to consult the route table").register(meterRegistry);
+            FunctionCounter.builder("proxima.route.cache.evictions", cache, RouteLookupCache::getEvictionCount)
+                    .register(meterRegistry);
+            FunctionCounter.builder("proxima.route.cache.rejections", cache, RouteLookupCache::getRejectionCount)
+                    .description("Resolutions not admitted because they were less popular than the eviction victim")
+                    .register(meterRegistry);
+            Gauge.builder("proxima.route.cache.size", cache, RouteLookupCache::size).register(meterRegistry);
+            Gauge.builder("proxima.route.cache.hit.ratio", cache, RouteLookupCache::getHitRatio).register(meterRegistry);
+        }
+    }
+
     public String resolveTargetUrl(String path) {
-        ProximaConfig config = jsonConfigurationService.loadConfiguration();
+        return resolveTargetUrl(RouteRequest.of(path));
+    }
+
+    /**
+     * Resolve the target URL for a request, taking route host, method and header conditions into account.
+     */
+    public String resolveTargetUrl(RouteRequest request) {
+        return resolveTargetUrl(request, resolve(request));
+    }
+
+    /**
+     * Target URL for a request that was already resolved, for example by the proxy filter.
+     */
+    public String resolveTargetUrl(RouteRequest request, RouteResolution resolution) {
+        String path = request.getPath();
 
         // Check if path matches reserved routes
-        if (isReservedRoute(path, config)) {
+        if (resolution.isReserved()) {
             logger.debug("Reserved route detected, not proxying: {}", path);
             return null;
         }
 
-        // Check configured routes in order (first match wins)
-        for (ProximaConfig.ConfigRoute route : config.getRoutes()) {
-            if (route.matches(path)) {
-                String targetUrl = route.buildTargetUrl(path);
-                logger.info("Route matched: [{}] {} -> {} (pattern: {})",
-                           route.getDescription(), path, targetUrl, route.getPathPattern());
-                return targetUrl;
-            }
+        // Highest priority matching route wins, ties go to the route configured first
+        String targetUrl = resolution.getTargetUrl(request);
+        CompiledRoute route = resolution.getRoute();
+        if (route != null) {
+            logger.info("Route matched: [{}] {} -> {} (pattern: {})",
+                       route.getRoute().getDescription(), path, targetUrl, route.getRoute().getPathPattern());
+            return targetUrl;
         }
 
         // Fallback to default downstream URL for all other routes
-        String fallbackUrl = config.getDownstream().getUrl() + path;
-        logger.debug("No route matched for {}, using default: {}", path, fallbackUrl);
-        return fallbackUrl;
+        logger.debug("No route matched for {}, using default: {}", path, targetUrl);
+        return targetUrl;
+    }
+
+    /**
+     * Resolve a request against the current route table, through the lookup cache when enabled.
+     * Tables with header-conditioned routes bypass the cache, since the key does not include headers.
+     */
+    public RouteResolution resolve(RouteRequest request) {
+        RouteTable table = currentRouteTable();
+        RouteLookupCache cache = lookupCache;
+        if (cache == null || table.hasHeaderConditions()) {
+            return RouteResolution.resolve(table, request);
+        }
+
+        RouteLookupCache.Key key = RouteLookupCache.key(request);
+        RouteResolution resolution = cache.get(key, table.getVersion());
+        if (resolution == null) {
+            resolution = RouteResolution.resolve(table, request);
+            cache.put(key, resolution);
+        }
+        return resolution;
+    }
+
+    /**
+     * The route lookup cache, or null when it is disabled.
+     */
+    public RouteLookupCache getLookupCache() {
+        return lookupCache;
     }
 
-    private boolean isReservedRoute(String path, ProximaConfig config) {
-        // Check against Proxima's reserved routes
-        // Note: Static resources (/css/, /js/, etc.) are filtered by ProxyController, not here
-        return path.startsWith("/proxima/") ||
-               path.startsWith("/actuator/") ||
-               path.equals("/");
+    /**
+     * Patch the compiled route table with the routes that changed, or rebuild it if the
+     * table is not at the version the diff was computed against. Events are published outside
+     * the configuration lock, so one older than the table can arrive late and is ignored.
+     */
+    @EventListener
+    public void onConfigurationChanged(ConfigurationChangedEvent event) {
+        RouteTable table = routeTable;
+        if (table != null && table.getVersion() >= event.getVersion()) {
+            return;
+        }
+        if (table != null && event.canPatch(table.getVersion())) {
+            routeTable = table.patch(event.getDiff(), event.getCurrent(), event.getVersion());
+        } else {
+            routeTable = RouteTable.compile(event.getCurrent(), event.getVersion());
+        }
+        logger.debug("Route table updated to configuration version {}", event.getVersion());
     }
 
+    private RouteTable currentRouteTable() {
+        long version = jsonConfigurationService.getConfigVersion();
+        RouteTable table = routeTable;
+        if (table == null || table.getVersion() != version) {
+            table = RouteTable.compile(jsonConfigurationService.loadConfiguration(), version);
+            routeTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Whether a path is reserved for Proxima, either built in or through the configured reservedRoutes.
+     * Note: Static resources (/css/, /js/, etc.) are filtered by ProxyController, not here.
+     */
+    public boolean isReservedRoute(String path) {
+        return currentRouteTable().isReserved(path);
+    }
 
     public List<RouteRule> getAllRoutes() {
         ProximaConfig config = jsonConfigurationService.loadConfiguration();
@@ -66,11 +180,12 @@ public class RouteService {
     }
 
     public Optional<RouteRule> findMatchingRoute(String path) {
-        ProximaConfig config = jsonConfigurationService.loadConfiguration();
-        return config.getRoutes().stream()
-                .filter(route -> route.matches(path))
-                .map(this::convertToRouteRule)
-                .findFirst();
+        return findMatchingRoute(RouteRequest.of(path));
+    }
+
+    public Optional<RouteRule> findMatchingRoute(RouteRequest request) {
+        return Optional.ofNullable(currentRouteTable().match(request))
+                .map(route -> convertToRouteRule(route.getRoute()));
     }
 
     /**
@@ -79,14 +194,26 @@ public class RouteService {
      * Only enabled routes are considered.
      */
     public Optional<ProximaConfig.ConfigRoute> findMatchingRouteWithPriority(String path) {
-        ProximaConfig config = jsonConfigurationService.loadConfiguration();
+        return findMatchingRouteWithPriority(RouteRequest.of(path));
+    }
 
-        // Sort routes by priority (higher priority first) and find first match
-        return config.getRoutes().stream()
-                .filter(ProximaConfig.ConfigRoute::isEnabled)
-                .sorted(Comparator.comparingInt(ProximaConfig.ConfigRoute::getPriority).reversed())
-                .filter(route -> route.matches(path))
-                .findFirst();
+    /**
+     * Find the matching route for a request, preferring routes bound to the request host,
+     * then routes bound to a matching "*." wildcard host, then routes without a host.
+     * Reserved paths never match, so they are always left to Proxima's own endpoints.
+     */
+    public Optional<ProximaConfig.ConfigRoute> findMatchingRouteWithPriority(RouteRequest request) {
+        return Optional.ofNullable(resolve(request).getRoute())
+                .map(CompiledRoute::getRoute);
+    }
+
+    /**
+     * The rewrite rule of the matching route that applies to the request path, if any.
+     */
+    public Optional<ProximaConfig.ConfigRewrite> findMatchingRewrite(RouteRequest request) {
+        return Optional.ofNullable(currentRouteTable().match(request))
+                .map(route -> route.findRewrite(request.getPath()))
+                .map(RewriteRule::getSource);
     }
 
     public boolean hasRoutes() {
@@ -0,0 +1,153 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of signed compact tokens keyed by a SHA-256 hash of the canonical mint request:
+ * subject, claims (with map keys sorted), algorithm, key id and requested lifetime.
+ * <p>
+ * A cached token is reused until a fixed fraction of its lifetime has elapsed, so callers always
+ * receive a token with a reasonable amount of validity left. Each entry remembers the key it was
+ * signed with and is only served while that key is still the one registered under its id, which
+ * makes key rotation and deletion safe even before {@link #invalidateKey(String)} runs.
+ * Entries past their reuse window are dropped in deadline order as new tokens are put, so a full
+ * cache never scans its entries to make room.
+ */
+final class SignedTokenCache {
+
+    /**
+     * Claims that are meant to be unique per token. Requests carrying them are never cached.
+     */
+    private static final String[] UNIQUE_CLAIMS = {"jti", "nonce"};
+
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final int maxEntries;
+    private final double reuseFraction;
+    private final ConcurrentHashMap<String, SignedToken> entries = new ConcurrentHashMap<>();
+    private final ExpiryQueue<SignedToken> expiry = new ExpiryQueue<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    SignedTokenCache(int maxEntries, double reuseFraction) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Token cache size must be positive: " + maxEntries);
+        }
+        if (!(reuseFraction > 0.0 && reuseFraction <= 1.0)) {
+            throw new IllegalArgumentException("Token reuse fraction must be in (0, 1]: " + reuseFraction);
+        }
+        this.maxEntries = maxEntries;
+        this.reuseFraction = reuseFraction;
+    }
+
+    /**
+     * Cache key for a mint request, or null if the request must not be cached.
+     */
+    String keyFor(String subject, Map<String, Object> claims, Duration expiration, String algorithm, String keyId) {
+        Map<String, Object> canonicalClaims = claims != null ? claims : Map.of();
+        for (String claim : UNIQUE_CLAIMS) {
+            if (canonicalClaims.containsKey(claim)) {
+                return null;
+            }
+        }
+        try {
+            String canonical = subject + '\u0000' + algorithm + '\u0000' + keyId + '\u0000'
+                    + expiration.getSeconds() + '\u0000' + CANONICAL_MAPPER.writeValueAsString(canonicalClaims);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            // Claims that cannot be serialized canonically are simply signed every time
+            return null;
+        }
+    }
+
+    /**
+     * Cached token for the key, or null if there is none, it is past its reuse window or it was
+     * signed with a key other than the current one.
+     */
+    SignedToken get(String cacheKey, Key signingKey, Instant now) {
+        SignedToken token = entries.get(cacheKey);
+        if (token == null || token.signingKey() != signingKey || !now.isBefore(token.reuseUntil())) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return token;
+    }
+
+    void put(String cacheKey, SignedToken token) {
+        expiry.expire(Instant.now(), entries::remove);
+        if (entries.size() >= maxEntries && !entries.containsKey(cacheKey)) {
+            rejections.increment();
+            return;
+        }
+        entries.put(cacheKey, token);
+        expiry.add(cacheKey, token.reuseUntil(), token);
+    }
+
+    /**
+     * Reuse deadline for a token issued now with the given lifetime.
+     */
+    Instant reuseUntil(Instant issuedAt, Duration expiration) {
+        return issuedAt.plusMillis((long) (expiration.toMillis() * reuseFraction));
+    }
+
+    /**
+     * Drop every token signed with the given key id, after the key was deleted or replaced. Their
+     * deadlines stay queued until they pass, and then find nothing to evict.
+     */
+    void invalidateKey(String keyId) {
+        entries.values().removeIf(entry -> entry.keyId().equals(keyId));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of tokens not cached because the cache was full of entries still in their reuse window.
+     */
+    long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * Fraction of cacheable mint requests served from the cache, 0 before the first request.
+     */
+    double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * A compact token together with its validity and the key that signed it.
+     */
+    record SignedToken(String token, Instant issuedAt, Instant expiresAt, Instant reuseUntil,
+                       String keyId, Key signingKey) {
+    }
+}
@@ -0,0 +1,208 @@
+package com.freesidenomad.proxima.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hashed timing wheel that runs one pending task per key at a deadline, used to refresh cached
+ * tokens shortly before they expire and to drop authorization codes when they expire.
+ * <p>
+ * Scheduling and cancelling are O(1) and never block: new entries are queued and moved into their
+ * slot by a single daemon tick thread, and a cancelled or replaced entry is simply skipped when
+ * its slot comes round. Due tasks are handed to the given executor and never run on the tick
+ * thread. If the executor rejects a task because its queue is full, the task is deferred by the
+ * retry delay instead of being dropped, unless a newer task was scheduled for the key meanwhile.
+ */
+final class TimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final long tickNanos;
+    private final long retryDelayNanos;
+    private final ArrayDeque<Entry>[] slots;
+    private final int mask;
+    private final Executor executor;
+    private final Queue<Entry> incoming = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean running = true;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+
+    /**
+     * @param tick       resolution of the wheel; tasks run up to one tick late
+     * @param slots      number of slots, rounded up to a power of two
+     * @param executor   executor that due tasks are handed to
+     * @param retryDelay delay before retrying a task the executor rejected
+     * @param threadName name of the tick thread
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(Duration tick, int slots, Executor executor, Duration retryDelay, String threadName) {
+        if (tick.toMillis() < 1) {
+            throw new IllegalArgumentException("Timing wheel tick must be at least 1 ms: " + tick);
+        }
+        if (slots < 1) {
+            throw new IllegalArgumentException("Timing wheel size must be positive: " + slots);
+        }
+        int size = Integer.highestOneBit(slots - 1) << 1;
+        size = Math.max(size, 1);
+        this.tickNanos = tick.toNanos();
+        this.retryDelayNanos = Math.max(retryDelay.toNanos(), tickNanos);
+        this.slots = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Run the task for the key after the delay, replacing any task still pending for the key.
+     */
+    void schedule(String key, Duration delay, Runnable task) {
+        long deadline = System.nanoTime() - startNanos + Math.max(0, delay.toNanos());
+        Entry entry = new Entry(key, deadline, task);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        incoming.add(entry);
+    }
+
+    /**
+     * Cancel the task pending for the key, if any.
+     */
+    void cancel(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    boolean isScheduled(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Number of keys with a pending task.
+     */
+    int size() {
+        return entries.size();
+    }
+
+    long getDispatchedCount() {
+        return dispatched.sum();
+    }
+
+    /**
+     * Number of times a due task was rejected by the executor and deferred.
+     */
+    long getDeferredCount() {
+        return deferred.sum();
+    }
+
+    void shutdown() {
+        running = false;
+        worker.interrupt();
+        entries.clear();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (running) {
+            long deadline = (tick + 1) * tickNanos;
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            transferIncoming(tick);
+            expire(slots[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    private void transferIncoming(long currentTick) {
+        Entry entry;
+        while ((entry = incoming.poll()) != null) {
+            if (entry.cancelled) {
+                continue;
+            }
+            long due = entry.deadline / tickNanos;
+            long target = Math.max(due, currentTick);
+            entry.rounds = (target - currentTick) / slots.length;
+            slots[(int) (target & mask)].add(entry);
+        }
+    }
+
+    private void expire(ArrayDeque<Entry> slot, long deadline) {
+        Iterator<Entry> iterator = slot.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.cancelled) {
+                iterator.remove();
+            } else if (entry.rounds > 0) {
+                entry.rounds--;
+            } else if (entry.deadline <= deadline) {
+                iterator.remove();
+                if (entries.remove(entry.key, entry)) {
+                    dispatch(entry);
+                }
+            }
+        }
+    }
+
+    private void dispatch(Entry entry) {
+        try {
+            executor.execute(entry.task);
+            dispatched.increment();
+        } catch (RejectedExecutionException e) {
+            if (!running) {
+                return;
+            }
+            deferred.increment();
+            logger.debug("Executor saturated, deferring task for {}", entry.key);
+            Entry retry = new Entry(entry.key, System.nanoTime() - startNanos + retryDelayNanos, entry.task);
+            if (entries.putIfAbsent(entry.key, retry) == null) {
+                incoming.add(retry);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final long deadline;
+        final Runnable task;
+        long rounds;
+        volatile boolean cancelled;
+
+        Entry(String key, long deadline, Runnable task) {
+            this.key = key;
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+}
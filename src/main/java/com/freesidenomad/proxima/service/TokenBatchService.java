@@ -0,0 +1,136 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.config.JwtProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Signs batches of tokens in parallel on the crypto executor and hands the results to a writer in
+ * request order. Only a few tokens per crypto thread are in flight at a time, so a batch of any
+ * size is written out as it is signed instead of being collected first, and a batch never fills
+ * the executor's queue on its own.
+ */
+@Service
+public class TokenBatchService {
+
+    // Tokens in flight per crypto thread, enough to keep every thread busy while results are written
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired(required = false)
+    private JwtProperties jwtProperties = new JwtProperties();
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final LongAdder signed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    void initialize() {
+        if (meterRegistry != null) {
+            FunctionCounter.builder("proxima.jwt.batch.tokens.signed", signed, LongAdder::sum)
+                    .register(meterRegistry);
+            FunctionCounter.builder("proxima.jwt.batch.tokens.failed", failed, LongAdder::sum)
+                    .description("Batch entries that could not be signed").register(meterRegistry);
+        }
+    }
+
+    public int getMaxTokens() {
+        return jwtProperties.getBatch().getMaxTokens();
+    }
+
+    /**
+     * Sign every token and write one result per token, in order: its {@code index} and
+     * {@code subject} with either the signed {@code token} or the {@code error} that prevented
+     * signing it. A failing token does not stop the batch; a failing writer does.
+     */
+    public void mint(List<TokenSpec> tokens, ResultWriter writer) throws IOException {
+        int window = window();
+        ArrayDeque<CompletableFuture<Map<String, Object>>> inFlight = new ArrayDeque<>(window);
+        int next = 0;
+        try {
+            while (next < tokens.size() || !inFlight.isEmpty()) {
+                while (next < tokens.size() && inFlight.size() < window) {
+                    int index = next++;
+                    inFlight.add(sign(index, tokens.get(index)));
+                }
+                writer.write(await(inFlight.poll()));
+            }
+        } finally {
+            // Only left over if the writer failed, typically because the client went away
+            inFlight.forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * Tokens kept in flight: a few per crypto thread, but no more than fit in its queue so that a
+     * batch does not crowd out other callers. Without the executor tokens are signed one by one.
+     */
+    private int window() {
+        CryptoExecutor executor = jwtService.getCryptoExecutor();
+        if (executor == null) {
+            return 1;
+        }
+        return Math.max(1, Math.min(executor.getThreads() * IN_FLIGHT_PER_THREAD, executor.getQueueCapacity()));
+    }
+
+    private CompletableFuture<Map<String, Object>> sign(int index, TokenSpec token) {
+        return jwtService.generateTokenAsync(token.subject(), token.claims(), token.expiration(),
+                token.algorithm(), token.keyId()).handle((signedToken, error) -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", index);
+            result.put("subject", token.subject());
+            if (error == null) {
+                result.put("token", signedToken);
+                signed.increment();
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                result.put("error", cause.getMessage());
+                failed.increment();
+            }
+            return result;
+        });
+    }
+
+    private static Map<String, Object> await(CompletableFuture<Map<String, Object>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while signing a token batch");
+        } catch (ExecutionException e) {
+            // sign() reports failures in its result, so only errors get here
+            throw new IllegalStateException("Token signing failed", e.getCause());
+        }
+    }
+
+    /**
+     * One token of a batch, with the template already applied.
+     */
+    public record TokenSpec(String subject, Map<String, Object> claims, Duration expiration,
+                            String algorithm, String keyId) {
+    }
+
+    @FunctionalInterface
+    public interface ResultWriter {
+        void write(Map<String, Object> result) throws IOException;
+    }
+}
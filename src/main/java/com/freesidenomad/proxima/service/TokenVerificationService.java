@@ -0,0 +1,196 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freesidenomad.proxima.config.JwtProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifies tokens signed with the JwtService keys on behalf of clients that do not verify JWTs
+ * themselves, such as backends calling the introspection endpoint.
+ * <p>
+ * A parser per key is built once per key set version and looked up by the token's {@code alg}
+ * and {@code kid}. Successful verifications are kept in a {@link VerifiedTokenCache} until the
+ * token expires, so verifying the same token again is a hash lookup.
+ */
+@Service
+public class TokenVerificationService {
+
+    private static final TypeReference<Map<String, Object>> HEADER = new TypeReference<>() {};
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired(required = false)
+    private JwtProperties jwtProperties = new JwtProperties();
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Null if the verification cache is disabled
+    private VerifiedTokenCache<VerifiedToken> cache;
+    private volatile Parsers parsers;
+
+    @PostConstruct
+    void initialize() {
+        JwtProperties.VerificationCache settings = jwtProperties.getVerificationCache();
+        if (!settings.isEnabled()) {
+            return;
+        }
+        VerifiedTokenCache<VerifiedToken> verified = new VerifiedTokenCache<>(settings.getMaxEntries());
+        cache = verified;
+        if (meterRegistry != null) {
+            FunctionCounter.builder("proxima.jwt.introspection.cache.hits", verified, VerifiedTokenCache::getHitCount)
+                    .description("Token verifications served from the verified-token cache").register(meterRegistry);
+            FunctionCounter.builder("proxima.jwt.introspection.cache.misses", verified, VerifiedTokenCache::getMissCount)
+                    .register(meterRegistry);
+            Gauge.builder("proxima.jwt.introspection.cache.size", verified, VerifiedTokenCache::size)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Verify a compact JWS signed by one of the current keys and check that it has not expired.
+     *
+     * @throws IllegalArgumentException if the token is malformed, expired or not signed by a current key
+     */
+    public VerifiedToken verify(String token) {
+        long keySetVersion = jwtService.getKeySetVersion();
+        VerifiedTokenCache<VerifiedToken> verified = cache;
+        if (verified != null) {
+            VerifiedToken cached = verified.get(token, keySetVersion, Instant.now());
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        VerifiedToken result = parse(token, parsersFor(keySetVersion));
+        // Tokens without an expiry are verified every time
+        if (verified != null && result.expiresAt() != null) {
+            verified.put(token, result, result.expiresAt(), keySetVersion);
+        }
+        return result;
+    }
+
+    public Map<String, Object> getCacheStats() {
+        VerifiedTokenCache<VerifiedToken> verified = cache;
+        if (verified == null) {
+            return null;
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", verified.size());
+        stats.put("hits", verified.getHitCount());
+        stats.put("misses", verified.getMissCount());
+        return stats;
+    }
+
+    private VerifiedToken parse(String token, Parsers current) {
+        Map<String, Object> header = decodeHeader(token);
+        String algorithm = header.get("alg") instanceof String alg ? alg : null;
+        String keyId = header.get("kid") instanceof String kid ? kid : null;
+
+        List<JwtParser> candidates;
+        if ("HS256".equals(algorithm)) {
+            // HS256 tokens do not name their key
+            candidates = current.hmac();
+        } else {
+            JwtParser parser = current.byKey().get(new KeyRef(algorithm, keyId));
+            if (parser == null) {
+                throw new IllegalArgumentException("No " + algorithm + " key found for kid: " + keyId);
+            }
+            candidates = List.of(parser);
+        }
+
+        for (JwtParser parser : candidates) {
+            try {
+                Claims claims = parser.parseSignedClaims(token).getPayload();
+                Date expiration = claims.getExpiration();
+                return new VerifiedToken(algorithm, keyId, toJson(claims),
+                        expiration != null ? expiration.toInstant() : null);
+            } catch (SignatureException e) {
+                // Try the next HMAC key
+            } catch (ExpiredJwtException e) {
+                throw new IllegalArgumentException("Token has expired");
+            } catch (JwtException e) {
+                throw new IllegalArgumentException("Invalid token: " + e.getMessage());
+            }
+        }
+        throw new IllegalArgumentException("Token signature does not match any key");
+    }
+
+    private Map<String, Object> decodeHeader(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Token is not a compact JWS");
+        }
+        try {
+            return objectMapper.readValue(Base64.getUrlDecoder().decode(token.substring(0, separator)), HEADER);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Token header is malformed");
+        }
+    }
+
+    /**
+     * Claims as they appear in the token, with dates as seconds since the epoch.
+     */
+    private static Map<String, Object> toJson(Claims claims) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        claims.forEach((name, value) -> json.put(name, value instanceof Date date ? date.getTime() / 1000 : value));
+        return Collections.unmodifiableMap(json);
+    }
+
+    private Parsers parsersFor(long keySetVersion) {
+        Parsers current = parsers;
+        if (current == null || current.version() != keySetVersion) {
+            Map<KeyRef, JwtParser> byKey = new HashMap<>();
+            for (JwtService.VerificationKey key : jwtService.getVerificationKeys()) {
+                byKey.put(new KeyRef(key.algorithm(), key.keyId()), Jwts.parser().verifyWith(key.publicKey()).build());
+            }
+            List<JwtParser> hmac = new ArrayList<>();
+            for (SecretKey key : jwtService.getHmacKeys()) {
+                hmac.add(Jwts.parser().verifyWith(key).build());
+            }
+            current = new Parsers(keySetVersion, byKey, hmac);
+            parsers = current;
+        }
+        return current;
+    }
+
+    /**
+     * A token that passed verification: the algorithm and key it was signed with, its claims and
+     * its expiry, or null if it does not expire.
+     */
+    public record VerifiedToken(String algorithm, String keyId, Map<String, Object> claims, Instant expiresAt) {
+    }
+
+    private record KeyRef(String algorithm, String keyId) {
+    }
+
+    private record Parsers(long version, Map<KeyRef, JwtParser> byKey, List<JwtParser> hmac) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.freesidenomad.proxima.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of successful token verifications keyed by a SHA-256 hash of the compact token,
+ * so verifying the same token again is a hash lookup instead of a signature check.
+ * <p>
+ * Entries are served until the token expires, and only while the JwtService key set is at the
+ * version the token was verified against: any key change, including a deletion that should make
+ * the token invalid, turns every entry into a miss. The first result cached for a newer key set
+ * version clears the entries of older ones, and expired entries are dropped in expiry order as
+ * results are put, so a full cache never scans its entries to make room.
+ *
+ * @param <T> verification result, for example the decoded token
+ */
+public final class VerifiedTokenCache<T> {
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final ExpiryQueue<Entry<T>> expiry = new ExpiryQueue<>();
+    // Newest key set version a result was cached for
+    private volatile long keySetVersion = Long.MIN_VALUE;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedTokenCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Verified token cache size must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Cached result for the token, or null if it was not verified against this key set version
+     * or has expired.
+     */
+    public T get(String token, long keySetVersion, Instant now) {
+        String key = hash(token);
+        Entry<T> entry = entries.get(key);
+        if (entry == null || entry.keySetVersion() != keySetVersion || !now.isBefore(entry.expiresAt())) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    /**
+     * Remember a verification result until the token's expiry. Results are dropped rather than
+     * cached when the cache is full of unexpired entries.
+     */
+    public void put(String token, T value, Instant expiresAt, long keySetVersion) {
+        long current = this.keySetVersion;
+        if (keySetVersion < current) {
+            return;
+        }
+        if (keySetVersion > current) {
+            advanceTo(keySetVersion);
+        }
+        expiry.expire(Instant.now(), entries::remove);
+        if (entries.size() >= maxEntries) {
+            return;
+        }
+        String key = hash(token);
+        Entry<T> entry = new Entry<>(value, expiresAt, keySetVersion);
+        entries.put(key, entry);
+        expiry.add(key, expiresAt, entry);
+    }
+
+    private synchronized void advanceTo(long version) {
+        if (version > keySetVersion) {
+            // Entries of older key sets can never be served again
+            entries.clear();
+            expiry.clear();
+            keySetVersion = version;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Entry<T>(T value, Instant expiresAt, long keySetVersion) {
+    }
+}
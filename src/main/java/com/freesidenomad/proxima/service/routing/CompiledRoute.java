@@ -0,0 +1,176 @@
+package com.freesidenomad.proxima.service.routing;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A configured route with its path pattern, method set, header conditions and rewrite rules precompiled,
+ * as held by a {@link RouteTable}.
+ */
+public final class CompiledRoute {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledRoute.class);
+
+    private static final List<String> METHODS =
+            List.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE", "CONNECT");
+
+    private final String key;
+    private final ProximaConfig.ConfigRoute route;
+    private final PathPattern pattern;
+    private final String host;
+    // One bit per entry in METHODS, 0 when the route accepts every method
+    private final int methodMask;
+    private final String[] headerNames;
+    private final String[] headerValues;
+    // One bit per header condition in the table's HeaderPredicates, unless they did not all fit
+    private final long headerMask;
+    private final boolean headersIndexed;
+    private final TargetUrlBuilder targetUrl;
+
+    /**
+     * @param headerPredicates the table's header conditions, extended with any this route adds
+     */
+    CompiledRoute(String key, ProximaConfig.ConfigRoute route, HeaderPredicates headerPredicates) {
+        this.key = key;
+        this.route = route;
+        this.pattern = route.getPathPattern() != null ? PathPattern.compile(route.getPathPattern()) : null;
+        this.host = RouteRequest.normalizeHost(route.getHost());
+        this.methodMask = compileMethods(key, route.getMethods());
+        this.targetUrl = TargetUrlBuilder.compile(route, key);
+
+        Map<String, String> matchHeaders = route.getMatchHeaders();
+        this.headerNames = new String[matchHeaders.size()];
+        this.headerValues = new String[matchHeaders.size()];
+        int i = 0;
+        long mask = 0;
+        boolean indexed = true;
+        for (Map.Entry<String, String> header : matchHeaders.entrySet()) {
+            headerNames[i] = header.getKey();
+            headerValues[i] = header.getValue();
+            // Disabled routes are never looked up, so they do not take up bits
+            int bit = route.isEnabled() ? headerPredicates.bit(header.getKey(), header.getValue()) : -1;
+            if (bit < 0) {
+                indexed = false;
+            } else {
+                mask |= 1L << bit;
+            }
+            i++;
+        }
+        this.headerMask = mask;
+        this.headersIndexed = indexed;
+    }
+
+    private static int compileMethods(String key, List<String> methods) {
+        int mask = 0;
+        for (String method : methods) {
+            int bit = methodBit(method.toUpperCase(Locale.ENGLISH));
+            if (bit == 0) {
+                logger.warn("Ignoring unknown HTTP method '{}' on route {}", method, key);
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    static int methodBit(String method) {
+        int index = method != null ? METHODS.indexOf(method) : -1;
+        return index >= 0 ? 1 << index : 0;
+    }
+
+    /**
+     * Path-only match, ignoring host, method and header conditions.
+     */
+    public boolean matches(String path) {
+        return pattern != null && route.isEnabled() && pattern.matches(path);
+    }
+
+    /**
+     * Full match on path, method and headers. The host is matched by the {@link RouteTable}
+     * when it selects the virtual host to search, and the query string takes no part.
+     */
+    public boolean matches(RouteRequest request) {
+        return matchesMethod(request.getMethod())
+                && matches(request.getRoutePath())
+                && matchesHeaders(request);
+    }
+
+    /**
+     * Like {@link #matches(RouteRequest)}, checking header conditions against the request's
+     * evaluation of the table's {@link HeaderPredicates}, which may be null if no route has any.
+     */
+    boolean matches(RouteRequest request, HeaderPredicates.Evaluation headers) {
+        return matchesMethod(request.getMethod())
+                && matches(request.getRoutePath())
+                && (headersIndexed ? headerMask == 0 || headers.satisfiesAll(headerMask) : matchesHeaders(request));
+    }
+
+    private boolean matchesMethod(String method) {
+        return methodMask == 0 || (methodMask & methodBit(method)) != 0;
+    }
+
+    private boolean matchesHeaders(RouteRequest request) {
+        for (int i = 0; i < headerNames.length; i++) {
+            if (!HeaderPredicates.test(request.getHeader(headerNames[i]), headerValues[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether matching depends on request headers, making results unsuitable for caching by path.
+     */
+    public boolean hasHeaderConditions() {
+        return headerNames.length > 0;
+    }
+
+    /**
+     * Build the target URL for a matched path, applying the route's rewrite rules.
+     */
+    public String buildTargetUrl(String path) {
+        return targetUrl.build(path);
+    }
+
+    /**
+     * The rewrite rule that {@link #buildTargetUrl} would apply to {@code path}, or null if none does.
+     */
+    public RewriteRule findRewrite(String path) {
+        return targetUrl.findRewrite(path);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getPriority() {
+        return route.getPriority();
+    }
+
+    /**
+     * Normalized host this route is restricted to, possibly a "*." wildcard, or null for any host.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Compiled path pattern, or null when the route has no path pattern configured.
+     */
+    public PathPattern getPattern() {
+        return pattern;
+    }
+
+    public ProximaConfig.ConfigRoute getRoute() {
+        return route;
+    }
+
+    @Override
+    public String toString() {
+        return key + " -> " + route.getTargetUrl();
+    }
+}
@@ -0,0 +1,114 @@
+package com.freesidenomad.proxima.service.routing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The distinct header conditions of a route table, each assigned one bit, so that a route's
+ * header conditions compile to a mask and a request evaluates each condition at most once
+ * however many candidate routes share it.
+ * <p>
+ * Bits are only ever appended: a patched table extends a copy of its predecessor's predicates,
+ * so routes it shares keep valid masks. Conditions beyond the 64 that fit in a mask are not
+ * indexed; routes using them check their headers one by one instead.
+ */
+final class HeaderPredicates {
+
+    static final int MAX_PREDICATES = Long.SIZE;
+
+    static final String ANY_VALUE = "*";
+
+    private final Map<String, Integer> bits;
+    private String[] names;
+    private String[] values;
+
+    HeaderPredicates() {
+        this(new HashMap<>(), new String[0], new String[0]);
+    }
+
+    private HeaderPredicates(Map<String, Integer> bits, String[] names, String[] values) {
+        this.bits = bits;
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * A copy to extend while patching, leaving this instance to the table that uses it.
+     */
+    HeaderPredicates copy() {
+        return new HeaderPredicates(new HashMap<>(bits), names, values);
+    }
+
+    /**
+     * The bit of a condition, assigning the next one if it is new, or -1 if all bits are taken.
+     */
+    int bit(String name, String value) {
+        String normalized = name.toLowerCase(Locale.ENGLISH);
+        Integer bit = bits.get(key(normalized, value));
+        if (bit != null) {
+            return bit;
+        }
+        if (names.length == MAX_PREDICATES) {
+            return -1;
+        }
+        int assigned = names.length;
+        names = Arrays.copyOf(names, assigned + 1);
+        values = Arrays.copyOf(values, assigned + 1);
+        names[assigned] = normalized;
+        values[assigned] = value;
+        bits.put(key(normalized, value), assigned);
+        return assigned;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    private static String key(String name, String value) {
+        return name + '\0' + value;
+    }
+
+    static boolean test(String actual, String expected) {
+        return actual != null && (ANY_VALUE.equals(expected) || actual.equals(expected));
+    }
+
+    /**
+     * Per-request evaluation, created by the table for one lookup and not shared between threads.
+     */
+    Evaluation evaluate(RouteRequest request) {
+        return new Evaluation(request);
+    }
+
+    final class Evaluation {
+        private final RouteRequest request;
+        private long evaluated;
+        private long satisfied;
+
+        private Evaluation(RouteRequest request) {
+            this.request = request;
+        }
+
+        /**
+         * Whether the request satisfies every condition in {@code mask}, reading only the headers
+         * of conditions no earlier route has evaluated.
+         */
+        boolean satisfiesAll(long mask) {
+            if ((mask & evaluated & ~satisfied) != 0) {
+                return false;
+            }
+            long pending = mask & ~evaluated;
+            while (pending != 0) {
+                int bit = Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                evaluated |= 1L << bit;
+                if (!test(request.getHeader(names[bit]), values[bit])) {
+                    return false;
+                }
+                satisfied |= 1L << bit;
+            }
+            return true;
+        }
+    }
+}
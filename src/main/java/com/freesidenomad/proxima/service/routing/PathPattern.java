@@ -0,0 +1,152 @@
+package com.freesidenomad.proxima.service.routing;
+
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled form of a route path pattern.
+ * Matching follows the semantics of {@code ProximaConfig.ConfigRoute#matches} without
+ * allocating intermediate strings, and exposes the literal prefix every matching
+ * path must start with so patterns can be indexed in a {@link RouteTrie}.
+ */
+public final class PathPattern {
+
+    private static final String REGEX_META_CHARACTERS = "\\.[]{}()<>*+-=!?^$|";
+    private static final String QUANTIFIERS = "?*+{";
+
+    enum Kind {
+        /** "/prefix/**" - any path starting with the prefix */
+        PREFIX_WILDCARD,
+        /** "/prefix/*" - the prefix followed by at most one more segment */
+        SINGLE_WILDCARD,
+        /** any other pattern containing "*" - evaluated as a regular expression */
+        WILDCARD,
+        /** no wildcard - the exact path or anything below it */
+        EXACT
+    }
+
+    private final String pattern;
+    private final Kind kind;
+    private final String literalPrefix;
+    // Literal text every match ends with, checked before running the regex
+    private final String literalSuffix;
+    private final Pattern regex;
+
+    private PathPattern(String pattern, Kind kind, String literalPrefix, String literalSuffix, Pattern regex) {
+        this.pattern = pattern;
+        this.kind = kind;
+        this.literalPrefix = literalPrefix;
+        this.literalSuffix = literalSuffix;
+        this.regex = regex;
+    }
+
+    public static PathPattern compile(String pattern) {
+        if (pattern.endsWith("/**")) {
+            return new PathPattern(pattern, Kind.PREFIX_WILDCARD, pattern.substring(0, pattern.length() - 3), "", null);
+        } else if (pattern.endsWith("/*")) {
+            return new PathPattern(pattern, Kind.SINGLE_WILDCARD, pattern.substring(0, pattern.length() - 2), "", null);
+        } else if (pattern.contains("*")) {
+            return new PathPattern(pattern, Kind.WILDCARD, regexLiteralPrefix(pattern), regexLiteralSuffix(pattern),
+                                   Pattern.compile(pattern.replace("*", ".*")));
+        } else {
+            return new PathPattern(pattern, Kind.EXACT, pattern, "", null);
+        }
+    }
+
+    private static String regexLiteralPrefix(String pattern) {
+        if (!hasPredictableEnds(pattern)) {
+            return "";
+        }
+        int end = 0;
+        while (end < pattern.length() && REGEX_META_CHARACTERS.indexOf(pattern.charAt(end)) < 0) {
+            end++;
+        }
+        // A quantifier makes the character before it optional or repeatable, as in "/abc?*"
+        if (end > 0 && end < pattern.length() && QUANTIFIERS.indexOf(pattern.charAt(end)) >= 0) {
+            end--;
+        }
+        return pattern.substring(0, end);
+    }
+
+    /**
+     * Whether the literal text at either end of a wildcard pattern is literal text of every match,
+     * which an alternation or an inline flag such as "(?i)" breaks.
+     */
+    private static boolean hasPredictableEnds(String pattern) {
+        return pattern.indexOf('|') < 0 && !pattern.contains("(?");
+    }
+
+    /**
+     * Trailing text of a wildcard pattern that matches itself, so that many patterns sharing a
+     * short literal prefix, such as "/static/*.css" and "/static/*.js", are told apart without
+     * running their regexes.
+     */
+    private static String regexLiteralSuffix(String pattern) {
+        if (!hasPredictableEnds(pattern)) {
+            return "";
+        }
+        int start = pattern.length();
+        while (start > 0 && REGEX_META_CHARACTERS.indexOf(pattern.charAt(start - 1)) < 0) {
+            start--;
+        }
+        // The first character after a backslash is an escape, not a literal
+        if (start > 0 && start < pattern.length() && pattern.charAt(start - 1) == '\\') {
+            start++;
+        }
+        return pattern.substring(start);
+    }
+
+    public boolean matches(String path) {
+        switch (kind) {
+            case PREFIX_WILDCARD:
+                return path.startsWith(literalPrefix);
+            case SINGLE_WILDCARD: {
+                int length = literalPrefix.length();
+                return path.startsWith(literalPrefix)
+                        && path.length() > length
+                        && path.charAt(length) == '/'
+                        && path.indexOf('/', length + 1) < 0;
+            }
+            case WILDCARD:
+                return path.endsWith(literalSuffix) && regex.matcher(path).matches();
+            default: {
+                int length = pattern.length();
+                return path.startsWith(pattern)
+                        && (path.length() == length || path.charAt(length) == '/');
+            }
+        }
+    }
+
+    /**
+     * Like {@link #matches}, except that "/prefix/**" only matches whole segments: the prefix
+     * itself or paths continuing with "/". Route patterns keep the plain prefix semantics for
+     * compatibility; reserved paths use this stricter form.
+     */
+    public boolean matchesWholeSegments(String path) {
+        if (kind != Kind.PREFIX_WILDCARD) {
+            return matches(path);
+        }
+        int length = literalPrefix.length();
+        return path.startsWith(literalPrefix)
+                && (path.length() == length || path.charAt(length) == '/' || literalPrefix.endsWith("/"));
+    }
+
+    /**
+     * Literal text every matching path starts with.
+     */
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,115 @@
+package com.freesidenomad.proxima.service.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiled set of paths that are never proxied: Proxima's own endpoints plus the configured
+ * {@code reservedRoutes}. Patterns use the same syntax and engine as route path patterns, except
+ * that "/prefix/**" stops at segment boundaries, and are indexed by literal prefix, so a check
+ * only evaluates patterns that can apply to the path. Repeated slashes in a path are collapsed
+ * before matching, so "//proxima/api" is reserved like "/proxima/api" and "//x" is not taken
+ * for the root.
+ * <p>
+ * The built-in "/prefix/**" patterns only reserve paths below the prefix, such as "/proxima/ui"
+ * but not "/proxima" itself, which Proxima does not serve.
+ */
+public final class ReservedPaths {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservedPaths.class);
+
+    /**
+     * Paths served by Proxima itself, reserved regardless of configuration.
+     */
+    public static final List<String> BUILT_IN = List.of("/proxima/**", "/actuator/**", "/");
+
+    private final Set<String> patterns;
+    private final RouteTrie<Reserved> trie;
+
+    private ReservedPaths(Set<String> patterns, RouteTrie<Reserved> trie) {
+        this.patterns = patterns;
+        this.trie = trie;
+    }
+
+    /**
+     * Compile the built-in reserved paths together with the configured ones.
+     */
+    public static ReservedPaths compile(Collection<String> configured) {
+        Set<String> patterns = new LinkedHashSet<>(BUILT_IN);
+        for (String pattern : configured) {
+            if (pattern == null || !pattern.startsWith("/")) {
+                logger.warn("Ignoring invalid reserved route pattern: {}", pattern);
+                continue;
+            }
+            patterns.add(pattern);
+        }
+        RouteTrie<Reserved> trie = RouteTrie.empty();
+        for (String pattern : patterns) {
+            PathPattern compiled = PathPattern.compile(pattern);
+            trie = trie.with(compiled.getLiteralPrefix(), new Reserved(compiled, BUILT_IN.contains(pattern)));
+        }
+        return new ReservedPaths(Collections.unmodifiableSet(patterns), trie);
+    }
+
+    /**
+     * Whether a request path is reserved. Any query string is ignored.
+     */
+    public boolean matches(String path) {
+        int queryStart = path.indexOf('?');
+        String normalized = collapseSlashes(queryStart >= 0 ? path.substring(0, queryStart) : path);
+        return trie.anyMatch(normalized, reserved -> reserved.matches(normalized));
+    }
+
+    private static String collapseSlashes(String path) {
+        int repeated = path.indexOf("//");
+        if (repeated < 0) {
+            return path;
+        }
+        StringBuilder collapsed = new StringBuilder(path.length()).append(path, 0, repeated + 1);
+        for (int i = repeated + 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '/' || path.charAt(i - 1) != '/') {
+                collapsed.append(c);
+            }
+        }
+        return collapsed.toString();
+    }
+
+    /**
+     * Whether a route path pattern would capture reserved paths, i.e. whether the literal
+     * part of the pattern, or for a wildcard pattern the paths just below it, already lie
+     * within a reserved path. A catch-all "/**" does not count, as reserved paths take
+     * precedence over routes.
+     */
+    public boolean overlaps(String pathPattern) {
+        PathPattern pattern = PathPattern.compile(pathPattern);
+        String prefix = pattern.getLiteralPrefix();
+        if (matches(prefix)) {
+            return true;
+        }
+        boolean below = pattern.getKind() == PathPattern.Kind.PREFIX_WILDCARD
+                || pattern.getKind() == PathPattern.Kind.SINGLE_WILDCARD;
+        return below && !prefix.isEmpty() && !prefix.endsWith("/") && matches(prefix + "/");
+    }
+
+    public Set<String> getPatterns() {
+        return patterns;
+    }
+
+    private record Reserved(PathPattern pattern, boolean builtIn) {
+
+        boolean matches(String path) {
+            if (builtIn && pattern.getKind() == PathPattern.Kind.PREFIX_WILDCARD) {
+                int length = pattern.getLiteralPrefix().length();
+                return path.startsWith(pattern.getLiteralPrefix()) && path.length() > length && path.charAt(length) == '/';
+            }
+            return pattern.matchesWholeSegments(path);
+        }
+    }
+}
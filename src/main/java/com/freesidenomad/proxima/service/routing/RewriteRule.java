@@ -0,0 +1,339 @@
+package com.freesidenomad.proxima.service.routing;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compiled {@link ProximaConfig.ConfigRewrite}.
+ * <p>
+ * Template rules ("/api/v1/users/{id}/**") are matched segment by segment against the request
+ * path, recording captures as index ranges into the path, so neither matching nor rendering
+ * creates intermediate strings. Regex rules are the fallback for anything a template cannot
+ * express. Both render their "to" template straight into the caller's buffer.
+ */
+public final class RewriteRule {
+
+    private static final Pattern GROUP_NAME = Pattern.compile("\\(\\?<([a-zA-Z][a-zA-Z0-9]*)>");
+    private static final String REST = "**";
+
+    private enum SegmentKind { LITERAL, CAPTURE, ANY, REST }
+
+    private final ProximaConfig.ConfigRewrite source;
+    // Template rule: path segments of "from"; null for regex rules
+    private final SegmentKind[] segmentKinds;
+    private final String[] segmentLiterals;
+    private final int captureCount;
+    // Regex rule: null for template rules
+    private final Pattern regex;
+    private final Part[] parts;
+    private final boolean toHasQuery;
+    private final boolean preserveQuery;
+
+    private RewriteRule(ProximaConfig.ConfigRewrite source, SegmentKind[] segmentKinds, String[] segmentLiterals,
+                        int captureCount, Pattern regex, Part[] parts) {
+        this.source = source;
+        this.segmentKinds = segmentKinds;
+        this.segmentLiterals = segmentLiterals;
+        this.captureCount = captureCount;
+        this.regex = regex;
+        this.parts = parts;
+        this.toHasQuery = source.getTo().indexOf('?') >= 0;
+        this.preserveQuery = !ProximaConfig.ConfigRewrite.QUERY_DROP.equalsIgnoreCase(source.getQuery());
+    }
+
+    /**
+     * Compile a rewrite rule.
+     *
+     * @throws IllegalArgumentException if the rule is incomplete or its templates are invalid
+     */
+    public static RewriteRule compile(ProximaConfig.ConfigRewrite rewrite) {
+        if (rewrite.getTo() == null) {
+            throw new IllegalArgumentException("Rewrite rule has no 'to' template: " + rewrite);
+        }
+        if ((rewrite.getFrom() == null) == (rewrite.getRegex() == null)) {
+            throw new IllegalArgumentException("Rewrite rule needs exactly one of 'from' or 'regex': " + rewrite);
+        }
+        String query = rewrite.getQuery();
+        if (query != null && !ProximaConfig.ConfigRewrite.QUERY_PRESERVE.equalsIgnoreCase(query)
+                && !ProximaConfig.ConfigRewrite.QUERY_DROP.equalsIgnoreCase(query)) {
+            throw new IllegalArgumentException("Unknown query handling '" + query + "' in rewrite rule: " + rewrite);
+        }
+        return rewrite.getFrom() != null ? compileTemplate(rewrite) : compileRegex(rewrite);
+    }
+
+    private static RewriteRule compileTemplate(ProximaConfig.ConfigRewrite rewrite) {
+        String from = rewrite.getFrom();
+        if (!from.startsWith("/")) {
+            throw new IllegalArgumentException("Rewrite template must start with '/': " + from);
+        }
+        String[] segments = from.substring(1).split("/", -1);
+        SegmentKind[] kinds = new SegmentKind[segments.length];
+        String[] literals = new String[segments.length];
+        Map<String, Integer> captures = new HashMap<>();
+        boolean hasRest = false;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (REST.equals(segment)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' is only allowed as the last segment: " + from);
+                }
+                kinds[i] = SegmentKind.REST;
+                hasRest = true;
+            } else if ("*".equals(segment)) {
+                kinds[i] = SegmentKind.ANY;
+            } else if (segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2) {
+                String name = segment.substring(1, segment.length() - 1);
+                if (captures.putIfAbsent(name, captures.size()) != null) {
+                    throw new IllegalArgumentException("Duplicate capture '{" + name + "}' in: " + from);
+                }
+                kinds[i] = SegmentKind.CAPTURE;
+            } else if (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0 || segment.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("Captures and wildcards must span a whole segment: " + from);
+            } else {
+                kinds[i] = SegmentKind.LITERAL;
+                literals[i] = segment;
+            }
+        }
+        int captureCount = captures.size();
+        if (hasRest) {
+            captures.put(REST, captureCount);
+        }
+        Part[] parts = parseTo(rewrite.getTo(), name -> {
+            Integer index = captures.get(name);
+            if (index == null) {
+                throw new IllegalArgumentException("'" + rewrite.getTo() + "' references '" + name
+                        + "' which is not captured by " + from);
+            }
+            return Part.group(index, null);
+        });
+        return new RewriteRule(rewrite, kinds, literals, captures.size(), null, parts);
+    }
+
+    private static RewriteRule compileRegex(ProximaConfig.ConfigRewrite rewrite) {
+        Pattern regex;
+        try {
+            regex = Pattern.compile(rewrite.getRegex());
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid rewrite regex '" + rewrite.getRegex() + "': " + e.getDescription(), e);
+        }
+        List<String> groupNames = new ArrayList<>();
+        Matcher names = GROUP_NAME.matcher(rewrite.getRegex());
+        while (names.find()) {
+            groupNames.add(names.group(1));
+        }
+        int groupCount = regex.matcher("").groupCount();
+        Part[] parts = parseTo(rewrite.getTo(), name -> {
+            if (groupNames.contains(name)) {
+                return Part.group(-1, name);
+            }
+            int group = parseGroupNumber(name);
+            if (group < 0 || group > groupCount) {
+                throw new IllegalArgumentException("'" + rewrite.getTo() + "' references group '" + name
+                        + "' which is not defined by " + rewrite.getRegex());
+            }
+            return Part.group(group, null);
+        });
+        return new RewriteRule(rewrite, null, null, 0, regex, parts);
+    }
+
+    private static int parseGroupNumber(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return -1;
+            }
+        }
+        return name.isEmpty() || name.length() > 4 ? -1 : Integer.parseInt(name);
+    }
+
+    private static Part[] parseTo(String to, Function<String, Part> reference) {
+        List<Part> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < to.length()) {
+            String name = null;
+            int next = i;
+            if (to.charAt(i) == '{') {
+                int close = to.indexOf('}', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed '{' in rewrite target: " + to);
+                }
+                name = to.substring(i + 1, close);
+                next = close + 1;
+            } else if (to.startsWith(REST, i)) {
+                name = REST;
+                next = i + REST.length();
+            }
+            if (name == null) {
+                literal.append(to.charAt(i++));
+                continue;
+            }
+            if (literal.length() > 0) {
+                parts.add(Part.literal(literal.toString()));
+                literal.setLength(0);
+            }
+            Part part = reference.apply(name);
+            parts.add(REST.equals(name) ? part.asRest() : part);
+            i = next;
+        }
+        if (literal.length() > 0) {
+            parts.add(Part.literal(literal.toString()));
+        }
+        return parts.toArray(new Part[0]);
+    }
+
+    /**
+     * If this rule matches {@code path} (which may carry a query string), append the rewritten
+     * path and query to {@code out} and return true; otherwise leave {@code out} untouched.
+     *
+     * @param bounds scratch array of at least {@link #getScratchSize()} ints
+     */
+    boolean apply(String path, StringBuilder out, int[] bounds) {
+        int queryStart = path.indexOf('?');
+        int end = queryStart >= 0 ? queryStart : path.length();
+
+        if (regex != null) {
+            Matcher matcher = regex.matcher(path).region(0, end);
+            if (!matcher.matches()) {
+                return false;
+            }
+            for (Part part : parts) {
+                if (part.literal != null) {
+                    out.append(part.literal);
+                } else {
+                    int start = part.groupName != null ? matcher.start(part.groupName) : matcher.start(part.group);
+                    if (start >= 0) {
+                        int stop = part.groupName != null ? matcher.end(part.groupName) : matcher.end(part.group);
+                        out.append(path, start, stop);
+                    }
+                }
+            }
+        } else {
+            if (!matchSegments(path, end, bounds)) {
+                return false;
+            }
+            for (Part part : parts) {
+                if (part.literal != null) {
+                    out.append(part.literal);
+                    continue;
+                }
+                int start = bounds[2 * part.group];
+                int stop = bounds[2 * part.group + 1];
+                if (part.rest && start == stop && out.length() > 0 && out.charAt(out.length() - 1) == '/') {
+                    // Nothing left to forward, avoid a dangling slash
+                    out.setLength(out.length() - 1);
+                } else {
+                    out.append(path, start, stop);
+                }
+            }
+        }
+
+        if (preserveQuery && queryStart >= 0 && queryStart < path.length() - 1) {
+            out.append(toHasQuery ? '&' : '?').append(path, queryStart + 1, path.length());
+        }
+        return true;
+    }
+
+    private boolean matchSegments(String path, int end, int[] bounds) {
+        int pos = 0;
+        int capture = 0;
+        for (int i = 0; i < segmentKinds.length; i++) {
+            if (segmentKinds[i] == SegmentKind.REST) {
+                // "/**" matches nothing at all, or a slash followed by anything
+                if (pos == end) {
+                    bounds[2 * capture] = pos;
+                    bounds[2 * capture + 1] = pos;
+                    return true;
+                }
+                if (path.charAt(pos) != '/') {
+                    return false;
+                }
+                bounds[2 * capture] = pos + 1;
+                bounds[2 * capture + 1] = end;
+                return true;
+            }
+            if (pos >= end || path.charAt(pos) != '/') {
+                return false;
+            }
+            int start = pos + 1;
+            int stop = path.indexOf('/', start);
+            if (stop < 0 || stop > end) {
+                stop = end;
+            }
+            switch (segmentKinds[i]) {
+                case LITERAL:
+                    String literal = segmentLiterals[i];
+                    if (stop - start != literal.length() || !path.regionMatches(start, literal, 0, literal.length())) {
+                        return false;
+                    }
+                    break;
+                case CAPTURE:
+                    if (stop == start) {
+                        return false;
+                    }
+                    bounds[2 * capture] = start;
+                    bounds[2 * capture + 1] = stop;
+                    capture++;
+                    break;
+                default:
+                    if (stop == start) {
+                        return false;
+                    }
+            }
+            pos = stop;
+        }
+        return pos == end;
+    }
+
+    /**
+     * Size of the scratch array {@link #apply} needs for capture bounds.
+     */
+    int getScratchSize() {
+        return 2 * captureCount;
+    }
+
+    public ProximaConfig.ConfigRewrite getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    /**
+     * One piece of a "to" template: literal text, or a reference to a capture or regex group.
+     */
+    private static final class Part {
+        final String literal;
+        final int group;
+        final String groupName;
+        final boolean rest;
+
+        private Part(String literal, int group, String groupName, boolean rest) {
+            this.literal = literal;
+            this.group = group;
+            this.groupName = groupName;
+            this.rest = rest;
+        }
+
+        static Part literal(String text) {
+            return new Part(text, -1, null, false);
+        }
+
+        static Part group(int group, String groupName) {
+            return new Part(null, group, groupName, false);
+        }
+
+        Part asRest() {
+            return new Part(null, group, groupName, true);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.freesidenomad.proxima.service.routing;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of {@link RouteResolution}s keyed by request path, host and method.
+ * <p>
+ * Reads are a single hash lookup. Entries are stamped with the route table version they were
+ * resolved against, so a configuration reload invalidates them implicitly: a stale entry is a
+ * miss and is overwritten or evicted first.
+ * <p>
+ * The capacity is fixed. Eviction uses the CLOCK algorithm over a ring of slots, and new keys are
+ * admitted over a victim only if a TinyLFU frequency sketch has seen them more often, so a burst
+ * of one-off paths (for example unique resource IDs) cannot flush the hot working set.
+ */
+public final class RouteLookupCache {
+
+    private final int capacity;
+    private final int maxPathLength;
+    private final ConcurrentHashMap<Key, Node> index;
+    private final FrequencySketch sketch;
+
+    // Guarded by this
+    private final Node[] ring;
+    private int size;
+    private int hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param capacity      maximum number of cached resolutions
+     * @param maxPathLength paths longer than this are never cached, bounding the memory per entry
+     */
+    public RouteLookupCache(int capacity, int maxPathLength) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Route lookup cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxPathLength = maxPathLength;
+        this.index = new ConcurrentHashMap<>(capacity * 2);
+        this.sketch = new FrequencySketch(capacity);
+        this.ring = new Node[capacity];
+    }
+
+    /**
+     * Cached resolution for the key at the given table version, or null on a miss.
+     */
+    public RouteResolution get(Key key, long version) {
+        sketch.increment(key.hash);
+        Node node = index.get(key);
+        if (node == null || node.value.getVersion() != version) {
+            misses.increment();
+            return null;
+        }
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        hits.increment();
+        return node.value;
+    }
+
+    /**
+     * Offer a freshly computed resolution. It may be rejected by the admission policy.
+     */
+    public void put(Key key, RouteResolution value) {
+        if (key.path.length() > maxPathLength) {
+            return;
+        }
+        synchronized (this) {
+            Node existing = index.get(key);
+            if (existing != null) {
+                Node replacement = new Node(key, value, existing.slot);
+                ring[existing.slot] = replacement;
+                index.put(key, replacement);
+                return;
+            }
+
+            if (size < capacity) {
+                Node node = new Node(key, value, size);
+                ring[size++] = node;
+                index.put(key, node);
+                return;
+            }
+
+            int slot = selectVictim(value.getVersion());
+            Node victim = ring[slot];
+            if (victim.value.getVersion() == value.getVersion()
+                    && sketch.frequency(key.hash) <= sketch.frequency(victim.key.hash)) {
+                rejections.increment();
+                return;
+            }
+            index.remove(victim.key, victim);
+            Node node = new Node(key, value, slot);
+            ring[slot] = node;
+            index.put(key, node);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Advance the clock hand to the first slot that is stale or not recently referenced.
+     */
+    private int selectVictim(long currentVersion) {
+        while (true) {
+            Node node = ring[hand];
+            int slot = hand;
+            hand = (hand + 1) % capacity;
+            if (node.value.getVersion() != currentVersion || !node.referenced) {
+                return slot;
+            }
+            node.referenced = false;
+        }
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        Arrays.fill(ring, null);
+        size = 0;
+        hand = 0;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Number of resolutions the admission policy declined to cache.
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * Fraction of lookups served from the cache, 0 before the first lookup.
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public static Key key(RouteRequest request) {
+        return new Key(request.getRoutePath(), request.getHost(), request.getMethod());
+    }
+
+    /**
+     * Cache key: the request path without its query string, the normalized host and the
+     * upper-case method. Requests that differ only in their query share an entry.
+     */
+    public static final class Key {
+        private final String path;
+        private final String host;
+        private final String method;
+        private final int hash;
+
+        Key(String path, String host, String method) {
+            this.path = path;
+            this.host = host;
+            this.method = method;
+            this.hash = 31 * (31 * path.hashCode() + Objects.hashCode(host)) + Objects.hashCode(method);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return hash == that.hash
+                    && path.equals(that.path)
+                    && Objects.equals(host, that.host)
+                    && Objects.equals(method, that.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Node {
+        final Key key;
+        final RouteResolution value;
+        final int slot;
+        volatile boolean referenced;
+
+        Node(Key key, RouteResolution value, int slot) {
+            this.key = key;
+            this.value = value;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Count-min sketch of saturating counters (capped at 15) estimating how often each key hash was looked up recently.
+     * All counters are halved after a sample period so old popularity fades. Updates are not
+     * synchronized; a lost increment under contention only makes an estimate slightly low.
+     */
+    static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[] counters;
+        private final int mask;
+        private final int samplePeriod;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            // At least 1024 counters per row keeps collisions rare for small caches
+            int width = Integer.highestOneBit(Math.max(1024, capacity * 2) - 1) << 1;
+            this.counters = new byte[DEPTH * width];
+            this.mask = width - 1;
+            this.samplePeriod = 10 * Math.max(16, capacity);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int i = row * (mask + 1) + index(hash, row);
+                if (counters[i] < MAX_COUNT) {
+                    counters[i]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= samplePeriod) {
+                reset();
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[row * (mask + 1) + index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = (byte) (counters[i] >>> 1);
+            }
+            additions = 0;
+        }
+    }
+}
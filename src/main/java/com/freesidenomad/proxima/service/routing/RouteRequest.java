@@ -0,0 +1,113 @@
+package com.freesidenomad.proxima.service.routing;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+
+/**
+ * The parts of an incoming request that take part in route selection.
+ * A request without host or method only matches routes that do not constrain them.
+ */
+public final class RouteRequest {
+
+    private static final UnaryOperator<String> NO_HEADERS = name -> null;
+
+    private final String path;
+    private final String routePath;
+    private final String host;
+    private final String method;
+    private final UnaryOperator<String> headers;
+
+    private RouteRequest(String path, String host, String method, UnaryOperator<String> headers) {
+        this.path = path;
+        int queryStart = path.indexOf('?');
+        this.routePath = queryStart >= 0 ? path.substring(0, queryStart) : path;
+        this.host = host;
+        this.method = method;
+        this.headers = headers;
+    }
+
+    /**
+     * A lookup by path only, matching routes without host, method or header conditions.
+     */
+    public static RouteRequest of(String path) {
+        return new RouteRequest(path, null, null, NO_HEADERS);
+    }
+
+    public static RouteRequest of(String path, String host, String method) {
+        return new RouteRequest(path, normalizeHost(host), normalizeMethod(method), NO_HEADERS);
+    }
+
+    /**
+     * Build a route request from a servlet request. {@code path} is passed separately because
+     * the proxy forwards the request URI including its query string.
+     */
+    public static RouteRequest from(HttpServletRequest request, String path) {
+        return new RouteRequest(path, normalizeHost(request.getServerName()),
+                                normalizeMethod(request.getMethod()), request::getHeader);
+    }
+
+    /**
+     * Lower-case a host and strip any port and trailing dot, so configured and requested hosts compare equal.
+     */
+    public static String normalizeHost(String host) {
+        if (host == null || host.isEmpty()) {
+            return null;
+        }
+        String normalized = host.toLowerCase(Locale.ENGLISH);
+        int portSeparator = normalized.lastIndexOf(':');
+        if (portSeparator > 0 && normalized.indexOf(']') < portSeparator) {
+            normalized = normalized.substring(0, portSeparator);
+        }
+        if (normalized.endsWith(".")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    private static String normalizeMethod(String method) {
+        return method != null ? method.toUpperCase(Locale.ENGLISH) : null;
+    }
+
+    /**
+     * The path as requested, including any query string.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * The path without its query string, which is what routes are matched on.
+     */
+    public String getRoutePath() {
+        return routePath;
+    }
+
+    public boolean hasQuery() {
+        return routePath.length() < path.length();
+    }
+
+    /**
+     * Normalized host, or null if unknown.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Upper-case HTTP method, or null if unknown.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    public String getHeader(String name) {
+        return headers.apply(name);
+    }
+
+    @Override
+    public String toString() {
+        return (method != null ? method + " " : "") + (host != null ? host : "") + path;
+    }
+}
@@ -0,0 +1,84 @@
+package com.freesidenomad.proxima.service.routing;
+
+/**
+ * Outcome of resolving a request against one {@link RouteTable} version: reserved, routed to a
+ * matching route, or forwarded to the default downstream. Resolution depends on the path without
+ * its query string, so one resolution serves every query of a path. The target URL of that path is
+ * built up front so a cached resolution can be reused without any string building when the
+ * request has no query.
+ */
+public final class RouteResolution {
+
+    /**
+     * Request attribute under which the proxy filter passes the resolution it matched on, so the
+     * request is not resolved a second time when it is forwarded.
+     */
+    public static final String REQUEST_ATTRIBUTE = RouteResolution.class.getName();
+
+    private final long version;
+    private final boolean reserved;
+    private final CompiledRoute route;
+    private final String targetUrl;
+
+    private RouteResolution(long version, boolean reserved, CompiledRoute route, String targetUrl) {
+        this.version = version;
+        this.reserved = reserved;
+        this.route = route;
+        this.targetUrl = targetUrl;
+    }
+
+    /**
+     * Resolve a request against a route table.
+     */
+    public static RouteResolution resolve(RouteTable table, RouteRequest request) {
+        String path = request.getRoutePath();
+        if (table.isReserved(path)) {
+            return new RouteResolution(table.getVersion(), true, null, null);
+        }
+        CompiledRoute route = table.match(request);
+        if (route != null) {
+            return new RouteResolution(table.getVersion(), false, route, route.buildTargetUrl(path));
+        }
+        return new RouteResolution(table.getVersion(), false, null, table.getDownstreamUrl() + path);
+    }
+
+    /**
+     * Version of the route table this resolution was computed from.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isReserved() {
+        return reserved;
+    }
+
+    /**
+     * Matching route, or null if the path is reserved or falls back to the default downstream.
+     */
+    public CompiledRoute getRoute() {
+        return route;
+    }
+
+    /**
+     * URL to forward the path to, without any query string, or null if the path is reserved.
+     */
+    public String getTargetUrl() {
+        return targetUrl;
+    }
+
+    /**
+     * URL to forward a request with this resolution to, including its query string,
+     * or null if the path is reserved.
+     */
+    public String getTargetUrl(RouteRequest request) {
+        if (reserved || !request.hasQuery()) {
+            return targetUrl;
+        }
+        if (route != null) {
+            // Rewrites decide whether and how the query is carried over
+            return route.buildTargetUrl(request.getPath());
+        }
+        return targetUrl + request.getPath().substring(request.getRoutePath().length());
+    }
+}
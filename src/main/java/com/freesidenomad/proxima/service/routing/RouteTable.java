@@ -0,0 +1,274 @@
+package com.freesidenomad.proxima.service.routing;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import com.freesidenomad.proxima.service.ConfigurationDiff;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, versioned snapshot of the compiled route configuration.
+ * <p>
+ * Dispatch is two-level: the request host selects a virtual host (exact host first, then
+ * "*.domain" wildcards from the longest suffix, then routes without a host condition), and
+ * each virtual host indexes its enabled routes by the literal prefix of their path pattern,
+ * so a lookup only evaluates the routes that can possibly match. Method and header
+ * conditions are checked on those candidates only, as bitsets: a route's methods are a mask
+ * over the HTTP methods, and its header conditions a mask over the table's
+ * {@link HeaderPredicates}, each of which a lookup evaluates at most once.
+ * <p>
+ * The table also carries the compiled {@link ReservedPaths}, so one snapshot answers both
+ * "is this path reserved" and "which route handles it".
+ * <p>
+ * Configuration changes are applied with {@link #patch}, which recompiles only the routes
+ * named in the diff and shares the rest. Compiled routes do not know their position in the route
+ * list: the table keeps positions apart, so moving routes only replaces that map.
+ */
+public final class RouteTable {
+
+    private static final String WILDCARD_HOST_PREFIX = "*.";
+
+    private final long version;
+    private final String downstreamUrl;
+    private final ReservedPaths reservedPaths;
+    private final Map<String, CompiledRoute> routes;
+    // Position of each route in the configured route list, by route key
+    private final Map<String, Integer> positions;
+    // Higher priority first, then earlier position in the configured route list
+    private final Comparator<CompiledRoute> precedence;
+    private final RouteTrie<CompiledRoute> anyHost;
+    private final Map<String, RouteTrie<CompiledRoute>> exactHosts;
+    // Keyed by the domain after "*."
+    private final Map<String, RouteTrie<CompiledRoute>> wildcardHosts;
+    private final HeaderPredicates headerPredicates;
+    private final int headerConditionedRoutes;
+
+    private RouteTable(long version, String downstreamUrl, ReservedPaths reservedPaths, Map<String, CompiledRoute> routes,
+                       Map<String, Integer> positions, RouteTrie<CompiledRoute> anyHost,
+                       Map<String, RouteTrie<CompiledRoute>> exactHosts, Map<String, RouteTrie<CompiledRoute>> wildcardHosts,
+                       HeaderPredicates headerPredicates, int headerConditionedRoutes) {
+        this.version = version;
+        this.downstreamUrl = downstreamUrl;
+        this.reservedPaths = reservedPaths;
+        this.routes = routes;
+        this.positions = positions;
+        this.precedence = Comparator.comparingInt(CompiledRoute::getPriority).reversed()
+                .thenComparingInt(route -> positions.getOrDefault(route.getKey(), Integer.MAX_VALUE));
+        this.anyHost = anyHost;
+        this.exactHosts = exactHosts;
+        this.wildcardHosts = wildcardHosts;
+        this.headerPredicates = headerPredicates;
+        this.headerConditionedRoutes = headerConditionedRoutes;
+    }
+
+    public static RouteTable compile(ProximaConfig config, long version) {
+        Builder builder = new Builder(new HashMap<>(), RouteTrie.empty(), new HashMap<>(), new HashMap<>(),
+                                      new HeaderPredicates(), 0);
+        Map<String, Integer> positions = new HashMap<>();
+        for (ConfigurationDiff.KeyedRoute keyed : ConfigurationDiff.keyRoutes(config.getRoutes()).values()) {
+            builder.add(keyed);
+            positions.put(keyed.key(), keyed.order());
+        }
+        return builder.build(version, downstreamUrl(config), ReservedPaths.compile(config.getReservedRoutes()), positions);
+    }
+
+    /**
+     * Apply a configuration diff, returning a new table. This table is left untouched.
+     */
+    public RouteTable patch(ConfigurationDiff diff, ProximaConfig current, long newVersion) {
+        ReservedPaths reserved = diff.isReservedRoutesChanged()
+                ? ReservedPaths.compile(current.getReservedRoutes()) : reservedPaths;
+        // Routes that only moved keep their compiled form and index entries
+        Map<String, Integer> order = diff.isRouteOrderChanged() ? diff.getRouteOrder() : positions;
+        if (diff.getUpsertedRoutes().isEmpty() && diff.getRemovedRoutes().isEmpty()) {
+            return new RouteTable(newVersion, downstreamUrl(current), reserved, routes, order, anyHost, exactHosts,
+                                  wildcardHosts, headerPredicates, headerConditionedRoutes);
+        }
+
+        Builder builder = new Builder(new HashMap<>(routes), anyHost, new HashMap<>(exactHosts), new HashMap<>(wildcardHosts),
+                                      headerPredicates.copy(), headerConditionedRoutes);
+        for (String key : diff.getRemovedRoutes()) {
+            builder.remove(key);
+        }
+        for (ConfigurationDiff.KeyedRoute keyed : diff.getUpsertedRoutes().values()) {
+            builder.remove(keyed.key());
+            builder.add(keyed);
+        }
+        return builder.build(newVersion, downstreamUrl(current), reserved, order);
+    }
+
+    /**
+     * Path-only lookup, considering only routes without host, method or header conditions.
+     */
+    public CompiledRoute match(String path) {
+        return match(RouteRequest.of(path));
+    }
+
+    /**
+     * Find the enabled route that should handle a request: within the most specific virtual host
+     * that has a match, the matching route with the highest priority, ties going to the route
+     * configured first.
+     *
+     * @return the matching route, or null if no route matches
+     */
+    public CompiledRoute match(RouteRequest request) {
+        HeaderPredicates.Evaluation headers = headerConditionedRoutes > 0 ? headerPredicates.evaluate(request) : null;
+        String host = request.getHost();
+        if (host != null) {
+            CompiledRoute route = select(exactHosts.get(host), request, headers);
+            if (route != null) {
+                return route;
+            }
+            if (!wildcardHosts.isEmpty()) {
+                for (int dot = host.indexOf('.'); dot >= 0; dot = host.indexOf('.', dot + 1)) {
+                    route = select(wildcardHosts.get(host.substring(dot + 1)), request, headers);
+                    if (route != null) {
+                        return route;
+                    }
+                }
+            }
+        }
+        return select(anyHost, request, headers);
+    }
+
+    /**
+     * Whether the path is reserved for Proxima and must not be proxied.
+     */
+    public boolean isReserved(String path) {
+        return reservedPaths.matches(path);
+    }
+
+    private CompiledRoute select(RouteTrie<CompiledRoute> trie, RouteRequest request, HeaderPredicates.Evaluation headers) {
+        if (trie == null) {
+            return null;
+        }
+        return trie.select(request.getRoutePath(), route -> route.matches(request, headers), precedence);
+    }
+
+    private static String downstreamUrl(ProximaConfig config) {
+        return config.getDownstream() != null ? config.getDownstream().getUrl() : null;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getDownstreamUrl() {
+        return downstreamUrl;
+    }
+
+    /**
+     * Whether any enabled route matches on request headers.
+     */
+    public boolean hasHeaderConditions() {
+        return headerConditionedRoutes > 0;
+    }
+
+    public ReservedPaths getReservedPaths() {
+        return reservedPaths;
+    }
+
+    public Collection<CompiledRoute> getRoutes() {
+        return Collections.unmodifiableCollection(routes.values());
+    }
+
+    /**
+     * Number of enabled routes that take part in matching.
+     */
+    public int getIndexedRouteCount() {
+        int count = anyHost.size();
+        for (RouteTrie<CompiledRoute> trie : exactHosts.values()) {
+            count += trie.size();
+        }
+        for (RouteTrie<CompiledRoute> trie : wildcardHosts.values()) {
+            count += trie.size();
+        }
+        return count;
+    }
+
+    /**
+     * Mutable working copy used while compiling or patching. The maps passed in are owned by the builder.
+     */
+    private static final class Builder {
+        private final Map<String, CompiledRoute> routes;
+        private RouteTrie<CompiledRoute> anyHost;
+        private final Map<String, RouteTrie<CompiledRoute>> exactHosts;
+        private final Map<String, RouteTrie<CompiledRoute>> wildcardHosts;
+        private final HeaderPredicates headerPredicates;
+        private int headerConditionedRoutes;
+
+        Builder(Map<String, CompiledRoute> routes, RouteTrie<CompiledRoute> anyHost,
+                Map<String, RouteTrie<CompiledRoute>> exactHosts, Map<String, RouteTrie<CompiledRoute>> wildcardHosts,
+                HeaderPredicates headerPredicates, int headerConditionedRoutes) {
+            this.routes = routes;
+            this.anyHost = anyHost;
+            this.exactHosts = exactHosts;
+            this.wildcardHosts = wildcardHosts;
+            this.headerPredicates = headerPredicates;
+            this.headerConditionedRoutes = headerConditionedRoutes;
+        }
+
+        void add(ConfigurationDiff.KeyedRoute keyed) {
+            CompiledRoute route = new CompiledRoute(keyed.key(), keyed.route(), headerPredicates);
+            routes.put(route.getKey(), route);
+            if (!route.getRoute().isEnabled() || route.getPattern() == null) {
+                return;
+            }
+            if (route.hasHeaderConditions()) {
+                headerConditionedRoutes++;
+            }
+            String prefix = route.getPattern().getLiteralPrefix();
+            String host = route.getHost();
+            if (host == null) {
+                anyHost = anyHost.with(prefix, route);
+            } else if (host.startsWith(WILDCARD_HOST_PREFIX)) {
+                wildcardHosts.merge(host.substring(WILDCARD_HOST_PREFIX.length()), RouteTrie.<CompiledRoute>empty().with(prefix, route),
+                        (existing, added) -> existing.with(prefix, route));
+            } else {
+                exactHosts.merge(host, RouteTrie.<CompiledRoute>empty().with(prefix, route),
+                        (existing, added) -> existing.with(prefix, route));
+            }
+        }
+
+        void remove(String key) {
+            CompiledRoute route = routes.remove(key);
+            if (route == null || !route.getRoute().isEnabled() || route.getPattern() == null) {
+                return;
+            }
+            if (route.hasHeaderConditions()) {
+                headerConditionedRoutes--;
+            }
+            String prefix = route.getPattern().getLiteralPrefix();
+            String host = route.getHost();
+            if (host == null) {
+                anyHost = anyHost.without(prefix, route);
+            } else if (host.startsWith(WILDCARD_HOST_PREFIX)) {
+                removeFromHost(wildcardHosts, host.substring(WILDCARD_HOST_PREFIX.length()), prefix, route);
+            } else {
+                removeFromHost(exactHosts, host, prefix, route);
+            }
+        }
+
+        private static void removeFromHost(Map<String, RouteTrie<CompiledRoute>> hosts, String host,
+                                           String prefix, CompiledRoute route) {
+            RouteTrie<CompiledRoute> trie = hosts.get(host);
+            if (trie == null) {
+                return;
+            }
+            RouteTrie<CompiledRoute> updated = trie.without(prefix, route);
+            if (updated.isEmpty()) {
+                hosts.remove(host);
+            } else {
+                hosts.put(host, updated);
+            }
+        }
+
+        RouteTable build(long version, String downstreamUrl, ReservedPaths reservedPaths, Map<String, Integer> positions) {
+            return new RouteTable(version, downstreamUrl, reservedPaths, routes, positions, anyHost, exactHosts, wildcardHosts,
+                                  headerPredicates, headerConditionedRoutes);
+        }
+    }
+}
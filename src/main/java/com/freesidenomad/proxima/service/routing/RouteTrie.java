@@ -0,0 +1,219 @@
+package com.freesidenomad.proxima.service.routing;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Immutable character trie mapping literal path prefixes to values.
+ * Updates copy only the nodes along the affected prefix and share everything else,
+ * so a published trie can be read without locking while a patched copy is built.
+ * Looking up all values whose prefix starts a path is O(path length).
+ *
+ * @param <T> value type, compared with {@code equals} on removal
+ */
+public final class RouteTrie<T> {
+
+    private static final RouteTrie<Object> EMPTY = new RouteTrie<>(Node.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private RouteTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> RouteTrie<T> empty() {
+        return (RouteTrie<T>) EMPTY;
+    }
+
+    /**
+     * Return a trie that additionally maps {@code prefix} to {@code value}.
+     */
+    public RouteTrie<T> with(String prefix, T value) {
+        return new RouteTrie<>(insert(root, prefix, 0, value), size + 1);
+    }
+
+    /**
+     * Return a trie without the given mapping, or this trie if the mapping is absent.
+     */
+    public RouteTrie<T> without(String prefix, T value) {
+        Node updated = remove(root, prefix, 0, value);
+        if (updated == root) {
+            return this;
+        }
+        return new RouteTrie<>(updated != null ? updated : Node.EMPTY, size - 1);
+    }
+
+    /**
+     * Visit every value whose prefix is a prefix of {@code path}, shortest prefix first.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachPrefixOf(CharSequence path, Consumer<? super T> action) {
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            for (Object value : node.values) {
+                action.accept((T) value);
+            }
+            if (depth == path.length()) {
+                return;
+            }
+            node = node.child(path.charAt(depth++));
+        }
+    }
+
+    /**
+     * Return the first value, according to {@code order}, among the values whose prefix is a prefix
+     * of {@code path} and which satisfy {@code filter}; null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public T select(CharSequence path, Predicate<? super T> filter, Comparator<? super T> order) {
+        T best = null;
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            for (Object value : node.values) {
+                T candidate = (T) value;
+                if ((best == null || order.compare(candidate, best) < 0) && filter.test(candidate)) {
+                    best = candidate;
+                }
+            }
+            if (depth == path.length()) {
+                break;
+            }
+            node = node.child(path.charAt(depth++));
+        }
+        return best;
+    }
+
+    /**
+     * Whether any value whose prefix is a prefix of {@code path} satisfies {@code filter}.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean anyMatch(CharSequence path, Predicate<? super T> filter) {
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            for (Object value : node.values) {
+                if (filter.test((T) value)) {
+                    return true;
+                }
+            }
+            if (depth == path.length()) {
+                return false;
+            }
+            node = node.child(path.charAt(depth++));
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static Node insert(Node node, String key, int depth, Object value) {
+        if (depth == key.length()) {
+            Object[] values = Arrays.copyOf(node.values, node.values.length + 1);
+            values[values.length - 1] = value;
+            return new Node(node.labels, node.children, values);
+        }
+        char label = key.charAt(depth);
+        int index = node.indexOf(label);
+        Node child = index >= 0 ? node.children[index] : Node.EMPTY;
+        return node.withChild(label, index, insert(child, key, depth + 1, value));
+    }
+
+    /**
+     * @return the updated node, the same node if nothing was removed, or null if the node became empty
+     */
+    private static Node remove(Node node, String key, int depth, Object value) {
+        if (depth == key.length()) {
+            for (int i = 0; i < node.values.length; i++) {
+                if (node.values[i].equals(value)) {
+                    Object[] values = new Object[node.values.length - 1];
+                    System.arraycopy(node.values, 0, values, 0, i);
+                    System.arraycopy(node.values, i + 1, values, i, values.length - i);
+                    Node updated = new Node(node.labels, node.children, values);
+                    return updated.isEmpty() ? null : updated;
+                }
+            }
+            return node;
+        }
+        char label = key.charAt(depth);
+        int index = node.indexOf(label);
+        if (index < 0) {
+            return node;
+        }
+        Node child = node.children[index];
+        Node updatedChild = remove(child, key, depth + 1, value);
+        if (updatedChild == child) {
+            return node;
+        }
+        Node updated = updatedChild != null ? node.withChild(label, index, updatedChild) : node.withoutChild(index);
+        return updated.isEmpty() ? null : updated;
+    }
+
+    private static final class Node {
+
+        static final Node EMPTY = new Node(new char[0], new Node[0], new Object[0]);
+
+        final char[] labels;
+        final Node[] children;
+        final Object[] values;
+
+        Node(char[] labels, Node[] children, Object[] values) {
+            this.labels = labels;
+            this.children = children;
+            this.values = values;
+        }
+
+        int indexOf(char label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Node child(char label) {
+            int index = indexOf(label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node withChild(char label, int index, Node child) {
+            if (index >= 0) {
+                Node[] updatedChildren = children.clone();
+                updatedChildren[index] = child;
+                return new Node(labels, updatedChildren, values);
+            }
+            char[] updatedLabels = Arrays.copyOf(labels, labels.length + 1);
+            Node[] updatedChildren = Arrays.copyOf(children, children.length + 1);
+            updatedLabels[labels.length] = label;
+            updatedChildren[children.length] = child;
+            return new Node(updatedLabels, updatedChildren, values);
+        }
+
+        Node withoutChild(int index) {
+            char[] updatedLabels = new char[labels.length - 1];
+            Node[] updatedChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, updatedLabels, 0, index);
+            System.arraycopy(labels, index + 1, updatedLabels, index, updatedLabels.length - index);
+            System.arraycopy(children, 0, updatedChildren, 0, index);
+            System.arraycopy(children, index + 1, updatedChildren, index, updatedChildren.length - index);
+            return new Node(updatedLabels, updatedChildren, values);
+        }
+
+        boolean isEmpty() {
+            return labels.length == 0 && values.length == 0;
+        }
+    }
+}
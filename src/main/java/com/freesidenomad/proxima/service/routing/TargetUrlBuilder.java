@@ -0,0 +1,155 @@
+package com.freesidenomad.proxima.service.routing;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled form of how a route turns a request path into its target URL: the route's rewrite
+ * rules in order, falling back to stripping the path pattern prefix like
+ * {@link ProximaConfig.ConfigRoute#buildTargetUrl}. URLs are assembled in a per-thread buffer.
+ */
+public final class TargetUrlBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TargetUrlBuilder.class);
+
+    // Buffers that grew past this are not kept for reuse
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final String targetUrl;
+    private final boolean targetEndsWithSlash;
+    // Length of the path prefix replaced by the target URL, -1 to always forward to the target URL as is
+    private final int stripLength;
+    private final RewriteRule[] rewrites;
+    private final int scratchSize;
+
+    private TargetUrlBuilder(String targetUrl, int stripLength, RewriteRule[] rewrites) {
+        this.targetUrl = targetUrl;
+        this.targetEndsWithSlash = targetUrl != null && targetUrl.endsWith("/");
+        this.stripLength = stripLength;
+        this.rewrites = rewrites;
+        int size = 0;
+        for (RewriteRule rewrite : rewrites) {
+            size = Math.max(size, rewrite.getScratchSize());
+        }
+        this.scratchSize = size;
+    }
+
+    /**
+     * Compile the target URL logic of a route. Invalid rewrite rules are logged and skipped.
+     */
+    public static TargetUrlBuilder compile(ProximaConfig.ConfigRoute route, String routeKey) {
+        List<RewriteRule> rewrites = new ArrayList<>();
+        for (ProximaConfig.ConfigRewrite rewrite : route.getRewrites()) {
+            try {
+                rewrites.add(RewriteRule.compile(rewrite));
+            } catch (IllegalArgumentException e) {
+                logger.error("Ignoring invalid rewrite rule on route {}: {}", routeKey, e.getMessage());
+            }
+        }
+        return new TargetUrlBuilder(route.getTargetUrl(), stripLength(route.getPathPattern()),
+                                    rewrites.toArray(new RewriteRule[0]));
+    }
+
+    private static int stripLength(String pathPattern) {
+        if (pathPattern == null) {
+            return -1;
+        }
+        if (pathPattern.endsWith("/**")) {
+            return pathPattern.length() - 3;
+        }
+        if (pathPattern.endsWith("/*")) {
+            return pathPattern.length() - 2;
+        }
+        if (pathPattern.contains("*")) {
+            return 0;
+        }
+        return pathPattern.length();
+    }
+
+    /**
+     * Build the target URL for a path matched by the route. {@code path} may include the query string.
+     */
+    public String build(String path) {
+        if (rewrites.length == 0 && stripLength < 0) {
+            return targetUrl;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        StringBuilder url = scratch.buffer(scratchSize);
+        url.append(targetUrl);
+        int base = url.length();
+
+        boolean rewritten = false;
+        for (RewriteRule rewrite : rewrites) {
+            if (rewrite.apply(path, url, scratch.bounds)) {
+                rewritten = true;
+                break;
+            }
+        }
+        if (!rewritten && stripLength >= 0) {
+            int from = Math.min(stripLength, path.length());
+            if (targetEndsWithSlash && from < path.length() && path.charAt(from) == '/') {
+                from++;
+            }
+            url.append(path, from, path.length());
+        } else if (targetEndsWithSlash && url.length() > base && url.charAt(base) == '/') {
+            url.deleteCharAt(base);
+        }
+
+        String result = url.toString();
+        scratch.release();
+        return result;
+    }
+
+    /**
+     * The first rewrite rule that applies to {@code path}, or null if the path is forwarded by prefix stripping.
+     */
+    public RewriteRule findRewrite(String path) {
+        if (rewrites.length == 0) {
+            return null;
+        }
+        Scratch scratch = SCRATCH.get();
+        StringBuilder discard = scratch.buffer(scratchSize);
+        try {
+            for (RewriteRule rewrite : rewrites) {
+                if (rewrite.apply(path, discard, scratch.bounds)) {
+                    return rewrite;
+                }
+            }
+            return null;
+        } finally {
+            scratch.release();
+        }
+    }
+
+    public int getRewriteCount() {
+        return rewrites.length;
+    }
+
+    private static final class Scratch {
+        StringBuilder url = new StringBuilder(256);
+        int[] bounds = new int[8];
+
+        StringBuilder buffer(int boundsSize) {
+            if (bounds.length < boundsSize) {
+                bounds = new int[boundsSize];
+            }
+            url.setLength(0);
+            return url;
+        }
+
+        void release() {
+            if (url.capacity() > MAX_RETAINED_CAPACITY) {
+                url = new StringBuilder(256);
+            } else {
+                url.setLength(0);
+            }
+        }
+    }
+}
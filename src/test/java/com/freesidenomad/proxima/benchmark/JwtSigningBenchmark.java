@@ -0,0 +1,62 @@
+package com.freesidenomad.proxima.benchmark;
+
+import com.freesidenomad.proxima.service.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token signing throughput per algorithm on a single thread.
+ * Not part of the unit test run; see the README for how to run it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    @Param({"HS256", "RS256", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private JwtService jwtService;
+    private Map<String, Object> claims;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        claims = Map.of(
+                "iss", "http://localhost:8080",
+                "aud", List.of("proxima"),
+                "email", "admin@example.com",
+                "groups", List.of("admins", "users"));
+        // Create the lazily generated default key outside the measurement
+        jwtService.generateToken("warmup", claims, Duration.ofHours(1), algorithm);
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtService.generateToken("admin@example.com", claims, Duration.ofHours(1), algorithm);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtSigningBenchmark.class.getSimpleName()).build()).run();
+    }
+}
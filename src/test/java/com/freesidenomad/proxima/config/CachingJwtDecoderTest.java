@@ -0,0 +1,73 @@
+package com.freesidenomad.proxima.config;
+
+import com.freesidenomad.proxima.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingJwtDecoderTest {
+
+    private JwtService jwtService;
+    private JwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        SecurityConfig securityConfig = new SecurityConfig();
+        ReflectionTestUtils.setField(securityConfig, "jwtService", jwtService);
+        ReflectionTestUtils.setField(securityConfig, "jwtProperties", new JwtProperties());
+        decoder = securityConfig.jwtDecoder();
+    }
+
+    @Test
+    void validatesTokensAgainstInProcessKeys() {
+        String rs256 = jwtService.generateToken("alice", Map.of("role", "admin"), Duration.ofMinutes(5), "RS256");
+        // The default EC key is created after the decoder, and must still be picked up
+        String es256 = jwtService.generateToken("bob", Map.of(), Duration.ofMinutes(5), "ES256");
+
+        Jwt rsaJwt = decoder.decode(rs256);
+        assertEquals("alice", rsaJwt.getSubject());
+        assertEquals("admin", rsaJwt.getClaimAsString("role"));
+        assertEquals("bob", decoder.decode(es256).getSubject());
+    }
+
+    @Test
+    void servesRepeatedValidationsFromCache() {
+        String token = jwtService.generateToken("alice", Map.of(), Duration.ofMinutes(5), "RS256");
+
+        Jwt first = decoder.decode(token);
+        Jwt second = decoder.decode(token);
+
+        assertSame(first, second);
+        assertEquals(1, ((CachingJwtDecoder) decoder).getCache().getHitCount());
+    }
+
+    @Test
+    void rejectsTokensOnceTheirKeyIsDeleted() {
+        jwtService.generateRsaKeyPair("rotating");
+        String token = jwtService.generateToken("alice", Map.of(), Duration.ofMinutes(5), "RS256", "rotating");
+        decoder.decode(token);
+
+        jwtService.deleteKey("rotating");
+
+        assertThrows(JwtException.class, () -> decoder.decode(token));
+    }
+
+    @Test
+    void rejectsTamperedAndSymmetricTokens() {
+        String token = jwtService.generateToken("alice", Map.of(), Duration.ofMinutes(5), "RS256");
+        String tampered = token.substring(0, token.length() - 4) + "AAAA";
+        String hs256 = jwtService.generateToken("alice", Map.of(), Duration.ofMinutes(5), "HS256");
+
+        assertThrows(JwtException.class, () -> decoder.decode(tampered));
+        assertThrows(JwtException.class, () -> decoder.decode(hs256));
+    }
+}
@@ -12,7 +12,10 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -228,4 +231,115 @@ class JwtControllerIntegrationTest {
         assertEquals("default", body.get("keyId"));
         assertEquals(3600, body.get("expiresIn")); // Default 1 hour
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldStreamBatchTokensInRequestOrder() throws Exception {
+        Map<String, Object> template = new HashMap<>();
+        template.put("algorithm", "RS256");
+        template.put("claims", Map.of("role", "user", "tenant", "acme"));
+
+        List<Map<String, Object>> tokens = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tokens.add(Map.of("subject", "user" + i + "@example.com"));
+        }
+        tokens.set(7, Map.of("subject", "user7@example.com", "claims", Map.of("role", "admin")));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(Map.of("template", template, "tokens", tokens), headers);
+
+        ResponseEntity<String> response = restTemplate.postForEntity(
+            createURLWithPort("/proxima/api/jwt/tokens/batch"),
+            entity,
+            String.class
+        );
+
+        assertEquals(200, response.getStatusCode().value());
+        assertTrue(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_NDJSON));
+        String[] lines = response.getBody().split("\n");
+        assertEquals(50, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            Map<String, Object> line = objectMapper.readValue(lines[i], Map.class);
+            assertEquals(i, line.get("index"));
+            assertEquals("user" + i + "@example.com", line.get("subject"));
+
+            String payload = ((String) line.get("token")).split("\\.")[1];
+            Map<String, Object> claims = objectMapper.readValue(Base64.getUrlDecoder().decode(payload), Map.class);
+            assertEquals("user" + i + "@example.com", claims.get("sub"));
+            assertEquals("acme", claims.get("tenant"));
+            assertEquals(i == 7 ? "admin" : "user", claims.get("role"));
+        }
+    }
+
+    @Test
+    void shouldReportBatchErrors() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<Map> empty = restTemplate.postForEntity(
+            createURLWithPort("/proxima/api/jwt/tokens/batch"),
+            new HttpEntity<>(Map.of("tokens", List.of()), headers),
+            Map.class
+        );
+        assertEquals(400, empty.getStatusCode().value());
+
+        // A token that cannot be signed is reported on its line instead of failing the batch
+        ResponseEntity<String> response = restTemplate.postForEntity(
+            createURLWithPort("/proxima/api/jwt/tokens/batch"),
+            new HttpEntity<>(Map.of(
+                "template", Map.of("algorithm", "RS256", "keyId", "missing-key"),
+                "tokens", List.of(Map.of("subject", "a@example.com"), Map.of("subject", "b@example.com"))), headers),
+            String.class
+        );
+        assertEquals(200, response.getStatusCode().value());
+        String[] lines = response.getBody().split("\n");
+        assertEquals(2, lines.length);
+        Map<String, Object> first = objectMapper.readValue(lines[0], Map.class);
+        assertFalse(first.containsKey("token"));
+        assertTrue(((String) first.get("error")).contains("missing-key"));
+    }
+
+    @Test
+    void shouldVerifyTokens() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<Map> issued = restTemplate.postForEntity(
+            createURLWithPort("/proxima/api/jwt/tokens"),
+            new HttpEntity<>(Map.of("subject", "verify@example.com", "algorithm", "ES256",
+                "claims", Map.of("role", "auditor")), headers),
+            Map.class
+        );
+        String token = (String) issued.getBody().get("token");
+
+        for (int i = 0; i < 2; i++) {
+            ResponseEntity<Map> verified = restTemplate.postForEntity(
+                createURLWithPort("/proxima/api/jwt/verify"),
+                new HttpEntity<>(Map.of("token", token), headers),
+                Map.class
+            );
+            assertEquals(200, verified.getStatusCode().value());
+            assertEquals(true, verified.getBody().get("valid"));
+            assertEquals("ES256", verified.getBody().get("algorithm"));
+            assertEquals("default", verified.getBody().get("keyId"));
+            Map<String, Object> claims = (Map<String, Object>) verified.getBody().get("claims");
+            assertEquals("verify@example.com", claims.get("sub"));
+            assertEquals("auditor", claims.get("role"));
+        }
+
+        ResponseEntity<Map> tampered = restTemplate.postForEntity(
+            createURLWithPort("/proxima/api/jwt/verify"),
+            new HttpEntity<>(Map.of("token", token.substring(0, token.length() - 4) + "AAAA"), headers),
+            Map.class
+        );
+        assertEquals(200, tampered.getStatusCode().value());
+        assertEquals(false, tampered.getBody().get("valid"));
+        assertNotNull(tampered.getBody().get("error"));
+
+        ResponseEntity<Map> missing = restTemplate.postForEntity(
+            createURLWithPort("/proxima/api/jwt/verify"),
+            new HttpEntity<>(Map.of(), headers),
+            Map.class
+        );
+        assertEquals(400, missing.getStatusCode().value());
+    }
+}
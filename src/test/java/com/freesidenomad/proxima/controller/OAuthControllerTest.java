@@ -2,11 +2,16 @@ package com.freesidenomad.proxima.controller;
 
 import com.freesidenomad.proxima.model.HeaderPreset;
 import com.freesidenomad.proxima.model.oidc.AuthorizationCode;
+import com.freesidenomad.proxima.model.oidc.OidcClient;
 import com.freesidenomad.proxima.model.oidc.OidcPresetConfig;
 import com.freesidenomad.proxima.model.oidc.OidcTokens;
+import com.freesidenomad.proxima.model.oidc.RefreshTokenGrant;
 import com.freesidenomad.proxima.service.AuthorizationCodeService;
 import com.freesidenomad.proxima.service.ConfigurationService;
+import com.freesidenomad.proxima.service.JwtService;
+import com.freesidenomad.proxima.service.OidcClientService;
 import com.freesidenomad.proxima.service.OidcTokenService;
+import com.freesidenomad.proxima.service.RefreshTokenService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,6 +53,15 @@ class OAuthControllerTest {
     @Autowired
     private OAuthController oAuthController;
 
+    @Autowired
+    private OidcClientService oidcClientService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private JwtService jwtService;
+
     private HeaderPreset oidcPreset;
     private OidcPresetConfig oidcConfig;
 
@@ -69,8 +83,7 @@ class OAuthControllerTest {
     @Test
     void shouldRedirectToCallbackWithAuthorizationCode() throws Exception {
         // Arrange
-        List<HeaderPreset> presets = Arrays.asList(oidcPreset);
-        when(configurationService.getAllPresets()).thenReturn(presets);
+        when(configurationService.getOidcPresetByClientId("test-client")).thenReturn(oidcPreset);
 
         AuthorizationCode authCode = AuthorizationCode.create(
             "test-client", "http://localhost:8080/callback", "openid profile", "state123", "nonce456", "test@example.com");
@@ -102,7 +115,7 @@ class OAuthControllerTest {
 
     @Test
     void shouldReturnErrorForUnsupportedResponseType() throws Exception {
-        when(configurationService.getAllPresets()).thenReturn(Arrays.asList(oidcPreset));
+        when(configurationService.getOidcPresetByClientId("test-client")).thenReturn(oidcPreset);
 
         mockMvc.perform(get("/oauth2/authorize")
                 .param("response_type", "token")
@@ -118,7 +131,7 @@ class OAuthControllerTest {
 
     @Test
     void shouldReturnErrorForInvalidClient() throws Exception {
-        when(configurationService.getAllPresets()).thenReturn(Arrays.asList());
+        when(configurationService.getOidcPresetByClientId(anyString())).thenReturn(null);
 
         mockMvc.perform(get("/oauth2/authorize")
                 .param("response_type", "code")
@@ -134,8 +147,7 @@ class OAuthControllerTest {
 
     @Test
     void shouldReturnErrorForRedirectUriMismatch() throws Exception {
-        List<HeaderPreset> presets = Arrays.asList(oidcPreset);
-        when(configurationService.getAllPresets()).thenReturn(presets);
+        when(configurationService.getOidcPresetByClientId("test-client")).thenReturn(oidcPreset);
 
         mockMvc.perform(get("/oauth2/authorize")
                 .param("response_type", "code")
@@ -170,8 +182,7 @@ class OAuthControllerTest {
         when(authorizationCodeService.validateAndConsumeCode(authCode, clientId, redirectUri))
             .thenReturn(validCode);
 
-        List<HeaderPreset> presets = Arrays.asList(oidcPreset);
-        when(configurationService.getAllPresets()).thenReturn(presets);
+        when(configurationService.getOidcPresetByClientId("test-client")).thenReturn(oidcPreset);
 
         OidcTokens tokens = OidcTokens.builder()
             .accessToken("access-token-123")
@@ -183,30 +194,59 @@ class OAuthControllerTest {
         when(oidcTokenService.generateTokensForPreset(oidcPreset)).thenReturn(tokens);
 
         // Act
-        ResponseEntity<Map<String, Object>> response = oAuthController.token(
-            "authorization_code", authCode, clientId, redirectUri);
+        ResponseEntity<?> response = oAuthController.token(
+            "authorization_code", authCode, clientId, redirectUri, null, null, null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        Map<String, Object> body = response.getBody();
+        Map<String, Object> body = body(response);
         assertNotNull(body);
         assertEquals("access-token-123", body.get("access_token"));
         assertEquals("id-token-456", body.get("id_token"));
         assertEquals("Bearer", body.get("token_type"));
         assertEquals(3600L, body.get("expires_in"));
         assertEquals("openid profile", body.get("scope"));
+        assertNotNull(body.get("refresh_token"));
 
         verify(authorizationCodeService).validateAndConsumeCode(authCode, clientId, redirectUri);
         verify(oidcTokenService).generateTokensForPreset(oidcPreset);
     }
 
+    @Test
+    void shouldAcceptBasicClientAuthenticationForTheAuthorizationCodeGrant() {
+        String redirectUri = "http://localhost:8080/callback";
+        AuthorizationCode validCode = AuthorizationCode.builder()
+            .code("basic-code")
+            .clientId("test-client")
+            .redirectUri(redirectUri)
+            .scope("openid")
+            .subject("test@example.com")
+            .createdAt(Instant.now())
+            .expiresAt(Instant.now().plusSeconds(600))
+            .used(false)
+            .build();
+        when(authorizationCodeService.validateAndConsumeCode("basic-code", "test-client", redirectUri))
+            .thenReturn(validCode);
+        when(configurationService.getOidcPresetByClientId("test-client")).thenReturn(oidcPreset);
+        when(oidcTokenService.generateTokensForPreset(oidcPreset)).thenReturn(OidcTokens.builder()
+            .accessToken("access-token").idToken("id-token").tokenType("Bearer").expiresIn(3600L).build());
+
+        // client_secret_basic: the client id is only in the Authorization header
+        String basic = java.util.Base64.getEncoder().encodeToString("test-client:".getBytes());
+        ResponseEntity<?> response = oAuthController.token(
+            "authorization_code", "basic-code", null, redirectUri, null, null, null, "Basic " + basic);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("access-token", body(response).get("access_token"));
+    }
+
     @Test
     void shouldReturnErrorForUnsupportedGrantType() {
-        ResponseEntity<Map<String, Object>> response = oAuthController.token(
-            "client_credentials", "code", "client", "redirect");
+        ResponseEntity<?> response = oAuthController.token(
+            "password", "code", "client", "redirect", null, null, null, null);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
-        Map<String, Object> body = response.getBody();
+        Map<String, Object> body = body(response);
         assertNotNull(body);
         assertEquals("unsupported_grant_type", body.get("error"));
     }
@@ -216,11 +256,11 @@ class OAuthControllerTest {
         when(authorizationCodeService.validateAndConsumeCode(anyString(), anyString(), anyString()))
             .thenThrow(new IllegalArgumentException("Invalid authorization code"));
 
-        ResponseEntity<Map<String, Object>> response = oAuthController.token(
-            "authorization_code", "invalid-code", "client", "redirect");
+        ResponseEntity<?> response = oAuthController.token(
+            "authorization_code", "invalid-code", "client", "redirect", null, null, null, null);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
-        Map<String, Object> body = response.getBody();
+        Map<String, Object> body = body(response);
         assertNotNull(body);
         assertEquals("invalid_grant", body.get("error"));
         assertEquals("Invalid authorization code", body.get("error_description"));
@@ -245,14 +285,178 @@ class OAuthControllerTest {
 
         when(authorizationCodeService.validateAndConsumeCode(authCode, clientId, redirectUri))
             .thenReturn(validCode);
-        when(configurationService.getAllPresets()).thenReturn(Arrays.asList());
+        when(configurationService.getOidcPresetByClientId(anyString())).thenReturn(null);
 
-        ResponseEntity<Map<String, Object>> response = oAuthController.token(
-            "authorization_code", authCode, clientId, redirectUri);
+        ResponseEntity<?> response = oAuthController.token(
+            "authorization_code", authCode, clientId, redirectUri, null, null, null, null);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
-        Map<String, Object> body = response.getBody();
+        Map<String, Object> body = body(response);
         assertNotNull(body);
         assertEquals("invalid_client", body.get("error"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRotateRefreshTokenAndServeCachedPresetTokens() {
+        RefreshTokenGrant grant = refreshTokenService.issueRefreshToken(
+            "test-client", "test@example.com", "openid profile", "test-preset");
+        OidcTokens tokens = OidcTokens.builder()
+            .accessToken("cached-access-token")
+            .idToken("cached-id-token")
+            .tokenType("Bearer")
+            .expiresIn(3600L)
+            .expiresAt(Instant.now().plusSeconds(1800))
+            .build();
+        when(oidcTokenService.getValidTokensForPreset("test-preset")).thenReturn(tokens);
+
+        ResponseEntity<?> response = oAuthController.token(
+            "refresh_token", null, "test-client", null, null, null, grant.getRefreshToken(), null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Map<String, Object> body = body(response);
+        assertEquals("cached-access-token", body.get("access_token"));
+        assertEquals("openid profile", body.get("scope"));
+        assertTrue((Long) body.get("expires_in") <= 1800);
+        assertNotEquals(grant.getRefreshToken(), body.get("refresh_token"));
+        verify(oidcTokenService, never()).generateTokensForPreset(any());
+
+        // The consumed refresh token cannot be used again
+        ResponseEntity<?> replay = oAuthController.token(
+            "refresh_token", null, "test-client", null, null, null, grant.getRefreshToken(), null);
+        assertEquals(HttpStatus.BAD_REQUEST, replay.getStatusCode());
+        assertEquals("invalid_grant", body(replay).get("error"));
+    }
+
+    @Test
+    void shouldAuthenticateRegisteredClientsOnRefresh() {
+        registerMachineClient("confidential-app", "app-secret");
+        RefreshTokenGrant grant = refreshTokenService.issueRefreshToken(
+            "confidential-app", "test@example.com", "openid", "test-preset");
+        when(oidcTokenService.getValidTokensForPreset("test-preset")).thenReturn(OidcTokens.builder()
+            .accessToken("cached-access-token").tokenType("Bearer").expiresIn(3600L).build());
+
+        ResponseEntity<?> missing = oAuthController.token(
+            "refresh_token", null, "confidential-app", null, null, null, grant.getRefreshToken(), null);
+        assertEquals(HttpStatus.UNAUTHORIZED, missing.getStatusCode());
+        assertEquals("invalid_client", body(missing).get("error"));
+
+        ResponseEntity<?> wrong = oAuthController.token(
+            "refresh_token", null, "confidential-app", null, "guess", null, grant.getRefreshToken(), null);
+        assertEquals(HttpStatus.UNAUTHORIZED, wrong.getStatusCode());
+        assertEquals("invalid_client", body(wrong).get("error"));
+
+        // The rejected attempts did not consume the refresh token
+        String basic = java.util.Base64.getEncoder().encodeToString("confidential-app:app-secret".getBytes());
+        ResponseEntity<?> authenticated = oAuthController.token(
+            "refresh_token", null, null, null, null, null, grant.getRefreshToken(), "Basic " + basic);
+        assertEquals(HttpStatus.OK, authenticated.getStatusCode());
+        assertEquals("cached-access-token", body(authenticated).get("access_token"));
+    }
+
+    @Test
+    void shouldIssueAndReuseClientCredentialsToken() throws Exception {
+        registerMachineClient("load-generator", "s3cret");
+
+        String first = mockMvc.perform(post("/oauth2/token")
+                .param("grant_type", "client_credentials")
+                .param("client_id", "load-generator")
+                .param("client_secret", "s3cret")
+                .param("scope", "read write read"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Cache-Control", "no-store"))
+            .andExpect(jsonPath("$.token_type").value("Bearer"))
+            .andExpect(jsonPath("$.scope").value("read write"))
+            .andExpect(jsonPath("$.expires_in").value(org.hamcrest.Matchers.lessThanOrEqualTo(600)))
+            .andReturn().getResponse().getContentAsString();
+
+        // Same client and scope with HTTP Basic authentication reuses the token
+        String basic = java.util.Base64.getEncoder().encodeToString("load-generator:s3cret".getBytes());
+        String second = mockMvc.perform(post("/oauth2/token")
+                .header("Authorization", "Basic " + basic)
+                .param("grant_type", "client_credentials")
+                .param("scope", "write read"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        assertEquals(accessToken(first), accessToken(second));
+        verifyNoInteractions(oidcTokenService);
+    }
+
+    @Test
+    void shouldRejectInvalidClientCredentials() throws Exception {
+        registerMachineClient("batch-job", "right");
+
+        mockMvc.perform(post("/oauth2/token")
+                .param("grant_type", "client_credentials")
+                .param("client_id", "batch-job")
+                .param("client_secret", "wrong"))
+            .andExpect(status().isUnauthorized())
+            .andExpect(jsonPath("$.error").value("invalid_client"));
+
+        mockMvc.perform(post("/oauth2/token")
+                .param("grant_type", "client_credentials")
+                .param("client_id", "batch-job")
+                .param("client_secret", "right")
+                .param("scope", "admin"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("invalid_scope"));
+
+        // Built-in clients do not allow the grant
+        mockMvc.perform(post("/oauth2/token")
+                .param("grant_type", "client_credentials")
+                .param("client_id", "test-client"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("unauthorized_client"));
+    }
+
+    @Test
+    void shouldIntrospectTokensSignedByProxima() throws Exception {
+        registerMachineClient("resource-server", "s3cret");
+        String token = jwtService.generateToken("test@example.com", Map.of("scope", "openid profile"),
+            java.time.Duration.ofMinutes(5), "RS256");
+
+        mockMvc.perform(post("/oauth2/introspect")
+                .param("token", token)
+                .param("client_id", "resource-server")
+                .param("client_secret", "s3cret"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Cache-Control", "no-store"))
+            .andExpect(jsonPath("$.active").value(true))
+            .andExpect(jsonPath("$.sub").value("test@example.com"))
+            .andExpect(jsonPath("$.scope").value("openid profile"))
+            .andExpect(jsonPath("$.exp").isNumber());
+
+        mockMvc.perform(post("/oauth2/introspect").param("token", "opaque-refresh-token"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.active").value(false))
+            .andExpect(jsonPath("$.sub").doesNotExist());
+
+        mockMvc.perform(post("/oauth2/introspect")
+                .param("token", token)
+                .param("client_id", "resource-server")
+                .param("client_secret", "wrong"))
+            .andExpect(status().isUnauthorized())
+            .andExpect(jsonPath("$.error").value("invalid_client"));
+    }
+
+    private void registerMachineClient(String clientId, String secret) {
+        if (oidcClientService.getClientById(clientId).isPresent()) {
+            return;
+        }
+        OidcClient client = OidcClient.create(clientId, clientId, "Machine client",
+            List.of("http://localhost/unused"), List.of("read", "write"));
+        client.setClientSecret(secret);
+        client.setGrantTypes(List.of("client_credentials"));
+        client.setAccessTokenLifetime(600);
+        oidcClientService.registerClient(client);
+    }
+
+    private String accessToken(String json) throws Exception {
+        return new com.fasterxml.jackson.databind.ObjectMapper().readTree(json).get("access_token").asText();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> body(ResponseEntity<?> response) {
+        return (Map<String, Object>) response.getBody();
+    }
+}
@@ -71,9 +71,13 @@ public class OAuthIntegrationTest {
         claims.put("permissions", new String[]{"read", "write"});
         tokenRequest.put("claims", claims);
 
-        MvcResult result = mockMvc.perform(post("/proxima/api/jwt/tokens")
+        // Tokens are signed on the crypto executor, so the response comes from an async dispatch
+        MvcResult signing = mockMvc.perform(post("/proxima/api/jwt/tokens")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(tokenRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(signing))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").exists())
                 .andReturn();
@@ -90,4 +94,36 @@ public class OAuthIntegrationTest {
                 .andExpect(jsonPath("$.subject").value("test@example.com"))
                 .andExpect(jsonPath("$.claims.role").value("user"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testJwksAndDiscoveryAnswerConditionalRequestsWithNotModified() throws Exception {
+        for (String path : new String[]{"/.well-known/jwks.json", "/.well-known/openid-configuration"}) {
+            MvcResult first = mockMvc.perform(get(path))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Cache-Control", "max-age=300, public"))
+                    .andReturn();
+            String etag = first.getResponse().getHeader("ETag");
+
+            mockMvc.perform(get(path).header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", etag));
+            mockMvc.perform(get(path).header("If-None-Match", "\"stale\""))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void testJwksEtagChangesWhenKeysChange() throws Exception {
+        String before = mockMvc.perform(get("/proxima/api/jwt/.well-known/jwks.json"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(post("/proxima/api/jwt/keys/ec")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"keyId\": \"etag-test-key\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/proxima/api/jwt/.well-known/jwks.json").header("If-None-Match", before))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.keys[?(@.kid == 'etag-test-key')].kty").value("EC"));
+    }
+}
@@ -1,8 +1,19 @@
 package com.freesidenomad.proxima.service;
 
+import com.freesidenomad.proxima.config.OidcTokenProperties;
 import com.freesidenomad.proxima.model.oidc.AuthorizationCode;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,6 +26,11 @@ class AuthorizationCodeServiceTest {
         service = new AuthorizationCodeServiceImpl();
     }
 
+    @AfterEach
+    void tearDown() {
+        service.stopExpiryWheel();
+    }
+
     @Test
     void shouldGenerateAuthorizationCode() {
         String clientId = "test-client";
@@ -170,4 +186,60 @@ class AuthorizationCodeServiceTest {
         // For now, we just verify the method exists and doesn't throw
         assertDoesNotThrow(() -> service.cleanupExpiredCodes());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldConsumeCodeOnceUnderConcurrentExchanges() throws Exception {
+        AuthorizationCode code = service.generateAuthorizationCode(
+            "test-client", "http://localhost:8080/callback", "openid", "state", "nonce", "user");
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<Boolean> exchange = () -> {
+                    start.await();
+                    try {
+                        service.validateAndConsumeCode(code.getCode(), "test-client", "http://localhost:8080/callback");
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                };
+                results.add(executor.submit(exchange));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    succeeded++;
+                }
+            }
+            assertEquals(1, succeeded);
+            assertEquals(0, service.getStats().activeCodes);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRefuseCodesWhenStoreIsFull() {
+        OidcTokenProperties props = new OidcTokenProperties();
+        props.getAuthorizationCodes().setMaxEntries(2);
+        ReflectionTestUtils.setField(service, "tokenProperties", props);
+
+        AuthorizationCode first = service.generateAuthorizationCode(
+            "client", "http://localhost/callback", "openid", "s1", "n1", "user");
+        service.generateAuthorizationCode("client", "http://localhost/callback", "openid", "s2", "n2", "user");
+
+        assertThrows(IllegalStateException.class, () -> service.generateAuthorizationCode(
+            "client", "http://localhost/callback", "openid", "s3", "n3", "user"));
+
+        // Exchanging a code frees its slot
+        service.validateAndConsumeCode(first.getCode(), "client", "http://localhost/callback");
+        assertNotNull(service.generateAuthorizationCode(
+            "client", "http://localhost/callback", "openid", "s4", "n4", "user"));
+        assertEquals(2, service.getStats().activeCodes);
+    }
+}
@@ -0,0 +1,230 @@
+package com.freesidenomad.proxima.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freesidenomad.proxima.config.ClusterProperties;
+import com.freesidenomad.proxima.model.oidc.AuthorizationCode;
+import com.freesidenomad.proxima.model.oidc.OidcClient;
+import com.freesidenomad.proxima.model.oidc.RefreshTokenGrant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Several cluster nodes in one JVM, connected by a transport that serializes every message like
+ * the HTTP transport does.
+ */
+class ClusterServiceTest {
+
+    private final InMemoryTransport transport = new InMemoryTransport();
+    private final List<Node> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Node node : nodes) {
+            node.codes.stopExpiryWheel();
+            node.cluster.stop();
+        }
+    }
+
+    private List<Node> startCluster(String... ids) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String id : ids) {
+            urls.put(id, "mem://" + id);
+        }
+        for (String id : ids) {
+            nodes.add(new Node(id, urls));
+        }
+        nodes.forEach(Node::announce);
+        return nodes;
+    }
+
+    @Test
+    void replicatesClientChangesToEveryNode() throws Exception {
+        List<Node> cluster = startCluster("a", "b", "c");
+        OidcClient client = OidcClient.create("machine", "Machine", "Load generator",
+            List.of("https://*.example.com/callback"), List.of("openid"));
+        client.setClientSecret("s3cret");
+
+        cluster.get(0).clients.registerClient(client);
+        await(() -> cluster.get(1).clients.getClientById("machine").isPresent()
+            && cluster.get(2).clients.getClientById("machine").isPresent());
+        assertEquals("s3cret", cluster.get(2).clients.getClientById("machine").orElseThrow().getClientSecret());
+        assertTrue(cluster.get(1).clients.isValidRedirectUri("machine", "https://app.example.com/callback"));
+
+        cluster.get(2).clients.deleteClient("machine");
+        await(() -> cluster.get(0).clients.getClientById("machine").isEmpty()
+            && cluster.get(1).clients.getClientById("machine").isEmpty());
+    }
+
+    @Test
+    void forwardsAuthorizationCodesToTheIssuingNode() {
+        List<Node> cluster = startCluster("a", "b", "c");
+        AuthorizationCode code = cluster.get(0).codes.generateAuthorizationCode(
+            "test-client", "http://localhost:8080/callback", "openid", "state", "nonce", "user");
+        assertTrue(code.getCode().startsWith("a."));
+
+        AuthorizationCode consumed = cluster.get(1).codes.validateAndConsumeCode(
+            code.getCode(), "test-client", "http://localhost:8080/callback");
+        assertEquals("user", consumed.getSubject());
+
+        // Single use holds across nodes, including the issuing one
+        assertThrows(IllegalArgumentException.class, () -> cluster.get(2).codes.validateAndConsumeCode(
+            code.getCode(), "test-client", "http://localhost:8080/callback"));
+        assertThrows(IllegalArgumentException.class, () -> cluster.get(0).codes.validateAndConsumeCode(
+            code.getCode(), "test-client", "http://localhost:8080/callback"));
+    }
+
+    @Test
+    void forwardsRefreshTokenRotationAndDetectsReuseOnAnyNode() {
+        List<Node> cluster = startCluster("a", "b");
+        RefreshTokenGrant issued = cluster.get(1).refreshTokens.issueRefreshToken("test-client", "user", "openid", "preset");
+
+        RefreshTokenGrant rotated = cluster.get(0).refreshTokens.rotateRefreshToken(issued.getRefreshToken(), "test-client");
+        assertTrue(rotated.getRefreshToken().startsWith("b."));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> cluster.get(0).refreshTokens.rotateRefreshToken(issued.getRefreshToken(), "test-client"));
+        // The reuse revoked the whole grant on its owner
+        assertThrows(IllegalArgumentException.class,
+            () -> cluster.get(1).refreshTokens.rotateRefreshToken(rotated.getRefreshToken(), "test-client"));
+    }
+
+    @Test
+    void reportsAnUnreachableOwner() {
+        List<Node> cluster = startCluster("a", "b");
+        AuthorizationCode code = cluster.get(0).codes.generateAuthorizationCode(
+            "test-client", "http://localhost:8080/callback", "openid", null, null, "user");
+        transport.down.add("mem://a");
+
+        assertThrows(IllegalStateException.class, () -> cluster.get(1).codes.validateAndConsumeCode(
+            code.getCode(), "test-client", "http://localhost:8080/callback"));
+        assertThrows(IllegalArgumentException.class, () -> cluster.get(1).codes.validateAndConsumeCode(
+            "z.unknown", "test-client", "http://localhost:8080/callback"));
+    }
+
+    @Test
+    void settlesOnOneSetOfSigningKeys() throws Exception {
+        List<Node> cluster = startCluster("a", "b", "c");
+        String defaultKey = cluster.get(0).jwt.getPublicKey("default");
+        await(() -> cluster.stream().allMatch(node -> node.jwt.getPublicKey("default").equals(defaultKey)));
+
+        cluster.get(1).jwt.generateEcKeyPair("rotated");
+        await(() -> cluster.get(0).jwt.keyExists("rotated") && cluster.get(2).jwt.keyExists("rotated"));
+        assertEquals(cluster.get(1).jwt.getPublicKey("rotated"), cluster.get(0).jwt.getPublicKey("rotated"));
+
+        cluster.get(0).jwt.deleteKey("rotated");
+        await(() -> !cluster.get(1).jwt.keyExists("rotated") && !cluster.get(2).jwt.keyExists("rotated"));
+    }
+
+    @Test
+    void catchesUpANodeThatWasUnreachable() throws Exception {
+        List<Node> cluster = startCluster("a", "b");
+        transport.down.add("mem://b");
+        cluster.get(0).clients.registerClient(OidcClient.create("late", "Late", "Registered during an outage",
+            List.of("http://localhost/callback"), List.of("openid")));
+        await(() -> cluster.get(0).cluster.getStats().get("outOfSync").equals(Set.of("b")));
+        assertTrue(cluster.get(1).clients.getClientById("late").isEmpty());
+
+        transport.down.remove("mem://b");
+        await(() -> cluster.get(1).clients.getClientById("late").isPresent());
+    }
+
+    @Test
+    void resolvesConcurrentWritesTheSameWayOnEveryNode() {
+        ReplicatedEntry first = new ReplicatedEntry("ns", "key", null, 10, "a");
+        ReplicatedEntry later = new ReplicatedEntry("ns", "key", null, 11, "a");
+        ReplicatedEntry tie = new ReplicatedEntry("ns", "key", null, 10, "b");
+
+        assertTrue(later.isNewerThan(first));
+        assertTrue(tie.isNewerThan(first));
+        assertFalse(first.isNewerThan(tie));
+        assertFalse(first.isNewerThan(first));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Cluster did not converge");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private final class Node {
+        final ClusterService cluster;
+        final OidcClientServiceImpl clients = new OidcClientServiceImpl();
+        final AuthorizationCodeServiceImpl codes = new AuthorizationCodeServiceImpl();
+        final RefreshTokenServiceImpl refreshTokens = new RefreshTokenServiceImpl();
+        final JwtService jwt = new JwtService();
+
+        Node(String id, Map<String, String> urls) {
+            ClusterProperties properties = new ClusterProperties();
+            properties.setEnabled(true);
+            properties.setNodeId(id);
+            properties.setNodes(urls);
+            properties.setSecret("cluster-secret");
+            properties.setSyncIntervalMillis(50);
+            cluster = new ClusterService(properties, transport);
+            transport.nodes.put(urls.get(id), cluster);
+            cluster.start();
+
+            for (Object service : List.of(clients, codes, refreshTokens, jwt)) {
+                ReflectionTestUtils.setField(service, "clusterService", cluster);
+            }
+            clients.initialize();
+            codes.initialize();
+            refreshTokens.initialize();
+            jwt.initialize();
+        }
+
+        void announce() {
+            cluster.announce();
+        }
+    }
+
+    private static final class InMemoryTransport implements ClusterTransport {
+        private static final TypeReference<List<ReplicatedEntry>> ENTRIES = new TypeReference<>() {};
+
+        final Map<String, ClusterService> nodes = new ConcurrentHashMap<>();
+        final Set<String> down = ConcurrentHashMap.newKeySet();
+        private final ObjectMapper objectMapper = OidcStateStore.stateMapper();
+
+        @Override
+        public List<ReplicatedEntry> replicate(String nodeUrl, List<ReplicatedEntry> entries) throws IOException {
+            List<ReplicatedEntry> newer = node(nodeUrl).apply(objectMapper.readValue(objectMapper.writeValueAsString(entries), ENTRIES));
+            return objectMapper.readValue(objectMapper.writeValueAsString(newer), ENTRIES);
+        }
+
+        @Override
+        public List<ReplicatedEntry> fetchState(String nodeUrl) throws IOException {
+            return objectMapper.readValue(objectMapper.writeValueAsString(node(nodeUrl).getState()), ENTRIES);
+        }
+
+        @Override
+        public JsonNode call(String nodeUrl, String operation, JsonNode request) throws IOException {
+            return objectMapper.readTree(objectMapper.writeValueAsString(node(nodeUrl).handleCall(operation, request)));
+        }
+
+        private ClusterService node(String nodeUrl) throws IOException {
+            ClusterService node = nodes.get(nodeUrl);
+            if (node == null || down.contains(nodeUrl)) {
+                throw new IOException("Connection refused: " + nodeUrl);
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import com.freesidenomad.proxima.model.oidc.OidcPresetConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigurationDiffTest {
+
+    private ProximaConfig previous;
+
+    @BeforeEach
+    void setUp() {
+        previous = new ProximaConfig();
+        previous.setRoutes(List.of(
+                route("/api/users/**", "http://user-service.com"),
+                route("/api/orders/**", "http://order-service.com")
+        ));
+        previous.setPresets(List.of(
+                preset("admin_user", "Bearer admin", null),
+                preset("oidc_user", "Bearer oidc", OidcPresetConfig.builder().enabled(true).subject("alice").build())
+        ));
+    }
+
+    @Test
+    void shouldTreatMissingPreviousConfigAsInitial() {
+        ConfigurationDiff diff = ConfigurationDiff.between(null, previous);
+
+        assertTrue(diff.isInitial());
+        assertEquals(2, diff.getUpsertedRoutes().size());
+        assertTrue(diff.getChangedPresets().containsAll(List.of("admin_user", "oidc_user")));
+    }
+
+    @Test
+    void shouldReportNoChangesForEqualConfigs() {
+        ConfigurationDiff diff = ConfigurationDiff.between(previous, copy(previous));
+
+        assertTrue(diff.isEmpty());
+        assertFalse(diff.hasRouteChanges());
+    }
+
+    @Test
+    void shouldDetectAddedChangedAndRemovedRoutes() {
+        ProximaConfig current = copy(previous);
+        current.setRoutes(List.of(
+                route("/api/users/**", "http://user-service-v2.com"),
+                route("/api/orders/**", "http://order-service.com"),
+                route("/api/invoices/**", "http://invoice-service.com")
+        ));
+
+        ConfigurationDiff diff = ConfigurationDiff.between(previous, current);
+
+        assertEquals(List.of("/api/users/**", "/api/invoices/**"), new ArrayList<>(diff.getUpsertedRoutes().keySet()));
+        assertTrue(diff.getRemovedRoutes().isEmpty());
+
+        current.setRoutes(List.of(route("/api/users/**", "http://user-service.com")));
+        diff = ConfigurationDiff.between(previous, current);
+
+        assertEquals(List.of("/api/orders/**"), new ArrayList<>(diff.getRemovedRoutes()));
+        assertTrue(diff.getUpsertedRoutes().isEmpty());
+    }
+
+    @Test
+    void shouldKeepDuplicateRouteKeysApart() {
+        Map<String, ConfigurationDiff.KeyedRoute> keyed = ConfigurationDiff.keyRoutes(List.of(
+                route("/api/**", "http://first.com"),
+                route("/api/**", "http://second.com"),
+                route("/api/**", "http://second.com")
+        ));
+
+        assertEquals(3, keyed.size());
+        List<ConfigurationDiff.KeyedRoute> routes = new ArrayList<>(keyed.values());
+        assertEquals("http://second.com", routes.get(1).route().getTargetUrl());
+        assertEquals(1, routes.get(1).order());
+        assertEquals(routes.get(1).key() + "#2", routes.get(2).key());
+    }
+
+    @Test
+    void shouldNotReportRoutesThatOnlyMoved() {
+        ProximaConfig current = copy(previous);
+        current.setRoutes(List.of(
+                route("/api/invoices/**", "http://invoice-service.com"),
+                route("/api/orders/**", "http://order-service.com"),
+                route("/api/users/**", "http://user-service.com")
+        ));
+
+        ConfigurationDiff diff = ConfigurationDiff.between(previous, current);
+
+        assertEquals(List.of("/api/invoices/**"), new ArrayList<>(diff.getUpsertedRoutes().keySet()));
+        assertTrue(diff.getRemovedRoutes().isEmpty());
+        assertTrue(diff.isRouteOrderChanged());
+        assertEquals(2, diff.getRouteOrder().get("/api/users/**"));
+    }
+
+    @Test
+    void shouldNotRenameDuplicateRoutesWhenOneIsInserted() {
+        previous.setRoutes(List.of(
+                route("/api/**", "http://first.com"),
+                route("/api/**", "http://second.com")
+        ));
+        ProximaConfig current = copy(previous);
+        current.setRoutes(List.of(
+                route("/api/**", "http://inserted.com"),
+                route("/api/**", "http://first.com"),
+                route("/api/**", "http://second.com")
+        ));
+
+        ConfigurationDiff diff = ConfigurationDiff.between(previous, current);
+
+        assertEquals(1, diff.getUpsertedRoutes().size());
+        assertEquals("http://inserted.com",
+                diff.getUpsertedRoutes().values().iterator().next().route().getTargetUrl());
+        assertTrue(diff.getRemovedRoutes().isEmpty());
+    }
+
+    @Test
+    void shouldOnlyFlagPresetsWhoseOidcConfigChanged() {
+        ProximaConfig current = copy(previous);
+        current.setPresets(List.of(
+                preset("admin_user", "Bearer rotated", null),
+                preset("oidc_user", "Bearer oidc", OidcPresetConfig.builder().enabled(true).subject("bob").build())
+        ));
+
+        ConfigurationDiff diff = ConfigurationDiff.between(previous, current);
+
+        assertEquals(2, diff.getChangedPresets().size());
+        assertEquals(List.of("oidc_user"), new ArrayList<>(diff.getChangedOidcPresets()));
+    }
+
+    @Test
+    void shouldDetectActivePresetAndDownstreamChanges() {
+        ProximaConfig current = copy(previous);
+        current.setActivePreset("oidc_user");
+        current.getDownstream().setUrl("http://other:8080");
+
+        ConfigurationDiff diff = ConfigurationDiff.between(previous, current);
+
+        assertTrue(diff.isActivePresetChanged());
+        assertTrue(diff.isDownstreamChanged());
+        assertTrue(diff.hasRouteChanges());
+    }
+
+    private static ProximaConfig copy(ProximaConfig config) {
+        ProximaConfig copy = new ProximaConfig();
+        copy.setActivePreset(config.getActivePreset());
+        copy.getDownstream().setUrl(config.getDownstream().getUrl());
+        copy.setRoutes(config.getRoutes().stream()
+                .map(r -> route(r.getPathPattern(), r.getTargetUrl()))
+                .toList());
+        copy.setPresets(config.getPresets().stream()
+                .map(p -> preset(p.getName(), p.getHeaders().get("Authorization"), p.getOidcConfig()))
+                .toList());
+        copy.setReservedRoutes(config.getReservedRoutes());
+        return copy;
+    }
+
+    private static ProximaConfig.ConfigRoute route(String pattern, String target) {
+        ProximaConfig.ConfigRoute route = new ProximaConfig.ConfigRoute();
+        route.setPathPattern(pattern);
+        route.setTargetUrl(target);
+        return route;
+    }
+
+    private static ProximaConfig.ConfigHeaderPreset preset(String name, String authorization, OidcPresetConfig oidcConfig) {
+        ProximaConfig.ConfigHeaderPreset preset = new ProximaConfig.ConfigHeaderPreset();
+        preset.setName(name);
+        preset.setHeaders(Map.of("Authorization", authorization));
+        preset.setOidcConfig(oidcConfig);
+        return preset;
+    }
+}
@@ -3,6 +3,7 @@ package com.freesidenomad.proxima.service;
 import com.freesidenomad.proxima.config.ProximaProperties;
 import com.freesidenomad.proxima.model.HeaderPreset;
 import com.freesidenomad.proxima.model.ProximaConfig;
+import com.freesidenomad.proxima.model.oidc.OidcPresetConfig;
 import com.freesidenomad.proxima.validation.ConfigurationValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -168,4 +169,63 @@ class ConfigurationServiceTest {
         assertEquals("Bearer admin-token", result.get("Authorization"));
         assertEquals("admin", result.get("X-User-Role"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetOidcPresetByClientIdRebuiltOnConfigChange() {
+        mockConfig.getPresets().get(1).setOidcConfig(OidcPresetConfig.builder()
+                .enabled(true)
+                .clientId("user-client")
+                .subject("user@example.com")
+                .build());
+        when(jsonConfigurationService.loadConfiguration()).thenReturn(mockConfig);
+        when(jsonConfigurationService.getConfigVersion()).thenReturn(1L);
+
+        HeaderPreset preset = configurationService.getOidcPresetByClientId("user-client");
+        assertNotNull(preset);
+        assertEquals("regular_user", preset.getName());
+        assertSame(preset, configurationService.getOidcPresetByClientId("user-client"));
+        assertNull(configurationService.getOidcPresetByClientId("unknown-client"));
+        verify(jsonConfigurationService, times(1)).loadConfiguration();
+
+        mockConfig.getPresets().get(1).getOidcConfig().setEnabled(false);
+        when(jsonConfigurationService.getConfigVersion()).thenReturn(2L);
+
+        assertNull(configurationService.getOidcPresetByClientId("user-client"));
+    }
+
+    @Test
+    void testActiveHeaderPlanSwappedOnConfigurationChange() {
+        when(jsonConfigurationService.loadConfiguration()).thenReturn(mockConfig);
+        when(jsonConfigurationService.getConfigVersion()).thenReturn(1L);
+
+        assertEquals("admin_user", configurationService.getActiveHeaderPlan().getPresetName());
+        assertEquals("admin_user", configurationService.getActiveHeaderPlan().getPresetName());
+        verify(jsonConfigurationService, times(1)).getConfigVersion();
+
+        ProximaConfig current = new ProximaConfig();
+        current.setPresets(mockConfig.getPresets());
+        current.setActivePreset("regular_user");
+        configurationService.onConfigurationChanged(new ConfigurationChangedEvent(
+                this, mockConfig, current, ConfigurationDiff.between(mockConfig, current), 2));
+
+        assertEquals("regular_user", configurationService.getActiveHeaderPlan().getPresetName());
+        verify(jsonConfigurationService, times(1)).getConfigVersion();
+    }
+
+    @Test
+    void testLateConfigurationChangeIgnored() {
+        ProximaConfig first = new ProximaConfig();
+        first.setPresets(mockConfig.getPresets());
+        first.setActivePreset("admin_user");
+        ProximaConfig second = new ProximaConfig();
+        second.setPresets(mockConfig.getPresets());
+        second.setActivePreset("regular_user");
+
+        configurationService.onConfigurationChanged(new ConfigurationChangedEvent(
+                this, first, second, ConfigurationDiff.between(first, second), 2));
+        configurationService.onConfigurationChanged(new ConfigurationChangedEvent(
+                this, mockConfig, first, ConfigurationDiff.between(mockConfig, first), 1));
+
+        assertEquals("regular_user", configurationService.getActiveHeaderPlan().getPresetName());
+    }
+}
@@ -0,0 +1,132 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.config.JwtProperties.RejectionPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CryptoExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void runsTasksOnCryptoThreads() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        executor = new CryptoExecutor(2, 4, RejectionPolicy.ABORT, registry);
+
+        CompletableFuture<Boolean> onCryptoThread = executor.submit(CryptoExecutor::isCryptoThread);
+        CompletableFuture<String> name = executor.submit(() -> Thread.currentThread().getName());
+
+        assertTrue(onCryptoThread.get(10, TimeUnit.SECONDS));
+        assertTrue(name.get(10, TimeUnit.SECONDS).startsWith("jwt-crypto-"));
+        assertFalse(CryptoExecutor.isCryptoThread());
+        assertEquals(2, registry.get("proxima.jwt.crypto.execution").timer().count());
+    }
+
+    @Test
+    void completesExceptionallyWhenATaskFails() {
+        executor = new CryptoExecutor(1, 4, RejectionPolicy.ABORT, null);
+
+        CompletableFuture<String> future = executor.submit(() -> {
+            throw new IllegalArgumentException("Unsupported algorithm");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void rejectsTasksWhenTheQueueIsFull() throws Exception {
+        executor = new CryptoExecutor(1, 1, RejectionPolicy.ABORT, null);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> block(started));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit(() -> "queued");
+
+        CompletableFuture<String> rejected = executor.submit(() -> "rejected");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, executor.getRejectionCount());
+        assertEquals(1, executor.getQueueDepth());
+
+        release.countDown();
+        assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void runsOnTheCallerWhenTheQueueIsFull() throws Exception {
+        executor = new CryptoExecutor(1, 1, RejectionPolicy.CALLER_RUNS, null);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> block(started));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        executor.submit(() -> "queued");
+
+        CompletableFuture<String> overflow = executor.submit(() -> Thread.currentThread().getName());
+
+        assertTrue(overflow.isDone());
+        assertEquals(Thread.currentThread().getName(), overflow.get());
+        assertEquals(1, executor.getRejectionCount());
+
+        // Background work backs off instead
+        CompletableFuture<String> background = executor.trySubmit(() -> "background");
+        ExecutionException e = assertThrows(ExecutionException.class, () -> background.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    @Test
+    void runsKeyCreationOnTheCallerEvenUnderAbort() throws Exception {
+        executor = new CryptoExecutor(1, 1, RejectionPolicy.ABORT, null);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> block(started));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        executor.submit(() -> "queued");
+
+        CompletableFuture<String> overflow = executor.submitOrRun(() -> Thread.currentThread().getName());
+
+        assertTrue(overflow.isDone());
+        assertEquals(Thread.currentThread().getName(), overflow.get());
+        assertEquals(1, executor.getRejectionCount());
+    }
+
+    @Test
+    void failsQueuedTasksOnShutdown() throws Exception {
+        executor = new CryptoExecutor(1, 1, RejectionPolicy.CALLER_RUNS, null);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> block(started));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit(() -> "queued");
+
+        executor.shutdown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    private String block(CountDownLatch started) {
+        started.countDown();
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
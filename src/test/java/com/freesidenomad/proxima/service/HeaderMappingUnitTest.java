@@ -1,6 +1,9 @@
 package com.freesidenomad.proxima.service;
 
 import com.freesidenomad.proxima.model.ProximaConfig;
+import com.freesidenomad.proxima.model.oidc.OidcPresetConfig;
+import com.freesidenomad.proxima.model.oidc.OidcTokens;
+import com.freesidenomad.proxima.service.routing.RouteRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockHttpServletRequest;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,6 +30,9 @@ class HeaderMappingUnitTest {
     @Mock
     private RouteService routeService;
 
+    @Mock
+    private OidcTokenService oidcTokenService;
+
     @InjectMocks
     private ProxyService proxyService;
 
@@ -42,7 +49,7 @@ class HeaderMappingUnitTest {
 
         lenient().when(configurationService.getCurrentHeaders()).thenReturn(presetHeaders);
         lenient().when(configurationService.getActiveHeaderMappings()).thenReturn(headerMappings);
-        lenient().when(routeService.resolveTargetUrl(anyString())).thenReturn("http://test-server.com/api");
+        lenient().when(routeService.resolveTargetUrl(any(RouteRequest.class))).thenReturn("http://test-server.com/api");
     }
 
     @Test
@@ -148,4 +155,31 @@ class HeaderMappingUnitTest {
             fail("Failed to test buildHeaders method: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLiveOidcTokensInjectedForOidcPreset() throws Exception {
+        ProximaConfig.ConfigHeaderPreset preset = new ProximaConfig.ConfigHeaderPreset();
+        preset.setName("oidc-user");
+        preset.setHeaders(new HashMap<>());
+        preset.setOidcConfig(OidcPresetConfig.builder()
+                .enabled(true)
+                .subject("user-1")
+                .idTokenHeader("X-Id-Token")
+                .build());
+        when(configurationService.getActiveHeaderPlan()).thenReturn(HeaderPlan.compile(preset));
+        when(oidcTokenService.getTokenHeaders("oidc-user")).thenReturn(OidcTokenHeaders.of(OidcTokens.builder()
+                .accessToken("live.access.token")
+                .idToken("live.id.token")
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build()));
+
+        var method = ProxyService.class.getDeclaredMethod("buildHeaders", jakarta.servlet.http.HttpServletRequest.class);
+        method.setAccessible(true);
+        HttpHeaders result = (HttpHeaders) method.invoke(proxyService, new MockHttpServletRequest());
+
+        // Live tokens replace the static preset token
+        assertEquals("Bearer live.access.token", result.getFirst("Authorization"));
+        assertEquals("live.id.token", result.getFirst("X-Id-Token"));
+        assertEquals("admin", result.getFirst("X-User-Role"));
+    }
+}
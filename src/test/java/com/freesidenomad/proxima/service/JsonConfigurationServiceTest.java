@@ -4,11 +4,15 @@ import com.freesidenomad.proxima.model.ProximaConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -120,6 +124,29 @@ class JsonConfigurationServiceTest {
         assertEquals(config1.getDownstream().getUrl(), config2.getDownstream().getUrl());
     }
 
+    @Test
+    void testConfigurationChangedPublishedOutsideLock() {
+        List<Boolean> heldLock = new ArrayList<>();
+        ApplicationEventPublisher publisher = event -> heldLock.add(Thread.holdsLock(service));
+        ReflectionTestUtils.setField(service, "eventPublisher", publisher);
+
+        service.loadConfiguration();
+        service.loadConfiguration();
+
+        // Listeners run once for the initial load, without the service's monitor
+        assertEquals(List.of(false), heldLock);
+    }
+
+    @Test
+    void testIsValidRouteCompilesReservedPathsOncePerConfiguration() {
+        assertTrue(service.isValidRoute("/api/**"));
+        Object compiled = ReflectionTestUtils.getField(service, "compiledReservedPaths");
+
+        assertFalse(service.isValidRoute("/proxima/admin"));
+        assertFalse(service.isValidRoute("/actuator/**"));
+        assertSame(compiled, ReflectionTestUtils.getField(service, "compiledReservedPaths"));
+    }
+
     @Test
     void testConfigRoute_NoNameField() {
         // Test that ConfigRoute properly handles missing name field
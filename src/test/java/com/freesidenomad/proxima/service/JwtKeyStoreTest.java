@@ -0,0 +1,30 @@
+package com.freesidenomad.proxima.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyStoreTest {
+
+    @Test
+    void shouldIgnoreSavesAfterClose(@TempDir Path dir) {
+        JwtKeyStore store = new JwtKeyStore(dir.resolve("keys.json"));
+        AtomicInteger snapshots = new AtomicInteger();
+
+        store.close();
+
+        assertDoesNotThrow(() -> store.saveAsync(() -> {
+            snapshots.incrementAndGet();
+            return List.of();
+        }));
+        assertDoesNotThrow(() -> store.saveAsync(List::of));
+        assertEquals(0, snapshots.get());
+        assertFalse(Files.exists(store.getFile()));
+    }
+}
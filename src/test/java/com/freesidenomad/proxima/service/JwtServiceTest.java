@@ -1,9 +1,14 @@
 package com.freesidenomad.proxima.service;
 
+import com.freesidenomad.proxima.config.JwtProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -265,4 +270,332 @@ class JwtServiceTest {
         assertNotNull(token);
         assertTrue(token.length() > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReuseCachedTokenForIdenticalRequests() {
+        enableTokenCache();
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", "admin");
+        claims.put("team", "qa");
+        Map<String, Object> reordered = new java.util.LinkedHashMap<>();
+        reordered.put("team", "qa");
+        reordered.put("role", "admin");
+
+        String first = jwtService.generateToken("user@example.com", claims, Duration.ofHours(1), "RS256");
+        String second = jwtService.generateToken("user@example.com", reordered, Duration.ofHours(1), "rs256");
+        String otherSubject = jwtService.generateToken("other@example.com", claims, Duration.ofHours(1), "RS256");
+
+        assertEquals(first, second);
+        assertNotEquals(first, otherSubject);
+        Map<String, Object> stats = jwtService.getTokenCacheStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+    }
+
+    @Test
+    void shouldNotCacheTokensWithUniqueClaims() {
+        enableTokenCache();
+        Map<String, Object> claims = Map.of("nonce", "abc");
+
+        String first = jwtService.generateToken("user@example.com", claims, Duration.ofHours(1), "HS256");
+        String second = jwtService.generateToken("user@example.com", claims, Duration.ofHours(1), "HS256");
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(0, jwtService.getTokenCacheStats().get("size"));
+    }
+
+    @Test
+    void shouldEvictCachedTokensWhenKeyIsRotatedOrDeleted() {
+        enableTokenCache();
+        jwtService.generateRsaKeyPair("rotating");
+        String first = jwtService.generateToken("user@example.com", Map.of(), Duration.ofHours(1), "RS256", "rotating");
+
+        jwtService.generateRsaKeyPair("rotating");
+        String afterRotation = jwtService.generateToken("user@example.com", Map.of(), Duration.ofHours(1), "RS256", "rotating");
+        assertNotEquals(first, afterRotation);
+
+        jwtService.deleteKey("rotating");
+        assertEquals(0, jwtService.getTokenCacheStats().get("size"));
+        assertThrows(IllegalArgumentException.class,
+            () -> jwtService.generateToken("user@example.com", Map.of(), Duration.ofHours(1), "RS256", "rotating"));
+    }
+
+    @Test
+    void shouldNotCacheTokensWhenDisabled() {
+        assertNull(jwtService.getTokenCacheStats());
+        assertFalse(jwtService.getKeyInfo().containsKey("tokenCache"));
+    }
+
+    private void enableTokenCache() {
+        JwtProperties properties = new JwtProperties();
+        properties.getTokenCache().setEnabled(true);
+        ReflectionTestUtils.setField(jwtService, "jwtProperties", properties);
+        jwtService.initTokenCache();
+    }
+
+    @Test
+    void shouldGenerateEs256AndEdDsaTokensWithKeyId() {
+        jwtService.generateEcKeyPair("ec-key");
+        jwtService.generateEdKeyPair("ed-key");
+
+        String es256 = jwtService.generateToken("user@example.com", Map.of(), Duration.ofMinutes(5), "ES256", "ec-key");
+        String eddsa = jwtService.generateToken("user@example.com", Map.of(), Duration.ofMinutes(5), "eddsa", "ed-key");
+
+        assertTrue(decodeHeader(es256).contains("\"alg\":\"ES256\""));
+        assertTrue(decodeHeader(es256).contains("\"kid\":\"ec-key\""));
+        assertTrue(decodeHeader(eddsa).contains("\"alg\":\"EdDSA\""));
+        assertEquals("ES256", jwtService.getPublicKeyAlgorithm("ec-key"));
+        assertEquals("EdDSA", jwtService.getPublicKeyAlgorithm("ed-key"));
+        assertTrue(jwtService.getPublicKey("ed-key").startsWith("-----BEGIN PUBLIC KEY-----"));
+    }
+
+    @Test
+    void shouldCreateDefaultEcKeyOnFirstUse() {
+        assertFalse(jwtService.keyExists("ec-missing"));
+        assertThrows(IllegalArgumentException.class,
+            () -> jwtService.generateToken("user", Map.of(), Duration.ofMinutes(5), "ES256", "ec-missing"));
+
+        assertNotNull(jwtService.generateToken("user", Map.of(), Duration.ofMinutes(5), "ES256"));
+        assertEquals(java.util.Set.of("default"), jwtService.getKeyInfo().get("ecKeys"));
+    }
+
+    @Test
+    void shouldFingerprintTheKeyThatSignsForTheAlgorithm() {
+        // No ES256 default key yet, and asking does not create one
+        assertNull(jwtService.getSigningKeyFingerprint("ES256", "default"));
+        assertFalse(jwtService.keyExists("ec-missing"));
+        assertEquals(java.util.Set.of(), jwtService.getKeyInfo().get("ecKeys"));
+        assertNull(jwtService.getSigningKeyFingerprint("HS256", "default"));
+
+        jwtService.generateToken("user", Map.of(), Duration.ofMinutes(5), "ES256");
+        String ec = jwtService.getSigningKeyFingerprint("es256", "default");
+        String rsa = jwtService.getSigningKeyFingerprint("RS256", "default");
+        assertNotNull(ec);
+        assertNotEquals(rsa, ec);
+        assertSame(ec, jwtService.getSigningKeyFingerprint("ES256", "default"));
+
+        // A new key set version computes it again
+        jwtService.generateRsaKeyPair("default");
+        assertNotEquals(rsa, jwtService.getSigningKeyFingerprint("RS256", "default"));
+        assertEquals(ec, jwtService.getSigningKeyFingerprint("ES256", "default"));
+    }
+
+    @Test
+    void shouldPublishEcAndOkpKeysInJwks() {
+        jwtService.generateEcKeyPair("ec-key");
+        jwtService.generateEdKeyPair("ed-key");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object>[] keys = (Map<String, Object>[]) jwtService.getJwks().get("keys");
+        Map<String, Object> ec = java.util.Arrays.stream(keys).filter(k -> "ec-key".equals(k.get("kid"))).findFirst().orElseThrow();
+        Map<String, Object> okp = java.util.Arrays.stream(keys).filter(k -> "ed-key".equals(k.get("kid"))).findFirst().orElseThrow();
+
+        assertEquals("EC", ec.get("kty"));
+        assertEquals("P-256", ec.get("crv"));
+        assertEquals(32, java.util.Base64.getUrlDecoder().decode((String) ec.get("x")).length);
+        assertEquals(32, java.util.Base64.getUrlDecoder().decode((String) ec.get("y")).length);
+        assertEquals("OKP", okp.get("kty"));
+        assertEquals("Ed25519", okp.get("crv"));
+        assertEquals(32, java.util.Base64.getUrlDecoder().decode((String) okp.get("x")).length);
+    }
+
+    private static String decodeHeader(String token) {
+        return new String(java.util.Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+    }
+
+    @Test
+    void shouldRestoreKeysFromKeystoreAfterRestart(@TempDir Path tempDir) throws Exception {
+        Path keystore = tempDir.resolve("keys.json");
+        JwtService first = newServiceWithKeystore(keystore);
+        first.generateEcKeyPair("ec-key");
+        first.generateHmacKey("hmac-key");
+        String defaultPublicKey = first.getPublicKey("default");
+        String ecPublicKey = first.getPublicKey("ec-key");
+        first.shutdown();
+        assertTrue(Files.exists(keystore));
+        if (keystore.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", java.nio.file.attribute.PosixFilePermissions.toString(Files.getPosixFilePermissions(keystore)));
+        }
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count(), "No temporary files are left behind");
+        }
+
+        JwtService second = newServiceWithKeystore(keystore);
+        try {
+            assertEquals(defaultPublicKey, second.getPublicKey("default"));
+            assertEquals(ecPublicKey, second.getPublicKey("ec-key"));
+            assertTrue(second.keyExists("hmac-key"));
+            assertNotNull(second.generateToken("user", Map.of(), Duration.ofMinutes(5), "ES256", "ec-key"));
+        } finally {
+            second.shutdown();
+        }
+    }
+
+    @Test
+    void shouldFailFastOnUnreadableKeystore(@TempDir Path tempDir) throws Exception {
+        Path keystore = tempDir.resolve("keys.json");
+        Files.writeString(keystore, "not json");
+
+        assertThrows(IllegalStateException.class, () -> newServiceWithKeystore(keystore));
+        assertEquals("not json", Files.readString(keystore));
+    }
+
+    @Test
+    void shouldSignClaimsTemplatesThatVerifyWithThePublishedKeys() {
+        jwtService.generateEcKeyPair("ec-key");
+        jwtService.generateEdKeyPair("ed-key");
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sub", "user@example.com");
+        claims.put("aud", java.util.List.of("proxima"));
+        claims.put("name", "Ünïcode Üser");
+        claims.put("iat", 1L);
+        claims.put("email", null);
+
+        for (String[] key : new String[][]{{"RS256", "default"}, {"ES256", "ec-key"}, {"EdDSA", "ed-key"}}) {
+            String token = jwtService.signTemplate(ClaimsTemplate.compile(claims, key[0], key[1]), Duration.ofMinutes(5));
+            java.security.PublicKey publicKey = jwtService.getVerificationKeys().stream()
+                .filter(candidate -> candidate.keyId().equals(key[1]) && candidate.algorithm().equals(key[0]))
+                .findFirst().orElseThrow().publicKey();
+
+            io.jsonwebtoken.Claims parsed = io.jsonwebtoken.Jwts.parser().verifyWith(publicKey).build()
+                .parseSignedClaims(token).getPayload();
+            assertTrue(decodeHeader(token).contains("\"kid\":\"" + key[1] + "\""));
+            assertEquals("user@example.com", parsed.getSubject());
+            assertEquals(java.util.Set.of("proxima"), parsed.getAudience());
+            assertEquals("Ünïcode Üser", parsed.get("name"));
+            assertFalse(parsed.containsKey("email"));
+            assertEquals(300, parsed.getExpiration().getTime() / 1000 - parsed.getIssuedAt().getTime() / 1000);
+        }
+
+        String hs256 = jwtService.signTemplate(ClaimsTemplate.compile(claims, "HS256", "default"), Duration.ofMinutes(5));
+        assertEquals("{\"alg\":\"HS256\"}", decodeHeader(hs256));
+        assertEquals(3, hs256.split("\\.").length);
+    }
+
+    @Test
+    void shouldPrePublishRotatedKeysBeforeTheySign() {
+        enableRotation(jwtService);
+        java.time.Instant nextHour = java.time.Instant.ofEpochSecond((System.currentTimeMillis() / 1000 / 3600 + 1) * 3600);
+
+        jwtService.rotateKeys(nextHour.minusSeconds(601));
+        assertEquals(1, jwtService.getVerificationKeys().size());
+
+        long version = jwtService.getKeySetVersion();
+        jwtService.rotateKeys(nextHour.minusSeconds(600));
+        jwtService.rotateKeys(nextHour.minusSeconds(300));
+        assertTrue(jwtService.getKeySetVersion() > version);
+        assertEquals(java.util.Set.of("default", "default.pending"), jwtService.getVerificationKeys().stream()
+            .map(key -> key.keyId().startsWith("default.") ? "default.pending" : key.keyId())
+            .collect(java.util.stream.Collectors.toSet()));
+
+        String token = jwtService.generateToken("user", Map.of(), Duration.ofMinutes(5), "RS256");
+        assertTrue(decodeHeader(token).contains("\"kid\":\"default\""));
+    }
+
+    @Test
+    void shouldSignWithTheRotatedKeyAndRetireTheOldOne() {
+        enableRotation(jwtService);
+        String oldKey = jwtService.getPublicKey("default");
+        java.time.Instant lastHour = java.time.Instant.ofEpochSecond(System.currentTimeMillis() / 1000 / 3600 * 3600);
+        String versionId = "default." + java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(java.time.ZoneOffset.UTC).format(lastHour);
+
+        jwtService.rotateKeys(lastHour.minusSeconds(600));
+        String token = jwtService.generateToken("user", Map.of(), Duration.ofMinutes(5), "RS256");
+        assertTrue(decodeHeader(token).contains("\"kid\":\"" + versionId + "\""));
+        String templated = jwtService.signTemplate(ClaimsTemplate.compile(Map.of("sub", "user"), "RS256", "default"), Duration.ofMinutes(5));
+        assertTrue(decodeHeader(templated).contains("\"kid\":\"" + versionId + "\""));
+        // The replaced key stays published for tokens it signed earlier
+        assertEquals(oldKey, jwtService.getPublicKey("default"));
+
+        jwtService.rotateKeys(lastHour.plusSeconds(1799));
+        assertEquals(2, jwtService.getVerificationKeys().size());
+        jwtService.rotateKeys(lastHour.plusSeconds(1800));
+        assertEquals(java.util.List.of(versionId), jwtService.getVerificationKeys().stream()
+            .map(JwtService.VerificationKey::keyId).toList());
+        assertTrue(jwtService.keyExists("default"));
+        assertEquals(jwtService.getPublicKey(versionId), jwtService.getPublicKey("default"));
+    }
+
+    @Test
+    void shouldMaterializeOneKeyPairForARescheduledKey() {
+        java.util.concurrent.atomic.AtomicInteger loads = new java.util.concurrent.atomic.AtomicInteger();
+        KeyPairEntry unused = KeyPairEntry.lazy(() -> {
+            loads.incrementAndGet();
+            return KeyPairPool.generate(KeyPairPool.KeyType.EC);
+        });
+        KeyPairEntry retiring = unused.withSchedule(new KeyPairEntry.Schedule("default", null, java.time.Instant.now()));
+
+        // Tokens signed through either entry verify with the key the JWKS publishes
+        assertSame(retiring.get(), unused.get());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldKeepRotationSchedulesAcrossRestarts(@TempDir Path tempDir) {
+        Path keystore = tempDir.resolve("keys.json");
+        java.time.Instant lastHour = java.time.Instant.ofEpochSecond(System.currentTimeMillis() / 1000 / 3600 * 3600);
+        JwtService first = newServiceWithKeystore(keystore);
+        enableRotation(first);
+        first.rotateKeys(lastHour.minusSeconds(600));
+        first.rotateKeys(lastHour.plusSeconds(1800));
+        String rotatedKey = first.getPublicKey("default");
+        first.shutdown();
+
+        JwtService second = newServiceWithKeystore(keystore);
+        try {
+            // The retired default key is not generated again
+            assertEquals(1, second.getVerificationKeys().size());
+            assertEquals(rotatedKey, second.getPublicKey("default"));
+            assertEquals("default", ((java.util.List<?>) second.getKeyInfo().get("rotation")).stream()
+                .map(schedule -> ((Map<?, ?>) schedule).get("versionOf")).findFirst().orElseThrow());
+        } finally {
+            second.shutdown();
+        }
+    }
+
+    @Test
+    void shouldSignOnTheCryptoExecutor() throws Exception {
+        JwtProperties properties = new JwtProperties();
+        properties.getKeyPool().setEnabled(false);
+        properties.getCrypto().setThreads(2);
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "jwtProperties", properties);
+        service.initialize();
+        try {
+            service.generateEcKeyPair("crypto-key");
+            String token = service.generateTokenAsync("user@example.com", Map.of("role", "admin"),
+                Duration.ofMinutes(5), "ES256", "crypto-key").get(10, java.util.concurrent.TimeUnit.SECONDS);
+
+            assertEquals(3, token.split("\\.").length);
+            // The sync API waits for the executor and reports failures as before
+            assertThrows(IllegalArgumentException.class,
+                () -> service.generateToken("user@example.com", Map.of(), Duration.ofMinutes(5), "PS512", "crypto-key"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static void enableRotation(JwtService service) {
+        JwtProperties properties = (JwtProperties) ReflectionTestUtils.getField(service, "jwtProperties");
+        if (properties == null) {
+            properties = new JwtProperties();
+            ReflectionTestUtils.setField(service, "jwtProperties", properties);
+        }
+        properties.getRotation().setIntervalSeconds(3600);
+        properties.getRotation().setPrePublishSeconds(600);
+        properties.getRotation().setMaxTokenLifetimeSeconds(1800);
+    }
+
+    private JwtService newServiceWithKeystore(Path keystore) {
+        JwtProperties properties = new JwtProperties();
+        properties.getKeyPool().setEnabled(false);
+        properties.getKeystore().setEnabled(true);
+        properties.getKeystore().setPath(keystore.toString());
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "jwtProperties", properties);
+        service.initialize();
+        return service;
+    }
+}
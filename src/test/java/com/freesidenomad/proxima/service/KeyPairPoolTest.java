@@ -0,0 +1,74 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.service.KeyPairPool.KeyType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyPairPoolTest {
+
+    private KeyPairPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void prefillsAndRefillsInBackground() throws InterruptedException {
+        pool = new KeyPairPool(Map.of(KeyType.EC, 2));
+        awaitAvailable(KeyType.EC, 2);
+
+        KeyPair first = pool.take(KeyType.EC);
+        assertEquals("EC", first.getPublic().getAlgorithm());
+        assertEquals(1, pool.getHitCount());
+
+        awaitAvailable(KeyType.EC, 2);
+        assertNotSame(first, pool.take(KeyType.EC));
+    }
+
+    @Test
+    void generatesInlineForUnpooledTypes() {
+        pool = new KeyPairPool(Map.of(KeyType.RSA, 0));
+
+        KeyPair keyPair = pool.take(KeyType.ED25519);
+
+        assertEquals("EdDSA", keyPair.getPublic().getAlgorithm());
+        assertEquals(0, pool.available(KeyType.ED25519));
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    void pollsOnlyPairsThatAreReady() throws InterruptedException {
+        pool = new KeyPairPool(Map.of(KeyType.EC, 1));
+
+        assertNull(pool.poll(KeyType.ED25519));
+        awaitAvailable(KeyType.EC, 1);
+        assertEquals("EC", pool.poll(KeyType.EC).getPublic().getAlgorithm());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+    }
+
+    @Test
+    void fallsBackToInlineGenerationAfterShutdown() {
+        pool = new KeyPairPool(Map.of(KeyType.EC, 1));
+        pool.shutdown();
+
+        assertNotNull(pool.take(KeyType.EC));
+        assertNotNull(pool.take(KeyType.EC));
+    }
+
+    private void awaitAvailable(KeyType type, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pool.available(type) < count) {
+            assertTrue(System.currentTimeMillis() < deadline, "Pool was not refilled in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -153,6 +153,24 @@ class OidcClientServiceTest {
         assertFalse(service.isValidRedirectUri("test-client", "http://localhost:8080/callback"));
     }
 
+    @Test
+    void shouldMatchRedirectUriPatterns() {
+        OidcClient client = OidcClient.create("pattern-client", "Pattern Client", "Wildcard redirect URIs",
+            List.of("http://localhost:*/callback", "https://*.example.com/callback"), List.of("openid"));
+        service.registerClient(client);
+
+        assertTrue(service.isValidRedirectUri("pattern-client", "http://localhost:3000/callback"));
+        assertTrue(service.isValidRedirectUri("pattern-client", "https://app.example.com/callback"));
+        assertFalse(service.isValidRedirectUri("pattern-client", "https://evil.com/x.example.com/callback"));
+        assertFalse(service.isValidRedirectUri("pattern-client", "https://evil.com@app.example.com/callback"));
+        assertFalse(service.isValidRedirectUri("pattern-client", "http://localhost:3000/callback/other"));
+
+        // Replacing the list takes effect on the next check
+        client.setRedirectUris(List.of("http://localhost:8080/callback"));
+        assertFalse(service.isValidRedirectUri("pattern-client", "http://localhost:3000/callback"));
+        assertTrue(service.isValidRedirectUri("pattern-client", "http://localhost:8080/callback"));
+    }
+
     @Test
     void shouldGetStats() {
         OidcClientService.ClientStats stats = service.getStats();
@@ -0,0 +1,123 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.config.OidcStateProperties;
+import com.freesidenomad.proxima.model.oidc.AuthorizationCode;
+import com.freesidenomad.proxima.model.oidc.OidcClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OidcStateStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OidcStateStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private OidcStateStore open(OidcStateProperties.Durability durability, int compactAfterRecords) throws IOException {
+        OidcStateProperties properties = new OidcStateProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(tempDir.toString());
+        properties.setDurability(durability);
+        properties.setCompactAfterRecords(compactAfterRecords);
+        OidcStateStore opened = new OidcStateStore();
+        ReflectionTestUtils.setField(opened, "properties", properties);
+        opened.open();
+        return opened;
+    }
+
+    @Test
+    void recoversJournaledChangesAfterRestart() throws IOException {
+        store = open(OidcStateProperties.Durability.ALWAYS, 1000);
+        OidcClient client = OidcClient.create("machine", "Machine", "Load generator",
+            List.of("http://localhost/callback"), List.of("read"));
+        client.setClientSecret("s3cret");
+        store.put("clients", "machine", client);
+        store.put("clients", "removed", client);
+        store.remove("clients", "removed");
+        store.close();
+
+        store = open(OidcStateProperties.Durability.ALWAYS, 1000);
+        Map<String, OidcClient> clients = store.load("clients", OidcClient.class);
+
+        assertEquals(1, clients.size());
+        OidcClient restored = clients.get("machine");
+        assertEquals("s3cret", restored.getClientSecret());
+        assertEquals(client.getCreatedAt(), restored.getCreatedAt());
+        assertEquals(List.of("http://localhost/callback"), restored.getRedirectUris());
+    }
+
+    @Test
+    void compactsJournalIntoSnapshot() throws Exception {
+        store = open(OidcStateProperties.Durability.BATCH, 5);
+        for (int i = 0; i < 20; i++) {
+            store.put("authorization-codes", "code-" + i,
+                AuthorizationCode.create("client", "http://localhost/callback", "openid", null, null, "user"));
+        }
+        for (int i = 0; i < 10; i++) {
+            store.remove("authorization-codes", "code-" + i);
+        }
+        store.compact();
+        store.close();
+
+        assertTrue(Files.exists(tempDir.resolve("snapshot.json")));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            // Only the journal started by the last compaction is kept
+            assertEquals(1, files.filter(file -> file.getFileName().toString().startsWith("journal-")).count());
+        }
+
+        store = open(OidcStateProperties.Durability.NONE, 5);
+        Map<String, AuthorizationCode> codes = store.load("authorization-codes", AuthorizationCode.class);
+        assertEquals(10, codes.size());
+        assertTrue(codes.containsKey("code-19"));
+        assertFalse(codes.containsKey("code-0"));
+    }
+
+    @Test
+    void ignoresTornLastRecord() throws IOException {
+        store = open(OidcStateProperties.Durability.ALWAYS, 1000);
+        store.put("clients", "kept", Map.of("clientId", "kept"));
+        store.close();
+
+        Path journal;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            journal = files.filter(file -> file.getFileName().toString().startsWith("journal-"))
+                .max(Path::compareTo).orElseThrow();
+        }
+        Files.writeString(journal, "{\"op\":\"put\",\"ns\":\"clients\",\"key\":\"torn\",\"val",
+            StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        store = open(OidcStateProperties.Durability.ALWAYS, 1000);
+        Map<String, Map> clients = store.load("clients", Map.class);
+        assertEquals(Map.of("kept", Map.of("clientId", "kept")), clients);
+    }
+
+    @Test
+    void doesNothingWhenDisabled() throws IOException {
+        store = new OidcStateStore();
+        store.open();
+        store.put("clients", "ignored", Map.of("clientId", "ignored"));
+
+        assertFalse(store.isEnabled());
+        assertTrue(store.load("clients", Map.class).isEmpty());
+    }
+}
@@ -1,21 +1,34 @@
 package com.freesidenomad.proxima.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.freesidenomad.proxima.config.OidcStateProperties;
+import com.freesidenomad.proxima.config.OidcTokenProperties;
 import com.freesidenomad.proxima.model.HeaderPreset;
+import com.freesidenomad.proxima.model.ProximaConfig;
 import com.freesidenomad.proxima.model.oidc.OidcPresetConfig;
 import com.freesidenomad.proxima.model.oidc.OidcTokens;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -71,8 +84,7 @@ class OidcTokenServiceTest {
         String expectedIdToken = "id.token.jwt";
         String expectedAccessToken = "access.token.jwt";
 
-        when(jwtService.generateToken(eq("test-user-123"), any(Map.class),
-                eq(Duration.ofSeconds(3600)), eq("RS256"), eq("default")))
+        when(jwtService.signTemplate(any(ClaimsTemplate.class), eq(Duration.ofSeconds(3600))))
                 .thenReturn(expectedIdToken)
                 .thenReturn(expectedAccessToken);
 
@@ -89,15 +101,35 @@ class OidcTokenServiceTest {
         assertTrue(result.getExpiresAt().isAfter(Instant.now()));
 
         // Verify JWT service was called twice (ID token and access token)
-        verify(jwtService, times(2)).generateToken(
-                eq("test-user-123"),
-                any(Map.class),
-                eq(Duration.ofSeconds(3600)),
-                eq("RS256"),
-                eq("default")
+        verify(jwtService, times(2)).signTemplate(
+                argThat(template -> "test-user-123".equals(template.getClaims().get("sub"))
+                        && "RS256".equals(template.getAlgorithm())
+                        && "default".equals(template.getKeyId())),
+                eq(Duration.ofSeconds(3600))
         );
     }
 
+    @Test
+    void shouldCompileClaimsOncePerPresetConfiguration() {
+        // Every lookup returns a fresh copy of the preset, like the JSON configuration service
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        when(configurationService.getPreset("oidc-preset")).thenAnswer(invocation -> {
+            HeaderPreset copy = new HeaderPreset();
+            copy.setName("oidc-preset");
+            copy.setOidcConfig(mapper.convertValue(oidcConfig, OidcPresetConfig.class));
+            return copy;
+        });
+        when(jwtService.signTemplate(any(), any())).thenReturn("token");
+
+        oidcTokenService.generateTokensForPreset(configurationService.getPreset("oidc-preset"));
+        oidcTokenService.generateTokensForPreset(configurationService.getPreset("oidc-preset"));
+
+        ArgumentCaptor<ClaimsTemplate> templates = ArgumentCaptor.forClass(ClaimsTemplate.class);
+        verify(jwtService, times(4)).signTemplate(templates.capture(), any());
+        assertSame(templates.getAllValues().get(0), templates.getAllValues().get(2));
+        assertSame(templates.getAllValues().get(1), templates.getAllValues().get(3));
+    }
+
     @Test
     void shouldThrowExceptionForNonOidcEnabledPreset() {
         // When & Then
@@ -114,7 +146,7 @@ class OidcTokenServiceTest {
     void shouldCacheTokensWithProperExpiration() {
         // Given
         String accessToken = "cached.access.token";
-        when(jwtService.generateToken(any(), any(), any(), any(), any()))
+        when(jwtService.signTemplate(any(), any()))
                 .thenReturn(accessToken);
 
         // When - Generate tokens first time
@@ -130,7 +162,65 @@ class OidcTokenServiceTest {
         // Then - Should return cached tokens without calling JWT service again
         assertNotNull(cachedTokens);
         assertEquals(accessToken, cachedTokens.getAccessToken());
-        verify(jwtService, times(2)).generateToken(any(), any(), any(), any(), any()); // Only original calls
+        verify(jwtService, times(2)).signTemplate(any(), any()); // Only original calls
+    }
+
+    @Test
+    void shouldServePrecomputedTokenHeaders() {
+        // Given
+        when(jwtService.signTemplate(any(), any()))
+                .thenReturn("id.token", "access.token");
+        oidcTokenService.generateTokensForPreset(oidcEnabledPreset);
+
+        // When
+        OidcTokenHeaders first = oidcTokenService.getTokenHeaders("oidc-preset");
+        OidcTokenHeaders second = oidcTokenService.getTokenHeaders("oidc-preset");
+
+        // Then - The same cached values are served without minting again
+        assertEquals("Bearer access.token", first.getAuthorization());
+        assertEquals("id.token", first.getIdToken());
+        assertSame(first, second);
+        verify(jwtService, times(2)).signTemplate(any(), any());
+        verifyNoInteractions(configurationService);
+    }
+
+    @Test
+    void shouldShareOneMintBetweenConcurrentCacheMisses() throws Exception {
+        // Given - The first signature blocks until every caller has missed the cache
+        CountDownLatch signing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(configurationService.getPreset("oidc-preset")).thenReturn(oidcEnabledPreset);
+        when(jwtService.signTemplate(any(), any())).thenAnswer(invocation -> {
+            signing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return "shared.token";
+        });
+
+        // When
+        List<Thread> callers = new ArrayList<>();
+        List<OidcTokens> results = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 8; i++) {
+            Thread caller = new Thread(() -> results.add(oidcTokenService.getValidTokensForPreset("oidc-preset")));
+            callers.add(caller);
+            caller.start();
+        }
+        assertTrue(signing.await(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (callers.stream().anyMatch(caller -> caller.getState() != Thread.State.WAITING
+                && caller.getState() != Thread.State.TIMED_WAITING)) {
+            assertTrue(System.currentTimeMillis() < deadline, "Callers did not block in time");
+            Thread.sleep(10);
+        }
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join(10_000);
+        }
+
+        // Then - One mint signed both tokens and every caller received them
+        assertEquals(8, results.size());
+        assertTrue(results.stream().allMatch(tokens -> tokens == results.get(0)));
+        verify(jwtService, times(2)).signTemplate(any(), any());
+        assertEquals(1L, oidcTokenService.getTokenCacheStats().get("synchronousMints"));
     }
 
     @Test
@@ -147,7 +237,7 @@ class OidcTokenServiceTest {
         oidcEnabledPreset.cacheTokens(expiredTokens);
 
         when(configurationService.getPreset("oidc-preset")).thenReturn(oidcEnabledPreset);
-        when(jwtService.generateToken(any(), any(), any(), any(), any()))
+        when(jwtService.signTemplate(any(), any()))
                 .thenReturn("new.access.token");
 
         // When
@@ -156,7 +246,50 @@ class OidcTokenServiceTest {
         // Then - Should generate new tokens
         assertNotNull(result);
         assertEquals("new.access.token", result.getAccessToken());
-        verify(jwtService, times(2)).generateToken(any(), any(), any(), any(), any());
+        verify(jwtService, times(2)).signTemplate(any(), any());
+    }
+
+    @Test
+    void shouldRefreshTokensInBackgroundBeforeExpiration() throws InterruptedException {
+        // Given - Short-lived tokens and a fast refresh wheel
+        oidcConfig.setTokenExpirationSeconds(1L);
+        OidcTokenProperties properties = new OidcTokenProperties();
+        properties.getRefresh().setTickMillis(10);
+        ReflectionTestUtils.setField(oidcTokenService, "tokenProperties", properties);
+        when(configurationService.getPreset("oidc-preset")).thenReturn(oidcEnabledPreset);
+        when(jwtService.signTemplate(any(), any())).thenReturn("first.token");
+        // Refreshes are signed in the background
+        when(jwtService.signTemplateAsync(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("refreshed.token"));
+
+        oidcTokenService.startRefreshScheduler();
+        try {
+            // When
+            OidcTokens first = oidcTokenService.generateTokensForPreset(oidcEnabledPreset);
+
+            // Then - Tokens are replaced at about 80% of their lifetime, before they expire
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((Long) oidcTokenService.getTokenCacheStats().get("refreshes") == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "Tokens were not refreshed in time");
+                Thread.sleep(10);
+            }
+            OidcTokens refreshed = oidcTokenService.getValidTokensForPreset("oidc-preset");
+            assertEquals("refreshed.token", refreshed.getAccessToken());
+            assertTrue(refreshed.getCreatedAt().isBefore(first.getExpiresAt()));
+            assertEquals(0L, oidcTokenService.getTokenCacheStats().get("synchronousMints"));
+        } finally {
+            oidcTokenService.stopRefreshScheduler();
+        }
+    }
+
+    @Test
+    void shouldRejectRefreshFractionOutsideTokenLifetime() {
+        OidcTokenProperties properties = new OidcTokenProperties();
+        properties.getRefresh().setFraction(0.95);
+        properties.getRefresh().setJitter(0.1);
+        ReflectionTestUtils.setField(oidcTokenService, "tokenProperties", properties);
+
+        assertThrows(IllegalArgumentException.class, () -> oidcTokenService.startRefreshScheduler());
     }
 
     @Test
@@ -164,36 +297,100 @@ class OidcTokenServiceTest {
         // Given
         List<HeaderPreset> oidcPresets = Arrays.asList(oidcEnabledPreset);
         when(configurationService.getOidcEnabledPresets()).thenReturn(oidcPresets);
-        when(jwtService.generateToken(any(), any(), any(), any(), any()))
-                .thenReturn("startup.token");
+        when(jwtService.signTemplateAsync(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("startup.token"));
 
         // When
         oidcTokenService.generateTokensForAllPresets();
 
         // Then
         verify(configurationService).getOidcEnabledPresets();
-        verify(jwtService, times(2)).generateToken(any(), any(), any(), any(), any());
+        verify(jwtService, times(2)).signTemplateAsync(any(), any());
         assertNotNull(oidcEnabledPreset.getValidAccessToken());
     }
 
+    @Test
+    void shouldRestorePersistedTokensInsteadOfMintingOnStartup(@TempDir Path stateDir) throws Exception {
+        // Given - Tokens minted and persisted before a restart
+        OidcStateProperties stateProperties = new OidcStateProperties();
+        stateProperties.setEnabled(true);
+        stateProperties.setDirectory(stateDir.toString());
+        OidcStateStore store = new OidcStateStore();
+        ReflectionTestUtils.setField(store, "properties", stateProperties);
+        store.open();
+        ReflectionTestUtils.setField(oidcTokenService, "stateStore", store);
+        when(jwtService.getSigningKeyFingerprint("RS256", "default")).thenReturn("rsa-default");
+        when(jwtService.signTemplate(any(), any())).thenReturn("persisted.token");
+        oidcTokenService.generateTokensForPreset(oidcEnabledPreset);
+        store.close();
+
+        OidcStateStore reopened = new OidcStateStore();
+        ReflectionTestUtils.setField(reopened, "properties", stateProperties);
+        reopened.open();
+        OidcTokenServiceImpl restarted = new OidcTokenServiceImpl(jwtService, configurationService, "http://localhost:8080");
+        ReflectionTestUtils.setField(restarted, "stateStore", reopened);
+        when(configurationService.getPreset("oidc-preset")).thenReturn(oidcEnabledPreset);
+        when(configurationService.getOidcEnabledPresets()).thenReturn(List.of(oidcEnabledPreset));
+
+        // When
+        restarted.restoreTokens();
+        restarted.generateTokensForAllPresets();
+
+        // Then - The restored tokens are served and nothing is minted again
+        assertEquals("persisted.token", restarted.getValidTokensForPreset("oidc-preset").getAccessToken());
+        assertEquals("Bearer persisted.token", restarted.getTokenHeaders("oidc-preset").getAuthorization());
+        assertEquals(1, restarted.getTokenCacheStats().get("startupRestored"));
+        assertEquals(0, restarted.getTokenCacheStats().get("startupMinted"));
+        verify(jwtService, times(2)).signTemplate(any(), any());
+        reopened.close();
+    }
+
+    @Test
+    void shouldGenerateStartupTokensInParallel() {
+        // Given - Many presets and a pool of four threads
+        List<HeaderPreset> oidcPresets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            HeaderPreset preset = new HeaderPreset();
+            preset.setName("oidc-preset-" + i);
+            preset.setOidcConfig(oidcConfig);
+            oidcPresets.add(preset);
+        }
+        OidcTokenProperties properties = new OidcTokenProperties();
+        properties.getStartup().setParallelism(4);
+        ReflectionTestUtils.setField(oidcTokenService, "tokenProperties", properties);
+        when(configurationService.getOidcEnabledPresets()).thenReturn(oidcPresets);
+        when(jwtService.signTemplateAsync(any(), any())).thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> "startup.token"));
+
+        // When
+        oidcTokenService.generateTokensForAllPresets();
+
+        // Then - Every preset is minted before the method returns
+        Map<String, Object> stats = oidcTokenService.getTokenCacheStats();
+        assertEquals(20, stats.get("cachedPresets"));
+        assertEquals(20, stats.get("startupMinted"));
+        assertEquals(0, stats.get("startupFailed"));
+        verify(jwtService, times(40)).signTemplateAsync(any(), any());
+    }
+
+    @Test
+    void shouldSkipStartupTokensInLazyMode() {
+        // Given
+        OidcTokenProperties properties = new OidcTokenProperties();
+        properties.getStartup().setMode(OidcTokenProperties.Mode.LAZY);
+        ReflectionTestUtils.setField(oidcTokenService, "tokenProperties", properties);
+
+        // When
+        oidcTokenService.generateTokensForAllPresets();
+
+        // Then - Tokens are minted on first use instead
+        verifyNoInteractions(jwtService, configurationService);
+        assertEquals(0, oidcTokenService.getTokenCacheStats().get("cachedPresets"));
+    }
+
     @Test
     void shouldIntegrateWithExistingJwtService() {
         // Given
-        when(jwtService.generateToken(
-                eq("test-user-123"),
-                argThat(claims ->
-                    claims.containsKey("iss") &&
-                    claims.containsKey("aud") &&
-                    claims.containsKey("exp") &&
-                    claims.containsKey("iat") &&
-                    claims.containsKey("sub") &&
-                    "test@example.com".equals(claims.get("email")) &&
-                    "Test User".equals(claims.get("name"))
-                ),
-                eq(Duration.ofSeconds(3600)),
-                eq("RS256"),
-                eq("default")
-        )).thenReturn("jwt.token");
+        when(jwtService.signTemplate(any(), eq(Duration.ofSeconds(3600)))).thenReturn("jwt.token");
 
         // When
         OidcTokens result = oidcTokenService.generateTokensForPreset(oidcEnabledPreset);
@@ -203,12 +400,15 @@ class OidcTokenServiceTest {
         assertEquals("jwt.token", result.getAccessToken());
 
         // Verify correct claims were passed to JWT service
-        verify(jwtService, times(2)).generateToken(
-                eq("test-user-123"),
-                argThat(claims -> claims.containsKey("iss") && claims.containsKey("aud")),
-                eq(Duration.ofSeconds(3600)),
-                eq("RS256"),
-                eq("default")
+        verify(jwtService, times(2)).signTemplate(
+                argThat(template -> {
+                    Map<String, Object> claims = template.getClaims();
+                    return claims.containsKey("aud") &&
+                        "test-user-123".equals(claims.get("sub")) &&
+                        "test@example.com".equals(claims.get("email")) &&
+                        "Test User".equals(claims.get("name"));
+                }),
+                eq(Duration.ofSeconds(3600))
         );
     }
 
@@ -216,7 +416,7 @@ class OidcTokenServiceTest {
     void shouldHandleTokenExpirationGracefully() {
         // Given - Preset with no tokens initially
         when(configurationService.getPreset("oidc-preset")).thenReturn(oidcEnabledPreset);
-        when(jwtService.generateToken(any(), any(), any(), any(), any()))
+        when(jwtService.signTemplate(any(), any()))
                 .thenReturn("fresh.token");
 
         // When - Get tokens for preset with no cached tokens
@@ -225,7 +425,7 @@ class OidcTokenServiceTest {
         // Then - Should generate new tokens
         assertNotNull(result);
         assertEquals("fresh.token", result.getAccessToken());
-        verify(jwtService, times(2)).generateToken(any(), any(), any(), any(), any());
+        verify(jwtService, times(2)).signTemplate(any(), any());
     }
 
     @Test
@@ -257,7 +457,7 @@ class OidcTokenServiceTest {
     @Test
     void shouldClearTokensForPreset() {
         // Given
-        when(jwtService.generateToken(any(), any(), any(), any(), any())).thenReturn("token");
+        when(jwtService.signTemplate(any(), any())).thenReturn("token");
         oidcTokenService.generateTokensForPreset(oidcEnabledPreset);
 
         // When
@@ -270,13 +470,13 @@ class OidcTokenServiceTest {
         OidcTokens result = oidcTokenService.getValidTokensForPreset("oidc-preset");
 
         // Should call JWT service again (2 original + 2 new)
-        verify(jwtService, times(4)).generateToken(any(), any(), any(), any(), any());
+        verify(jwtService, times(4)).signTemplate(any(), any());
     }
 
     @Test
     void shouldProvideTokenCacheStatistics() {
         // Given - Generate tokens for preset
-        when(jwtService.generateToken(any(), any(), any(), any(), any())).thenReturn("token");
+        when(jwtService.signTemplate(any(), any())).thenReturn("token");
         oidcTokenService.generateTokensForPreset(oidcEnabledPreset);
 
         // When
@@ -299,14 +499,50 @@ class OidcTokenServiceTest {
 
         List<HeaderPreset> presets = Arrays.asList(oidcEnabledPreset, faultyPreset);
         when(configurationService.getOidcEnabledPresets()).thenReturn(presets);
-        when(jwtService.generateToken(any(), any(), any(), any(), any()))
-                .thenReturn("good.token")
-                .thenThrow(new RuntimeException("Token generation failed"));
+        when(jwtService.signTemplateAsync(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("good.token"), CompletableFuture.completedFuture("good.token"))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Token generation failed")));
 
         // When - Should not throw exception even if one preset fails
         assertDoesNotThrow(() -> oidcTokenService.generateTokensForAllPresets());
 
         // Then - Should have attempted to generate for both presets
         verify(configurationService).getOidcEnabledPresets();
+        assertEquals(1, oidcTokenService.getTokenCacheStats().get("startupFailed"));
+    }
+
+    @Test
+    void shouldClearOnlyPresetsWhoseOidcConfigChanged() {
+        // Given
+        when(jwtService.signTemplate(any(), any())).thenReturn("token");
+        oidcTokenService.generateTokensForPreset(oidcEnabledPreset);
+
+        ProximaConfig previous = configWithOidcSubject("test-user-123");
+        ProximaConfig unchanged = configWithOidcSubject("test-user-123");
+        ProximaConfig changed = configWithOidcSubject("other-user");
+
+        // When - Reload without OIDC changes
+        oidcTokenService.onConfigurationChanged(new ConfigurationChangedEvent(
+                this, previous, unchanged, ConfigurationDiff.between(previous, unchanged), 2));
+
+        // Then - Tokens are kept
+        assertEquals(1, oidcTokenService.getTokenCacheStats().get("cachedPresets"));
+
+        // When - Reload with a changed OIDC subject
+        oidcTokenService.onConfigurationChanged(new ConfigurationChangedEvent(
+                this, unchanged, changed, ConfigurationDiff.between(unchanged, changed), 3));
+
+        // Then - Tokens for the preset are dropped
+        assertEquals(0, oidcTokenService.getTokenCacheStats().get("cachedPresets"));
+    }
+
+    private ProximaConfig configWithOidcSubject(String subject) {
+        ProximaConfig.ConfigHeaderPreset preset = new ProximaConfig.ConfigHeaderPreset();
+        preset.setName("oidc-preset");
+        preset.setOidcConfig(OidcPresetConfig.builder().enabled(true).subject(subject).build());
+
+        ProximaConfig config = new ProximaConfig();
+        config.setPresets(List.of(preset));
+        return config;
     }
-}
\ No newline at end of file
+}
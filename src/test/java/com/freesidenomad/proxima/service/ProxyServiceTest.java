@@ -1,6 +1,10 @@
 package com.freesidenomad.proxima.service;
 
 import com.freesidenomad.proxima.config.ProximaProperties;
+import com.freesidenomad.proxima.model.ProximaConfig;
+import com.freesidenomad.proxima.service.routing.RouteRequest;
+import com.freesidenomad.proxima.service.routing.RouteResolution;
+import com.freesidenomad.proxima.service.routing.RouteTable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -45,7 +49,8 @@ class ProxyServiceTest {
 
     @Test
     void testForwardRequestBuildsCorrectTargetUrl() {
-        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+        request.setServerName("api.example.com");
         request.addHeader("Content-Type", "application/json");
         request.setRemoteAddr("127.0.0.1");
 
@@ -53,13 +58,17 @@ class ProxyServiceTest {
         String path = "/api/test";
         String expectedUrl = "http://test-server.com/api/test";
 
-        when(routeService.resolveTargetUrl(path)).thenReturn(expectedUrl);
+        when(routeService.resolveTargetUrl(any(RouteRequest.class))).thenReturn(expectedUrl);
 
         CompletableFuture<ResponseEntity<String>> result =
             proxyService.forwardRequest(method, path, request, null);
 
         assertNotNull(result);
-        verify(routeService).resolveTargetUrl(path);
+        verify(routeService).resolveTargetUrl(argThat((RouteRequest routeRequest) ->
+                path.equals(routeRequest.getPath())
+                        && "api.example.com".equals(routeRequest.getHost())
+                        && "GET".equals(routeRequest.getMethod())
+                        && "application/json".equals(routeRequest.getHeader("Content-Type"))));
     }
 
     @Test
@@ -70,7 +79,8 @@ class ProxyServiceTest {
         String method = "GET";
         String path = "/proxima/api/config";
 
-        when(routeService.resolveTargetUrl(path)).thenReturn(null);
+        when(routeService.resolveTargetUrl(argThat((RouteRequest routeRequest) -> path.equals(routeRequest.getPath()))))
+                .thenReturn(null);
 
         CompletableFuture<ResponseEntity<String>> result =
             proxyService.forwardRequest(method, path, request, null);
@@ -79,4 +89,21 @@ class ProxyServiceTest {
         ResponseEntity<String> response = result.join();
         assertEquals(404, response.getStatusCodeValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testForwardRequestReusesTheFilterResolution() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test");
+        request.setRemoteAddr("127.0.0.1");
+        String path = "/api/test?page=2";
+        RouteResolution resolution = RouteResolution.resolve(RouteTable.compile(new ProximaConfig(), 1), RouteRequest.of(path));
+        request.setAttribute(RouteResolution.REQUEST_ATTRIBUTE, resolution);
+
+        when(routeService.resolveTargetUrl(any(RouteRequest.class), same(resolution))).thenReturn(null);
+
+        ResponseEntity<String> response = proxyService.forwardRequest("GET", path, request, null).join();
+
+        assertEquals(404, response.getStatusCodeValue());
+        verify(routeService, never()).resolveTargetUrl(any(RouteRequest.class));
+        verify(routeService, never()).resolve(any());
+    }
+}
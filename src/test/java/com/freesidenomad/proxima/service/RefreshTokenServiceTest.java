@@ -0,0 +1,79 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.config.OidcTokenProperties;
+import com.freesidenomad.proxima.model.oidc.RefreshTokenGrant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshTokenServiceTest {
+
+    private RefreshTokenServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RefreshTokenServiceImpl();
+    }
+
+    @Test
+    void shouldRotateRefreshToken() {
+        RefreshTokenGrant issued = service.issueRefreshToken("test-client", "user@example.com", "openid", "preset");
+
+        RefreshTokenGrant rotated = service.rotateRefreshToken(issued.getRefreshToken(), "test-client");
+
+        assertNotEquals(issued.getRefreshToken(), rotated.getRefreshToken());
+        assertEquals("user@example.com", rotated.getSubject());
+        assertEquals("openid", rotated.getScope());
+        assertEquals("preset", rotated.getPresetName());
+        assertEquals(1, service.getStats().issued);
+        assertEquals(1, service.getStats().rotated);
+    }
+
+    @Test
+    void shouldRevokeGrantWhenConsumedTokenIsReused() {
+        RefreshTokenGrant issued = service.issueRefreshToken("test-client", "user", "openid", "preset");
+        RefreshTokenGrant rotated = service.rotateRefreshToken(issued.getRefreshToken(), "test-client");
+
+        // The old token is presented again, for example by an attacker who copied it
+        assertThrows(IllegalArgumentException.class,
+            () -> service.rotateRefreshToken(issued.getRefreshToken(), "test-client"));
+
+        // The legitimate successor is revoked along with it
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+            () -> service.rotateRefreshToken(rotated.getRefreshToken(), "test-client"));
+        assertEquals("Refresh token revoked", exception.getMessage());
+        assertEquals(1, service.getStats().reuseDetected);
+    }
+
+    @Test
+    void shouldRejectUnknownTokensAndOtherClients() {
+        RefreshTokenGrant issued = service.issueRefreshToken("test-client", "user", "openid", "preset");
+
+        assertThrows(IllegalArgumentException.class, () -> service.rotateRefreshToken("unknown", "test-client"));
+        assertThrows(IllegalArgumentException.class,
+            () -> service.rotateRefreshToken(issued.getRefreshToken(), "other-client"));
+        assertEquals(2, service.getStats().rejected);
+
+        // A rejected attempt does not consume the token
+        assertNotNull(service.rotateRefreshToken(issued.getRefreshToken(), "test-client"));
+    }
+
+    @Test
+    void shouldBoundStoreAndDropConsumedTokensFirst() {
+        OidcTokenProperties properties = new OidcTokenProperties();
+        properties.getRefreshTokens().setMaxEntries(2);
+        ReflectionTestUtils.setField(service, "tokenProperties", properties);
+
+        RefreshTokenGrant first = service.issueRefreshToken("client", "a", "openid", "preset");
+        service.rotateRefreshToken(first.getRefreshToken(), "client");
+
+        // The consumed token is dropped to make room for a new grant
+        assertNotNull(service.issueRefreshToken("client", "b", "openid", "preset"));
+        assertEquals(2, service.getStats().storedTokens);
+
+        // Without consumed or expired tokens to drop, new grants get no refresh token
+        assertNull(service.issueRefreshToken("client", "c", "openid", "preset"));
+    }
+}
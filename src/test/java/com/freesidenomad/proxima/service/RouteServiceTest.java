@@ -1,6 +1,7 @@
 package com.freesidenomad.proxima.service;
 
 import com.freesidenomad.proxima.config.ProximaProperties;
+import com.freesidenomad.proxima.config.RouteCacheProperties;
 import com.freesidenomad.proxima.model.ProximaConfig;
 import com.freesidenomad.proxima.model.RouteRule;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -62,7 +64,7 @@ class RouteServiceTest {
         configRoutes.add(disabledRoute);
 
         mockConfig.setRoutes(configRoutes);
-        mockConfig.setReservedRoutes(Arrays.asList("/api/**", "/actuator/**", "/dashboard/**"));
+        mockConfig.setReservedRoutes(Arrays.asList("/internal/**", "/actuator/**", "/dashboard/**"));
     }
 
     @Test
@@ -92,6 +94,41 @@ class RouteServiceTest {
         assertEquals("http://default-service.com/api/disabled/test", result);
     }
 
+    @Test
+    void testResolveTargetUrlHonoursConfiguredReservedRoutes() {
+        ProximaConfig.ConfigRoute catchAll = new ProximaConfig.ConfigRoute();
+        catchAll.setPathPattern("/**");
+        catchAll.setTargetUrl("http://catch-all.com");
+        List<ProximaConfig.ConfigRoute> configRoutes = new ArrayList<>(mockConfig.getRoutes());
+        configRoutes.add(catchAll);
+        mockConfig.setRoutes(configRoutes);
+        when(jsonConfigurationService.loadConfiguration()).thenReturn(mockConfig);
+
+        assertNull(routeService.resolveTargetUrl("/internal/metrics"));
+        assertNull(routeService.resolveTargetUrl("/dashboard?tab=1"));
+        assertNull(routeService.resolveTargetUrl("/proxima/ui"));
+        assertNull(routeService.resolveTargetUrl("/"));
+        assertTrue(routeService.findMatchingRouteWithPriority("/internal/metrics").isEmpty());
+        assertEquals("http://catch-all.com/internals", routeService.resolveTargetUrl("/internals"));
+    }
+
+    @Test
+    void testLookupCacheServesRepeatedResolutions() {
+        RouteCacheProperties cacheProperties = new RouteCacheProperties();
+        cacheProperties.setEnabled(true);
+        ReflectionTestUtils.setField(routeService, "routeCacheProperties", cacheProperties);
+        routeService.initLookupCache();
+        when(jsonConfigurationService.loadConfiguration()).thenReturn(mockConfig);
+
+        assertEquals("http://user-service.com/123", routeService.resolveTargetUrl("/api/users/123"));
+        assertEquals("http://user-service.com/123", routeService.resolveTargetUrl("/api/users/123"));
+        assertTrue(routeService.findMatchingRouteWithPriority("/api/users/123").isPresent());
+        assertNull(routeService.resolveTargetUrl("/internal/metrics"));
+
+        assertEquals(2, routeService.getLookupCache().getHitCount());
+        assertEquals(2, routeService.getLookupCache().getMissCount());
+    }
+
     @Test
     void testFindMatchingRoute() {
         when(jsonConfigurationService.loadConfiguration()).thenReturn(mockConfig);
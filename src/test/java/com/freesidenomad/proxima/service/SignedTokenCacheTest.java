@@ -0,0 +1,103 @@
+package com.freesidenomad.proxima.service;
+
+import com.freesidenomad.proxima.service.SignedTokenCache.SignedToken;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedTokenCacheTest {
+
+    private final Key key = new SecretKeySpec(new byte[32], "HmacSHA256");
+
+    @Test
+    void reusesTokenOnlyWithinReuseWindow() {
+        SignedTokenCache cache = new SignedTokenCache(10, 0.5);
+        Instant issuedAt = Instant.parse("2024-01-01T00:00:00Z");
+        String cacheKey = cache.keyFor("alice", Map.of("role", "admin"), Duration.ofMinutes(10), "HS256", "default");
+        cache.put(cacheKey, token(cache, issuedAt, "default", key));
+
+        assertNotNull(cache.get(cacheKey, key, issuedAt.plusSeconds(299)));
+        assertNull(cache.get(cacheKey, key, issuedAt.plusSeconds(300)));
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void missesWhenSigningKeyChanged() {
+        SignedTokenCache cache = new SignedTokenCache(10, 0.5);
+        Instant issuedAt = Instant.now();
+        String cacheKey = cache.keyFor("alice", Map.of(), Duration.ofMinutes(10), "HS256", "default");
+        cache.put(cacheKey, token(cache, issuedAt, "default", key));
+
+        Key rotated = new SecretKeySpec(new byte[32], "HmacSHA256");
+        assertNull(cache.get(cacheKey, rotated, issuedAt));
+    }
+
+    @Test
+    void keyDependsOnLifetimeButNotClaimOrder() {
+        SignedTokenCache cache = new SignedTokenCache(10, 0.5);
+        Map<String, Object> claims = Map.of("a", 1, "b", Map.of("y", 2, "x", 3));
+
+        assertEquals(cache.keyFor("alice", claims, Duration.ofMinutes(10), "HS256", "default"),
+                cache.keyFor("alice", Map.copyOf(claims), Duration.ofMinutes(10), "HS256", "default"));
+        assertNotEquals(cache.keyFor("alice", claims, Duration.ofMinutes(10), "HS256", "default"),
+                cache.keyFor("alice", claims, Duration.ofMinutes(11), "HS256", "default"));
+        assertNull(cache.keyFor("alice", Map.of("jti", "1"), Duration.ofMinutes(10), "HS256", "default"));
+    }
+
+    @Test
+    void rejectsNewEntriesWhenFullOfLiveTokens() {
+        SignedTokenCache cache = new SignedTokenCache(1, 0.5);
+        Instant now = Instant.now();
+        cache.put("first", token(cache, now, "default", key));
+        cache.put("second", token(cache, now, "default", key));
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getRejectionCount());
+
+        cache.invalidateKey("default");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void makesRoomByDroppingTokensPastTheirReuseWindow() {
+        SignedTokenCache cache = new SignedTokenCache(2, 0.5);
+        Instant now = Instant.now();
+        cache.put("stale", token(cache, now.minus(Duration.ofMinutes(6)), "default", key));
+        cache.put("live", token(cache, now, "default", key));
+
+        cache.put("new", token(cache, now, "default", key));
+
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getRejectionCount());
+        assertNotNull(cache.get("new", key, now));
+        assertNull(cache.get("stale", key, now.minus(Duration.ofMinutes(6))));
+    }
+
+    @Test
+    void dropsVerifiedTokensOfOlderKeySetsAndExpiredOnes() {
+        VerifiedTokenCache<String> cache = new VerifiedTokenCache<>(2);
+        Instant now = Instant.now();
+        cache.put("expired", "claims", now.minusSeconds(1), 1);
+        cache.put("old-key-set", "claims", now.plusSeconds(60), 1);
+        cache.put("fresh", "claims", now.plusSeconds(60), 1);
+        assertEquals("claims", cache.get("fresh", 1, now));
+
+        cache.put("rotated", "claims", now.plusSeconds(60), 2);
+
+        assertEquals(1, cache.size());
+        assertEquals("claims", cache.get("rotated", 2, now));
+        assertNull(cache.get("fresh", 1, now));
+    }
+
+    private SignedToken token(SignedTokenCache cache, Instant issuedAt, String keyId, Key signingKey) {
+        Duration lifetime = Duration.ofMinutes(10);
+        return new SignedToken("token", issuedAt, issuedAt.plus(lifetime), cache.reuseUntil(issuedAt, lifetime),
+                keyId, signingKey);
+    }
+}
@@ -0,0 +1,90 @@
+package com.freesidenomad.proxima.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private TimingWheel wheel;
+
+    @AfterEach
+    void tearDown() {
+        if (wheel != null) {
+            wheel.shutdown();
+        }
+    }
+
+    @Test
+    void runsTaskOnExecutorAfterDelay() throws InterruptedException {
+        wheel = new TimingWheel(Duration.ofMillis(5), 8, Runnable::run, Duration.ofMillis(10), "test-wheel");
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // Longer than one turn of the wheel, so the entry has to wait a round
+        wheel.schedule("preset", Duration.ofMillis(100), ran::countDown);
+
+        assertTrue(wheel.isScheduled("preset"));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertFalse(wheel.isScheduled("preset"));
+        // Counted once the executor accepted the task, which with Runnable::run is after it ran
+        long deadline = System.currentTimeMillis() + 5000;
+        while (wheel.getDispatchedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, wheel.getDispatchedCount());
+    }
+
+    @Test
+    void replacesAndCancelsPendingTasks() throws InterruptedException {
+        wheel = new TimingWheel(Duration.ofMillis(5), 8, Runnable::run, Duration.ofMillis(10), "test-wheel");
+        AtomicInteger first = new AtomicInteger();
+        CountDownLatch second = new CountDownLatch(1);
+
+        wheel.schedule("preset", Duration.ofMillis(20), first::incrementAndGet);
+        wheel.schedule("preset", Duration.ofMillis(40), second::countDown);
+        wheel.schedule("other", Duration.ofMillis(20), first::incrementAndGet);
+        wheel.cancel("other");
+
+        assertEquals(1, wheel.size());
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(0, first.get());
+    }
+
+    @Test
+    void defersTasksRejectedByExecutor() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch ran = new CountDownLatch(1);
+        Executor saturatedOnce = task -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RejectedExecutionException("queue full");
+            }
+            task.run();
+        };
+        wheel = new TimingWheel(Duration.ofMillis(5), 8, saturatedOnce, Duration.ofMillis(20), "test-wheel");
+
+        wheel.schedule("preset", Duration.ZERO, ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertEquals(1, wheel.getDeferredCount());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimingWheel(Duration.ZERO, 8, Runnable::run, Duration.ofSeconds(1), "test-wheel"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimingWheel(Duration.ofMillis(10), 0, Runnable::run, Duration.ofSeconds(1), "test-wheel"));
+    }
+}
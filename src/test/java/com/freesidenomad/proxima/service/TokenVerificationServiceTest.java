@@ -0,0 +1,79 @@
+package com.freesidenomad.proxima.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenVerificationServiceTest {
+
+    private JwtService jwtService;
+    private TokenVerificationService verificationService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        verificationService = new TokenVerificationService();
+        ReflectionTestUtils.setField(verificationService, "jwtService", jwtService);
+        verificationService.initialize();
+    }
+
+    @Test
+    void shouldVerifyTokensOfEveryAlgorithm() {
+        jwtService.generateEcKeyPair("ec-key");
+        jwtService.generateEdKeyPair("ed-key");
+
+        for (List<String> key : List.of(List.of("HS256", "default"), List.of("RS256", "default"),
+                List.of("ES256", "ec-key"), List.of("EdDSA", "ed-key"))) {
+            String token = jwtService.generateToken("user@example.com", Map.of("role", "admin"),
+                Duration.ofMinutes(5), key.get(0), key.get(1));
+
+            TokenVerificationService.VerifiedToken verified = verificationService.verify(token);
+            assertEquals(key.get(0), verified.algorithm());
+            assertEquals("user@example.com", verified.claims().get("sub"));
+            assertEquals("admin", verified.claims().get("role"));
+            assertEquals(verified.expiresAt().getEpochSecond(), verified.claims().get("exp"));
+        }
+    }
+
+    @Test
+    void shouldServeRepeatedVerificationsFromTheCache() {
+        String token = jwtService.generateToken("user", Map.of(), Duration.ofMinutes(5), "RS256");
+
+        TokenVerificationService.VerifiedToken first = verificationService.verify(token);
+        assertSame(first, verificationService.verify(token));
+        assertEquals(1L, verificationService.getCacheStats().get("hits"));
+        assertEquals(1, verificationService.getCacheStats().get("size"));
+    }
+
+    @Test
+    void shouldRejectTokensOnceTheirKeyIsDeleted() {
+        jwtService.generateEcKeyPair("short-lived");
+        String token = jwtService.generateToken("user", Map.of(), Duration.ofMinutes(5), "ES256", "short-lived");
+        verificationService.verify(token);
+
+        jwtService.deleteKey("short-lived");
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> verificationService.verify(token));
+        assertTrue(error.getMessage().contains("short-lived"));
+    }
+
+    @Test
+    void shouldRejectTamperedExpiredAndMalformedTokens() {
+        String token = jwtService.generateToken("user", Map.of(), Duration.ofMinutes(5), "HS256");
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + java.util.Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"sub\":\"admin\",\"exp\":4102444800}".getBytes()) + "." + parts[2];
+        String expired = jwtService.generateToken("user", Map.of(), Duration.ofSeconds(-60), "RS256");
+
+        assertThrows(IllegalArgumentException.class, () -> verificationService.verify(forged));
+        assertEquals("Token has expired", assertThrows(IllegalArgumentException.class,
+            () -> verificationService.verify(expired)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> verificationService.verify("not-a-token"));
+        assertThrows(IllegalArgumentException.class, () -> verificationService.verify("e30.e30."));
+    }
+}
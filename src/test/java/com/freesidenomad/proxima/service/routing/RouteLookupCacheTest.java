@@ -0,0 +1,112 @@
+package com.freesidenomad.proxima.service.routing;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteLookupCacheTest {
+
+    @Test
+    void shouldServeHitsUntilTheTableVersionChanges() {
+        RouteTable table = table(1);
+        RouteLookupCache cache = new RouteLookupCache(16, 512);
+        RouteLookupCache.Key key = RouteLookupCache.key(RouteRequest.of("/api/users/1", "Example.com", "get"));
+
+        assertNull(cache.get(key, 1));
+        cache.put(key, RouteResolution.resolve(table, RouteRequest.of("/api/users/1")));
+
+        RouteResolution hit = cache.get(RouteLookupCache.key(RouteRequest.of("/api/users/1", "example.com:443", "GET")), 1);
+        assertNotNull(hit);
+        assertEquals("http://users.com/1", hit.getTargetUrl());
+        assertNull(cache.get(key, 2));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1.0 / 3, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    void shouldKeepPopularEntriesWhenFull() {
+        RouteTable table = table(1);
+        RouteLookupCache cache = new RouteLookupCache(4, 512);
+        for (int i = 0; i < 4; i++) {
+            lookup(cache, table, "/api/users/hot" + i);
+            lookup(cache, table, "/api/users/hot" + i);
+        }
+
+        // One-off paths are seen less often than the hot set and are not admitted
+        for (int i = 0; i < 100; i++) {
+            lookup(cache, table, "/api/users/once" + i);
+        }
+
+        assertEquals(4, cache.size());
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(cache.get(RouteLookupCache.key(RouteRequest.of("/api/users/hot" + i)), 1));
+        }
+        assertTrue(cache.getRejectionCount() > 0);
+    }
+
+    @Test
+    void shouldEvictStaleEntriesFirstAndSkipLongPaths() {
+        RouteLookupCache cache = new RouteLookupCache(2, 20);
+        lookup(cache, table(1), "/api/users/a");
+        lookup(cache, table(1), "/api/users/b");
+
+        lookup(cache, table(2), "/api/users/c");
+        lookup(cache, table(2), "/api/users/with/a/very/long/path");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(RouteLookupCache.key(RouteRequest.of("/api/users/c")), 2));
+    }
+
+    @Test
+    void resolutionShouldCoverReservedRoutedAndFallbackPaths() {
+        RouteTable table = table(1);
+
+        assertTrue(RouteResolution.resolve(table, RouteRequest.of("/proxima/ui")).isReserved());
+        assertNull(RouteResolution.resolve(table, RouteRequest.of("/proxima/ui")).getTargetUrl());
+        assertEquals("http://users.com/1", RouteResolution.resolve(table, RouteRequest.of("/api/users/1")).getTargetUrl());
+        assertEquals("http://default.com/other", RouteResolution.resolve(table, RouteRequest.of("/other")).getTargetUrl());
+        assertNull(RouteResolution.resolve(table, RouteRequest.of("/other")).getRoute());
+    }
+
+    @Test
+    void requestsDifferingOnlyInTheirQueryShareAnEntry() {
+        RouteTable table = table(1);
+        RouteLookupCache cache = new RouteLookupCache(16, 512);
+        lookup(cache, table, "/api/users/1?page=1");
+        lookup(cache, table, "/other?page=1");
+
+        RouteRequest routed = RouteRequest.of("/api/users/1?page=2");
+        RouteResolution hit = cache.get(RouteLookupCache.key(routed), 1);
+        assertNotNull(hit);
+        assertEquals("http://users.com/1?page=2", hit.getTargetUrl(routed));
+        assertEquals("http://users.com/1", hit.getTargetUrl(RouteRequest.of("/api/users/1")));
+
+        RouteRequest fallback = RouteRequest.of("/other?page=3");
+        assertEquals("http://default.com/other?page=3", cache.get(RouteLookupCache.key(fallback), 1).getTargetUrl(fallback));
+        assertEquals(2, cache.size());
+    }
+
+    private static void lookup(RouteLookupCache cache, RouteTable table, String path) {
+        RouteRequest request = RouteRequest.of(path);
+        RouteLookupCache.Key key = RouteLookupCache.key(request);
+        if (cache.get(key, table.getVersion()) == null) {
+            cache.put(key, RouteResolution.resolve(table, request));
+        }
+    }
+
+    private static RouteTable table(long version) {
+        ProximaConfig.ConfigRoute route = new ProximaConfig.ConfigRoute();
+        route.setPathPattern("/api/users/**");
+        route.setTargetUrl("http://users.com");
+        ProximaConfig config = new ProximaConfig();
+        config.getDownstream().setUrl("http://default.com");
+        config.setRoutes(List.of(route));
+        return RouteTable.compile(config, version);
+    }
+}
@@ -0,0 +1,334 @@
+package com.freesidenomad.proxima.service.routing;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import com.freesidenomad.proxima.service.ConfigurationDiff;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteTableTest {
+
+    private static final List<String> PATTERNS = List.of(
+            "/api/users/**", "/api/users/*", "/api/*/details", "/health", "/**", "/static/*.css", "/v1.0/items/*",
+            "/static/*\\.js", "/api/*|/health", "/static/*site.(css|js)", "/abc?*", "/ab+*", "/a{0,1}*"
+    );
+
+    private static final List<String> PATHS = List.of(
+            "/", "/api", "/api/users", "/api/users/", "/api/users/123", "/api/users/123/profile",
+            "/api/usersX", "/api/orders/details", "/api/orders/details/more", "/health", "/health/",
+            "/health/live", "/healthz", "/health?probe=1", "/static/site.css", "/static/site.js",
+            "/v1.0/items/7", "/v1x0/items/7", "/api/users/123?expand=true", "/ab", "/abx", "/abbbx", "/x"
+    );
+
+    @Test
+    void compiledPatternsShouldMatchLikeConfigRoute() {
+        for (String pattern : PATTERNS) {
+            ProximaConfig.ConfigRoute route = route(pattern, "http://target.com", 50);
+            PathPattern compiled = PathPattern.compile(pattern);
+            for (String path : PATHS) {
+                assertEquals(route.matches(path), compiled.matches(path), pattern + " vs " + path);
+                if (compiled.matches(path)) {
+                    assertTrue(path.startsWith(compiled.getLiteralPrefix()), pattern + " prefix vs " + path);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldNotIndexLiteralsMadeOptionalByAQuantifier() {
+        RouteTable optional = RouteTable.compile(config(route("/abc?*", "http://optional.com", 50)), 1);
+        RouteTable repeated = RouteTable.compile(config(route("/ab+*", "http://repeated.com", 50)), 1);
+        RouteTable bounded = RouteTable.compile(config(route("/a{0,1}*", "http://bounded.com", 50)), 1);
+
+        assertEquals("http://optional.com", optional.match("/abx").getRoute().getTargetUrl());
+        assertEquals("http://repeated.com", repeated.match("/abbbx").getRoute().getTargetUrl());
+        assertEquals("http://bounded.com", bounded.match("/x").getRoute().getTargetUrl());
+        assertNull(repeated.match("/ax"));
+    }
+
+    @Test
+    void shouldPreferHigherPriorityThenConfiguredOrder() {
+        ProximaConfig config = config(
+                route("/api/**", "http://catch-all.com", 50),
+                route("/api/users/**", "http://users.com", 50),
+                route("/api/users/admin/**", "http://admin.com", 100)
+        );
+
+        RouteTable table = RouteTable.compile(config, 1);
+
+        assertEquals("http://catch-all.com", table.match("/api/users/1").getRoute().getTargetUrl());
+        assertEquals("http://admin.com", table.match("/api/users/admin/1").getRoute().getTargetUrl());
+        assertNull(table.match("/other"));
+    }
+
+    @Test
+    void shouldIgnoreDisabledRoutes() {
+        ProximaConfig.ConfigRoute disabled = route("/api/**", "http://disabled.com", 50);
+        disabled.setEnabled(false);
+
+        RouteTable table = RouteTable.compile(config(disabled), 1);
+
+        assertNull(table.match("/api/test"));
+        assertEquals(1, table.getRoutes().size());
+        assertEquals(0, table.getIndexedRouteCount());
+    }
+
+    @Test
+    void patchShouldMatchFullRecompilation() {
+        ProximaConfig previous = config(
+                route("/api/users/**", "http://users.com", 50),
+                route("/api/orders/**", "http://orders.com", 50),
+                route("/api/legacy/**", "http://legacy.com", 50)
+        );
+        ProximaConfig current = config(
+                route("/api/users/**", "http://users-v2.com", 50),
+                route("/api/orders/**", "http://orders.com", 50),
+                route("/api/invoices/**", "http://invoices.com", 80)
+        );
+
+        RouteTable original = RouteTable.compile(previous, 1);
+        RouteTable patched = original.patch(ConfigurationDiff.between(previous, current), current, 2);
+        RouteTable rebuilt = RouteTable.compile(current, 2);
+
+        assertEquals(2, patched.getVersion());
+        assertEquals(rebuilt.getIndexedRouteCount(), patched.getIndexedRouteCount());
+        for (String path : List.of("/api/users/1", "/api/orders/1", "/api/invoices/1", "/api/legacy/1")) {
+            CompiledRoute expected = rebuilt.match(path);
+            CompiledRoute actual = patched.match(path);
+            assertEquals(expected == null ? null : expected.getRoute().getTargetUrl(),
+                         actual == null ? null : actual.getRoute().getTargetUrl(), path);
+        }
+
+        // The original table is left untouched
+        assertEquals("http://legacy.com", original.match("/api/legacy/1").getRoute().getTargetUrl());
+        assertEquals("http://users.com", original.match("/api/users/1").getRoute().getTargetUrl());
+    }
+
+    @Test
+    void patchShouldResolvePriorityTiesByNewPositions() {
+        ProximaConfig previous = config(
+                route("/api/**", "http://catch-all.com", 50),
+                route("/api/users/**", "http://users.com", 50)
+        );
+        ProximaConfig current = config(
+                route("/api/users/**", "http://users.com", 50),
+                route("/api/**", "http://catch-all.com", 50)
+        );
+
+        RouteTable original = RouteTable.compile(previous, 1);
+        ConfigurationDiff diff = ConfigurationDiff.between(previous, current);
+        RouteTable patched = original.patch(diff, current, 2);
+
+        assertTrue(diff.getUpsertedRoutes().isEmpty());
+        assertEquals("http://users.com", patched.match("/api/users/1").getRoute().getTargetUrl());
+        assertEquals("http://catch-all.com", original.match("/api/users/1").getRoute().getTargetUrl());
+        // Moved routes keep their compiled form
+        assertSame(original.getRoutes().stream().filter(r -> r.getKey().equals("/api/**")).findFirst().orElseThrow(),
+                   patched.getRoutes().stream().filter(r -> r.getKey().equals("/api/**")).findFirst().orElseThrow());
+    }
+
+    @Test
+    void shouldDispatchByExactThenWildcardThenAnyHost() {
+        ProximaConfig.ConfigRoute exact = route("/api/**", "http://exact.com", 50);
+        exact.setHost("API.Example.com:8443");
+        ProximaConfig.ConfigRoute wildcard = route("/api/**", "http://wildcard.com", 50);
+        wildcard.setHost("*.example.com");
+        ProximaConfig.ConfigRoute nestedWildcard = route("/api/**", "http://nested.com", 50);
+        nestedWildcard.setHost("*.eu.example.com");
+        ProximaConfig.ConfigRoute anyHost = route("/api/**", "http://any.com", 10);
+        ProximaConfig.ConfigRoute status = route("/status", "http://status.com", 10);
+
+        RouteTable table = RouteTable.compile(config(anyHost, status, exact, wildcard, nestedWildcard), 1);
+
+        assertEquals("http://exact.com", target(table, RouteRequest.of("/api/x", "api.example.com", "GET")));
+        assertEquals("http://wildcard.com", target(table, RouteRequest.of("/api/x", "www.example.com", "GET")));
+        assertEquals("http://nested.com", target(table, RouteRequest.of("/api/x", "a.eu.example.com", "GET")));
+        assertEquals("http://any.com", target(table, RouteRequest.of("/api/x", "example.com", "GET")));
+        assertEquals("http://any.com", target(table, RouteRequest.of("/api/x")));
+        // A host-specific table without a matching path falls through to less specific hosts
+        assertEquals("http://status.com", target(table, RouteRequest.of("/status", "api.example.com", "GET")));
+    }
+
+    @Test
+    void shouldMatchMethodsAndHeaders() {
+        ProximaConfig.ConfigRoute writes = route("/api/**", "http://writes.com", 100);
+        writes.setMethods(List.of("post", "PUT", "BREW"));
+        ProximaConfig.ConfigRoute canary = route("/api/**", "http://canary.com", 90);
+        canary.setMatchHeaders(java.util.Map.of("X-Canary", "*", "X-Tenant", "acme"));
+        ProximaConfig.ConfigRoute reads = route("/api/**", "http://reads.com", 50);
+
+        RouteTable table = RouteTable.compile(config(writes, canary, reads), 1);
+
+        assertEquals("http://writes.com", target(table, RouteRequest.of("/api/x", null, "post")));
+        assertEquals("http://reads.com", target(table, RouteRequest.of("/api/x", null, "GET")));
+        assertEquals("http://reads.com", target(table, RouteRequest.of("/api/x")));
+
+        org.springframework.mock.web.MockHttpServletRequest request =
+                new org.springframework.mock.web.MockHttpServletRequest("GET", "/api/x");
+        request.addHeader("X-Canary", "1");
+        request.addHeader("X-Tenant", "acme");
+        assertEquals("http://canary.com", target(table, RouteRequest.from(request, "/api/x")));
+
+        request.removeHeader("X-Tenant");
+        request.addHeader("X-Tenant", "other");
+        assertEquals("http://reads.com", target(table, RouteRequest.from(request, "/api/x")));
+    }
+
+    @Test
+    void shouldEvaluateEachHeaderConditionOncePerLookup() {
+        ProximaConfig.ConfigRoute eu = route("/api/**", "http://eu.com", 90);
+        eu.setMatchHeaders(java.util.Map.of("X-Tenant", "acme", "X-Region", "eu"));
+        ProximaConfig.ConfigRoute us = route("/api/**", "http://us.com", 80);
+        us.setMatchHeaders(java.util.Map.of("X-Tenant", "acme", "X-Region", "us"));
+        ProximaConfig.ConfigRoute tenant = route("/api/**", "http://tenant.com", 70);
+        tenant.setMatchHeaders(java.util.Map.of("X-Tenant", "acme"));
+        ProximaConfig previous = config(eu, us, tenant);
+
+        java.util.List<String> reads = new java.util.ArrayList<>();
+        org.springframework.mock.web.MockHttpServletRequest request =
+                new org.springframework.mock.web.MockHttpServletRequest("GET", "/api/x") {
+                    @Override
+                    public String getHeader(String name) {
+                        reads.add(name.toLowerCase(java.util.Locale.ENGLISH));
+                        return super.getHeader(name);
+                    }
+                };
+        request.addHeader("X-Tenant", "acme");
+        request.addHeader("X-Region", "ap");
+
+        RouteTable table = RouteTable.compile(previous, 1);
+        RouteRequest routeRequest = RouteRequest.from(request, "/api/x");
+        reads.clear();
+        assertEquals("http://tenant.com", target(table, routeRequest));
+        // X-Region is compared against two values, X-Tenant against the one all routes share
+        assertEquals(List.of("x-region", "x-region", "x-tenant"), reads.stream().sorted().toList());
+
+        // Routes shared with a patched table keep their conditions
+        ProximaConfig.ConfigRoute ap = route("/api/**", "http://ap.com", 85);
+        ap.setMatchHeaders(java.util.Map.of("X-Region", "ap"));
+        ProximaConfig current = config(eu, us, tenant, ap);
+        RouteTable patched = table.patch(ConfigurationDiff.between(previous, current), current, 2);
+        assertEquals("http://ap.com", target(patched, RouteRequest.from(request, "/api/x")));
+        request.removeHeader("X-Region");
+        request.addHeader("X-Region", "us");
+        assertEquals("http://us.com", target(patched, RouteRequest.from(request, "/api/x")));
+    }
+
+    @Test
+    void shouldCheckHeadersOneByOneBeyondTheIndexedConditions() {
+        List<ProximaConfig.ConfigRoute> routes = new java.util.ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            ProximaConfig.ConfigRoute variant = route("/api/**", "http://variant" + i + ".com", 50);
+            variant.setMatchHeaders(java.util.Map.of("X-Variant", String.valueOf(i)));
+            routes.add(variant);
+        }
+        RouteTable table = RouteTable.compile(config(routes.toArray(new ProximaConfig.ConfigRoute[0])), 1);
+
+        org.springframework.mock.web.MockHttpServletRequest request =
+                new org.springframework.mock.web.MockHttpServletRequest("GET", "/api/x");
+        request.addHeader("X-Variant", "3");
+        assertEquals("http://variant3.com", target(table, RouteRequest.from(request, "/api/x")));
+        request.removeHeader("X-Variant");
+        request.addHeader("X-Variant", "68");
+        assertEquals("http://variant68.com", target(table, RouteRequest.from(request, "/api/x")));
+    }
+
+    @Test
+    void patchShouldMoveRouteBetweenHosts() {
+        ProximaConfig.ConfigRoute before = route("/api/**", "http://tenant.com", 50);
+        before.setHost("a.example.com");
+        ProximaConfig.ConfigRoute after = route("/api/**", "http://tenant.com", 50);
+        after.setHost("*.example.com");
+        ProximaConfig previous = config(before);
+        ProximaConfig current = config(after);
+
+        RouteTable patched = RouteTable.compile(previous, 1)
+                .patch(ConfigurationDiff.between(previous, current), current, 2);
+
+        assertEquals(1, patched.getIndexedRouteCount());
+        assertEquals("http://tenant.com", target(patched, RouteRequest.of("/api/x", "b.example.com", "GET")));
+        assertNull(patched.match(RouteRequest.of("/api/x", "other.com", "GET")));
+    }
+
+    @Test
+    void reservedPathsShouldCombineBuiltInAndConfiguredPatterns() {
+        ReservedPaths reserved = ReservedPaths.compile(List.of("/oauth2/**", "/.well-known/**", "/internal"));
+
+        assertTrue(reserved.matches("/proxima/ui"));
+        assertTrue(reserved.matches("/actuator/health"));
+        assertTrue(reserved.matches("/"));
+        assertTrue(reserved.matches("/?x=1"));
+        assertTrue(reserved.matches("/oauth2/token"));
+        assertTrue(reserved.matches("/.well-known/jwks.json"));
+        assertTrue(reserved.matches("/internal/status"));
+        assertFalse(reserved.matches("/internalize"));
+        assertFalse(reserved.matches("/api/users"));
+
+        // Built-in prefixes only cover the paths below them, configured ones the prefix as well
+        assertFalse(reserved.matches("/proxima"));
+        assertFalse(reserved.matches("/actuatorx"));
+        assertTrue(reserved.matches("/oauth2"));
+
+        // Repeated slashes neither dodge a reserved prefix nor hit the root
+        assertTrue(reserved.matches("//proxima//ui"));
+        assertTrue(reserved.matches("//"));
+        assertFalse(reserved.matches("//api/users"));
+
+        assertTrue(reserved.overlaps("/oauth2/custom/**"));
+        assertTrue(reserved.overlaps("/proxima/**"));
+        assertTrue(reserved.overlaps("/proxima/*"));
+        assertFalse(reserved.overlaps("/proxima"));
+        assertFalse(reserved.overlaps("/api/**"));
+        assertFalse(reserved.overlaps("/**"));
+    }
+
+    @Test
+    void patchShouldRecompileReservedPathsOnlyWhenChanged() {
+        ProximaConfig previous = config(route("/api/**", "http://api.com", 50));
+        ProximaConfig current = config(route("/api/**", "http://api.com", 50));
+        current.setReservedRoutes(List.of("/api/internal/**"));
+
+        RouteTable original = RouteTable.compile(previous, 1);
+        RouteTable patched = original.patch(ConfigurationDiff.between(previous, current), current, 2);
+        RouteTable unchanged = patched.patch(ConfigurationDiff.between(current, current), current, 3);
+
+        assertFalse(original.isReserved("/api/internal/x"));
+        assertTrue(patched.isReserved("/api/internal/x"));
+        assertSame(patched.getReservedPaths(), unchanged.getReservedPaths());
+    }
+
+    @Test
+    void trieShouldRemoveValuesAndPruneEmptyNodes() {
+        RouteTrie<String> trie = RouteTrie.<String>empty()
+                .with("/api", "api")
+                .with("/api/users", "users");
+
+        RouteTrie<String> pruned = trie.without("/api/users", "users");
+
+        assertEquals(1, pruned.size());
+        assertEquals("api", pruned.select("/api/users/1", value -> true, String::compareTo));
+        assertSame(pruned, pruned.without("/missing", "missing"));
+        assertEquals(2, trie.size());
+    }
+
+    private static String target(RouteTable table, RouteRequest request) {
+        CompiledRoute route = table.match(request);
+        return route != null ? route.getRoute().getTargetUrl() : null;
+    }
+
+    private static ProximaConfig config(ProximaConfig.ConfigRoute... routes) {
+        ProximaConfig config = new ProximaConfig();
+        config.setRoutes(List.of(routes));
+        return config;
+    }
+
+    private static ProximaConfig.ConfigRoute route(String pattern, String target, int priority) {
+        ProximaConfig.ConfigRoute route = new ProximaConfig.ConfigRoute();
+        route.setPathPattern(pattern);
+        route.setTargetUrl(target);
+        route.setPriority(priority);
+        return route;
+    }
+}
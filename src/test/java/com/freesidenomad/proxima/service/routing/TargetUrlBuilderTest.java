@@ -0,0 +1,100 @@
+package com.freesidenomad.proxima.service.routing;
+
+import com.freesidenomad.proxima.model.ProximaConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetUrlBuilderTest {
+
+    @Test
+    void withoutRewritesShouldBuildLikeConfigRoute() {
+        List<String[]> cases = List.of(
+                new String[]{"/api/users/**", "/api/users/123/profile"},
+                new String[]{"/api/users/**", "/api/users/123?expand=true"},
+                new String[]{"/api/users/*", "/api/users/123"},
+                new String[]{"/api/*/details", "/api/orders/details"},
+                new String[]{"/api/status", "/api/status"},
+                new String[]{"/api/status", "/api/status/live"},
+                new String[]{"/api/v1", "/api/v1/test?x=1"}
+        );
+        for (String target : List.of("http://service.com", "http://service.com/", "http://service.com/base")) {
+            for (String[] c : cases) {
+                ProximaConfig.ConfigRoute route = route(c[0], target);
+                assertEquals(route.buildTargetUrl(c[1]), TargetUrlBuilder.compile(route, "test").build(c[1]),
+                             c[0] + " -> " + target + " for " + c[1]);
+            }
+        }
+    }
+
+    @Test
+    void shouldRewriteWithNamedCapturesAndRest() {
+        ProximaConfig.ConfigRoute route = route("/api/v1/**", "http://users.com/");
+        route.setRewrites(List.of(
+                rewrite("/api/v1/users/{id}/**", "/users/{id}/**"),
+                rewrite("/api/v1/orgs/{org}/members/{member}", "/members/{member}?org={org}")
+        ));
+        TargetUrlBuilder builder = TargetUrlBuilder.compile(route, "test");
+
+        assertEquals("http://users.com/users/42/profile/settings", builder.build("/api/v1/users/42/profile/settings"));
+        assertEquals("http://users.com/users/42", builder.build("/api/v1/users/42"));
+        assertEquals("http://users.com/users/42", builder.build("/api/v1/users/42/"));
+        assertEquals("http://users.com/users/42?expand=true", builder.build("/api/v1/users/42?expand=true"));
+        assertEquals("http://users.com/members/7?org=acme&page=2", builder.build("/api/v1/orgs/acme/members/7?page=2"));
+        // Captures never match an empty segment, so this falls back to prefix stripping
+        assertEquals("http://users.com/users//x", builder.build("/api/v1/users//x"));
+        assertNull(builder.findRewrite("/api/v1/other"));
+        assertEquals("http://users.com/other", builder.build("/api/v1/other"));
+    }
+
+    @Test
+    void shouldApplyRegexRulesAndDropQueryWhenConfigured() {
+        ProximaConfig.ConfigRoute route = route("/legacy/**", "http://archive.com");
+        ProximaConfig.ConfigRewrite byYear = new ProximaConfig.ConfigRewrite();
+        byYear.setRegex("/legacy/(?<year>\\d{4})/(.+)\\.html");
+        byYear.setTo("/archive/{year}/{2}");
+        byYear.setQuery("drop");
+        route.setRewrites(List.of(byYear));
+        TargetUrlBuilder builder = TargetUrlBuilder.compile(route, "test");
+
+        assertEquals("http://archive.com/archive/2019/news/launch", builder.build("/legacy/2019/news/launch.html?utm=x"));
+        assertEquals("http://archive.com/about.html", builder.build("/legacy/about.html"));
+        assertSame(byYear, builder.findRewrite("/legacy/2019/a.html").getSource());
+    }
+
+    @Test
+    void shouldRejectInvalidRulesAtCompileTime() {
+        assertThrows(IllegalArgumentException.class, () -> RewriteRule.compile(rewrite("/a/**/b", "/b")));
+        assertThrows(IllegalArgumentException.class, () -> RewriteRule.compile(rewrite("/a/{id}", "/b/{other}")));
+        assertThrows(IllegalArgumentException.class, () -> RewriteRule.compile(rewrite("/a/x{id}", "/b/{id}")));
+        assertThrows(IllegalArgumentException.class, () -> RewriteRule.compile(rewrite("/a/{id}", "/b/**")));
+
+        ProximaConfig.ConfigRewrite badRegex = new ProximaConfig.ConfigRewrite();
+        badRegex.setRegex("/a/(.*");
+        badRegex.setTo("/b");
+        assertThrows(IllegalArgumentException.class, () -> RewriteRule.compile(badRegex));
+
+        // Invalid rules are skipped, the route still forwards by prefix
+        ProximaConfig.ConfigRoute route = route("/a/**", "http://a.com");
+        route.setRewrites(List.of(badRegex));
+        TargetUrlBuilder builder = TargetUrlBuilder.compile(route, "test");
+        assertEquals(0, builder.getRewriteCount());
+        assertEquals("http://a.com/x", builder.build("/a/x"));
+    }
+
+    private static ProximaConfig.ConfigRoute route(String pattern, String target) {
+        ProximaConfig.ConfigRoute route = new ProximaConfig.ConfigRoute();
+        route.setPathPattern(pattern);
+        route.setTargetUrl(target);
+        return route;
+    }
+
+    private static ProximaConfig.ConfigRewrite rewrite(String from, String to) {
+        ProximaConfig.ConfigRewrite rewrite = new ProximaConfig.ConfigRewrite();
+        rewrite.setFrom(from);
+        rewrite.setTo(to);
+        return rewrite;
+    }
+}